@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.benchmarks;
+
+import java.io.StringReader;
+
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.env.SimpleDispatcher;
+import org.apache.commons.scxml2.env.SimpleErrorReporter;
+import org.apache.commons.scxml2.io.SCXMLReader;
+import org.apache.commons.scxml2.model.SCXML;
+
+/**
+ * Generates the representative SCXML documents used by the benchmarks.
+ * <p>
+ * Each chart reacts to the event {@link #EVENT} such that triggering it repeatedly cycles through the same
+ * configurations, so every benchmark invocation performs the same amount of work.
+ * </p>
+ */
+final class BenchmarkCharts {
+
+    /**
+     * The name of the event cycling through the configurations of the charts.
+     */
+    static final String EVENT = "e";
+
+    private static final String SCXML_HEADER = "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\"";
+
+    private static void appendBranch(final StringBuilder sb, final String prefix, final String other, final int depth) {
+        for (int i = 0; i < depth; i++) {
+            sb.append("<state id=\"").append(prefix).append(i).append("\">");
+        }
+        sb.append("<state id=\"").append(prefix).append(depth).append("\">");
+        sb.append("<transition event=\"" + EVENT + "\" target=\"").append(other).append(depth).append("\"/>");
+        sb.append("</state>");
+        for (int i = 0; i < depth; i++) {
+            sb.append("</state>");
+        }
+    }
+
+    /**
+     * Creates a chart with two branches of nested states, toggling between their leaf states which exits and enters
+     * all the states of both branches.
+     *
+     * @param depth the depth of the leaf states
+     * @return the SCXML document
+     */
+    static String deepHierarchy(final int depth) {
+        final StringBuilder sb = new StringBuilder(SCXML_HEADER).append(" initial=\"l").append(depth).append("\">");
+        appendBranch(sb, "l", "r", depth);
+        appendBranch(sb, "r", "l", depth);
+        return sb.append("</scxml>").toString();
+    }
+
+    /**
+     * Creates a chart iterating over an array in the datamodel, summing its items, on each event.
+     *
+     * @param size the size of the array
+     * @return the SCXML document
+     */
+    static String foreach(final int size) {
+        final StringBuilder sb = new StringBuilder(SCXML_HEADER).append(" datamodel=\"jexl\">");
+        sb.append("<datamodel><data id=\"items\" expr=\"[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(i);
+        }
+        sb.append("]\"/><data id=\"sum\" expr=\"0\"/></datamodel>");
+        sb.append("<state id=\"s\"><transition event=\"" + EVENT + "\">");
+        sb.append("<assign location=\"sum\" expr=\"0\"/>");
+        sb.append("<foreach array=\"items\" item=\"item\" index=\"index\">");
+        sb.append("<assign location=\"sum\" expr=\"sum + item\"/>");
+        sb.append("</foreach></transition></state>");
+        return sb.append("</scxml>").toString();
+    }
+
+    /**
+     * Creates a chart with a state having many guarded transitions, of which only the last one is enabled.
+     *
+     * @param datamodel the datamodel, determining the evaluator of the guards
+     * @param guards the number of guarded transitions
+     * @return the SCXML document
+     */
+    static String guards(final String datamodel, final int guards) {
+        final StringBuilder sb = new StringBuilder(SCXML_HEADER).append(" datamodel=\"").append(datamodel)
+                .append("\">");
+        sb.append("<datamodel><data id=\"x\" expr=\"0\"/></datamodel>");
+        sb.append("<state id=\"s\">");
+        for (int i = guards - 1; i > 0; i--) {
+            sb.append("<transition event=\"" + EVENT + "\" cond=\"x == ").append(i).append("\" target=\"s\"/>");
+        }
+        sb.append("<transition event=\"" + EVENT + "\" cond=\"x == 0\" target=\"s\"/>");
+        sb.append("</state>");
+        return sb.append("</scxml>").toString();
+    }
+
+    /**
+     * Creates a chart leaving and re-entering a nested state through its deep history, on alternating events.
+     *
+     * @param depth the depth of the state recorded in the history
+     * @return the SCXML document
+     */
+    static String history(final int depth) {
+        final StringBuilder sb = new StringBuilder(SCXML_HEADER).append(" initial=\"flow\">");
+        sb.append("<state id=\"flow\" initial=\"h0\">");
+        sb.append("<history id=\"hist\" type=\"deep\"><transition target=\"h").append(depth).append("\"/></history>");
+        for (int i = 0; i <= depth; i++) {
+            sb.append("<state id=\"h").append(i).append("\">");
+        }
+        for (int i = 0; i <= depth; i++) {
+            sb.append("</state>");
+        }
+        sb.append("<transition event=\"" + EVENT + "\" target=\"paused\"/>");
+        sb.append("</state>");
+        sb.append("<state id=\"paused\"><transition event=\"" + EVENT + "\" target=\"hist\"/></state>");
+        return sb.append("</scxml>").toString();
+    }
+
+    /**
+     * Creates and starts an executor for a chart.
+     *
+     * @param chart the SCXML document
+     * @return the started executor
+     * @throws Exception if the document cannot be parsed or the state machine cannot be started
+     */
+    static SCXMLExecutor newExecutor(final String chart) throws Exception {
+        final SCXMLExecutor exec = new SCXMLExecutor(null, new SimpleDispatcher(), new SimpleErrorReporter());
+        exec.setStateMachine(parse(chart));
+        exec.go();
+        return exec;
+    }
+
+    /**
+     * @param chart the SCXML document
+     * @return the parsed state machine
+     * @throws Exception if the document cannot be parsed
+     */
+    static SCXML parse(final String chart) throws Exception {
+        return SCXMLReader.read(new StringReader(chart));
+    }
+
+    /**
+     * Creates a chart with a &lt;parallel&gt; of many regions, each toggling between two states on each event.
+     *
+     * @param regions the number of regions
+     * @return the SCXML document
+     */
+    static String wideParallel(final int regions) {
+        final StringBuilder sb = new StringBuilder(SCXML_HEADER).append(">");
+        sb.append("<parallel id=\"p\">");
+        for (int i = 0; i < regions; i++) {
+            sb.append("<state id=\"r").append(i).append("\" initial=\"r").append(i).append("a\">");
+            sb.append("<state id=\"r").append(i).append("a\"><transition event=\"" + EVENT + "\" target=\"r")
+                    .append(i).append("b\"/></state>");
+            sb.append("<state id=\"r").append(i).append("b\"><transition event=\"" + EVENT + "\" target=\"r")
+                    .append(i).append("a\"/></state>");
+            sb.append("</state>");
+        }
+        sb.append("</parallel>");
+        return sb.append("</scxml>").toString();
+    }
+
+    /**
+     * Discourage instantiation since this is a utility class.
+     */
+    private BenchmarkCharts() {
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.scxml2.io.SCXMLReader;
+import org.apache.commons.scxml2.model.SCXML;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the number of documents per second parsed by {@link SCXMLReader}, for the charts of the
+ * {@link TriggerEventBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SCXMLReaderBenchmark {
+
+    /**
+     * The chart: {@code deep}, {@code parallel}, {@code guards}, {@code history} or {@code foreach}.
+     */
+    @Param({"deep", "parallel", "guards", "history", "foreach"})
+    public String chart;
+
+    /**
+     * The size of the chart: the depth of the hierarchy, the number of regions, guards or foreach items.
+     */
+    @Param({"10", "100"})
+    public int size;
+
+    private String document;
+
+    @Setup
+    public void setUp() {
+        switch (chart) {
+            case "deep":
+                document = BenchmarkCharts.deepHierarchy(size);
+                break;
+            case "parallel":
+                document = BenchmarkCharts.wideParallel(size);
+                break;
+            case "guards":
+                document = BenchmarkCharts.guards("jexl", size);
+                break;
+            case "history":
+                document = BenchmarkCharts.history(size);
+                break;
+            case "foreach":
+                document = BenchmarkCharts.foreach(size);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown chart: " + chart);
+        }
+    }
+
+    @Benchmark
+    public SCXML read() throws Exception {
+        return BenchmarkCharts.parse(document);
+    }
+}
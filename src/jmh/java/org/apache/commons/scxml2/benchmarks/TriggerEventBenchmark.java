@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.scxml2.EvaluatorFactory;
+import org.apache.commons.scxml2.EventBuilder;
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.TriggerEvent;
+import org.apache.commons.scxml2.env.lambda.LambdaEvaluator;
+import org.apache.commons.scxml2.model.ModelException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the number of events per second processed by {@link SCXMLExecutor#triggerEvent(TriggerEvent)} for
+ * representative charts, see {@link BenchmarkCharts}.
+ * <p>
+ * Run with the {@code gc} profiler (the default of the {@code benchmark} profile) to also measure the allocations per
+ * event.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TriggerEventBenchmark {
+
+    /**
+     * The chart: {@code deep}, {@code parallel}, {@code guards-jexl}, {@code guards-groovy},
+     * {@code guards-ecmascript}, {@code guards-lambda}, {@code history} or {@code foreach}.
+     */
+    @Param({"deep", "parallel", "guards-jexl", "guards-groovy", "guards-ecmascript", "guards-lambda", "history",
+            "foreach"})
+    public String chart;
+
+    /**
+     * The size of the chart: the depth of the hierarchy, the number of regions, guards or foreach items.
+     */
+    @Param({"10"})
+    public int size;
+
+    private SCXMLExecutor executor;
+
+    private TriggerEvent event;
+
+    private static String newChart(final String chart, final int size) {
+        switch (chart) {
+            case "deep":
+                return BenchmarkCharts.deepHierarchy(size);
+            case "parallel":
+                return BenchmarkCharts.wideParallel(size);
+            case "guards-jexl":
+                return BenchmarkCharts.guards("jexl", size);
+            case "guards-groovy":
+                return BenchmarkCharts.guards("groovy", size);
+            case "guards-ecmascript":
+                return BenchmarkCharts.guards("ecmascript", size);
+            case "guards-lambda":
+                return BenchmarkCharts.guards(LambdaEvaluator.SUPPORTED_DATA_MODEL, size);
+            case "history":
+                return BenchmarkCharts.history(size);
+            case "foreach":
+                return BenchmarkCharts.foreach(size);
+            default:
+                throw new IllegalArgumentException("Unknown chart: " + chart);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        EvaluatorFactory.registerEvaluatorProvider(new LambdaEvaluator.LambdaEvaluatorProvider());
+        executor = BenchmarkCharts.newExecutor(newChart(chart, size));
+        event = new EventBuilder(BenchmarkCharts.EVENT, TriggerEvent.SIGNAL_EVENT).build();
+    }
+
+    @Benchmark
+    public SCXMLExecutor triggerEvent() throws ModelException {
+        executor.triggerEvent(event);
+        return executor;
+    }
+}
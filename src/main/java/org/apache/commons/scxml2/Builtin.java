@@ -18,6 +18,8 @@ package org.apache.commons.scxml2;
 
 import java.io.Serializable;
 
+import org.apache.commons.scxml2.model.EnterableState;
+
 /**
  * Implements the SCXML specification required In() builtin predicate.
  */
@@ -40,7 +42,23 @@ public class Builtin implements Serializable {
      * @return Whether this State is current active
      */
     public static boolean isMember(final Context ctx, final String state) {
-        return ((Status)ctx.getSystemContext().getPlatformVariables().get(SCXMLSystemContext.STATUS_KEY)).isInState(state);
+        return getStatus(ctx).isInState(state);
+    }
+
+    /**
+     * Implements the In() predicate for a state which already has been resolved from its ID, for instance when the
+     * ID is a literal in an expression which is compiled up front.
+     *
+     * @param ctx variable context
+     * @param state The State to check
+     * @return Whether this State is current active
+     */
+    public static boolean isMember(final Context ctx, final EnterableState state) {
+        return getStatus(ctx).isInState(state);
+    }
+
+    private static Status getStatus(final Context ctx) {
+        return (Status)ctx.getSystemContext().getPlatformVariables().get(SCXMLSystemContext.STATUS_KEY);
     }
 }
 
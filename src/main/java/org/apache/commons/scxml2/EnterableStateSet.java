@@ -0,0 +1,453 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.scxml2.model.DocumentOrder;
+import org.apache.commons.scxml2.model.EnterableState;
+
+/**
+ * A Set of {@link EnterableState}s of a single SCXML document, keyed on their {@link DocumentOrder document order}
+ * and backed by a {@link BitSet}.
+ * <p>
+ * Membership checks, adding and removing states are O(1), and the states are iterated in document order (or in
+ * reverse document order, see {@link #descendingIterator()}) without the need for sorting.
+ * </p>
+ * <p>
+ * The states also can be navigated by their index in this set, without allocating an iterator:
+ * </p>
+ * <pre>
+ * for (int i = set.firstIndex(); i &gt; -1; i = set.nextIndex(i)) {
+ *     final EnterableState state = set.get(i);
+ * }
+ * </pre>
+ * <p>
+ * The descendants of a state (as initialized by the SCXMLReader) have a contiguous document order range following
+ * the document order of the state itself, which allows selecting the active descendants of a state by a single
+ * range scan, see {@link #addRangeTo(int, int, Collection)}.
+ * </p>
+ * <p>
+ * Note: states which have not been assigned a unique document order, which only can happen for a SCXML model which
+ * hasn't been processed by the SCXMLReader, are kept separately and iterated after (or before when descending) all the
+ * other states.
+ * </p>
+ */
+public final class EnterableStateSet extends AbstractSet<EnterableState> implements Serializable {
+
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    private static final EnterableState[] NO_STATES = {};
+
+    /**
+     * The document order of the states in this set.
+     */
+    private final BitSet orders;
+
+    /**
+     * The states in this set, indexed by their document order.
+     */
+    private EnterableState[] states;
+
+    /**
+     * The states in this set which document order is already taken by another state in this set, null if none.
+     */
+    private EnterableState[] unorderedStates;
+
+    /**
+     * The position of the states in the unorderedStates, null if none.
+     */
+    private Map<EnterableState, Integer> unordered;
+
+    /**
+     * The number of states in this set.
+     */
+    private int size;
+
+    /**
+     * Flag indicating this set only can be modified through its package private methods.
+     */
+    private final boolean readOnly;
+
+    /**
+     * Constructs a new empty set.
+     */
+    public EnterableStateSet() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new empty set which, if read only, only can be modified through its package private methods.
+     *
+     * @param readOnly flag indicating if this set is read only
+     */
+    EnterableStateSet(final boolean readOnly) {
+        this.orders = new BitSet();
+        this.states = NO_STATES;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Constructs a new set containing the provided states.
+     *
+     * @param states the states to add
+     */
+    public EnterableStateSet(final Collection<? extends EnterableState> states) {
+        if (states instanceof EnterableStateSet) {
+            final EnterableStateSet other = (EnterableStateSet) states;
+            this.orders = (BitSet) other.orders.clone();
+            this.states = Arrays.copyOf(other.states, other.orders.length());
+            if (other.unordered != null) {
+                this.unordered = new HashMap<>(other.unordered);
+                this.unorderedStates = other.unorderedStates.clone();
+            }
+            this.size = other.size;
+        }
+        else {
+            this.orders = new BitSet();
+            this.states = NO_STATES;
+            for (final EnterableState es : states) {
+                addState(es);
+            }
+        }
+        this.readOnly = false;
+    }
+
+    private class StateIterator implements Iterator<EnterableState> {
+
+        private final boolean descending;
+        private int next;
+        private int current = -1;
+
+        StateIterator(final boolean descending) {
+            this.descending = descending;
+            this.next = descending ? lastIndex() : firstIndex();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next > -1;
+        }
+
+        @Override
+        public EnterableState next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = descending ? previousIndex(next) : nextIndex(next);
+            return get(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            if (!EnterableStateSet.this.remove(get(current))) {
+                // concurrently removed
+                throw new IllegalStateException();
+            }
+            if (!descending && current >= states.length && current - states.length < unordered.size()) {
+                // the last (not yet iterated) unordered state has been moved into the position of the removed state
+                next = current;
+            }
+            current = -1;
+        }
+    }
+
+    @Override
+    public boolean add(final EnterableState state) {
+        checkModifiable();
+        return addState(state);
+    }
+
+    /**
+     * Adds the states in this set within a document order range to a collection, in document order.
+     * <p>
+     * Note: states without a unique document order (see {@link #isDocumentOrdered()}) are not considered.
+     * </p>
+     *
+     * @param fromOrder the lowest document order to include
+     * @param toOrder the highest document order to include
+     * @param target the collection to add the states to
+     */
+    public void addRangeTo(final int fromOrder, final int toOrder, final Collection<? super EnterableState> target) {
+        for (int i = orders.nextSetBit(Math.max(fromOrder, 0)); i > -1 && i <= toOrder; i = orders.nextSetBit(i+1)) {
+            target.add(states[i]);
+        }
+    }
+
+    boolean addState(final EnterableState state) {
+        final int order = state.getOrder();
+        if (order > -1) {
+            if (order >= states.length) {
+                states = Arrays.copyOf(states, Math.max(order+1, states.length*2));
+            }
+            if (states[order] == null) {
+                states[order] = state;
+                orders.set(order);
+                size++;
+                return true;
+            }
+            if (states[order] == state) {
+                return false;
+            }
+        }
+        if (unordered == null) {
+            unordered = new HashMap<>();
+            unorderedStates = new EnterableState[4];
+        }
+        else if (unordered.containsKey(state)) {
+            return false;
+        }
+        final int position = unordered.size();
+        if (position == unorderedStates.length) {
+            unorderedStates = Arrays.copyOf(unorderedStates, position*2);
+        }
+        unorderedStates[position] = state;
+        unordered.put(state, position);
+        size++;
+        return true;
+    }
+
+    private void checkModifiable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    public void clear() {
+        checkModifiable();
+        clearStates();
+    }
+
+    void clearStates() {
+        for (int i = orders.nextSetBit(0); i > -1; i = orders.nextSetBit(i+1)) {
+            states[i] = null;
+        }
+        orders.clear();
+        unordered = null;
+        unorderedStates = null;
+        size = 0;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if (o instanceof EnterableState) {
+            final int order = ((EnterableState) o).getOrder();
+            if (order > -1 && order < states.length && states[order] == o) {
+                return true;
+            }
+            return unordered != null && unordered.containsKey(o);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsAll(final Collection<?> c) {
+        if (c instanceof EnterableStateSet) {
+            final EnterableStateSet other = (EnterableStateSet) c;
+            if (other.size > size) {
+                return false;
+            }
+            if (other.unordered == null) {
+                final BitSet missing = (BitSet) other.orders.clone();
+                missing.andNot(orders);
+                if (!missing.isEmpty()) {
+                    return false;
+                }
+                for (int i = other.orders.nextSetBit(0); i > -1; i = other.orders.nextSetBit(i+1)) {
+                    if (states[i] != other.states[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return super.containsAll(c);
+    }
+
+    /**
+     * @return an iterator over the states in this set in reverse document order
+     */
+    public Iterator<EnterableState> descendingIterator() {
+        return new StateIterator(true);
+    }
+
+    /**
+     * @return the index of the first state in this set, or -1 if this set is empty
+     * @see #get(int)
+     */
+    public int firstIndex() {
+        final int index = orders.nextSetBit(0);
+        return index > -1 ? index : firstUnorderedIndex();
+    }
+
+    private int firstUnorderedIndex() {
+        return unordered != null && !unordered.isEmpty() ? states.length : -1;
+    }
+
+    /**
+     * Gets the state at an index as provided by {@link #firstIndex()}, {@link #nextIndex(int)}, {@link #lastIndex()}
+     * or {@link #previousIndex(int)}.
+     * <p>
+     * Note: the index of a state only is valid as long as this set is not modified.
+     * </p>
+     *
+     * @param index the index of the state
+     * @return the state at the index
+     */
+    public EnterableState get(final int index) {
+        return index < states.length ? states[index] : unorderedStates[index - states.length];
+    }
+
+    /**
+     * Checks if this set and another set have any state in common.
+     *
+     * @param other the other set
+     * @return true if this set contains at least one state of the other set
+     */
+    public boolean intersects(final EnterableStateSet other) {
+        if (unordered == null && other.unordered == null) {
+            if (orders.intersects(other.orders)) {
+                final BitSet common = (BitSet) orders.clone();
+                common.and(other.orders);
+                for (int i = common.nextSetBit(0); i > -1; i = common.nextSetBit(i+1)) {
+                    if (states[i] == other.states[i]) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        final EnterableStateSet smaller = size < other.size ? this : other;
+        final EnterableStateSet larger = smaller == this ? other : this;
+        for (final EnterableState es : smaller) {
+            if (larger.contains(es)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if all the states in this set have a unique document order
+     */
+    public boolean isDocumentOrdered() {
+        return unordered == null || unordered.isEmpty();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return an iterator over the states in this set in document order
+     */
+    @Override
+    public Iterator<EnterableState> iterator() {
+        return new StateIterator(false);
+    }
+
+    /**
+     * @return the index of the last state in this set, or -1 if this set is empty
+     * @see #get(int)
+     */
+    public int lastIndex() {
+        if (unordered != null && !unordered.isEmpty()) {
+            return states.length + unordered.size() - 1;
+        }
+        return orders.length() - 1;
+    }
+
+    /**
+     * @param index the index of a state in this set
+     * @return the index of the next state in this set, or -1 if there is none
+     * @see #get(int)
+     */
+    public int nextIndex(final int index) {
+        if (index < states.length) {
+            final int next = orders.nextSetBit(index+1);
+            return next > -1 ? next : firstUnorderedIndex();
+        }
+        return index - states.length + 1 < unordered.size() ? index + 1 : -1;
+    }
+
+    /**
+     * @param index the index of a state in this set
+     * @return the index of the previous state in this set, or -1 if there is none
+     * @see #get(int)
+     */
+    public int previousIndex(final int index) {
+        if (index > states.length) {
+            return index - 1;
+        }
+        return orders.previousSetBit(Math.min(index, states.length) - 1);
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        checkModifiable();
+        return removeState(o);
+    }
+
+    boolean removeState(final Object o) {
+        if (o instanceof EnterableState) {
+            final int order = ((EnterableState) o).getOrder();
+            if (order > -1 && order < states.length && states[order] == o) {
+                states[order] = null;
+                orders.clear(order);
+                size--;
+                return true;
+            }
+            if (unordered != null) {
+                final Integer position = unordered.remove(o);
+                if (position != null) {
+                    // move the last unordered state into the position of the removed state
+                    final int last = unordered.size();
+                    if (position != last) {
+                        unorderedStates[position] = unorderedStates[last];
+                        unordered.put(unorderedStates[position], position);
+                    }
+                    unorderedStates[last] = null;
+                    size--;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -16,12 +16,55 @@
  */
 package org.apache.commons.scxml2;
 
+import java.util.List;
+
+import org.apache.commons.scxml2.model.ModelExpressions;
+
 /**
  * Interface for a component that may be used by the SCXML engines to
  * evaluate the expressions within the SCXML document.
  */
 public interface Evaluator {
 
+    /**
+     * A location expression compiled by {@link Evaluator#compileAssign(String)}, assigning data to the location.
+     */
+    @FunctionalInterface
+    interface Assigner {
+
+        /**
+         * Assigns data to the compiled location
+         *
+         * @param ctx variable context
+         * @param data the data to assign.
+         * @throws SCXMLExpressionException if the data cannot be assigned to the location
+         */
+        void assign(Context ctx, Object data) throws SCXMLExpressionException;
+    }
+
+    /**
+     * Handles the conditions treated as false by {@link Evaluator#evalFirstCond(Context, List, CondHandler)}.
+     */
+    @FunctionalInterface
+    interface CondHandler {
+
+        /**
+         * Handles a condition which cannot be evaluated.
+         *
+         * @param e the error evaluating the condition
+         * @param index the index of the condition
+         */
+        void onError(SCXMLExpressionException e, int index);
+
+        /**
+         * Handles a condition evaluated as null. Does nothing by default.
+         *
+         * @param index the index of the condition
+         */
+        default void onNull(final int index) {
+        }
+    }
+
     /** SCXML 1.0 Null Data Model name **/
     String NULL_DATA_MODEL = "null";
 
@@ -37,6 +80,22 @@ public interface Evaluator {
      */
     Object cloneData(Object data);
 
+    /**
+     * Compiles a location expression into an {@link Assigner} which can be reused to assign data to the location,
+     * for example for each iteration of a &lt;foreach&gt;.
+     * <p>
+     * The default implementation doesn't compile anything, and delegates each assignment to
+     * {@link #evalAssign(Context, String, Object)}.
+     * </p>
+     *
+     * @param location location expression
+     * @return the assigner for the location
+     * @throws SCXMLExpressionException A malformed expression exception
+     */
+    default Assigner compileAssign(final String location) throws SCXMLExpressionException {
+        return (ctx, data) -> evalAssign(ctx, location, data);
+    }
+
     /**
      * Evaluate an expression returning a data value
      *
@@ -72,6 +131,44 @@ public interface Evaluator {
     Boolean evalCond(Context ctx, String expr)
     throws SCXMLExpressionException;
 
+    /**
+     * Evaluates an ordered list of conditions against the same context, like the guards of the candidate transitions
+     * of a state, until the first condition evaluating to true.
+     * <p>
+     * A null condition is treated as true. A condition evaluating to null, or which cannot be evaluated, is treated as
+     * false: it is passed to the condHandler by its index, together with the error if any, and the evaluation
+     * continues with the next condition.
+     * </p>
+     * <p>
+     * The default implementation evaluates each condition through {@link #evalCond(Context, String)}. Evaluators may
+     * override it to prepare the context only once for all the conditions.
+     * </p>
+     *
+     * @param ctx variable context
+     * @param conditions the conditions to evaluate, in order
+     * @param condHandler the handler of the conditions evaluated as null or which cannot be evaluated
+     * @return the index of the first condition evaluating to true, or -1 if none
+     */
+    default int evalFirstCond(final Context ctx, final List<String> conditions, final CondHandler condHandler) {
+        for (int i = 0, size = conditions.size(); i < size; i++) {
+            final String cond = conditions.get(i);
+            if (cond == null) {
+                return i;
+            }
+            try {
+                final Boolean result = evalCond(ctx, cond);
+                if (result == null) {
+                    condHandler.onNull(i);
+                } else if (result) {
+                    return i;
+                }
+            } catch (final SCXMLExpressionException e) {
+                condHandler.onError(e, i);
+            }
+        }
+        return -1;
+    }
+
     /**
      * Evaluate a script.
      * Manifests as &lt;script&gt; element.
@@ -99,6 +196,21 @@ public interface Evaluator {
      */
     Context newContext(Context parent);
 
+    /**
+     * Compiles, and caches, an expression of a document up front, so that it doesn't need to be compiled when it is
+     * first evaluated, see {@link ExpressionPrecompiler}.
+     * <p>
+     * The default implementation doesn't compile anything. Implementations must support being called concurrently for
+     * different expressions.
+     * </p>
+     *
+     * @param kind the kind of the expression, determining how it will be evaluated
+     * @param source the expression
+     * @throws SCXMLExpressionException if the expression cannot be compiled
+     */
+    default void precompile(final ModelExpressions.Kind kind, final String source) throws SCXMLExpressionException {
+    }
+
     /**
      * If this Evaluator only supports a global context.
      *
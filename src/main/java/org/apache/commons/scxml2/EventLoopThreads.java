@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates the threads running the event loop of an {@link SCXMLExecutor}, see {@link SCXMLExecutor#run()}.
+ * <p>
+ * Virtual threads are created through reflection, as these are only available on Java 21 and later.
+ * </p>
+ */
+final class EventLoopThreads {
+
+    /**
+     * The {@code Thread.ofVirtual()} method, null if virtual threads are not supported.
+     */
+    private static final Method OF_VIRTUAL;
+
+    /**
+     * The {@code Thread.Builder.unstarted(Runnable)} method, null if virtual threads are not supported.
+     */
+    private static final Method UNSTARTED;
+
+    static {
+        Method ofVirtual = null;
+        Method unstarted = null;
+        try {
+            final Method method = Thread.class.getMethod("ofVirtual");
+            // fails if only available as preview feature
+            method.invoke(null);
+            ofVirtual = method;
+            unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        UNSTARTED = ofVirtual != null ? unstarted : null;
+    }
+
+    /**
+     * @return true if virtual threads are supported by the Java runtime
+     */
+    static boolean isVirtualThreadsSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a new, not yet started, thread.
+     *
+     * @param task the task to run
+     * @param virtual true to create a virtual thread, if supported by the Java runtime
+     * @return the new thread, a platform thread if virtual threads are not requested or not supported
+     */
+    static Thread newThread(final Runnable task, final boolean virtual) {
+        if (virtual && OF_VIRTUAL != null) {
+            try {
+                return (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(null), task);
+            } catch (final ReflectiveOperationException e) {
+                throw new IllegalStateException("Unable to create a virtual thread", e);
+            }
+        }
+        return new Thread(task);
+    }
+
+    /**
+     * Discourage instantiation since this is a utility class.
+     */
+    private EventLoopThreads() {
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.scxml2.model.ModelExpressions;
+import org.apache.commons.scxml2.model.SCXML;
+import org.apache.commons.scxml2.semantics.ErrorConstants;
+
+/**
+ * Compiles all the expressions of a SCXML document up front, in parallel, with the
+ * {@link Evaluator#precompile(ModelExpressions.Kind, String)} of an Evaluator.
+ * <p>
+ * This warms the caches of the Evaluator, so that executing the document doesn't need to compile any expression,
+ * which otherwise is done when an expression is first evaluated. As the compiled expressions are cached by the
+ * Evaluator, the warmed Evaluator needs to be used to execute the document, for example:
+ * </p>
+ * <pre>
+ * final Evaluator evaluator = EvaluatorFactory.getEvaluator(scxml);
+ * ExpressionPrecompiler.precompile(scxml, evaluator, errorReporter);
+ * final SCXMLExecutor executor = new SCXMLExecutor(evaluator, dispatcher, errorReporter);
+ * executor.setStateMachine(scxml);
+ * </pre>
+ * <p>
+ * Expressions which cannot be compiled are reported to the {@link ErrorReporter} as
+ * {@link ErrorConstants#EXPRESSION_ERROR}, for each element defining the expression, in document order.
+ * </p>
+ */
+public final class ExpressionPrecompiler {
+
+    /**
+     * A distinct expression of a document, and the elements defining it.
+     */
+    private static final class Expression implements Callable<SCXMLExpressionException> {
+
+        private final ModelExpressions.Kind kind;
+        private final String source;
+        private final List<Object> elements = new ArrayList<>();
+        private final Evaluator evaluator;
+
+        Expression(final ModelExpressions.Kind kind, final String source, final Evaluator evaluator) {
+            this.kind = kind;
+            this.source = source;
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        public SCXMLExpressionException call() {
+            try {
+                evaluator.precompile(kind, source);
+                return null;
+            } catch (final SCXMLExpressionException e) {
+                return e;
+            }
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Expression)) {
+                return false;
+            }
+            final Expression other = (Expression) obj;
+            return kind == other.kind && source.equals(other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, source);
+        }
+    }
+
+    /**
+     * Compiles all the expressions of a SCXML document, in parallel on the common ForkJoinPool.
+     * <p>
+     * Each distinct expression is compiled only once, even if it is defined by multiple elements.
+     * </p>
+     *
+     * @param document the SCXML document
+     * @param evaluator the Evaluator to compile the expressions with
+     * @param errorReporter the ErrorReporter to report the expressions which cannot be compiled to
+     * @return the number of distinct expressions which cannot be compiled
+     */
+    public static int precompile(final SCXML document, final Evaluator evaluator, final ErrorReporter errorReporter) {
+        return precompile(document, evaluator, errorReporter, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compiles all the expressions of a SCXML document, in parallel on a ForkJoinPool.
+     * <p>
+     * Each distinct expression is compiled only once, even if it is defined by multiple elements.
+     * </p>
+     *
+     * @param document the SCXML document
+     * @param evaluator the Evaluator to compile the expressions with
+     * @param errorReporter the ErrorReporter to report the expressions which cannot be compiled to
+     * @param pool the ForkJoinPool to compile the expressions on
+     * @return the number of distinct expressions which cannot be compiled
+     */
+    public static int precompile(final SCXML document, final Evaluator evaluator, final ErrorReporter errorReporter,
+                                 final ForkJoinPool pool) {
+        final Map<Expression, Expression> expressions = new LinkedHashMap<>();
+        ModelExpressions.visit(document, (kind, source, element) ->
+            expressions.computeIfAbsent(new Expression(kind, source, evaluator), e -> e).elements.add(element));
+        final List<Expression> tasks = new ArrayList<>(expressions.keySet());
+        final List<Future<SCXMLExpressionException>> results = pool.invokeAll(tasks);
+        int errors = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            final SCXMLExpressionException error = getError(results.get(i));
+            if (error != null) {
+                errors++;
+                for (final Object errCtx : tasks.get(i).elements) {
+                    errorReporter.onError(ErrorConstants.EXPRESSION_ERROR, error.getMessage(), errCtx);
+                }
+            }
+        }
+        return errors;
+    }
+
+    private static SCXMLExpressionException getError(final Future<SCXMLExpressionException> result) {
+        try {
+            return result.get();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return new SCXMLExpressionException(cause.getMessage(), cause);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new SCXMLExpressionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Discourage instantiation since this is a utility class.
+     */
+    private ExpressionPrecompiler() {
+    }
+}
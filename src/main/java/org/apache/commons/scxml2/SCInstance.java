@@ -20,12 +20,12 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import org.apache.commons.scxml2.env.CopyOnWriteData;
 import org.apache.commons.scxml2.env.SimpleContext;
 import org.apache.commons.scxml2.env.javascript.JSEvaluator;
 import org.apache.commons.scxml2.io.ContentParser;
@@ -34,6 +34,7 @@ import org.apache.commons.scxml2.model.Datamodel;
 import org.apache.commons.scxml2.model.EnterableState;
 import org.apache.commons.scxml2.model.History;
 import org.apache.commons.scxml2.model.ModelException;
+import org.apache.commons.scxml2.model.ParsedValue;
 import org.apache.commons.scxml2.model.SCXML;
 import org.apache.commons.scxml2.model.TransitionalState;
 import org.apache.commons.scxml2.semantics.ErrorConstants;
@@ -130,6 +131,12 @@ public class SCInstance implements Serializable {
      */
     private boolean singleContext;
 
+    /**
+     * Flag indicating if the Map and List values of the datamodel are initialized as copy-on-write views of the values
+     * parsed from the document, instead of deep clones (default false)
+     */
+    private boolean copyOnWriteDatamodel;
+
     /**
      * Constructs a new instance.
      *
@@ -146,6 +153,21 @@ public class SCInstance implements Serializable {
         this.currentStatus = new Status(stateConfiguration);
     }
 
+    /**
+     * Clones a value parsed from the document for a &lt;data&gt; element, or creates a copy-on-write view of it
+     * if {@link #isCopyOnWriteDatamodel()}.
+     *
+     * @param data The parsed value.
+     * @param evaluator The expression evaluator.
+     * @return the cloned value or its copy-on-write view
+     */
+    private Object cloneData(final Object data, final Evaluator evaluator) {
+        if (copyOnWriteDatamodel && CopyOnWriteData.isSupported(data)) {
+            return CopyOnWriteData.view(data);
+        }
+        return evaluator.cloneData(data);
+    }
+
     /**
      * Clone data model.
      *
@@ -178,8 +200,10 @@ public class SCInstance implements Serializable {
                     resolvedSrc = pr.resolvePath(resolvedSrc);
                 }
                 try {
-                    datum.setParsedValue(ContentParser.DEFAULT_PARSER.parseResource(resolvedSrc));
-                    value = evaluator.cloneData(datum.getParsedValue().getValue());
+                    // not stored in the datum, as the object model may be shared by concurrent executors, and
+                    // not cloned either, as the freshly parsed value is owned by this instance only
+                    final ParsedValue parsedValue = ContentParser.DEFAULT_PARSER.parseResource(resolvedSrc);
+                    value = parsedValue.getValue();
                     setValue = true;
                 } catch (final IOException e) {
                     if (internalIOProcessor != null) {
@@ -200,7 +224,7 @@ public class SCInstance implements Serializable {
                 }
             } else {
                 if (datum.getParsedValue() != null) {
-                    value = evaluator.cloneData(datum.getParsedValue().getValue());
+                    value = cloneData(datum.getParsedValue().getValue(), evaluator);
                 }
                 setValue = true;
             }
@@ -410,6 +434,14 @@ public class SCInstance implements Serializable {
         }
     }
 
+    /**
+     * @return if the Map and List values of the datamodel are initialized as copy-on-write views
+     * @see #setCopyOnWriteDatamodel(boolean)
+     */
+    public boolean isCopyOnWriteDatamodel() {
+        return copyOnWriteDatamodel;
+    }
+
     /**
      * @return if the state machine is running
      */
@@ -511,7 +543,7 @@ public class SCInstance implements Serializable {
      */
     public void setLastConfiguration(final History history,
             final Set<EnterableState> lc) {
-        histories.put(history, new HashSet<>(lc));
+        histories.put(history, new EnterableStateSet(lc));
     }
 
     /**
@@ -529,6 +561,21 @@ public class SCInstance implements Serializable {
         }
     }
 
+    /**
+     * Sets if the Map and List values parsed from the document for the &lt;data&gt; elements, like JSON data, are
+     * initialized as copy-on-write views instead of being deep cloned by the {@link Evaluator#cloneData(Object)}
+     * (default false).
+     * <p>
+     * The parsed values then are shared by all the sessions of the same document, and only the parts which a session
+     * navigates into or modifies are copied, see {@link CopyOnWriteData}.
+     * </p>
+     *
+     * @param copyOnWriteDatamodel flag to set
+     */
+    public void setCopyOnWriteDatamodel(final boolean copyOnWriteDatamodel) {
+        this.copyOnWriteDatamodel = copyOnWriteDatamodel;
+    }
+
     public void setSingleContext(final boolean singleContext) throws ModelException {
         if (initialized) {
             throw new ModelException("SCInstance: already initialized");
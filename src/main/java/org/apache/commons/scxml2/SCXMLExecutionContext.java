@@ -33,6 +33,7 @@ import org.apache.commons.scxml2.invoke.SimpleSCXMLInvoker;
 import org.apache.commons.scxml2.model.Invoke;
 import org.apache.commons.scxml2.model.ModelException;
 import org.apache.commons.scxml2.model.SCXML;
+import org.apache.commons.scxml2.semantics.Step;
 
 /**
  * SCXMLExecutionContext provides all the services and internal data used during the interpretation of an SCXML
@@ -125,6 +126,22 @@ public class SCXMLExecutionContext implements SCXMLIOProcessor {
      */
     private boolean checkLegalConfiguration = true;
 
+    /**
+     * Flag indicating if the Step (and its scratch structures) used for processing events should be reused
+     * (default = false)
+     */
+    private boolean reuseSteps;
+
+    /**
+     * The reusable Step, lazily created when reuseSteps is true
+     */
+    private Step reusableStep;
+
+    /**
+     * Flag indicating the reusable Step currently is in use
+     */
+    private boolean reusableStepInUse;
+
     /**
      * Local cache of the SCInstance sessionId, to be able to check against clear/reinitialization
      */
@@ -161,6 +178,31 @@ public class SCXMLExecutionContext implements SCXMLIOProcessor {
         registerInvokerClass(SCXML_INVOKER_TYPE, SimpleSCXMLInvoker.class);
     }
 
+    /**
+     * Acquires a Step for processing an event.
+     * <p>
+     * When {@link #isReuseSteps()} is true, the reset reusable Step of this execution context is returned, unless it
+     * is already in use (like during re-entrant event processing), in which case a new Step is returned. A Step
+     * acquired through this method should be released through {@link #releaseStep(Step)} after processing the event.
+     * </p>
+     *
+     * @param event The event to process, may be null
+     * @return the Step to use for processing the event
+     */
+    public Step acquireStep(final TriggerEvent event) {
+        if (reuseSteps && !reusableStepInUse) {
+            if (reusableStep == null) {
+                reusableStep = new Step(event);
+            }
+            else {
+                reusableStep.reset(event);
+            }
+            reusableStepInUse = true;
+            return reusableStep;
+        }
+        return new Step(event);
+    }
+
     /**
      * Add an event to the internal event queue
      *
@@ -373,6 +415,13 @@ public class SCXMLExecutionContext implements SCXMLIOProcessor {
         return checkLegalConfiguration;
     }
 
+    /**
+     * @return if the Step (and its scratch structures) used for processing events will be reused
+     */
+    public boolean isReuseSteps() {
+        return reuseSteps;
+    }
+
     /**
      * @return true if this state machine is running
      */
@@ -436,6 +485,17 @@ public class SCXMLExecutionContext implements SCXMLIOProcessor {
         invokerClasses.put(stripTrailingSlash(type), invokerClass);
     }
 
+    /**
+     * Releases a Step acquired through {@link #acquireStep(TriggerEvent)}.
+     *
+     * @param step The Step to release
+     */
+    public void releaseStep(final Step step) {
+        if (step == reusableStep) {
+            reusableStepInUse = false;
+        }
+    }
+
     /**
      * Remove a previously active Invoker, which must already have been canceled
      *
@@ -456,6 +516,23 @@ public class SCXMLExecutionContext implements SCXMLIOProcessor {
         this.checkLegalConfiguration = checkLegalConfiguration;
     }
 
+    /**
+     * Sets if the Step (and its scratch structures) used for processing events should be reused (default = false).
+     * <p>
+     * Reusing the Step avoids reallocating the Step and its scratch structures for every (micro) step, but
+     * the Step (for example as provided to a custom {@link SCXMLSemantics} implementation) then no longer may be
+     * retained after processing an event.
+     * </p>
+     *
+     * @param reuseSteps flag to set
+     */
+    public void setReuseSteps(final boolean reuseSteps) {
+        this.reuseSteps = reuseSteps;
+        if (!reuseSteps) {
+            reusableStep = null;
+        }
+    }
+
     /**
      * Sets or replace the error reporter
      *
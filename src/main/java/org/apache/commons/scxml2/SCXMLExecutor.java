@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -73,6 +74,16 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
      */
     private final Queue<TriggerEvent> externalEventQueue = new ConcurrentLinkedQueue<>();
 
+    /**
+     * Optional signal to run after adding an external event, used by the {@link SCXMLRuntime} and {@link #run()}
+     */
+    private volatile Runnable eventSignal;
+
+    /**
+     * Flag indicating if {@link #run()} should use a virtual thread, when supported by the Java runtime
+     */
+    private boolean virtualThreads;
+
     /**
      * Convenience constructor.
      */
@@ -122,6 +133,7 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
                 parentSCXMLExecutor.getEventdispatcher().newInstance(), parentSCXMLExecutor.getErrorReporter());
         getSCInstance().setSingleContext(parentSCXMLExecutor.isSingleContext());
         getSCInstance().setStateMachine(scxml);
+        this.virtualThreads = parentSCXMLExecutor.virtualThreads;
     }
 
     /**
@@ -136,6 +148,7 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
     public void addEvent(final TriggerEvent evt) {
         if (evt != null) {
             externalEventQueue.add(evt);
+            signalEvents();
         }
     }
 
@@ -322,6 +335,8 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
         // begin
         semantics.firstStep(exctx);
         logState();
+        // wake up the thread processing the events (if any) when the state machine already stopped running
+        signalEvents();
     }
 
     /**
@@ -338,6 +353,22 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
         return exctx.isCheckLegalConfiguration();
     }
 
+    /**
+     * @return if the Map and List values of the datamodel are initialized as copy-on-write views
+     * @see SCInstance#setCopyOnWriteDatamodel(boolean)
+     */
+    public boolean isCopyOnWriteDatamodel() {
+        return getSCInstance().isCopyOnWriteDatamodel();
+    }
+
+    /**
+     * @return if the Step (and its scratch structures) used for processing events will be reused
+     * @see SCXMLExecutionContext#setReuseSteps(boolean)
+     */
+    public boolean isReuseSteps() {
+        return exctx.isReuseSteps();
+    }
+
     /**
      * @return true if the state machine is running
      */
@@ -349,6 +380,21 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
         return getSCInstance().isSingleContext();
     }
 
+    /**
+     * @return if {@link #run()} uses a virtual thread, when supported by the Java runtime
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return true if the Java runtime supports virtual threads (Java 21 or later)
+     * @see #setVirtualThreads(boolean)
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return EventLoopThreads.isVirtualThreadsSupported();
+    }
+
     /**
      * Log the current set of active states.
      */
@@ -398,16 +444,38 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
         return run(Collections.emptyMap());
     }
 
+    /**
+     * Starts executing the state machine, like {@link #go(Map)}, and then processes its external events in a new
+     * thread until the state machine stops running. The thread blocks while there are no pending events.
+     * <p>
+     * The thread is a virtual thread if {@link #setVirtualThreads(boolean) enabled} and supported by the Java runtime.
+     * </p>
+     *
+     * @param data optional data to initialize/override data defined (only) in the global context of the state machine
+     * @return the (started) thread processing the events
+     * @throws ModelException if the state machine instance failed to initialize
+     * @throws IllegalStateException if the events already are processed by another thread or by a {@link SCXMLRuntime}
+     */
     public Thread run(final Map<String, Object> data) throws ModelException {
+        if (eventSignal != null) {
+            throw new IllegalStateException("The events of the state machine already are being processed");
+        }
         go(data);
-        final Thread t = new Thread(() -> {
+        final Thread t = EventLoopThreads.newThread(() -> {
             try {
                 while (exctx.isRunning()) {
                     triggerEvents();
+                    if (exctx.isRunning() && externalEventQueue.isEmpty()) {
+                        // wait for the next event, or go() (re)starting the state machine
+                        LockSupport.park(this);
+                    }
                 }
             } catch (final ModelException ignored) {
+            } finally {
+                eventSignal = null;
             }
-        });
+        }, virtualThreads);
+        eventSignal = () -> LockSupport.unpark(t);
         t.start();
         return t;
     }
@@ -457,6 +525,17 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
         exctx.start();
     }
 
+    /**
+     * Sets if the Map and List values parsed from the document for the &lt;data&gt; elements are initialized as
+     * copy-on-write views, shared by all the sessions of the same document, instead of deep clones (default = false)
+     *
+     * @param copyOnWriteDatamodel flag to set
+     * @see SCInstance#setCopyOnWriteDatamodel(boolean)
+     */
+    public void setCopyOnWriteDatamodel(final boolean copyOnWriteDatamodel) {
+        getSCInstance().setCopyOnWriteDatamodel(copyOnWriteDatamodel);
+    }
+
     /**
      * Sets or replace the error reporter
      *
@@ -483,6 +562,15 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
         exctx.setEvaluator(evaluator);
     }
 
+    /**
+     * Sets the signal to run after adding an external event, or null to clear it.
+     *
+     * @param eventSignal the signal
+     */
+    void setEventSignal(final Runnable eventSignal) {
+        this.eventSignal = eventSignal;
+    }
+
     /**
      * Sets or replace the event dispatch
      *
@@ -502,6 +590,16 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
         exctx.getScInstance().setRootContext(rootContext);
     }
 
+    /**
+     * Sets if the Step (and its scratch structures) used for processing events should be reused (default = false)
+     *
+     * @param reuseSteps flag to set
+     * @see SCXMLExecutionContext#setReuseSteps(boolean)
+     */
+    public void setReuseSteps(final boolean reuseSteps) {
+        exctx.setReuseSteps(reuseSteps);
+    }
+
     public void setSingleContext(final boolean singleContext) throws ModelException {
         getSCInstance().setSingleContext(singleContext);
     }
@@ -524,6 +622,31 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
         externalEventQueue.clear();
     }
 
+    /**
+     * Sets if {@link #run()} should process the events in a virtual thread, instead of a platform thread, when
+     * supported by the Java runtime (default = false). Without support the setting is ignored, see
+     * {@link #isVirtualThreadsSupported()}.
+     * <p>
+     * The setting is inherited by the executors of invoked child state machines, which then also run in virtual
+     * threads.
+     * </p>
+     *
+     * @param virtualThreads flag to set
+     */
+    public void setVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Runs the event signal, if any.
+     */
+    private void signalEvents() {
+        final Runnable signal = eventSignal;
+        if (signal != null) {
+            signal.run();
+        }
+    }
+
     /**
      * Convenience method when only one event needs to be triggered.
      *
@@ -539,6 +662,20 @@ public class SCXMLExecutor implements SCXMLIOProcessor {
         triggerEvents();
     }
 
+    /**
+     * Trigger the next pending event, if any
+     *
+     * @return true if the state machine is still running and there are more pending events
+     * @throws ModelException in case there is a fatal SCXML object model problem.
+     */
+    boolean triggerNextEvent() throws ModelException {
+        final TriggerEvent evt;
+        if (exctx.isRunning() && (evt = externalEventQueue.poll()) != null) {
+            eventStep(evt);
+        }
+        return exctx.isRunning() && !externalEventQueue.isEmpty();
+    }
+
     /**
      * Trigger all pending and incoming events, until there are no more pending events
      *
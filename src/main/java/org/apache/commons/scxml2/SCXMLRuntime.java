@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.scxml2.model.ModelException;
+
+/**
+ * <p>Runtime multiplexing the event processing of many {@link SCXMLExecutor}s (sessions) over a fixed pool of worker
+ * threads, as an alternative to {@link SCXMLExecutor#run()} which dedicates a thread to each session.</p>
+ *
+ * <p>Adding an external event to a registered executor (see {@link SCXMLExecutor#addEvent(TriggerEvent)}) signals the
+ * runtime that the session is ready, and the pending events of the session then are processed by whichever worker
+ * picks up the signal. The runtime guarantees that:</p>
+ * <ul>
+ *   <li>the events of a session are processed by only one worker at a time, in order</li>
+ *   <li>sessions are scheduled fairly: a worker processes at most {@code batchSize} events of a session before
+ *   scheduling the session again behind the other ready sessions</li>
+ *   <li>no CPU is used when there are no pending events: idle workers block on the queue of ready sessions</li>
+ * </ul>
+ *
+ * <p>A session is unregistered automatically when its state machine stops running, for example when reaching a
+ * top-level final state.</p>
+ *
+ * <p><b>Note:</b> the events of a registered executor must not be triggered otherwise, like through
+ * {@link SCXMLExecutor#triggerEvents()}, as this would break the single threaded processing of the session.</p>
+ */
+public class SCXMLRuntime {
+
+    /**
+     * A registered executor, scheduled for processing its pending events when signalled.
+     */
+    private final class Session implements Runnable {
+
+        private static final int IDLE = 0;
+        private static final int SCHEDULED = 1;
+        private static final int CLOSED = 2;
+
+        private final SCXMLExecutor executor;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+
+        Session(final SCXMLExecutor executor) {
+            this.executor = executor;
+        }
+
+        void close() {
+            state.set(CLOSED);
+            synchronized (sessions) {
+                // the executor may have been registered again already
+                if (sessions.remove(executor, this)) {
+                    executor.setEventSignal(null);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean more = true;
+            try {
+                for (int i = 0; more && i < batchSize; i++) {
+                    if (state.get() != SCHEDULED) {
+                        // unregistered
+                        return;
+                    }
+                    more = executor.triggerNextEvent();
+                }
+            } catch (final ModelException | RuntimeException e) {
+                log.error("Stopped processing the events of a state machine after a failure: " + e.getMessage(), e);
+                close();
+                return;
+            }
+            if (!executor.isRunning()) {
+                close();
+            } else if (more) {
+                // remain scheduled, behind the other ready sessions
+                submit(this);
+            } else if (state.compareAndSet(SCHEDULED, IDLE) && executor.hasPendingEvents()) {
+                // an event was added after the last poll, but before becoming idle
+                signal();
+            }
+        }
+
+        void signal() {
+            if (state.compareAndSet(IDLE, SCHEDULED)) {
+                submit(this);
+            }
+        }
+    }
+
+    /**
+     * The default maximum number of events processed for a session before scheduling the other ready sessions.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 16;
+
+    /**
+     * The Logger for the SCXMLRuntime.
+     */
+    private static final Log log = LogFactory.getLog(SCXMLRuntime.class);
+
+    private static ThreadFactory newThreadFactory() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return r -> {
+            final Thread thread = new Thread(r, "scxml-runtime-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The worker threads.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Flag indicating if the workers are owned by, and thus shut down with, this runtime.
+     */
+    private final boolean ownWorkers;
+
+    /**
+     * The maximum number of events processed for a session at a time.
+     */
+    private final int batchSize;
+
+    /**
+     * The registered sessions.
+     */
+    private final Map<SCXMLExecutor, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new runtime with its own pool of (daemon) worker threads.
+     *
+     * @param workerThreads the number of worker threads
+     */
+    public SCXMLRuntime(final int workerThreads) {
+        this(Executors.newFixedThreadPool(workerThreads, newThreadFactory()), DEFAULT_BATCH_SIZE, true);
+    }
+
+    /**
+     * Constructs a new runtime using provided worker threads.
+     * <p>
+     * For fair scheduling of the sessions the workers should execute their tasks in FIFO order, as for example a
+     * {@link Executors#newFixedThreadPool(int) fixed thread pool} does. The workers are not shut down together with
+     * this runtime.
+     * </p>
+     *
+     * @param workers the worker threads
+     * @param batchSize the maximum number of events processed for a session before scheduling the other ready sessions
+     */
+    public SCXMLRuntime(final ExecutorService workers, final int batchSize) {
+        this(workers, batchSize, false);
+    }
+
+    private SCXMLRuntime(final ExecutorService workers, final int batchSize, final boolean ownWorkers) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.ownWorkers = ownWorkers;
+    }
+
+    /**
+     * @return the number of registered sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Registers an executor of which the state machine already has been started, to have its events processed by
+     * this runtime from now on.
+     *
+     * @param executor the executor
+     * @return true if registered, false if the state machine is not running (anymore)
+     * @throws IllegalStateException if the executor already is registered
+     */
+    public boolean register(final SCXMLExecutor executor) {
+        if (!executor.isRunning()) {
+            return false;
+        }
+        final Session session = new Session(executor);
+        synchronized (sessions) {
+            if (sessions.putIfAbsent(executor, session) != null) {
+                throw new IllegalStateException("SCXMLExecutor already registered");
+            }
+            executor.setEventSignal(session::signal);
+        }
+        if (executor.hasPendingEvents()) {
+            session.signal();
+        }
+        return true;
+    }
+
+    /**
+     * Shuts down this runtime: all sessions are unregistered, and the worker threads are shut down if these were
+     * created by this runtime.
+     */
+    public void shutdown() {
+        for (final Session session : sessions.values()) {
+            session.close();
+        }
+        if (ownWorkers) {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Starts the state machine of an executor (see {@link SCXMLExecutor#go()}) and registers it to have its events
+     * processed by this runtime.
+     *
+     * @param executor the executor
+     * @return true if registered, false if the state machine already stopped running while starting it
+     * @throws ModelException if the state machine instance failed to initialize
+     */
+    public boolean start(final SCXMLExecutor executor) throws ModelException {
+        return start(executor, Collections.emptyMap());
+    }
+
+    /**
+     * Starts the state machine of an executor (see {@link SCXMLExecutor#go(Map)}) and registers it to have its events
+     * processed by this runtime.
+     *
+     * @param executor the executor
+     * @param data optional data to initialize/override data defined (only) in the global context of the state machine
+     * @return true if registered, false if the state machine already stopped running while starting it
+     * @throws ModelException if the state machine instance failed to initialize
+     */
+    public boolean start(final SCXMLExecutor executor, final Map<String, Object> data) throws ModelException {
+        executor.go(data);
+        return register(executor);
+    }
+
+    private void submit(final Session session) {
+        try {
+            workers.execute(session);
+        } catch (final RejectedExecutionException e) {
+            log.warn("Unable to process the events of a state machine: " + e.getMessage());
+            session.close();
+        }
+    }
+
+    /**
+     * Unregisters an executor. An event being processed by a worker at this time still will be completed.
+     *
+     * @param executor the executor
+     * @return true if the executor was registered
+     */
+    public boolean unregister(final SCXMLExecutor executor) {
+        final Session session = sessions.get(executor);
+        if (session == null) {
+            return false;
+        }
+        session.close();
+        return true;
+    }
+}
@@ -17,14 +17,22 @@
 package org.apache.commons.scxml2;
 
 import java.io.Serializable;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.scxml2.model.EnterableState;
 
 /**
  * The current active states of a state machine
+ * <p>
+ * The active and atomic states are maintained in {@link EnterableStateSet}s, providing O(1) membership checks and
+ * iteration in document order.
+ * </p>
+ * <p>
+ * The active states also are indexed by their id, for O(1) lookup of the SCXML {@code In(stateId)} predicate, see
+ * {@link #isActive(String)}.
+ * </p>
  */
 public class StateConfiguration implements Serializable {
 
@@ -36,21 +44,25 @@ public class StateConfiguration implements Serializable {
     /**
      * The states that are currently active.
      */
-    private final Set<EnterableState> activeStates = new HashSet<>();
-    private final Set<EnterableState> activeStatesSet = Collections.unmodifiableSet(activeStates);
+    private final EnterableStateSet activeStates = new EnterableStateSet(true);
 
     /**
      * The atomic states that are currently active.
      */
-    private final Set<EnterableState> atomicStates = new HashSet<>();
-    private final Set<EnterableState> atomicStatesSet = Collections.unmodifiableSet(atomicStates);
+    private final EnterableStateSet atomicStates = new EnterableStateSet(true);
+
+    /**
+     * The states that are currently active, keyed on their id.
+     */
+    private final Map<String, EnterableState> activeStatesById = new HashMap<>();
 
     /**
      * Clear the state configuration
      */
     public void clear() {
-        activeStates.clear();
-        atomicStates.clear();
+        activeStates.clearStates();
+        atomicStates.clearStates();
+        activeStatesById.clear();
     }
 
     /**
@@ -60,12 +72,15 @@ public class StateConfiguration implements Serializable {
      * @param state state to enter
      */
     public void enterState(final EnterableState state) {
-        if (!activeStates.add(state)) {
+        if (!activeStates.addState(state)) {
             throw new IllegalStateException("State "+state.getId()+" already added.");
         }
-        if (state.isAtomicState() && !atomicStates.add(state)) {
+        if (state.isAtomicState() && !atomicStates.addState(state)) {
             throw new IllegalStateException("Atomic state "+state.getId()+" already added.");
         }
+        if (state.getId() != null) {
+            activeStatesById.put(state.getId(), state);
+        }
     }
 
     /**
@@ -75,28 +90,60 @@ public class StateConfiguration implements Serializable {
      * @param state state to exit
      */
     public void exitState(final EnterableState state) {
-        if (!activeStates.remove(state)) {
+        if (!activeStates.removeState(state)) {
             throw new IllegalStateException("State "+state.getId()+" not active.");
         }
-        atomicStates.remove(state);
+        atomicStates.removeState(state);
+        if (state.getId() != null) {
+            activeStatesById.remove(state.getId(), state);
+        }
     }
 
     /**
      * Gets the active states
      *
-     * @return active states including simple states and their
-     *         complex ancestors up to the root.
+     * @return the (read only) active states including simple states and their
+     *         complex ancestors up to the root, iterated in document order.
      */
     public Set<EnterableState> getActiveStates() {
-        return  activeStatesSet;
+        return  activeStates;
+    }
+
+    /**
+     * Gets the active states, for iterating them by index in document order.
+     *
+     * @return the (read only) active states, see {@link #getActiveStates()}
+     */
+    public EnterableStateSet getActiveStateSet() {
+        return activeStates;
     }
 
     /**
      * Gets the current atomic states (leaf only).
      *
-     * @return the atomic states - simple (leaf) states only.
+     * @return the (read only) atomic states - simple (leaf) states only, iterated in document order.
      */
     public Set<EnterableState> getStates() {
-        return  atomicStatesSet;
+        return  atomicStates;
+    }
+
+    /**
+     * Checks if a state is active.
+     *
+     * @param state the state
+     * @return true if the state is active
+     */
+    public boolean isActive(final EnterableState state) {
+        return activeStates.contains(state);
+    }
+
+    /**
+     * Checks if a state is active, by its id.
+     *
+     * @param stateId the id of the state
+     * @return true if a state with the id is active
+     */
+    public boolean isActive(final String stateId) {
+        return activeStatesById.containsKey(stateId);
     }
 }
@@ -77,13 +77,24 @@ public class Status implements Serializable {
         return getFinalState() != null;
     }
 
+    /**
+     * Checks if a state is active, which is an O(1) operation.
+     *
+     * @param state the state
+     * @return true if the state is active
+     */
+    public boolean isInState(final EnterableState state) {
+        return configuration.isActive(state);
+    }
+
+    /**
+     * Checks if a state is active by its id, which is an O(1) operation.
+     *
+     * @param state the id of the state
+     * @return true if a state with the id is active
+     */
     public boolean isInState(final String state) {
-        for (final EnterableState es : configuration.getActiveStates()) {
-            if (state.equals(es.getId())) {
-                return true;
-            }
-        }
-        return false;
+        return configuration.isActive(state);
     }
 }
 
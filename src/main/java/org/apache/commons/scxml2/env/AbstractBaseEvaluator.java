@@ -38,7 +38,7 @@ public abstract class AbstractBaseEvaluator implements Evaluator, Serializable {
     /**
      * Unique context variable name used for temporary reference to assign data (thus must be a valid variable name)
      */
-    private static final String ASSIGN_VARIABLE_NAME = "a"+ UUID.randomUUID().toString().replace('-','x');
+    protected static final String ASSIGN_VARIABLE_NAME = "a"+ UUID.randomUUID().toString().replace('-','x');
 
     @Override
     public Object cloneData(final Object data) {
@@ -49,6 +49,10 @@ public abstract class AbstractBaseEvaluator implements Evaluator, Serializable {
             if (data instanceof Node) {
                 return ((Node)data).cloneNode(true);
             }
+            final Object lazyCopy = LazyJson.copy(data);
+            if (lazyCopy != null) {
+                return lazyCopy;
+            }
             if (data instanceof NodeList) {
                 final NodeList nodeList = (NodeList)data;
                 final ArrayList<Node> list = new ArrayList<>();
@@ -88,6 +92,25 @@ public abstract class AbstractBaseEvaluator implements Evaluator, Serializable {
     }
 
     /**
+     * Creates the exception for a failure assigning data to a location.
+     *
+     * @param location the location expression
+     * @param e the failure
+     * @return the exception to throw
+     */
+    protected SCXMLExpressionException assignError(final String location, final Exception e) {
+        final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
+        return new SCXMLExpressionException("Error evaluating assign to location=\"" + location + "\": " + exMessage, e);
+    }
+
+    /**
+     * Assigns data to a location, by evaluating an assignment expression of the location with a temporary context
+     * variable holding the data.
+     * <p>
+     * Evaluators which can assign data to a location without a temporary variable should override this method as
+     * well as {@link #compileAssign(String)}.
+     * </p>
+     *
      * @see Evaluator#evalAssign(Context, String, Object)
      */
     @Override
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of compiled expressions (or scripts) keyed on their source text, for use by
+ * {@link org.apache.commons.scxml2.Evaluator} implementations.
+ * <p>
+ * Lookups of cached expressions are lock free. When the cache grows beyond its maximum size the least recently used
+ * expressions are evicted, where recency is tracked with the granularity of cache misses: expressions used since the
+ * last miss are considered as recent as the expression compiled by the next miss.
+ * </p>
+ * <p>
+ * Expressions which fail to compile are not cached.
+ * </p>
+ *
+ * @param <T> the type of the compiled expressions
+ */
+public final class CompiledExpressionCache<T> {
+
+    /**
+     * Compiles the source text of an expression.
+     *
+     * @param <T> the type of the compiled expressions
+     */
+    @FunctionalInterface
+    public interface Compiler<T> {
+
+        /**
+         * @param source the source text of the expression
+         * @return the compiled expression, not null
+         * @throws Exception if the expression cannot be compiled
+         */
+        T compile(String source) throws Exception;
+    }
+
+    private static final class Entry<T> {
+
+        private final T value;
+        private volatile long lastAccess;
+
+        Entry(final T value, final long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * The default maximum number of cached expressions.
+     */
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Logical clock for tracking the recency of the entries, advanced on each cache miss.
+     */
+    private final AtomicLong clock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Object evictionLock = new Object();
+
+    /**
+     * Constructs a new cache with the {@link #DEFAULT_MAX_SIZE default maximum size}.
+     */
+    public CompiledExpressionCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxSize the maximum number of cached expressions, 0 to disable caching
+     */
+    public CompiledExpressionCache(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum cache size must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Removes all cached expressions, without resetting the statistics.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            while (entries.size() > maxSize) {
+                Map.Entry<String, Entry<T>> eldest = null;
+                for (final Map.Entry<String, Entry<T>> entry : entries.entrySet()) {
+                    if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                        eldest = entry;
+                    }
+                }
+                if (eldest == null) {
+                    break;
+                }
+                if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the compiled expression for a source text, compiling and caching it if not yet cached.
+     *
+     * @param source the source text of the expression
+     * @param compiler the compiler to use when the expression is not yet cached
+     * @return the compiled expression
+     * @throws Exception if the expression cannot be compiled
+     */
+    public T get(final String source, final Compiler<T> compiler) throws Exception {
+        final Entry<T> entry = entries.get(source);
+        if (entry != null) {
+            // as recent as the next compiled expression
+            entry.lastAccess = clock.get() + 1;
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        final T value = compiler.compile(source);
+        if (maxSize > 0) {
+            final Entry<T> existing = entries.putIfAbsent(source, new Entry<>(value, clock.incrementAndGet()));
+            if (existing != null) {
+                // concurrently compiled and cached by another thread
+                return existing.value;
+            }
+            if (entries.size() > maxSize) {
+                evict();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the number of expressions evicted from this cache
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of lookups which found the expression cached
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the maximum number of cached expressions
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of lookups which required compiling the expression
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of cached expressions
+     */
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Creates copy-on-write views of {@link Map} and {@link List} data, like the parsed JSON value of a
+ * {@link org.apache.commons.scxml2.model.Data} element, as alternative to deep cloning the data for each session.
+ * <p>
+ * A view reads through to the shared data until it (or a nested Map or List) is navigated into or modified: only
+ * then a shallow copy of that level is made, with its nested Maps and Lists wrapped in views again. The shared data
+ * itself is never modified, and the parts of it which a session doesn't touch never are copied.
+ * </p>
+ * <p>
+ * Note: the values which are not a Map or List are shared as is, which is safe for the immutable values of a parsed
+ * JSON value, but not for other mutable data.
+ * </p>
+ */
+public final class CopyOnWriteData {
+
+    /**
+     * Copy-on-write view of a Map, preserving the iteration order of the shared Map.
+     */
+    private static final class CopyOnWriteMap extends AbstractMap<Object, Object> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The shared Map, null once copied. */
+        private Map<?, ?> shared;
+
+        /** The copy of the shared Map, null until copied. */
+        private Map<Object, Object> copy;
+
+        CopyOnWriteMap(final Map<?, ?> shared) {
+            this.shared = shared;
+        }
+
+        @Override
+        public void clear() {
+            copy().clear();
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return copy != null ? copy.containsKey(key) : shared.containsKey(key);
+        }
+
+        private Map<Object, Object> copy() {
+            if (copy == null) {
+                final Map<Object, Object> map = new LinkedHashMap<>();
+                for (final Map.Entry<?, ?> entry : shared.entrySet()) {
+                    map.put(entry.getKey(), view(entry.getValue()));
+                }
+                copy = map;
+                shared = null;
+            }
+            return copy;
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet() {
+            return copy().entrySet();
+        }
+
+        @Override
+        public Object get(final Object key) {
+            if (copy != null) {
+                return copy.get(key);
+            }
+            final Object value = shared.get(key);
+            return isSupported(value) ? copy().get(key) : value;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return copy != null ? copy.isEmpty() : shared.isEmpty();
+        }
+
+        @Override
+        public Object put(final Object key, final Object value) {
+            return copy().put(key, value);
+        }
+
+        @Override
+        public Object remove(final Object key) {
+            return copy().remove(key);
+        }
+
+        @Override
+        public int size() {
+            return copy != null ? copy.size() : shared.size();
+        }
+    }
+
+    /**
+     * Copy-on-write view of a List.
+     */
+    private static final class CopyOnWriteList extends AbstractList<Object> implements RandomAccess, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The shared List, null once copied. */
+        private List<?> shared;
+
+        /** The copy of the shared List, null until copied. */
+        private List<Object> copy;
+
+        CopyOnWriteList(final List<?> shared) {
+            this.shared = shared;
+        }
+
+        @Override
+        public void add(final int index, final Object element) {
+            copy().add(index, element);
+            modCount++;
+        }
+
+        private List<Object> copy() {
+            if (copy == null) {
+                final List<Object> list = new ArrayList<>(shared.size());
+                for (final Object value : shared) {
+                    list.add(view(value));
+                }
+                copy = list;
+                shared = null;
+            }
+            return copy;
+        }
+
+        @Override
+        public Object get(final int index) {
+            if (copy != null) {
+                return copy.get(index);
+            }
+            final Object value = shared.get(index);
+            return isSupported(value) ? copy().get(index) : value;
+        }
+
+        @Override
+        public Object remove(final int index) {
+            final Object value = copy().remove(index);
+            modCount++;
+            return value;
+        }
+
+        @Override
+        public Object set(final int index, final Object element) {
+            return copy().set(index, element);
+        }
+
+        @Override
+        public int size() {
+            return copy != null ? copy.size() : shared.size();
+        }
+    }
+
+    /**
+     * @param data the data
+     * @return true if a copy-on-write view can be created for the data, which is if it is a Map or a List
+     */
+    public static boolean isSupported(final Object data) {
+        return data instanceof Map || data instanceof List;
+    }
+
+    /**
+     * Creates a copy-on-write view of Map or List data.
+     *
+     * @param data the data
+     * @return a copy-on-write view of the data if it is a Map or a List, otherwise the data itself
+     */
+    public static Object view(final Object data) {
+        if (data instanceof Map) {
+            return new CopyOnWriteMap((Map<?, ?>) data);
+        }
+        if (data instanceof List) {
+            return new CopyOnWriteList((List<?>) data);
+        }
+        return data;
+    }
+
+    /**
+     * Discourage instantiation since this is a utility class.
+     */
+    private CopyOnWriteData() {
+    }
+}
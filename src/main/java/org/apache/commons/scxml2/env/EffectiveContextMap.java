@@ -28,6 +28,12 @@ import org.apache.commons.scxml2.Context;
 /**
  * A map that will back the effective {@link Context} for an {@link org.apache.commons.scxml2.Evaluator} execution.
  * The effective context enables the chaining of contexts all the way from the current state node to the root.
+ * <p>
+ * A variable is resolved with a single lookup for each context in the chain up to the context defining it. The chain
+ * is walked through the live parents of the contexts on each lookup, so an effective context map can be reused for all
+ * evaluations within the same (state) context, even when a parent context is replaced, for example by
+ * {@link org.apache.commons.scxml2.SCXMLExecutor#setRootContext(Context)}.
+ * </p>
  */
 public final class EffectiveContextMap extends AbstractMap<String, Object> implements Serializable {
 
@@ -52,6 +58,22 @@ public final class EffectiveContextMap extends AbstractMap<String, Object> imple
         this.leaf = ctx;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        if (key != null) {
+            final String name = key.toString();
+            for (Context context = leaf; context != null; context = context.getParent()) {
+                if (context.getVars().containsKey(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -68,12 +90,14 @@ public final class EffectiveContextMap extends AbstractMap<String, Object> imple
     @Override
     public Object get(final Object key) {
         if (key != null) {
-            Context current = leaf;
-            while (current != null) {
-                if (current.getVars().containsKey(key.toString())) {
-                    return current.getVars().get(key);
+            final String name = key.toString();
+            for (Context context = leaf; context != null; context = context.getParent()) {
+                final Map<String, Object> vars = context.getVars();
+                final Object value = vars.get(name);
+                // only a null value requires checking if the variable is defined in this context
+                if (value != null || vars.containsKey(name)) {
+                    return value;
                 }
-                current = current.getParent();
             }
         }
         return null;
@@ -0,0 +1,548 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+
+/**
+ * Creates lazily materialized JSON values: JSON objects and arrays which are {@link Map}s and {@link List}s retaining
+ * the UTF-8 bytes of their JSON text, and only decoding their members on first access.
+ * <p>
+ * Parsing a JSON text validates it and decodes the members of its root object or array, but the nested objects and
+ * arrays are not decoded until they are accessed themselves, level by level. Large JSON payloads of which only a few
+ * fields are used therefore are parsed without materializing the rest of their tree.
+ * </p>
+ * <p>
+ * As long as a lazy value (and its nested values) is not modified, its JSON text is still valid: it is then
+ * {@link #copy(Object) copied} by creating a new lazy value over the same bytes, and written out as JSON by
+ * {@link #getSource(Object)} or {@link #writeSource(Object, OutputStream)} without serializing it again.
+ * </p>
+ * <p>
+ * For event payloads, a host can parse the received JSON text with {@link #parse(byte[])} and pass the lazy value as
+ * {@link org.apache.commons.scxml2.EventBuilder#data(Object) event data}, so that the guards only decode the levels
+ * they access. A &lt;send&gt; with a lazy JSON &lt;content&gt; sends a new lazy value over the same JSON text.
+ * </p>
+ * <p>
+ * Note: like the parsed JSON values of the {@link com.fasterxml.jackson.databind.ObjectMapper}, lazy values can be
+ * modified, including through their iterators and the views of their maps. Decoding a level is thread-safe,
+ * modifying a value is not.
+ * </p>
+ */
+public final class LazyJson {
+
+    /**
+     * The JSON text shared by a lazy value and all its nested values.
+     */
+    private static final class Source implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] bytes;
+        private final JsonFactory factory;
+
+        Source(final byte[] bytes, final JsonFactory factory) {
+            this.bytes = bytes;
+            this.factory = factory;
+        }
+
+        /**
+         * Decodes the members of an object, the parser being positioned at its start.
+         */
+        Map<String, Object> decodeMembers(final JsonParser parser, final int offset) throws IOException {
+            final Map<String, Object> members = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                parser.nextToken();
+                members.put(name, decodeValue(parser, offset));
+            }
+            return members;
+        }
+
+        /**
+         * Decodes the elements of an array, the parser being positioned at its start.
+         */
+        List<Object> decodeElements(final JsonParser parser, final int offset) throws IOException {
+            final List<Object> elements = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                elements.add(decodeValue(parser, offset));
+            }
+            return elements;
+        }
+
+        /**
+         * Decodes the current value of a parser, creating lazy values for nested objects and arrays.
+         *
+         * @param parser the parser, created for the bytes from offset on
+         * @param offset the offset of the bytes of the parser
+         */
+        Object decodeValue(final JsonParser parser, final int offset) throws IOException {
+            switch (parser.currentToken()) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    final boolean object = parser.currentToken() == JsonToken.START_OBJECT;
+                    final int start = offset + (int) parser.currentTokenLocation().getByteOffset();
+                    parser.skipChildren();
+                    final int end = offset + (int) parser.currentLocation().getByteOffset();
+                    return object ? new LazyMap(this, start, end - start, null)
+                            : new LazyList(this, start, end - start, null);
+                case VALUE_STRING:
+                    return parser.getText();
+                case VALUE_NUMBER_INT:
+                    return parser.getNumberValue();
+                case VALUE_NUMBER_FLOAT:
+                    return parser.getDoubleValue();
+                case VALUE_TRUE:
+                    return Boolean.TRUE;
+                case VALUE_FALSE:
+                    return Boolean.FALSE;
+                case VALUE_EMBEDDED_OBJECT:
+                    return parser.getEmbeddedObject();
+                default:
+                    return null;
+            }
+        }
+
+        JsonParser parser(final int offset, final int length) throws IOException {
+            final JsonParser parser = factory.createParser(bytes, offset, length);
+            parser.nextToken();
+            return parser;
+        }
+    }
+
+    /**
+     * Common interface of the lazy objects and arrays.
+     */
+    private interface Lazy {
+
+        /**
+         * @return a new, not yet decoded, lazy value over the same JSON text
+         */
+        Object copy();
+
+        /**
+         * @return true if this value or one of its decoded nested values is modified
+         */
+        boolean isModified();
+
+        int length();
+
+        int offset();
+
+        Source source();
+    }
+
+    /**
+     * A lazily decoded JSON object.
+     */
+    private static final class LazyMap extends AbstractMap<String, Object> implements Lazy, Serializable {
+
+        /**
+         * An entry of the decoded members, marking the map as modified when its value is set.
+         */
+        private final class MemberEntry implements Entry<String, Object> {
+
+            private final Entry<String, Object> entry;
+
+            MemberEntry(final Entry<String, Object> entry) {
+                this.entry = entry;
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                return entry.equals(obj);
+            }
+
+            @Override
+            public String getKey() {
+                return entry.getKey();
+            }
+
+            @Override
+            public Object getValue() {
+                return entry.getValue();
+            }
+
+            @Override
+            public int hashCode() {
+                return entry.hashCode();
+            }
+
+            @Override
+            public Object setValue(final Object value) {
+                modified = true;
+                return entry.setValue(value);
+            }
+
+            @Override
+            public String toString() {
+                return entry.toString();
+            }
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final Source source;
+        private final int offset;
+        private final int length;
+
+        /** The decoded members, null until first accessed. */
+        private volatile Map<String, Object> members;
+
+        private boolean modified;
+
+        LazyMap(final Source source, final int offset, final int length, final Map<String, Object> members) {
+            this.source = source;
+            this.offset = offset;
+            this.length = length;
+            this.members = members;
+        }
+
+        @Override
+        public void clear() {
+            modified = true;
+            members().clear();
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return members().containsKey(key);
+        }
+
+        @Override
+        public Object copy() {
+            return new LazyMap(source, offset, length, null);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    final Iterator<Entry<String, Object>> iterator = members().entrySet().iterator();
+                    return new Iterator<Entry<String, Object>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            return new MemberEntry(iterator.next());
+                        }
+
+                        @Override
+                        public void remove() {
+                            iterator.remove();
+                            modified = true;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return members().size();
+                }
+            };
+        }
+
+        @Override
+        public Object get(final Object key) {
+            return members().get(key);
+        }
+
+        @Override
+        public boolean isModified() {
+            return modified || isAnyModified(members == null ? null : members.values());
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        private Map<String, Object> members() {
+            Map<String, Object> result = members;
+            if (result == null) {
+                try (JsonParser parser = source.parser(offset, length)) {
+                    result = source.decodeMembers(parser, offset);
+                } catch (final IOException e) {
+                    // cannot happen, as the JSON text was validated when parsed
+                    throw new UncheckedIOException(e);
+                }
+                members = result;
+            }
+            return result;
+        }
+
+        @Override
+        public int offset() {
+            return offset;
+        }
+
+        @Override
+        public Object put(final String key, final Object value) {
+            modified = true;
+            return members().put(key, value);
+        }
+
+        @Override
+        public Object remove(final Object key) {
+            modified = true;
+            return members().remove(key);
+        }
+
+        @Override
+        public int size() {
+            return members().size();
+        }
+
+        @Override
+        public Source source() {
+            return source;
+        }
+    }
+
+    /**
+     * A lazily decoded JSON array.
+     */
+    private static final class LazyList extends AbstractList<Object> implements Lazy, RandomAccess, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Source source;
+        private final int offset;
+        private final int length;
+
+        /** The decoded elements, null until first accessed. */
+        private volatile List<Object> elements;
+
+        private boolean modified;
+
+        LazyList(final Source source, final int offset, final int length, final List<Object> elements) {
+            this.source = source;
+            this.offset = offset;
+            this.length = length;
+            this.elements = elements;
+        }
+
+        @Override
+        public void add(final int index, final Object element) {
+            modified = true;
+            modCount++;
+            elements().add(index, element);
+        }
+
+        @Override
+        public Object copy() {
+            return new LazyList(source, offset, length, null);
+        }
+
+        private List<Object> elements() {
+            List<Object> result = elements;
+            if (result == null) {
+                try (JsonParser parser = source.parser(offset, length)) {
+                    result = source.decodeElements(parser, offset);
+                } catch (final IOException e) {
+                    // cannot happen, as the JSON text was validated when parsed
+                    throw new UncheckedIOException(e);
+                }
+                elements = result;
+            }
+            return result;
+        }
+
+        @Override
+        public Object get(final int index) {
+            return elements().get(index);
+        }
+
+        @Override
+        public boolean isModified() {
+            return modified || isAnyModified(elements);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public int offset() {
+            return offset;
+        }
+
+        @Override
+        public Object remove(final int index) {
+            modified = true;
+            modCount++;
+            return elements().remove(index);
+        }
+
+        @Override
+        public Object set(final int index, final Object element) {
+            modified = true;
+            return elements().set(index, element);
+        }
+
+        @Override
+        public int size() {
+            return elements().size();
+        }
+
+        @Override
+        public Source source() {
+            return source;
+        }
+    }
+
+    /**
+     * The default factory, accepting comments like the {@link org.apache.commons.scxml2.io.ContentParser}.
+     */
+    private static final JsonFactory DEFAULT_FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .enable(JsonReadFeature.ALLOW_YAML_COMMENTS).build();
+
+    /**
+     * Copies a lazy value which is not modified, by creating a new lazy value over the same JSON text.
+     *
+     * @param data the data to copy
+     * @return the copy, or null if the data is not a lazy value or is modified
+     */
+    public static Object copy(final Object data) {
+        return data instanceof Lazy && !((Lazy) data).isModified() ? ((Lazy) data).copy() : null;
+    }
+
+    /**
+     * @param data the data to get the JSON text of
+     * @return the JSON text of a lazy value which is not modified, null otherwise
+     */
+    public static String getSource(final Object data) {
+        if (data instanceof Lazy && !((Lazy) data).isModified()) {
+            final Lazy lazy = (Lazy) data;
+            return new String(lazy.source().bytes, lazy.offset(), lazy.length(), StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    private static boolean isAnyModified(final Iterable<Object> values) {
+        if (values != null) {
+            for (final Object value : values) {
+                if (value instanceof Lazy && ((Lazy) value).isModified()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param data the data to check
+     * @return true if the data is a lazily materialized JSON object or array
+     */
+    public static boolean isLazy(final Object data) {
+        return data instanceof Lazy;
+    }
+
+    /**
+     * Parses a JSON text, accepting comments.
+     *
+     * @param json the UTF-8 bytes of the JSON text, which are retained and must not be modified afterwards
+     * @return a lazily materialized {@link Map} or {@link List} for a JSON object or array, the decoded value for
+     *         other JSON values
+     * @throws IOException if the JSON text is not valid
+     */
+    public static Object parse(final byte[] json) throws IOException {
+        return parse(json, DEFAULT_FACTORY);
+    }
+
+    /**
+     * Parses a JSON text.
+     *
+     * @param json the UTF-8 bytes of the JSON text, which are retained and must not be modified afterwards
+     * @param factory the factory of the parsers of the JSON text, which is retained
+     * @return a lazily materialized {@link Map} or {@link List} for a JSON object or array, the decoded value for
+     *         other JSON values
+     * @throws IOException if the JSON text is not valid
+     */
+    public static Object parse(final byte[] json, final JsonFactory factory) throws IOException {
+        final Source source = new Source(json, factory);
+        try (JsonParser parser = source.parser(0, json.length)) {
+            final JsonToken token = parser.currentToken();
+            if (token == null) {
+                throw new IOException("No JSON content");
+            }
+            if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+                return source.decodeValue(parser, 0);
+            }
+            // decode the root level while validating the whole JSON text, as the nested levels are skipped
+            final int start = (int) parser.currentTokenLocation().getByteOffset();
+            final Object root;
+            if (token == JsonToken.START_OBJECT) {
+                final Map<String, Object> members = source.decodeMembers(parser, 0);
+                final int end = (int) parser.currentLocation().getByteOffset();
+                root = new LazyMap(source, start, end - start, members);
+            } else {
+                final List<Object> elements = source.decodeElements(parser, 0);
+                final int end = (int) parser.currentLocation().getByteOffset();
+                root = new LazyList(source, start, end - start, elements);
+            }
+            return root;
+        }
+    }
+
+    /**
+     * Writes the JSON text of a lazy value which is not modified, without copying it.
+     *
+     * @param data the data to write the JSON text of
+     * @param out the stream to write to
+     * @return true if written, false if the data is not a lazy value or is modified
+     * @throws IOException if the JSON text cannot be written
+     */
+    public static boolean writeSource(final Object data, final OutputStream out) throws IOException {
+        if (data instanceof Lazy && !((Lazy) data).isModified()) {
+            final Lazy lazy = (Lazy) data;
+            out.write(lazy.source().bytes, lazy.offset(), lazy.length());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Discourage instantiation since this is a utility class.
+     */
+    private LazyJson() {
+    }
+}
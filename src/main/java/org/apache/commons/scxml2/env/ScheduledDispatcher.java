@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.scxml2.EventDispatcher;
+import org.apache.commons.scxml2.SCXMLIOProcessor;
+import org.apache.commons.scxml2.TriggerEvent;
+
+/**
+ * <p>EventDispatcher implementation which schedules {@code delay}ed
+ * &lt;send&gt; events on a {@code ScheduledExecutorService}, instead of
+ * creating a new {@code Timer} (and thread) for each delayed event like the
+ * {@link SimpleDispatcher}.</p>
+ *
+ * <p>By default all instances share a single scheduler thread within the JVM,
+ * which only delivers the events into the queue of the target io processor.
+ * A dedicated {@code ScheduledExecutorService} can be provided instead, which
+ * then is shared with all instances created through {@link #newInstance()}.</p>
+ *
+ * <p>Cancelling a pending event only requires a lookup by its send id, and the
+ * cancelled event is removed from the scheduler right away.</p>
+ *
+ * <p>The number of pending, fired and cancelled events are counted over this
+ * instance and all instances created through {@link #newInstance()}, like for
+ * the invoked child state machines.</p>
+ */
+public class ScheduledDispatcher extends SimpleDispatcher {
+
+    /**
+     * Counters of the delayed events, shared by a dispatcher and the instances created from it.
+     */
+    private static final class Counters implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LongAdder pending = new LongAdder();
+        private final LongAdder fired = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+    }
+
+    /**
+     * Task delivering a delayed event, unless it has been cancelled before.
+     */
+    private final class DelayedEvent implements Runnable {
+
+        private static final int SCHEDULED = 0;
+        private static final int FIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final String id;
+        private final TriggerEvent event;
+        private final SCXMLIOProcessor target;
+        private final AtomicInteger state = new AtomicInteger(SCHEDULED);
+        private volatile ScheduledFuture<?> future;
+
+        DelayedEvent(final String id, final TriggerEvent event, final SCXMLIOProcessor target) {
+            this.id = id;
+            this.event = event;
+            this.target = target;
+        }
+
+        boolean cancel() {
+            if (!state.compareAndSet(SCHEDULED, CANCELLED)) {
+                return false;
+            }
+            final ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            counters.pending.decrement();
+            counters.cancelled.increment();
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(SCHEDULED, FIRED)) {
+                return;
+            }
+            getPendingEvents().remove(id, this);
+            counters.pending.decrement();
+            counters.fired.increment();
+            target.addEvent(event);
+            if (getLog().isDebugEnabled()) {
+                getLog().debug("Fired event '" + event.getName() + "' as scheduled by "
+                        + "<send> with id '" + id + "'");
+            }
+        }
+    }
+
+    /**
+     * Lazily initialized holder of the scheduler shared by all instances which are not provided a scheduler.
+     */
+    private static final class SharedScheduler {
+
+        private static final ScheduledExecutorService INSTANCE = createScheduler();
+
+        private static ScheduledExecutorService createScheduler() {
+            final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                final Thread thread = new Thread(r, "scxml-scheduled-dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+    /** Serial version UID. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The provided scheduler, null if using the shared scheduler (also after deserialization).
+     */
+    private final transient ScheduledExecutorService scheduler;
+
+    /**
+     * The pending delayed events, keyed by &lt;send&gt; element {@code id}s.
+     */
+    private transient Map<String, DelayedEvent> pendingEvents = new ConcurrentHashMap<>();
+
+    private final Counters counters;
+
+    /**
+     * Constructs a new instance using the scheduler shared within the JVM.
+     */
+    public ScheduledDispatcher() {
+        this(null, new Counters());
+    }
+
+    /**
+     * Constructs a new instance using a provided scheduler.
+     * <p>
+     * Note: when providing a {@code ScheduledThreadPoolExecutor}, consider enabling its
+     * {@code removeOnCancelPolicy} so cancelled events don't linger until their delay has elapsed.
+     * </p>
+     *
+     * @param scheduler the scheduler to use, null to use the scheduler shared within the JVM
+     */
+    public ScheduledDispatcher(final ScheduledExecutorService scheduler) {
+        this(scheduler, new Counters());
+    }
+
+    private ScheduledDispatcher(final ScheduledExecutorService scheduler, final Counters counters) {
+        this.scheduler = scheduler;
+        this.counters = counters;
+    }
+
+    /**
+     * @see EventDispatcher#cancel(String)
+     */
+    @Override
+    public void cancel(final String sendId) {
+        if (getLog().isInfoEnabled()) {
+            getLog().info("cancel( sendId: " + sendId + ")");
+        }
+        final DelayedEvent delayedEvent = getPendingEvents().remove(sendId);
+        if (delayedEvent != null && delayedEvent.cancel() && getLog().isDebugEnabled()) {
+            getLog().debug("Cancelled event scheduled by <send> with id '"
+                    + sendId + "'");
+        }
+    }
+
+    /**
+     * @return the number of delayed events which have been cancelled before being delivered
+     */
+    public long getCancelledCount() {
+        return counters.cancelled.sum();
+    }
+
+    /**
+     * @return the number of delayed events which have been delivered
+     */
+    public long getFiredCount() {
+        return counters.fired.sum();
+    }
+
+    /**
+     * @return the number of delayed events which are waiting to be delivered
+     */
+    public long getPendingCount() {
+        return counters.pending.sum();
+    }
+
+    private Map<String, DelayedEvent> getPendingEvents() {
+        if (pendingEvents == null) {
+            // deserialized, without the (not serializable) events which were pending at the time
+            pendingEvents = new ConcurrentHashMap<>();
+        }
+        return pendingEvents;
+    }
+
+    /**
+     * @return the scheduler used for delivering the delayed events
+     */
+    protected ScheduledExecutorService getScheduler() {
+        return scheduler != null ? scheduler : SharedScheduler.INSTANCE;
+    }
+
+    /**
+     * @return a new instance sharing the scheduler and the counters of this instance
+     */
+    @Override
+    public ScheduledDispatcher newInstance() {
+        return new ScheduledDispatcher(scheduler, counters);
+    }
+
+    @Override
+    protected void schedule(final String id, final TriggerEvent event, final SCXMLIOProcessor target,
+            final long delay) {
+        final DelayedEvent delayedEvent = new DelayedEvent(id, event, target);
+        counters.pending.increment();
+        getPendingEvents().put(id, delayedEvent);
+        final ScheduledFuture<?> future = getScheduler().schedule(delayedEvent, delay, TimeUnit.MILLISECONDS);
+        delayedEvent.future = future;
+        if (delayedEvent.state.get() == DelayedEvent.CANCELLED) {
+            // cancelled while being scheduled
+            future.cancel(false);
+        }
+    }
+}
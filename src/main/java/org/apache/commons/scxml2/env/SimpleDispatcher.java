@@ -150,6 +150,24 @@ public class SimpleDispatcher implements EventDispatcher, Serializable {
         return new SimpleDispatcher();
     }
 
+    /**
+     * Schedules a delayed event, using a new {@code Timer}.
+     * <p>
+     * Subclasses may override this method, together with {@link #cancel(String)}, to use another scheduling mechanism.
+     * </p>
+     *
+     * @param id The ID of the send message
+     * @param event The event to deliver
+     * @param target The target io processor to deliver the event to
+     * @param delay The delay in milliseconds
+     */
+    protected void schedule(final String id, final TriggerEvent event, final SCXMLIOProcessor target,
+            final long delay) {
+        final Timer timer = new Timer(true);
+        timer.schedule(new DelayedEventTask(id, event, target), delay);
+        timers.put(id, timer);
+    }
+
     /**
     @see EventDispatcher#send(java.util.Map, String, String, String, String, Object, Object, long)
      */
@@ -222,9 +240,7 @@ public class SimpleDispatcher implements EventDispatcher, Serializable {
             }
             if (delay > 0L) {
                 // Need to schedule this one
-                final Timer timer = new Timer(true);
-                timer.schedule(new DelayedEventTask(id, eventBuilder.build(), ioProcessor), delay);
-                timers.put(id, timer);
+                schedule(id, eventBuilder.build(), ioProcessor, delay);
                 if (log.isDebugEnabled()) {
                     log.debug("Scheduled event '" + event + "' with delay "
                             + delay + "ms, as specified by <send> with id '"
@@ -19,6 +19,7 @@ package org.apache.commons.scxml2.env.groovy;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -29,6 +30,7 @@ import org.apache.commons.scxml2.SCInstanceObjectInputStream;
 import org.apache.commons.scxml2.env.SimpleContext;
 
 import groovy.lang.Closure;
+import groovy.lang.Script;
 
 /**
  * Groovy Context implementation for Commons SCXML.
@@ -44,6 +46,12 @@ public class GroovyContext extends SimpleContext {
     private GroovyContextBinding binding;
     private Map<String, Object> vars;
 
+    /** The effective context for evaluating expressions in this context, created by the GroovyEvaluator. */
+    transient GroovyContext effectiveContext;
+
+    /** The Script instances bound to this context, reused for evaluating their script class again. */
+    private transient Map<Class<? extends Script>, Script> scripts;
+
     /**
      * Constructs a new instance.
      */
@@ -80,6 +88,14 @@ public class GroovyContext extends SimpleContext {
         return  binding;
     }
 
+    /**
+     * @param scriptClass the compiled script class
+     * @return the Script instance of the scriptClass bound to this context, null if not created yet
+     */
+    Script getScript(final Class<? extends Script> scriptClass) {
+        return scripts != null ? scripts.get(scriptClass) : null;
+    }
+
     protected GroovyEvaluator getGroovyEvaluator() {
         return evaluator;
     }
@@ -118,6 +134,16 @@ public class GroovyContext extends SimpleContext {
         }
     }
 
+    /**
+     * @param script the Script instance, bound to this context, to reuse for evaluating its script class again
+     */
+    void putScript(final Script script) {
+        if (scripts == null) {
+            scripts = new HashMap<>();
+        }
+        scripts.put(script.getClass(), script);
+    }
+
     protected void setGroovyEvaluator(final GroovyEvaluator evaluator) {
         this.evaluator = evaluator;
     }
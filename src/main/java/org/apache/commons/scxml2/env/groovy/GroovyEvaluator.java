@@ -18,6 +18,7 @@ package org.apache.commons.scxml2.env.groovy;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,7 +30,9 @@ import org.apache.commons.scxml2.SCXMLExpressionException;
 import org.apache.commons.scxml2.SCXMLSystemContext;
 import org.apache.commons.scxml2.env.AbstractBaseEvaluator;
 import org.apache.commons.scxml2.env.EffectiveContextMap;
+import org.apache.commons.scxml2.model.ModelExpressions;
 import org.apache.commons.scxml2.model.SCXML;
+import org.codehaus.groovy.runtime.InvokerHelper;
 
 import groovy.lang.Script;
 
@@ -105,6 +108,13 @@ public class GroovyEvaluator extends AbstractBaseEvaluator {
         }
     };
 
+    /**
+     * Pattern matching the locations which can be assigned without evaluating an assignment script: a variable name,
+     * optionally followed by a path of property names.
+     */
+    private static final Pattern PROPERTY_PATH_PATTERN =
+            Pattern.compile("[A-Za-z_$][\\w$]*(?:\\.[A-Za-z_$][\\w$]*)*");
+
     private final boolean useInitialScriptAsBaseScript;
     private final GroovyExtendableScriptCache scriptCache;
 
@@ -122,6 +132,36 @@ public class GroovyEvaluator extends AbstractBaseEvaluator {
         scriptCache.clearCache();
     }
 
+    /**
+     * Compiles a location into an assigner which, for a variable name or a path of property names, sets the
+     * variable in the binding of the context or the last property on the object evaluated for the rest of the path.
+     * Other locations are assigned by evaluating an assignment script, see
+     * {@link AbstractBaseEvaluator#evalAssign(Context, String, Object)}.
+     *
+     * @see Evaluator#compileAssign(String)
+     */
+    @Override
+    public Assigner compileAssign(final String location) throws SCXMLExpressionException {
+        if (location == null || !PROPERTY_PATH_PATTERN.matcher(location).matches()
+                || "binding".equals(location) || "metaClass".equals(location)) {
+            return (ctx, data) -> super.evalAssign(ctx, location, data);
+        }
+        final int lastDot = location.lastIndexOf('.');
+        if (lastDot < 0) {
+            return (ctx, data) -> getEffectiveContext(toGroovyContext(ctx)).getBinding().setVariable(location, data);
+        }
+        final String owner = location.substring(0, lastDot);
+        final String property = location.substring(lastDot + 1);
+        return (ctx, data) -> {
+            final Object target = eval(ctx, owner);
+            try {
+                InvokerHelper.setProperty(target, property, data);
+            } catch (final Exception e) {
+                throw assignError(location, e);
+            }
+        };
+    }
+
     /**
      * Evaluate an expression.
      *
@@ -154,6 +194,16 @@ public class GroovyEvaluator extends AbstractBaseEvaluator {
         }
     }
 
+    /**
+     * Assigns data to a location, see {@link #compileAssign(String)}.
+     *
+     * @see Evaluator#evalAssign(Context, String, Object)
+     */
+    @Override
+    public void evalAssign(final Context ctx, final String location, final Object data) throws SCXMLExpressionException {
+        compileAssign(location).assign(ctx, data);
+    }
+
     /**
      * @see Evaluator#evalCond(Context, String)
      */
@@ -162,22 +212,51 @@ public class GroovyEvaluator extends AbstractBaseEvaluator {
         if (expr == null) {
             return null;
         }
+        final GroovyContext groovyCtx = toGroovyContext(ctx);
+        return evalCond(getEffectiveContext(groovyCtx), groovyCtx.getScriptBaseClass(), expr);
+    }
+
+    private Boolean evalCond(final GroovyContext effective, final String scriptBaseClass, final String expr)
+            throws SCXMLExpressionException {
+        try {
+            final Object result = getScript(effective, scriptBaseClass, expr).run();
+            return result == null ? Boolean.FALSE : (Boolean)result;
+        } catch (final Exception e) {
+            final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
+            throw new SCXMLExpressionException("evalCond('" + expr + "'): " + exMessage, e);
+        }
+    }
 
+    /**
+     * Evaluates the conditions against a single effective context.
+     *
+     * @see Evaluator#evalFirstCond(Context, List, Evaluator.CondHandler)
+     */
+    @Override
+    public int evalFirstCond(final Context ctx, final List<String> conditions, final CondHandler condHandler) {
         if (!(ctx instanceof GroovyContext)) {
-            throw new SCXMLExpressionException(ERR_CTX_TYPE);
+            return super.evalFirstCond(ctx, conditions, condHandler);
         }
-
         final GroovyContext groovyCtx = (GroovyContext) ctx;
         if (groovyCtx.getGroovyEvaluator() == null) {
             groovyCtx.setGroovyEvaluator(this);
         }
-        try {
-            final Object result = getScript(getEffectiveContext(groovyCtx), groovyCtx.getScriptBaseClass(), expr).run();
-            return result == null ? Boolean.FALSE : (Boolean)result;
-        } catch (final Exception e) {
-            final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
-            throw new SCXMLExpressionException("evalCond('" + expr + "'): " + exMessage, e);
+        final GroovyContext effective = getEffectiveContext(groovyCtx);
+        final String scriptBaseClass = groovyCtx.getScriptBaseClass();
+        for (int i = 0, size = conditions.size(); i < size; i++) {
+            final String cond = conditions.get(i);
+            if (cond == null) {
+                return i;
+            }
+            try {
+                if (evalCond(effective, scriptBaseClass, cond)) {
+                    return i;
+                }
+            } catch (final SCXMLExpressionException e) {
+                condHandler.onError(e, i);
+            }
         }
+        return -1;
     }
 
     /**
@@ -218,25 +297,55 @@ public class GroovyEvaluator extends AbstractBaseEvaluator {
      * Create a new context which is the summation of contexts from the
      * current state to document root, child has priority over parent
      * in scoping rules.
+     * The effective context is created once and reused for all
+     * evaluations within the same context.
      *
      * @param nodeCtx The GroovyContext for this state.
      * @return The effective GroovyContext for the path leading up to
      *         document root.
      */
     protected GroovyContext getEffectiveContext(final GroovyContext nodeCtx) {
-        return new GroovyContext(nodeCtx, new EffectiveContextMap(nodeCtx), this);
+        GroovyContext effective = nodeCtx.effectiveContext;
+        if (effective == null || effective.getGroovyEvaluator() != this) {
+            effective = new GroovyContext(nodeCtx, new EffectiveContextMap(nodeCtx), this);
+            nodeCtx.effectiveContext = effective;
+        }
+        return effective;
     }
 
     protected ClassLoader getGroovyClassLoader() {
         return scriptCache.getGroovyClassLoader();
     }
 
+    /**
+     * Gets the Script instance for a script source bound to a context.
+     * <p>
+     * The Script instances are created once per context and script class, and then reused.
+     * </p>
+     *
+     * @param groovyContext the (effective) context to bind the script to
+     * @param scriptBaseClassName the script base class, may be null
+     * @param scriptSource the script source
+     * @return the Script instance bound to the context
+     */
     protected Script getScript(final GroovyContext groovyContext, final String scriptBaseClassName, final String scriptSource) {
-        final Script script = scriptCache.getScript(scriptBaseClassName, scriptSource);
-        script.setBinding(groovyContext.getBinding());
+        final Class<? extends Script> scriptClass = scriptCache.getScriptClass(scriptBaseClassName, scriptSource);
+        Script script = groovyContext.getScript(scriptClass);
+        if (script == null) {
+            script = scriptCache.newScript(scriptClass);
+            script.setBinding(groovyContext.getBinding());
+            groovyContext.putScript(script);
+        }
         return script;
     }
 
+    /**
+     * @return the cache of the compiled scripts of this evaluator, providing its metrics
+     */
+    public GroovyExtendableScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
     public GroovyExtendableScriptCache.ScriptPreProcessor getScriptPreProcessor() {
         return scriptPreProcessor;
     }
@@ -274,8 +383,43 @@ public class GroovyEvaluator extends AbstractBaseEvaluator {
         return scriptCache;
     }
 
+    /**
+     * Compiles and caches a condition, expression or script, for the script base class of a new root context, which is
+     * the one used to evaluate it unless a global script became the base script, see
+     * {@link #GroovyEvaluator(boolean)}.
+     * <p>
+     * Locations are not compiled, as these are assigned without a script if possible, see
+     * {@link #compileAssign(String)}.
+     * </p>
+     *
+     * @see Evaluator#precompile(ModelExpressions.Kind, String)
+     */
+    @Override
+    public void precompile(final ModelExpressions.Kind kind, final String source) throws SCXMLExpressionException {
+        if (kind == ModelExpressions.Kind.LOCATION) {
+            return;
+        }
+        try {
+            scriptCache.getScriptClass(((GroovyContext) newContext(null)).getScriptBaseClass(), source);
+        } catch (final Exception e) {
+            final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
+            throw new SCXMLExpressionException("precompile('" + source + "'): " + exMessage, e);
+        }
+    }
+
     @Override
     public boolean requiresGlobalContext() {
         return false;
     }
-}
\ No newline at end of file
+
+    private GroovyContext toGroovyContext(final Context ctx) throws SCXMLExpressionException {
+        if (!(ctx instanceof GroovyContext)) {
+            throw new SCXMLExpressionException(ERR_CTX_TYPE);
+        }
+        final GroovyContext groovyCtx = (GroovyContext) ctx;
+        if (groovyCtx.getGroovyEvaluator() == null) {
+            groovyCtx.setGroovyEvaluator(this);
+        }
+        return groovyCtx;
+    }
+}
@@ -20,9 +20,18 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.security.AccessController;
+import java.security.CodeSource;
 import java.security.PrivilegedAction;
-import java.util.LinkedHashMap;
-
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilerConfiguration;
 
 import groovy.lang.GroovyClassLoader;
@@ -40,15 +49,22 @@ import groovy.lang.Script;
  * It also provides easy support for (and scoped) script compilation with a specific {@link Script} base class.
  * </p>
  * <p>
- * Internally it uses a non-serializable and thus transient {@link GroovyClassLoader}, {@link CompilerConfiguration} and
+ * Internally it uses non-serializable and thus transient {@link GroovyClassLoader}s, {@link CompilerConfiguration} and
  * the parent classloader to use.<br>
- * To be able to be serializable, the {@link GroovyClassLoader} is automatically (re)created if not defined yet, and for
+ * To be able to be serializable, the {@link GroovyClassLoader}s are automatically (re)created if not defined yet, and for
  * the  {@link CompilerConfiguration} and parent classloader it uses serializable instances of
  * {@link CompilerConfigurationFactory} and {@link ParentClassLoaderFactory} interfaces which either can be configured
  * or have defaults otherwise.
  * </p>
  * <p>
- * The underlying {@link GroovyClassLoader} can be accessed through {@link #getGroovyClassLoader()}, which might be needed
+ * The cache is bounded by a {@link #setMaxSize(int) maximum size}. The scripts are compiled in segments, each with
+ * its own {@link GroovyClassLoader}. When the cache grows beyond its maximum size, the least recently used segment is
+ * evicted as a whole, so its classes can be garbage collected (once no longer referenced otherwise). Segments
+ * containing a script class which is used as base class for other scripts are never evicted.<br>
+ * The size, hits, misses, evictions and time spent compiling scripts of the cache are available as metrics.
+ * </p>
+ * <p>
+ * The ClassLoader resolving all cached script classes can be accessed through {@link #getGroovyClassLoader()}, which might be needed
  * to de-serialize previously defined/created classes and objects through this class, from within a containing object
  * readObject(ObjectInputStream in) method.<br>
  * For more information how this works and should be done, see:
@@ -64,6 +80,10 @@ import groovy.lang.Script;
  * The cache itself as well as the underlying GroovyClassLoader caches can be cleared through {@link #clearCache()}.
  * </p>
  * <p>
+ * The cache is thread-safe: looking up an already compiled script class doesn't lock, and the compilation of a new
+ * script only blocks the callers requesting the same script (with the same base class).
+ * </p>
+ * <p>
  * The GroovyExtendableScriptCache has no other external dependencies other than Groovy itself,
  * so can be used independent of Commons SCXML.
  * </p>
@@ -92,7 +112,9 @@ public class GroovyExtendableScriptCache implements Serializable {
         protected final String baseClass;
         protected final String scriptSource;
         protected String scriptName;
-        protected transient Class<? extends Script> scriptClass;
+        protected int scriptSequence;
+        protected transient volatile Class<? extends Script> scriptClass;
+        private transient ScriptSegment segment;
 
         public ScriptCacheElement(final String baseClass, final String scriptSource) {
             this.baseClass = baseClass;
@@ -127,6 +149,10 @@ public class GroovyExtendableScriptCache implements Serializable {
             return scriptName;
         }
 
+        public int getScriptSequence() {
+            return scriptSequence;
+        }
+
         public String getScriptSource() {
             return scriptSource;
         }
@@ -145,14 +171,121 @@ public class GroovyExtendableScriptCache implements Serializable {
         public void setScriptName(final String scriptName) {
             this.scriptName = scriptName;
         }
+
+        public void setScriptSequence(final int scriptSequence) {
+            this.scriptSequence = scriptSequence;
+        }
+    }
+
+    /**
+     * GroovyClassLoader which can compile a script with a specific CompilerConfiguration, without modifying its own
+     * (shared) CompilerConfiguration, so scripts with different base classes can be compiled concurrently.
+     */
+    private static final class ScriptClassLoader extends GroovyClassLoader {
+
+        private final ThreadLocal<CompilerConfiguration> scriptConfiguration = new ThreadLocal<>();
+
+        ScriptClassLoader(final ClassLoader parent, final CompilerConfiguration config) {
+            super(parent, config);
+        }
+
+        @Override
+        protected CompilationUnit createCompilationUnit(final CompilerConfiguration config, final CodeSource source) {
+            final CompilerConfiguration current = scriptConfiguration.get();
+            return super.createCompilationUnit(current != null ? current : config, source);
+        }
+
+        Class<?> getCachedClass(final String name) {
+            return getClassCacheEntry(name);
+        }
+
+        Class<?> parseClass(final GroovyCodeSource codeSource, final CompilerConfiguration config) {
+            scriptConfiguration.set(config);
+            try {
+                return parseClass(codeSource, false);
+            } finally {
+                scriptConfiguration.remove();
+            }
+        }
     }
 
     public interface ScriptPreProcessor extends Serializable {
         String preProcess(String script);
     }
 
+    /**
+     * The metrics of the cache.
+     */
+    private static final class Metrics {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder compileTime = new LongAdder();
+    }
+
+    /**
+     * A segment of the cache: the scripts compiled by one ScriptClassLoader, which is discarded together with its
+     * scripts when evicted.
+     */
+    private static final class ScriptSegment {
+
+        private final ScriptClassLoader classLoader;
+        /* the scripts compiled in this segment, guarded by the scriptCache lock */
+        private final List<ScriptCacheElement> elements = new ArrayList<>();
+        /* the logical time of the last use of a script of this segment */
+        private volatile long lastAccess;
+        /* set when a script class of this segment is used as base class, guarded by the scriptCache lock */
+        private boolean pinned;
+
+        ScriptSegment(final ScriptClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+    }
+
+    /**
+     * ClassLoader resolving the script classes compiled in any of the segments. It is the parent of the segment
+     * ScriptClassLoaders, so scripts can use the script class of another segment as base class.
+     */
+    private static final class SegmentsClassLoader extends ClassLoader {
+
+        static {
+            registerAsParallelCapable();
+        }
+
+        private final List<ScriptSegment> segments = new CopyOnWriteArrayList<>();
+
+        SegmentsClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> findClass(final String name) throws ClassNotFoundException {
+            final ScriptSegment segment = getSegment(name);
+            if (segment == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return segment.classLoader.getCachedClass(name);
+        }
+
+        ScriptSegment getSegment(final String className) {
+            for (final ScriptSegment segment : segments) {
+                if (segment.classLoader.getCachedClass(className) != null) {
+                    return segment;
+                }
+            }
+            return null;
+        }
+    }
+
     private static final long serialVersionUID = 1L;
 
+    /** Default maximum number of cached scripts */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /** Number of segments the maximum number of cached scripts is divided in */
+    private static final int SEGMENT_COUNT = 4;
+
     /** Default CodeSource code base for the compiled Groovy scripts */
     public static final String DEFAULT_SCRIPT_CODE_BASE = "/groovy/scxml/script";
 
@@ -164,26 +297,72 @@ public class GroovyExtendableScriptCache implements Serializable {
     public static final CompilerConfigurationFactory DEFAULT_COMPILER_CONFIGURATION_FACTORY =
             (CompilerConfigurationFactory) CompilerConfiguration::new;
 
-    private final LinkedHashMap<ScriptCacheElement, ScriptCacheElement> scriptCache = new LinkedHashMap<>();
+    private final ConcurrentHashMap<ScriptCacheElement, ScriptCacheElement> scriptCache = new ConcurrentHashMap<>();
 
     private String scriptCodeBase = DEFAULT_SCRIPT_CODE_BASE;
     private String scriptBaseClass;
     private ParentClassLoaderFactory parentClassLoaderFactory = DEFAULT_PARENT_CLASS_LOADER_FACTORY;
     private CompilerConfigurationFactory compilerConfigurationFactory = DEFAULT_COMPILER_CONFIGURATION_FACTORY;
     private ScriptPreProcessor scriptPreProcessor;
+    private int maxSize = DEFAULT_MAX_SIZE;
 
-    /* non-serializable thus transient GroovyClassLoader and CompilerConfiguration */
-    private transient GroovyClassLoader groovyClassLoader;
+    /* non-serializable thus transient GroovyClassLoaders and CompilerConfiguration(s) */
+    private transient volatile boolean initialized;
+    private transient SegmentsClassLoader groovyClassLoader;
+    private transient volatile ScriptSegment activeSegment;
     private transient CompilerConfiguration compilerConfiguration;
+    /* the CompilerConfigurations for compiling scripts with a specific base class, keyed by base class */
+    private transient ConcurrentHashMap<String, CompilerConfiguration> scriptBaseClassConfigurations;
+    /* the sequence of the compiled scripts, used for their generated names and recompiling them in the same order */
+    private transient AtomicInteger scriptSequence;
+    /* logical clock for tracking the recency of the segments, advanced on each compiled script */
+    private transient AtomicLong clock;
+    private transient Metrics metrics = new Metrics();
 
     public GroovyExtendableScriptCache() {
     }
 
+    /**
+     * Adds a compiled script to the segment which compiled it, and evicts the least recently used segment(s) if the
+     * cache has grown beyond its maximum size.
+     */
+    private void addToSegment(final ScriptCacheElement element, final Class<? extends Script> scriptClass) {
+        synchronized (scriptCache) {
+            if (element.getBaseClass() != null) {
+                final ScriptSegment baseSegment = groovyClassLoader.getSegment(element.getBaseClass());
+                if (baseSegment != null) {
+                    // the base class must remain resolvable for compiling more scripts
+                    baseSegment.pinned = true;
+                }
+            }
+            final ScriptSegment segment = groovyClassLoader.getSegment(scriptClass.getName());
+            if (segment == null) {
+                // compiled by an overridden compileScript, or its segment already has been evicted
+                return;
+            }
+            element.segment = segment;
+            segment.elements.add(element);
+            segment.lastAccess = clock.incrementAndGet();
+            if (maxSize > 0) {
+                if (segment == activeSegment && segment.elements.size() >= Math.max(1, maxSize / SEGMENT_COUNT)) {
+                    activeSegment = newSegment();
+                }
+                if (scriptCache.size() > maxSize) {
+                    evict();
+                }
+            }
+        }
+    }
+
     public void clearCache() {
+        scriptCache.clear();
         synchronized (scriptCache) {
-            scriptCache.clear();
-            if (groovyClassLoader != null) {
-                groovyClassLoader.clearCache();
+            if (initialized) {
+                for (final ScriptSegment segment : groovyClassLoader.segments) {
+                    segment.classLoader.clearCache();
+                }
+                groovyClassLoader.segments.clear();
+                activeSegment = newSegment();
             }
         }
     }
@@ -195,33 +374,71 @@ public class GroovyExtendableScriptCache implements Serializable {
         final GroovyCodeSource codeSource = AccessController.doPrivileged((PrivilegedAction<GroovyCodeSource>)
                 () -> new GroovyCodeSource(script, scriptName, getScriptCodeBase()));
 
-        final String currentScriptBaseClass = compilerConfiguration.getScriptBaseClass();
-        try {
-            if (scriptBaseClass != null) {
-                compilerConfiguration.setScriptBaseClass(scriptBaseClass);
-            }
-            return groovyClassLoader.parseClass(codeSource, false);
-        }
-        finally {
-            compilerConfiguration.setScriptBaseClass(currentScriptBaseClass);
-        }
+        return (Class<Script>) activeSegment.classLoader.parseClass(codeSource, getCompilerConfiguration(scriptBaseClass));
     }
 
     protected void ensureInitializedOrReloaded() {
-        if (groovyClassLoader == null) {
-            compilerConfiguration = new CompilerConfiguration(getCompilerConfigurationFactory().getCompilerConfiguration());
-            if (getScriptBaseClass() != null) {
-                compilerConfiguration.setScriptBaseClass(getScriptBaseClass());
+        if (!initialized) {
+            synchronized (scriptCache) {
+                if (!initialized) {
+                    compilerConfiguration = new CompilerConfiguration(getCompilerConfigurationFactory().getCompilerConfiguration());
+                    if (getScriptBaseClass() != null) {
+                        compilerConfiguration.setScriptBaseClass(getScriptBaseClass());
+                    }
+                    scriptBaseClassConfigurations = new ConcurrentHashMap<>();
+                    scriptSequence = new AtomicInteger();
+                    clock = new AtomicLong();
+
+                    groovyClassLoader = AccessController.doPrivileged((PrivilegedAction<SegmentsClassLoader>)
+                            () -> new SegmentsClassLoader(getParentClassLoaderFactory().getClassLoader()));
+                    activeSegment = newSegment();
+                    if (!scriptCache.isEmpty()) {
+                        // de-serialized: need to re-generate all previously compiled scripts (this can cause a hick-up...):
+                        // skip the scripts not compiled yet, which will be compiled when requested
+                        final List<ScriptCacheElement> elements = new ArrayList<>();
+                        for (final ScriptCacheElement element : scriptCache.keySet()) {
+                            if (element.getScriptName() != null) {
+                                elements.add(element);
+                            }
+                        }
+                        // in order of compilation, as a script class may be the base class of a later script
+                        elements.sort(Comparator.comparingInt(ScriptCacheElement::getScriptSequence));
+                        for (final ScriptCacheElement element : elements) {
+                            final Class<Script> scriptClass = compileScript(element.getBaseClass(), element.getScriptSource(), element.getScriptName());
+                            addToSegment(element, scriptClass);
+                            element.setScriptClass(scriptClass);
+                            scriptSequence.set(Math.max(scriptSequence.get(), element.getScriptSequence() + 1));
+                        }
+                    }
+                    initialized = true;
+                }
             }
+        }
+    }
 
-            groovyClassLoader = AccessController.doPrivileged((PrivilegedAction<GroovyClassLoader>)
-                    () -> new GroovyClassLoader(getParentClassLoaderFactory().getClassLoader(), compilerConfiguration));
-            if (!scriptCache.isEmpty()) {
-                // de-serialized: need to re-generate all previously compiled scripts (this can cause a hick-up...):
-                for (final ScriptCacheElement element : scriptCache.keySet()) {
-                    element.setScriptClass(compileScript(element.getBaseClass(), element.getScriptSource(), element.getScriptName()));
+    /**
+     * Evicts the least recently used segment(s), until the cache no longer exceeds its maximum size or no segment
+     * can be evicted.
+     */
+    private void evict() {
+        while (scriptCache.size() > maxSize) {
+            ScriptSegment eldest = null;
+            for (final ScriptSegment segment : groovyClassLoader.segments) {
+                if (segment != activeSegment && !segment.pinned
+                        && (eldest == null || segment.lastAccess < eldest.lastAccess)) {
+                    eldest = segment;
                 }
             }
+            if (eldest == null) {
+                break;
+            }
+            groovyClassLoader.segments.remove(eldest);
+            for (final ScriptCacheElement element : eldest.elements) {
+                if (scriptCache.remove(element, element)) {
+                    metrics.evictions.increment();
+                }
+            }
+            eldest.classLoader.clearCache();
         }
     }
 
@@ -229,14 +446,51 @@ public class GroovyExtendableScriptCache implements Serializable {
         return "script"+seed+"_"+Math.abs(scriptSource.hashCode())+".groovy";
     }
 
+    private CompilerConfiguration getCompilerConfiguration(final String scriptBaseClass) {
+        if (scriptBaseClass == null) {
+            return compilerConfiguration;
+        }
+        return scriptBaseClassConfigurations.computeIfAbsent(scriptBaseClass, baseClass -> {
+            final CompilerConfiguration configuration = new CompilerConfiguration(compilerConfiguration);
+            configuration.setScriptBaseClass(baseClass);
+            return configuration;
+        });
+    }
+
     public CompilerConfigurationFactory getCompilerConfigurationFactory() {
         return compilerConfigurationFactory;
     }
 
+    /** @return The total time spent compiling scripts, in nanoseconds */
+    public long getCompileTimeNanos() {
+        return metrics.compileTime.sum();
+    }
+
+    /** @return The number of scripts evicted from the cache */
+    public long getEvictionCount() {
+        return metrics.evictions.sum();
+    }
+
+    /** @return The ClassLoader resolving all the cached script classes, null if no script has been compiled yet */
     public ClassLoader getGroovyClassLoader() {
         return groovyClassLoader;
     }
 
+    /** @return The number of script requests which found the script class cached */
+    public long getHitCount() {
+        return metrics.hits.sum();
+    }
+
+    /** @return The maximum number of cached scripts, 0 if unbounded */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** @return The number of script requests which required compiling the script */
+    public long getMissCount() {
+        return metrics.misses.sum();
+    }
+
     public ParentClassLoaderFactory getParentClassLoaderFactory() {
         return parentClassLoaderFactory;
     }
@@ -252,27 +506,61 @@ public class GroovyExtendableScriptCache implements Serializable {
     }
 
     public Script getScript(final String scriptBaseClass, final String scriptSource) {
-        Class<? extends Script> scriptClass;
-        synchronized (scriptCache) {
-            ensureInitializedOrReloaded();
-            final ScriptCacheElement cacheKey = new ScriptCacheElement(scriptBaseClass, scriptSource);
-            final ScriptCacheElement cacheElement = scriptCache.get(cacheKey);
-            if (cacheElement != null) {
-                scriptClass = cacheElement.getScriptClass();
+        return newScript(getScriptClass(scriptBaseClass, scriptSource));
+    }
+
+    /**
+     * @param scriptBaseClass The script base class, or null for the configured {@link #getScriptBaseClass()}
+     * @param scriptSource The script source, which will optionally be first preprocessed through {@link #preProcessScript(String)}
+     *                     using the configured {@link #getScriptPreProcessor}
+     * @return The compiled (or cached) Groovy class parsed from the provided scriptSource
+     */
+    public Class<? extends Script> getScriptClass(final String scriptBaseClass, final String scriptSource) {
+        final ScriptCacheElement cacheKey = new ScriptCacheElement(scriptBaseClass, scriptSource);
+        ScriptCacheElement cacheElement = scriptCache.get(cacheKey);
+        if (cacheElement == null) {
+            cacheElement = scriptCache.putIfAbsent(cacheKey, cacheKey);
+            if (cacheElement == null) {
+                cacheElement = cacheKey;
             }
-            else {
-                final String scriptName = generatedScriptName(scriptSource, scriptCache.size());
-                scriptClass = compileScript(scriptBaseClass, scriptSource, scriptName);
-                cacheKey.setScriptName(scriptName);
-                cacheKey.setScriptClass(scriptClass);
-                scriptCache.put(cacheKey, cacheKey);
+        }
+        Class<? extends Script> scriptClass = cacheElement.getScriptClass();
+        if (scriptClass == null) {
+            // only block the callers waiting for the same script to be compiled
+            synchronized (cacheElement) {
+                scriptClass = cacheElement.getScriptClass();
+                if (scriptClass == null) {
+                    ensureInitializedOrReloaded();
+                    metrics.misses.increment();
+                    final int sequence = scriptSequence.getAndIncrement();
+                    final String scriptName = generatedScriptName(scriptSource, sequence);
+                    final long start = System.nanoTime();
+                    try {
+                        scriptClass = compileScript(scriptBaseClass, scriptSource, scriptName);
+                    } catch (final RuntimeException e) {
+                        scriptCache.remove(cacheElement, cacheElement);
+                        throw e;
+                    } finally {
+                        metrics.compileTime.add(System.nanoTime() - start);
+                    }
+                    cacheElement.setScriptName(scriptName);
+                    cacheElement.setScriptSequence(sequence);
+                    addToSegment(cacheElement, scriptClass);
+                    cacheElement.setScriptClass(scriptClass);
+                    return scriptClass;
+                }
             }
         }
-        try {
-            return scriptClass.getConstructor().newInstance();
-        } catch (final Exception e) {
-            throw new GroovyRuntimeException("Failed to create Script instance for class: "+ scriptClass + ". Reason: " + e, e);
+        metrics.hits.increment();
+        final ScriptSegment segment = cacheElement.segment;
+        if (segment != null) {
+            // as recent as the last compiled script
+            final long time = clock.get();
+            if (segment.lastAccess < time) {
+                segment.lastAccess = time;
+            }
         }
+        return scriptClass;
     }
 
     public String getScriptBaseClass() {
@@ -289,8 +577,25 @@ public class GroovyExtendableScriptCache implements Serializable {
     }
 
     public boolean isEmpty() {
-        synchronized (scriptCache) {
-            return scriptCache.isEmpty();
+        return scriptCache.isEmpty();
+    }
+
+    private ScriptSegment newSegment() {
+        final ScriptSegment segment = new ScriptSegment(AccessController.doPrivileged((PrivilegedAction<ScriptClassLoader>)
+                () -> new ScriptClassLoader(groovyClassLoader, compilerConfiguration)));
+        groovyClassLoader.segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * @param scriptClass The compiled Groovy script class, see {@link #getScriptClass(String, String)}
+     * @return A new Script instance of the scriptClass
+     */
+    public Script newScript(final Class<? extends Script> scriptClass) {
+        try {
+            return scriptClass.getConstructor().newInstance();
+        } catch (final Exception e) {
+            throw new GroovyRuntimeException("Failed to create Script instance for class: "+ scriptClass + ". Reason: " + e, e);
         }
     }
 
@@ -303,6 +608,7 @@ public class GroovyExtendableScriptCache implements Serializable {
      * re-generate Script classes through {@link #ensureInitializedOrReloaded()}
      */
     private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        metrics = new Metrics();
         in.defaultReadObject();
         ensureInitializedOrReloaded();
     }
@@ -317,6 +623,16 @@ public class GroovyExtendableScriptCache implements Serializable {
         this.parentClassLoaderFactory = parentClassLoaderFactory != null ? parentClassLoaderFactory : DEFAULT_PARENT_CLASS_LOADER_FACTORY;
     }
 
+    /**
+     * @param maxSize The maximum number of cached scripts, 0 for an unbounded cache (default {@link #DEFAULT_MAX_SIZE})
+     */
+    public void setMaxSize(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum cache size must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
     public void setScriptBaseClass(final String scriptBaseClass) {
         this.scriptBaseClass = scriptBaseClass;
     }
@@ -338,4 +654,9 @@ public class GroovyExtendableScriptCache implements Serializable {
     public void setScriptPreProcessor(final ScriptPreProcessor scriptPreProcessor) {
         this.scriptPreProcessor = scriptPreProcessor;
     }
+
+    /** @return The number of cached scripts */
+    public int size() {
+        return scriptCache.size();
+    }
 }
@@ -32,6 +32,9 @@ public class JSContext extends SimpleContext {
     /** Serial version UID. */
     private static final long serialVersionUID = 1L;
 
+    /** The effective context for evaluating expressions in this context, created by the JSEvaluator. */
+    transient JSContext effectiveContext;
+
     /**
      * Default constructor - just invokes the SimpleContext default constructor.
      */
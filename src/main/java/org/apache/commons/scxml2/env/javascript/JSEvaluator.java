@@ -23,6 +23,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
@@ -35,7 +37,9 @@ import org.apache.commons.scxml2.Evaluator;
 import org.apache.commons.scxml2.EvaluatorProvider;
 import org.apache.commons.scxml2.SCXMLExpressionException;
 import org.apache.commons.scxml2.env.AbstractBaseEvaluator;
+import org.apache.commons.scxml2.env.CompiledExpressionCache;
 import org.apache.commons.scxml2.env.EffectiveContextMap;
+import org.apache.commons.scxml2.model.ModelExpressions;
 import org.apache.commons.scxml2.model.SCXML;
 
 /**
@@ -53,6 +57,12 @@ import org.apache.commons.scxml2.model.SCXML;
  * SCXML instance (de)serialization using the javascript language therefore only will work reliably as long as no
  * Javascript native Objects are used/stored in the context nor (other) modifications are made to the Nashorn global state.
  * </p>
+ * <p>
+ * When the ScriptEngine implements {@link Compilable}, the expressions and scripts are compiled once and cached, keyed on
+ * their source text, for all the contexts evaluated with the ScriptEngine of this JSEvaluator.
+ * See {@link #getConditionCache()} and {@link #getScriptCache()}, which also caches the compiled assignment scripts of
+ * the locations.
+ * </p>
  */
 public class JSEvaluator extends AbstractBaseEvaluator {
 
@@ -65,6 +75,7 @@ public class JSEvaluator extends AbstractBaseEvaluator {
 
         @Override
         public Evaluator getEvaluator(final SCXML document) {
+            // compiled lazily: eager compilation is left to precompile(SCXML) or the ExpressionPrecompiler
             return new JSEvaluator();
         }
 
@@ -91,6 +102,81 @@ public class JSEvaluator extends AbstractBaseEvaluator {
     /** ScriptContext for a single SCXML instance (JSEvaluator also cannot be shared between SCXML instances) */
     private transient ScriptContext scriptContext;
 
+    /** The maximum number of cached compiled conditions, and of cached compiled expressions and scripts. */
+    private final int cacheSize;
+
+    /** The cached compiled conditions, keyed on the condition expression. */
+    private transient volatile CompiledExpressionCache<CompiledScript> conditionCache;
+
+    /** The cached compiled expressions and scripts. */
+    private transient volatile CompiledExpressionCache<CompiledScript> scriptCache;
+
+    /** Constructs a new instance. */
+    public JSEvaluator() {
+        this(CompiledExpressionCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param cacheSize the maximum number of cached compiled conditions, and of cached compiled expressions and
+     *                  scripts, 0 to disable caching
+     */
+    public JSEvaluator(final int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + cacheSize);
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Assigns data to a location by evaluating the assignment script of the location, with the data bound to the
+     * assignment variable in the {@link ScriptContext#ENGINE_SCOPE} for the duration of the evaluation only.
+     *
+     * @param context SCXML context.
+     * @param location the location to assign to
+     * @param source the assignment script of the location
+     * @param data the data to assign
+     * @throws SCXMLExpressionException Thrown if the location was invalid or the assignment raised an error itself.
+     */
+    private void assign(final Context context, final String location, final String source, final Object data)
+            throws SCXMLExpressionException {
+        if (!(context instanceof JSContext)) {
+            throw new SCXMLExpressionException(ERR_CTX_TYPE);
+        }
+        try {
+            final JSContext effectiveContext = getEffectiveContext((JSContext)context);
+            final ScriptContext scriptContext = getScriptContext(effectiveContext);
+            final Bindings global = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
+            global.put(ASSIGN_VARIABLE_NAME, data);
+            try {
+                if (cacheSize > 0 && getEngine() instanceof Compilable) {
+                    getScriptCache().get(source, ((Compilable) getEngine())::compile).eval(scriptContext);
+                } else {
+                    getEngine().eval(source, scriptContext);
+                }
+            } finally {
+                global.remove(ASSIGN_VARIABLE_NAME);
+            }
+            // copy Javascript global variables to SCXML context.
+            copyJavascriptGlobalsToScxmlContext(global, effectiveContext);
+        } catch (final Exception e) {
+            throw assignError(location, e);
+        }
+    }
+
+    /**
+     * Compiles a location into an assigner evaluating the assignment script of the location, which is built once and
+     * compiled and cached like the other scripts, without storing a temporary variable in the SCXML context.
+     *
+     * @see Evaluator#compileAssign(String)
+     */
+    @Override
+    public Assigner compileAssign(final String location) throws SCXMLExpressionException {
+        final String source = toAssignment(location);
+        return (ctx, data) -> assign(ctx, location, source, data);
+    }
+
     /**
      * Copy the Javscript global context (i.e. nashorn Global instance) variables to SCXML {@code jsContext}
      * in order to make sure all the new global variables set by the JavaScript engine after evaluation are
@@ -127,23 +213,59 @@ public class JSEvaluator extends AbstractBaseEvaluator {
         if (expression == null) {
             return null;
         }
+        return eval(context, expression, false);
+    }
+
+    /**
+     * Evaluates a Javascript expression or condition, see {@link #eval(Context, String)}.
+     *
+     * @param context    SCXML context.
+     * @param expression Expression to evaluate.
+     * @param condition  Flag indicating if the expression is evaluated as condition.
+     * @return Result of expression evaluation or {@code null}.
+     * @throws SCXMLExpressionException Thrown if the expression was invalid or the execution raised an error itself.
+     */
+    private Object eval(final Context context, final String expression, final boolean condition)
+            throws SCXMLExpressionException {
         if (!(context instanceof JSContext)) {
             throw new SCXMLExpressionException(ERR_CTX_TYPE);
         }
 
+        final String source = condition ? toCondition(expression) : expression;
         try {
             final JSContext effectiveContext = getEffectiveContext((JSContext)context);
             final ScriptContext scriptContext = getScriptContext(effectiveContext);
-            final Object ret = getEngine().eval(expression, scriptContext);
+            final Object ret;
+            if (cacheSize > 0 && getEngine() instanceof Compilable) {
+                final Compilable compilable = (Compilable) getEngine();
+                if (condition) {
+                    ret = getConditionCache().get(expression, expr -> compilable.compile(toCondition(expr)))
+                            .eval(scriptContext);
+                } else {
+                    ret = getScriptCache().get(expression, compilable::compile).eval(scriptContext);
+                }
+            } else {
+                ret = getEngine().eval(source, scriptContext);
+            }
             // copy Javascript global variables to SCXML context.
             copyJavascriptGlobalsToScxmlContext(scriptContext.getBindings(ScriptContext.ENGINE_SCOPE), effectiveContext);
             return ret;
         } catch (final Exception e) {
             final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
-            throw new SCXMLExpressionException("eval('" + expression + "'): " + exMessage, e);
+            throw new SCXMLExpressionException("eval('" + source + "'): " + exMessage, e);
         }
     }
 
+    /**
+     * Assigns data to a location, see {@link #compileAssign(String)}.
+     *
+     * @see Evaluator#evalAssign(Context, String, Object)
+     */
+    @Override
+    public void evalAssign(final Context ctx, final String location, final Object data) throws SCXMLExpressionException {
+        assign(ctx, location, toAssignment(location), data);
+    }
+
     /**
      * Evaluates a conditional expression using the {@code eval()} method and
      * casting the result to a Boolean.
@@ -155,7 +277,63 @@ public class JSEvaluator extends AbstractBaseEvaluator {
      */
     @Override
     public Boolean evalCond(final Context context, final String expression) throws SCXMLExpressionException {
-        return (Boolean)eval(context, "Boolean("+expression+")");
+        return (Boolean)eval(context, String.valueOf(expression), true);
+    }
+
+    /**
+     * Evaluates the conditions with a single preparation of the shared ScriptContext, and copies the Javascript
+     * global variables to the SCXML context once after all the evaluations.
+     *
+     * @see Evaluator#evalFirstCond(Context, List, Evaluator.CondHandler)
+     */
+    @Override
+    public int evalFirstCond(final Context context, final List<String> conditions, final CondHandler condHandler) {
+        if (!(context instanceof JSContext)) {
+            return super.evalFirstCond(context, conditions, condHandler);
+        }
+        final JSContext effectiveContext = getEffectiveContext((JSContext)context);
+        final ScriptContext scriptContext;
+        try {
+            scriptContext = getScriptContext(effectiveContext);
+        } catch (final ScriptException e) {
+            return super.evalFirstCond(context, conditions, condHandler);
+        }
+        try {
+            for (int i = 0, size = conditions.size(); i < size; i++) {
+                final String cond = conditions.get(i);
+                if (cond == null) {
+                    return i;
+                }
+                try {
+                    final Object result = evalCond(scriptContext, cond);
+                    if (result == null) {
+                        condHandler.onNull(i);
+                    } else if (Boolean.TRUE.equals(result)) {
+                        return i;
+                    }
+                } catch (final SCXMLExpressionException e) {
+                    condHandler.onError(e, i);
+                }
+            }
+            return -1;
+        } finally {
+            // copy Javascript global variables to SCXML context.
+            copyJavascriptGlobalsToScxmlContext(scriptContext.getBindings(ScriptContext.ENGINE_SCOPE), effectiveContext);
+        }
+    }
+
+    private Object evalCond(final ScriptContext scriptContext, final String expression) throws SCXMLExpressionException {
+        try {
+            if (cacheSize > 0 && getEngine() instanceof Compilable) {
+                final Compilable compilable = (Compilable) getEngine();
+                return getConditionCache().get(expression, expr -> compilable.compile(toCondition(expr)))
+                        .eval(scriptContext);
+            }
+            return getEngine().eval(toCondition(expression), scriptContext);
+        } catch (final Exception e) {
+            final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
+            throw new SCXMLExpressionException("eval('" + toCondition(expression) + "'): " + exMessage, e);
+        }
     }
 
     /**
@@ -171,17 +349,43 @@ public class JSEvaluator extends AbstractBaseEvaluator {
         return eval(ctx, script);
     }
 
+    /**
+     * Returns the cache of compiled conditions, as used by {@link #evalCond(Context, String)}.
+     *
+     * @return the cache of compiled conditions
+     */
+    public CompiledExpressionCache<CompiledScript> getConditionCache() {
+        CompiledExpressionCache<CompiledScript> cache = conditionCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = conditionCache;
+                if (cache == null) {
+                    conditionCache = cache = new CompiledExpressionCache<>(cacheSize);
+                }
+            }
+        }
+        return cache;
+    }
+
     /**
      * Create a new context which is the summation of contexts from the
      * current state to document root, child has priority over parent
      * in scoping rules.
      *
+     * The effective context is created once and reused for all
+     * evaluations within the same context.
+     *
      * @param nodeCtx The JSContext for this state.
      * @return The effective JSContext for the path leading up to
      *         document root.
      */
     protected JSContext getEffectiveContext(final JSContext nodeCtx) {
-        return new JSContext(nodeCtx, new EffectiveContextMap(nodeCtx));
+        JSContext effective = nodeCtx.effectiveContext;
+        if (effective == null) {
+            effective = new JSContext(nodeCtx, new EffectiveContextMap(nodeCtx));
+            nodeCtx.effectiveContext = effective;
+        }
+        return effective;
     }
 
     /**
@@ -245,6 +449,25 @@ public class JSEvaluator extends AbstractBaseEvaluator {
         return scriptContext;
     }
 
+    /**
+     * Returns the cache of compiled expressions and scripts, as used by {@link #eval(Context, String)} and
+     * {@link #evalScript(Context, String)}.
+     *
+     * @return the cache of compiled expressions and scripts
+     */
+    public CompiledExpressionCache<CompiledScript> getScriptCache() {
+        CompiledExpressionCache<CompiledScript> cache = scriptCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = scriptCache;
+                if (cache == null) {
+                    scriptCache = cache = new CompiledExpressionCache<>(cacheSize);
+                }
+            }
+        }
+        return cache;
+    }
+
     @Override
     public String getSupportedDatamodel() {
         return SUPPORTED_DATA_MODEL;
@@ -299,6 +522,83 @@ public class JSEvaluator extends AbstractBaseEvaluator {
         return new JSContext(parent);
     }
 
+    /**
+     * Compiles and caches the conditions, expressions and scripts of a SCXML document up front, so that these don't
+     * need to be compiled when the document is executed.
+     * <p>
+     * Nothing is compiled if the ScriptEngine doesn't implement {@link Compilable}. Expressions which fail to compile
+     * are skipped: the error will be reported when the expression is evaluated. Locations are compiled into their
+     * assignment scripts, see {@link #compileAssign(String)}.
+     * </p>
+     *
+     * @param document the SCXML document
+     */
+    public void precompile(final SCXML document) {
+        if (cacheSize == 0 || !(getEngine() instanceof Compilable)) {
+            return;
+        }
+        ModelExpressions.visit(document, (kind, source, element) -> {
+            try {
+                precompile(kind, source);
+            } catch (final SCXMLExpressionException e) {
+                // reported when evaluated
+            }
+        });
+    }
+
+    /**
+     * Compiles and caches a condition, expression, script or the assignment script of a location, if the
+     * ScriptEngine implements {@link Compilable}.
+     * <p>
+     * The compilation is synchronized, as the ScriptEngine isn't required to support concurrent compilation.
+     * </p>
+     *
+     * @see Evaluator#precompile(ModelExpressions.Kind, String)
+     */
+    @Override
+    public synchronized void precompile(final ModelExpressions.Kind kind, final String source)
+            throws SCXMLExpressionException {
+        if (cacheSize == 0 || !(getEngine() instanceof Compilable)) {
+            return;
+        }
+        final Compilable compilable = (Compilable) getEngine();
+        try {
+            switch (kind) {
+                case CONDITION:
+                    getConditionCache().get(source, expr -> compilable.compile(toCondition(expr)));
+                    break;
+                case EXPRESSION:
+                case SCRIPT:
+                    getScriptCache().get(source, compilable::compile);
+                    break;
+                case LOCATION:
+                    getScriptCache().get(toAssignment(source), compilable::compile);
+                    break;
+                default:
+                    break;
+            }
+        } catch (final Exception e) {
+            final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
+            throw new SCXMLExpressionException("precompile('" + source + "'): " + exMessage, e);
+        }
+    }
+
+    /**
+     * @param location the location
+     * @return the Javascript script assigning the assignment variable to the location
+     */
+    private static String toAssignment(final String location) {
+        return location + "=" + ASSIGN_VARIABLE_NAME;
+    }
+
+    /**
+     * @param expression the condition expression
+     * @return the Javascript expression evaluating the condition to a Boolean
+     */
+    private static String toCondition(final String expression) {
+        return "Boolean(" + expression + ")";
+    }
+
     /**
      * Javascript engine semantics, using a retained global state, requires global SCXML context execution
      *
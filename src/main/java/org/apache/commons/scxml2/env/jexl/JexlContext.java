@@ -30,6 +30,9 @@ public class JexlContext extends SimpleContext
     /** Serial version UID. */
     private static final long serialVersionUID = 1L;
 
+    /** The effective context for evaluating expressions in this context, created by the JexlEvaluator. */
+    transient JexlContext effectiveContext;
+
     /**
      * Constructs a new instance.
      */
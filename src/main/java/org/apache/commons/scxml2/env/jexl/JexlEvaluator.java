@@ -17,6 +17,7 @@
 package org.apache.commons.scxml2.env.jexl;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.jexl3.JexlBuilder;
@@ -29,7 +30,9 @@ import org.apache.commons.scxml2.Evaluator;
 import org.apache.commons.scxml2.EvaluatorProvider;
 import org.apache.commons.scxml2.SCXMLExpressionException;
 import org.apache.commons.scxml2.env.AbstractBaseEvaluator;
+import org.apache.commons.scxml2.env.CompiledExpressionCache;
 import org.apache.commons.scxml2.env.EffectiveContextMap;
+import org.apache.commons.scxml2.model.ModelExpressions;
 import org.apache.commons.scxml2.model.SCXML;
 
 /**
@@ -39,6 +42,11 @@ import org.apache.commons.scxml2.model.SCXML;
  * This implementation itself is thread-safe, so you can keep singleton
  * for efficiency of the internal {@code JexlEngine} member.
  * </p>
+ * <p>
+ * The compiled expressions and scripts are cached, keyed on their source text,
+ * and shared by all the executors using the same evaluator instance.
+ * See {@link #getExpressionCache()}, {@link #getScriptCache()} and {@link #getAssignCache()}.
+ * </p>
  */
 public class JexlEvaluator extends AbstractBaseEvaluator {
 
@@ -51,6 +59,7 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
 
         @Override
         public Evaluator getEvaluator(final SCXML document) {
+            // compiled lazily: eager compilation is left to precompile(SCXML) or the ExpressionPrecompiler
             return new JexlEvaluator();
         }
 
@@ -72,8 +81,34 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
     /** The internal JexlEngine instance to use. */
     private transient volatile JexlEngine jexlEngine;
 
+    /** The maximum number of cached compiled expressions, and of cached compiled scripts. */
+    private final int cacheSize;
+
+    /** The cached compiled expressions. */
+    private transient volatile CompiledExpressionCache<JexlExpression> expressionCache;
+
+    /** The cached compiled scripts. */
+    private transient volatile CompiledExpressionCache<JexlScript> scriptCache;
+
+    /** The cached compiled assignment scripts, keyed on their location. */
+    private transient volatile CompiledExpressionCache<JexlScript> assignCache;
+
     /** Constructs a new instance. */
     public JexlEvaluator() {
+        this(CompiledExpressionCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param cacheSize the maximum number of cached compiled expressions, and of cached compiled scripts,
+     *                  0 to disable caching
+     */
+    public JexlEvaluator(final int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + cacheSize);
+        }
+        this.cacheSize = cacheSize;
         jexlEngine = getJexlEngine();
     }
 
@@ -93,6 +128,47 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
         return new JexlBuilder().permissions(permissions).namespaces(funcs).cache(256).create();
     }
 
+    /**
+     * Compiles a location into a JEXL script assigning its parameter to the location, and caches it.
+     *
+     * @param location the location expression
+     * @return the compiled assignment script
+     * @throws Exception if the location cannot be compiled
+     */
+    private JexlScript compileAssignScript(final String location) throws Exception {
+        return getAssignCache().get(location,
+                loc -> getJexlEngine().createScript(loc + "=" + ASSIGN_VARIABLE_NAME, ASSIGN_VARIABLE_NAME));
+    }
+
+    /**
+     * Compiles a location into a JEXL script assigning its parameter to the location, without using a temporary
+     * context variable.
+     *
+     * @see Evaluator#compileAssign(String)
+     */
+    @Override
+    public Assigner compileAssign(final String location) throws SCXMLExpressionException {
+        final JexlScript assignScript;
+        try {
+            assignScript = compileAssignScript(location);
+        } catch (final Exception e) {
+            throw assignError(location, e);
+        }
+        return (ctx, data) -> assign(ctx, location, assignScript, data);
+    }
+
+    private void assign(final Context ctx, final String location, final JexlScript assignScript, final Object data)
+            throws SCXMLExpressionException {
+        if (!(ctx instanceof JexlContext)) {
+            throw new SCXMLExpressionException(ERR_CTX_TYPE);
+        }
+        try {
+            assignScript.execute(getEffectiveContext((JexlContext) ctx), data);
+        } catch (final Exception e) {
+            throw assignError(location, e);
+        }
+    }
+
     /**
      * Evaluate an expression.
      *
@@ -113,7 +189,7 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
         }
         try {
             final JexlContext effective = getEffectiveContext((JexlContext)ctx);
-            final JexlExpression exp = getJexlEngine().createExpression(expr);
+            final JexlExpression exp = getExpressionCache().get(expr, getJexlEngine()::createExpression);
             return exp.evaluate(effective);
         } catch (final Exception e) {
             final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
@@ -121,6 +197,22 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
         }
     }
 
+    /**
+     * Assigns data to a location through its cached compiled assignment script, see {@link #compileAssign(String)}.
+     *
+     * @see Evaluator#evalAssign(Context, String, Object)
+     */
+    @Override
+    public void evalAssign(final Context ctx, final String location, final Object data) throws SCXMLExpressionException {
+        final JexlScript assignScript;
+        try {
+            assignScript = compileAssignScript(location);
+        } catch (final Exception e) {
+            throw assignError(location, e);
+        }
+        assign(ctx, location, assignScript, data);
+    }
+
     /**
      * @see Evaluator#evalCond(Context, String)
      */
@@ -133,9 +225,12 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
         if (!(ctx instanceof JexlContext)) {
             throw new SCXMLExpressionException(ERR_CTX_TYPE);
         }
+        return evalCond(getEffectiveContext((JexlContext)ctx), expr);
+    }
+
+    private Boolean evalCond(final JexlContext effective, final String expr) throws SCXMLExpressionException {
         try {
-            final JexlContext effective = getEffectiveContext((JexlContext)ctx);
-            final JexlExpression exp = getJexlEngine().createExpression(expr);
+            final JexlExpression exp = getExpressionCache().get(expr, getJexlEngine()::createExpression);
             final Object result = exp.evaluate(effective);
             return result == null ? Boolean.FALSE : (Boolean)result;
         } catch (final Exception e) {
@@ -144,6 +239,32 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
         }
     }
 
+    /**
+     * Evaluates the conditions against a single effective context.
+     *
+     * @see Evaluator#evalFirstCond(Context, List, Evaluator.CondHandler)
+     */
+    @Override
+    public int evalFirstCond(final Context ctx, final List<String> conditions, final CondHandler condHandler) {
+        if (!(ctx instanceof JexlContext)) {
+            return super.evalFirstCond(ctx, conditions, condHandler);
+        }
+        final JexlContext effective = getEffectiveContext((JexlContext)ctx);
+        for (int i = 0, size = conditions.size(); i < size; i++) {
+            final String cond = conditions.get(i);
+            if (cond == null) {
+                return i;
+            }
+            try {
+                if (evalCond(effective, cond)) {
+                    return i;
+                }
+            } catch (final SCXMLExpressionException e) {
+                condHandler.onError(e, i);
+            }
+        }
+        return -1;
+    }
     /**
      * @see Evaluator#evalScript(Context, String)
      */
@@ -158,7 +279,7 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
         }
         try {
             final JexlContext effective = getEffectiveContext((JexlContext) ctx);
-            final JexlScript jexlScript = getJexlEngine().createScript(script);
+            final JexlScript jexlScript = getScriptCache().get(script, getJexlEngine()::createScript);
             return jexlScript.execute(effective);
         } catch (final Exception e) {
             final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
@@ -171,12 +292,58 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
      * current state to document root, child has priority over parent
      * in scoping rules.
      *
+     * The effective context is created once and reused for all
+     * evaluations within the same context.
+     *
      * @param nodeCtx The JexlContext for this state.
      * @return The effective JexlContext for the path leading up to
      *         document root.
      */
     protected JexlContext getEffectiveContext(final JexlContext nodeCtx) {
-        return new JexlContext(nodeCtx, new EffectiveContextMap(nodeCtx));
+        JexlContext effective = nodeCtx.effectiveContext;
+        if (effective == null) {
+            effective = new JexlContext(nodeCtx, new EffectiveContextMap(nodeCtx));
+            nodeCtx.effectiveContext = effective;
+        }
+        return effective;
+    }
+
+    /**
+     * Returns the cache of compiled assignment scripts, as used by {@link #evalAssign(Context, String, Object)} and
+     * {@link #compileAssign(String)}.
+     *
+     * @return the cache of compiled assignment scripts
+     */
+    public CompiledExpressionCache<JexlScript> getAssignCache() {
+        CompiledExpressionCache<JexlScript> cache = assignCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = assignCache;
+                if (cache == null) {
+                    assignCache = cache = new CompiledExpressionCache<>(cacheSize);
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the cache of compiled expressions, as used by {@link #eval(Context, String)} and
+     * {@link #evalCond(Context, String)}.
+     *
+     * @return the cache of compiled expressions
+     */
+    public CompiledExpressionCache<JexlExpression> getExpressionCache() {
+        CompiledExpressionCache<JexlExpression> cache = expressionCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = expressionCache;
+                if (cache == null) {
+                    expressionCache = cache = new CompiledExpressionCache<>(cacheSize);
+                }
+            }
+        }
+        return cache;
     }
 
     /**
@@ -201,6 +368,24 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
         return engine;
     }
 
+    /**
+     * Returns the cache of compiled scripts, as used by {@link #evalScript(Context, String)}.
+     *
+     * @return the cache of compiled scripts
+     */
+    public CompiledExpressionCache<JexlScript> getScriptCache() {
+        CompiledExpressionCache<JexlScript> cache = scriptCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = scriptCache;
+                if (cache == null) {
+                    scriptCache = cache = new CompiledExpressionCache<>(cacheSize);
+                }
+            }
+        }
+        return cache;
+    }
+
     @Override
     public String getSupportedDatamodel() {
         return SUPPORTED_DATA_MODEL;
@@ -218,6 +403,57 @@ public class JexlEvaluator extends AbstractBaseEvaluator {
         return new JexlContext(parent);
     }
 
+    /**
+     * Compiles and caches the conditions, expressions and scripts of a SCXML document up front, so that these don't
+     * need to be compiled when the document is executed.
+     * <p>
+     * Expressions which fail to compile are skipped: the error will be reported when the expression is evaluated.
+     * Locations are compiled into assignment scripts, see {@link #compileAssign(String)}.
+     * </p>
+     *
+     * @param document the SCXML document
+     */
+    public void precompile(final SCXML document) {
+        if (cacheSize == 0) {
+            return;
+        }
+        ModelExpressions.visit(document, (kind, source, element) -> {
+            try {
+                precompile(kind, source);
+            } catch (final SCXMLExpressionException e) {
+                // reported when evaluated
+            }
+        });
+    }
+
+    /**
+     * Compiles and caches an expression, script or the assignment script of a location.
+     *
+     * @see Evaluator#precompile(ModelExpressions.Kind, String)
+     */
+    @Override
+    public void precompile(final ModelExpressions.Kind kind, final String source) throws SCXMLExpressionException {
+        try {
+            switch (kind) {
+                case CONDITION:
+                case EXPRESSION:
+                    getExpressionCache().get(source, getJexlEngine()::createExpression);
+                    break;
+                case LOCATION:
+                    compileAssignScript(source);
+                    break;
+                case SCRIPT:
+                    getScriptCache().get(source, getJexlEngine()::createScript);
+                    break;
+                default:
+                    break;
+            }
+        } catch (final Exception e) {
+            final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
+            throw new SCXMLExpressionException("precompile('" + source + "'): " + exMessage, e);
+        }
+    }
+
     @Override
     public boolean requiresGlobalContext() {
         return false;
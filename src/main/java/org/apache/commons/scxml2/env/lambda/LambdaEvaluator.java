@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env.lambda;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.scxml2.Context;
+import org.apache.commons.scxml2.Evaluator;
+import org.apache.commons.scxml2.EvaluatorFactory;
+import org.apache.commons.scxml2.EvaluatorProvider;
+import org.apache.commons.scxml2.SCXMLExpressionException;
+import org.apache.commons.scxml2.env.AbstractBaseEvaluator;
+import org.apache.commons.scxml2.env.CompiledExpressionCache;
+import org.apache.commons.scxml2.env.SimpleContext;
+import org.apache.commons.scxml2.model.ModelExpressions;
+import org.apache.commons.scxml2.model.SCXML;
+import org.apache.commons.scxml2.model.TransitionTarget;
+
+/**
+ * Evaluator implementation compiling a typed subset of expressions into Java lambdas, for datamodel="lambda".
+ * <p>
+ * The supported expressions are comparisons, boolean logic, arithmetic, paths of variables and their properties and
+ * the {@code In('stateId')} predicate, see {@link LambdaExpressionCompiler}. Each expression is compiled once into a
+ * tree of lambdas, which are then evaluated without any interpretation, so that frequently evaluated guards are
+ * optimized by the JIT compiler like regular Java code. Properties of Java beans are read and written through
+ * {@link java.lang.invoke.MethodHandle}s, resolved once for each class of bean.
+ * </p>
+ * <p>
+ * Scripts are not supported: evaluating a script is an error.
+ * </p>
+ * <p>
+ * This datamodel isn't registered by default, register it with
+ * {@link EvaluatorFactory#registerEvaluatorProvider(EvaluatorProvider)} and a {@link LambdaEvaluatorProvider}.
+ * </p>
+ */
+public class LambdaEvaluator extends AbstractBaseEvaluator {
+
+    public static class LambdaEvaluatorProvider implements EvaluatorProvider {
+
+        @Override
+        public Evaluator getEvaluator() {
+            return new LambdaEvaluator();
+        }
+
+        @Override
+        public Evaluator getEvaluator(final SCXML document) {
+            // compiled lazily: eager compilation is left to precompile(SCXML) or the ExpressionPrecompiler
+            return new LambdaEvaluator(document, CompiledExpressionCache.DEFAULT_MAX_SIZE);
+        }
+
+        @Override
+        public String getSupportedDatamodel() {
+            return SUPPORTED_DATA_MODEL;
+        }
+    }
+
+    /** Serial version UID. */
+    private static final long serialVersionUID = 1L;
+
+    public static final String SUPPORTED_DATA_MODEL = "lambda";
+
+    /** The transition targets of the SCXML document, keyed on their id, to resolve In() predicates up front. */
+    private final Map<String, TransitionTarget> targets;
+
+    /** The maximum number of cached compiled expressions, and of cached compiled locations. */
+    private final int cacheSize;
+
+    /** The cached compiled expressions. */
+    private transient volatile CompiledExpressionCache<LambdaExpression> expressionCache;
+
+    /** The cached compiled locations. */
+    private transient volatile CompiledExpressionCache<LambdaExpressionCompiler.Location> locationCache;
+
+    /** Constructs a new instance. */
+    public LambdaEvaluator() {
+        this(null, CompiledExpressionCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param document the SCXML document, to resolve the states of its In() predicates up front, may be null
+     * @param cacheSize the maximum number of cached compiled expressions, and of cached compiled locations,
+     *                  0 to disable caching
+     */
+    public LambdaEvaluator(final SCXML document, final int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + cacheSize);
+        }
+        this.targets = document != null ? document.getTargets() : Collections.emptyMap();
+        this.cacheSize = cacheSize;
+    }
+
+    private LambdaExpression compile(final String expr) throws Exception {
+        return getExpressionCache().get(expr, source -> LambdaExpressionCompiler.compile(source, targets));
+    }
+
+    /**
+     * Compiles a location into a lambda assigning data to the location.
+     *
+     * @see Evaluator#compileAssign(String)
+     */
+    @Override
+    public Assigner compileAssign(final String location) throws SCXMLExpressionException {
+        final LambdaExpressionCompiler.Location compiled;
+        try {
+            compiled = getLocationCache().get(location, LambdaExpressionCompiler::compileLocation);
+        } catch (final Exception e) {
+            throw assignError(location, e);
+        }
+        return (ctx, data) -> {
+            try {
+                compiled.assign(ctx, data);
+            } catch (final Exception e) {
+                throw assignError(location, e);
+            }
+        };
+    }
+
+    /**
+     * @see Evaluator#eval(Context, String)
+     */
+    @Override
+    public Object eval(final Context ctx, final String expr) throws SCXMLExpressionException {
+        if (expr == null) {
+            return null;
+        }
+        try {
+            return compile(expr).evaluate(ctx);
+        } catch (final Exception e) {
+            final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
+            throw new SCXMLExpressionException("eval('" + expr + "'): " + exMessage, e);
+        }
+    }
+
+    /**
+     * @see Evaluator#evalAssign(Context, String, Object)
+     */
+    @Override
+    public void evalAssign(final Context ctx, final String location, final Object data) throws SCXMLExpressionException {
+        compileAssign(location).assign(ctx, data);
+    }
+
+    /**
+     * @see Evaluator#evalCond(Context, String)
+     */
+    @Override
+    public Boolean evalCond(final Context ctx, final String expr) throws SCXMLExpressionException {
+        if (expr == null) {
+            return null;
+        }
+        final Object result;
+        try {
+            result = compile(expr).evaluate(ctx);
+        } catch (final Exception e) {
+            final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
+            throw new SCXMLExpressionException("evalCond('" + expr + "'): " + exMessage, e);
+        }
+        if (result == null) {
+            return Boolean.FALSE;
+        }
+        if (!(result instanceof Boolean)) {
+            throw new SCXMLExpressionException("evalCond('" + expr + "'): not a boolean value: " + result);
+        }
+        return (Boolean) result;
+    }
+
+    /**
+     * Scripts are not supported by this datamodel.
+     *
+     * @throws SCXMLExpressionException always
+     * @see Evaluator#evalScript(Context, String)
+     */
+    @Override
+    public Object evalScript(final Context ctx, final String script) throws SCXMLExpressionException {
+        throw new SCXMLExpressionException("evalScript('" + script + "'): scripts are not supported by the \""
+                + SUPPORTED_DATA_MODEL + "\" datamodel");
+    }
+
+    /**
+     * Returns the cache of compiled expressions, as used by {@link #eval(Context, String)} and
+     * {@link #evalCond(Context, String)}.
+     *
+     * @return the cache of compiled expressions
+     */
+    public CompiledExpressionCache<LambdaExpression> getExpressionCache() {
+        CompiledExpressionCache<LambdaExpression> cache = expressionCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = expressionCache;
+                if (cache == null) {
+                    expressionCache = cache = new CompiledExpressionCache<>(cacheSize);
+                }
+            }
+        }
+        return cache;
+    }
+
+    private CompiledExpressionCache<LambdaExpressionCompiler.Location> getLocationCache() {
+        CompiledExpressionCache<LambdaExpressionCompiler.Location> cache = locationCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = locationCache;
+                if (cache == null) {
+                    locationCache = cache = new CompiledExpressionCache<>(cacheSize);
+                }
+            }
+        }
+        return cache;
+    }
+
+    @Override
+    public String getSupportedDatamodel() {
+        return SUPPORTED_DATA_MODEL;
+    }
+
+    /**
+     * @see Evaluator#newContext(Context)
+     */
+    @Override
+    public Context newContext(final Context parent) {
+        return new SimpleContext(parent);
+    }
+
+    /**
+     * Compiles and caches the conditions, expressions and locations of a SCXML document up front, so that these don't
+     * need to be compiled when the document is executed.
+     * <p>
+     * Expressions which fail to compile are skipped: the error will be reported when the expression is evaluated.
+     * </p>
+     *
+     * @param document the SCXML document
+     */
+    public void precompile(final SCXML document) {
+        if (cacheSize == 0) {
+            return;
+        }
+        ModelExpressions.visit(document, (kind, source, element) -> {
+            try {
+                precompile(kind, source);
+            } catch (final SCXMLExpressionException e) {
+                // reported when evaluated
+            }
+        });
+    }
+
+    /**
+     * Compiles and caches an expression or location. Scripts are skipped, as these are not supported.
+     *
+     * @see Evaluator#precompile(ModelExpressions.Kind, String)
+     */
+    @Override
+    public void precompile(final ModelExpressions.Kind kind, final String source) throws SCXMLExpressionException {
+        try {
+            switch (kind) {
+                case CONDITION:
+                case EXPRESSION:
+                    compile(source);
+                    break;
+                case LOCATION:
+                    getLocationCache().get(source, LambdaExpressionCompiler::compileLocation);
+                    break;
+                default:
+                    break;
+            }
+        } catch (final Exception e) {
+            final String exMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getCanonicalName();
+            throw new SCXMLExpressionException("precompile('" + source + "'): " + exMessage, e);
+        }
+    }
+
+    @Override
+    public boolean requiresGlobalContext() {
+        return false;
+    }
+}
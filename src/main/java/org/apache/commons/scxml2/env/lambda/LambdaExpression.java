@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env.lambda;
+
+import org.apache.commons.scxml2.Context;
+
+/**
+ * An expression compiled by the {@link LambdaEvaluator}.
+ */
+@FunctionalInterface
+public interface LambdaExpression {
+
+    /**
+     * Evaluates the expression.
+     *
+     * @param ctx the context to resolve the variables of the expression in
+     * @return the value of the expression
+     * @throws Exception if the expression cannot be evaluated
+     */
+    Object evaluate(Context ctx) throws Exception;
+}
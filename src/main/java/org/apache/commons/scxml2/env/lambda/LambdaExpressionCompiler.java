@@ -0,0 +1,609 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env.lambda;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.scxml2.Builtin;
+import org.apache.commons.scxml2.Context;
+import org.apache.commons.scxml2.model.EnterableState;
+import org.apache.commons.scxml2.model.TransitionTarget;
+
+/**
+ * Compiles the expressions of the {@link LambdaEvaluator} into trees of {@link LambdaExpression}s.
+ * <p>
+ * The supported expressions are, in order of increasing precedence:
+ * </p>
+ * <ul>
+ *  <li>the logical operators {@code ||} and {@code &&}, evaluated lazily</li>
+ *  <li>the equality operators {@code ==} and {@code !=}</li>
+ *  <li>the relational operators {@code <}, {@code <=}, {@code >} and {@code >=}</li>
+ *  <li>the arithmetic operators {@code +} (which concatenates strings as well), {@code -}, {@code *}, {@code /} and
+ *      {@code %}</li>
+ *  <li>the unary operators {@code !} and {@code -}</li>
+ *  <li>the literals {@code true}, {@code false}, {@code null}, integer and decimal numbers and single or double
+ *      quoted strings, parenthesized expressions, the {@code In('stateId')} predicate and paths of variables and
+ *      their properties, like {@code _event.data.count}</li>
+ * </ul>
+ * <p>
+ * Operations on literals only are evaluated when compiled, and comparisons with an integer literal are specialized
+ * so that these don't need to check the type of the literal when evaluated. Integer arithmetic is exact: an overflow
+ * is an error rather than wrapping around.
+ * </p>
+ */
+final class LambdaExpressionCompiler {
+
+    /**
+     * A compiled location: a variable or a property of the value of an expression.
+     */
+    static final class Location {
+
+        /** The expression of the owner of the property, null for a variable. */
+        private final LambdaExpression owner;
+
+        /** The name of the variable or property. */
+        private final String name;
+
+        private Location(final LambdaExpression owner, final String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+
+        /**
+         * Assigns a value to the location.
+         *
+         * @param ctx the context to resolve the variables of the location in
+         * @param value the value
+         * @throws Exception if the variable isn't defined, or the property cannot be written
+         */
+        void assign(final Context ctx, final Object value) throws Exception {
+            if (owner == null) {
+                if (!ctx.has(name)) {
+                    throw new IllegalArgumentException("Undefined variable '" + name + "'");
+                }
+                ctx.set(name, value);
+            } else {
+                PropertyAccessors.setProperty(owner.evaluate(ctx), name, value);
+            }
+        }
+    }
+
+    private static final class Literal implements LambdaExpression {
+
+        private final Object value;
+
+        Literal(final Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(final Context ctx) {
+            return value;
+        }
+    }
+
+    /**
+     * Reads a property, caching the getter of the last class of the owner.
+     */
+    private static final class Property implements LambdaExpression {
+
+        private static final class Getter {
+
+            private final Class<?> type;
+            private final MethodHandle handle;
+
+            Getter(final Class<?> type, final MethodHandle handle) {
+                this.type = type;
+                this.handle = handle;
+            }
+        }
+
+        private final LambdaExpression owner;
+        private final String name;
+        private volatile Getter last;
+
+        Property(final LambdaExpression owner, final String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+
+        @Override
+        public Object evaluate(final Context ctx) throws Exception {
+            final Object bean = owner.evaluate(ctx);
+            if (bean instanceof Map) {
+                return ((Map<?, ?>) bean).get(name);
+            }
+            if (bean == null) {
+                throw new IllegalArgumentException("Cannot read property '" + name + "' of null");
+            }
+            Getter getter = last;
+            if (getter == null || getter.type != bean.getClass()) {
+                getter = new Getter(bean.getClass(), PropertyAccessors.getter(bean.getClass(), name));
+                last = getter;
+            }
+            return PropertyAccessors.invokeGetter(getter.handle, bean);
+        }
+    }
+
+    private static Object arithmetic(final char operator, final Object left, final Object right) {
+        if (operator == '+' && (left instanceof String || right instanceof String)) {
+            return String.valueOf(left) + right;
+        }
+        final Number x = toNumber(operator, left);
+        final Number y = toNumber(operator, right);
+        if (isIntegral(x) && isIntegral(y)) {
+            final long a = x.longValue();
+            final long b = y.longValue();
+            final long result;
+            switch (operator) {
+                case '+':
+                    result = Math.addExact(a, b);
+                    break;
+                case '-':
+                    result = Math.subtractExact(a, b);
+                    break;
+                case '*':
+                    result = Math.multiplyExact(a, b);
+                    break;
+                case '/':
+                    result = a / b;
+                    break;
+                default:
+                    result = a % b;
+                    break;
+            }
+            return x instanceof Long || y instanceof Long || result != (int) result
+                    ? (Number) Long.valueOf(result) : (Number) Integer.valueOf((int) result);
+        }
+        final double a = x.doubleValue();
+        final double b = y.doubleValue();
+        switch (operator) {
+            case '+':
+                return a + b;
+            case '-':
+                return a - b;
+            case '*':
+                return a * b;
+            case '/':
+                return a / b;
+            default:
+                return a % b;
+        }
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param source the expression
+     * @param targets the transition targets of the document, keyed on their id, to resolve the states of the
+     *                {@code In()} predicates up front
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the expression isn't supported
+     */
+    static LambdaExpression compile(final String source, final Map<String, TransitionTarget> targets) {
+        final LambdaExpressionCompiler compiler = new LambdaExpressionCompiler(source, targets);
+        final LambdaExpression expression = compiler.parseOr();
+        compiler.expectEnd();
+        return expression;
+    }
+
+    /**
+     * Compiles a location.
+     *
+     * @param source the location, a path of a variable and its properties
+     * @return the compiled location
+     * @throws IllegalArgumentException if the location isn't a path
+     */
+    static Location compileLocation(final String source) {
+        final LambdaExpressionCompiler compiler = new LambdaExpressionCompiler(source, null);
+        compiler.skipWhitespace();
+        String name = compiler.parseIdentifier();
+        LambdaExpression owner = null;
+        while (compiler.match(".")) {
+            owner = owner == null ? compiler.variable(name) : new Property(owner, name);
+            compiler.skipWhitespace();
+            name = compiler.parseIdentifier();
+        }
+        compiler.expectEnd();
+        return new Location(owner, name);
+    }
+
+    private static int compare(final String operator, final Object left, final Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            final Number x = (Number) left;
+            final Number y = (Number) right;
+            return isIntegral(x) && isIntegral(y) ? Long.compare(x.longValue(), y.longValue())
+                    : Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        if (left instanceof Comparable && right != null && left.getClass() == right.getClass()) {
+            @SuppressWarnings("unchecked")
+            final Comparable<Object> comparable = (Comparable<Object>) left;
+            return comparable.compareTo(right);
+        }
+        throw new IllegalArgumentException("Operator '" + operator + "' cannot compare " + describe(left) + " and "
+                + describe(right));
+    }
+
+    private static String describe(final Object value) {
+        return value == null ? "null" : value.getClass().getSimpleName() + " '" + value + "'";
+    }
+
+    private static boolean equal(final Object left, final Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            final Number x = (Number) left;
+            final Number y = (Number) right;
+            return isIntegral(x) && isIntegral(y) ? x.longValue() == y.longValue()
+                    : x.doubleValue() == y.doubleValue();
+        }
+        return Objects.equals(left, right);
+    }
+
+    /**
+     * Evaluates an operation of literals only when compiled, unless it fails: then the failure is reported when
+     * evaluated.
+     */
+    private static LambdaExpression fold(final LambdaExpression operation, final LambdaExpression... operands) {
+        for (final LambdaExpression operand : operands) {
+            if (!(operand instanceof Literal)) {
+                return operation;
+            }
+        }
+        try {
+            return new Literal(operation.evaluate(null));
+        } catch (final Exception e) {
+            return operation;
+        }
+    }
+
+    private static boolean isIntegral(final Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean isRelation(final String operator, final int comparison) {
+        switch (operator) {
+            case "<":
+                return comparison < 0;
+            case "<=":
+                return comparison <= 0;
+            case ">":
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+
+    private static boolean toBoolean(final String operator, final Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new IllegalArgumentException("Operator '" + operator + "' requires a boolean, not " + describe(value));
+    }
+
+    private static Number toNumber(final char operator, final Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        throw new IllegalArgumentException("Operator '" + operator + "' requires a number, not " + describe(value));
+    }
+
+    /** The source text of the expression. */
+    private final String source;
+
+    /** The transition targets of the document keyed on their id, may be null. */
+    private final Map<String, TransitionTarget> targets;
+
+    /** The position of the next character to parse. */
+    private int pos;
+
+    private LambdaExpressionCompiler(final String source, final Map<String, TransitionTarget> targets) {
+        this.source = source;
+        this.targets = targets;
+    }
+
+    private LambdaExpression compareWith(final String operator, final LambdaExpression left,
+                                         final LambdaExpression right) {
+        if (right instanceof Literal && isIntegral(((Literal) right).value)) {
+            // specialized comparison with an integer literal
+            final long constant = ((Number) ((Literal) right).value).longValue();
+            final Object value = ((Literal) right).value;
+            if (operator.equals("==") || operator.equals("!=")) {
+                final boolean expected = operator.equals("==");
+                return ctx -> {
+                    final Object v = left.evaluate(ctx);
+                    return (isIntegral(v) ? ((Number) v).longValue() == constant : equal(v, value)) == expected;
+                };
+            }
+            return ctx -> {
+                final Object v = left.evaluate(ctx);
+                return isRelation(operator, isIntegral(v) ? Long.compare(((Number) v).longValue(), constant)
+                        : compare(operator, v, value));
+            };
+        }
+        switch (operator) {
+            case "==":
+                return ctx -> equal(left.evaluate(ctx), right.evaluate(ctx));
+            case "!=":
+                return ctx -> !equal(left.evaluate(ctx), right.evaluate(ctx));
+            default:
+                return ctx -> isRelation(operator, compare(operator, left.evaluate(ctx), right.evaluate(ctx)));
+        }
+    }
+
+    private IllegalArgumentException error(final String message) {
+        return new IllegalArgumentException(message + " at position " + pos + " of '" + source + "'");
+    }
+
+    private void expect(final String token) {
+        if (!match(token)) {
+            throw error("Expected '" + token + "'");
+        }
+    }
+
+    private void expectEnd() {
+        skipWhitespace();
+        if (pos < source.length()) {
+            throw error("Unexpected '" + source.charAt(pos) + "'");
+        }
+    }
+
+    private LambdaExpression inPredicate(final String stateId) {
+        final TransitionTarget target = targets != null ? targets.get(stateId) : null;
+        if (target instanceof EnterableState) {
+            final EnterableState state = (EnterableState) target;
+            return ctx -> Builtin.isMember(ctx, state);
+        }
+        return ctx -> Builtin.isMember(ctx, stateId);
+    }
+
+    private boolean match(final String token) {
+        skipWhitespace();
+        if (source.startsWith(token, pos)) {
+            pos += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private LambdaExpression parseAdditive() {
+        LambdaExpression left = parseMultiplicative();
+        while (true) {
+            final char operator;
+            if (match("+")) {
+                operator = '+';
+            } else if (match("-")) {
+                operator = '-';
+            } else {
+                return left;
+            }
+            final LambdaExpression x = left;
+            final LambdaExpression y = parseMultiplicative();
+            left = fold(ctx -> arithmetic(operator, x.evaluate(ctx), y.evaluate(ctx)), x, y);
+        }
+    }
+
+    private LambdaExpression parseAnd() {
+        LambdaExpression left = parseEquality();
+        while (match("&&")) {
+            final LambdaExpression x = left;
+            final LambdaExpression y = parseEquality();
+            left = fold(ctx -> toBoolean("&&", x.evaluate(ctx)) && toBoolean("&&", y.evaluate(ctx)), x, y);
+        }
+        return left;
+    }
+
+    private LambdaExpression parseEquality() {
+        LambdaExpression left = parseRelational();
+        while (true) {
+            final String operator;
+            if (match("==")) {
+                operator = "==";
+            } else if (match("!=")) {
+                operator = "!=";
+            } else {
+                return left;
+            }
+            final LambdaExpression right = parseRelational();
+            left = fold(compareWith(operator, left, right), left, right);
+        }
+    }
+
+    private String parseIdentifier() {
+        final int start = pos;
+        if (pos < source.length() && Character.isJavaIdentifierStart(source.charAt(pos))) {
+            pos++;
+            while (pos < source.length() && Character.isJavaIdentifierPart(source.charAt(pos))) {
+                pos++;
+            }
+            return source.substring(start, pos);
+        }
+        throw error("Expected an identifier");
+    }
+
+    private LambdaExpression parseMultiplicative() {
+        LambdaExpression left = parseUnary();
+        while (true) {
+            final char operator;
+            if (match("*")) {
+                operator = '*';
+            } else if (match("/")) {
+                operator = '/';
+            } else if (match("%")) {
+                operator = '%';
+            } else {
+                return left;
+            }
+            final LambdaExpression x = left;
+            final LambdaExpression y = parseUnary();
+            left = fold(ctx -> arithmetic(operator, x.evaluate(ctx), y.evaluate(ctx)), x, y);
+        }
+    }
+
+    private LambdaExpression parseNumber() {
+        final int start = pos;
+        while (pos < source.length() && Character.isDigit(source.charAt(pos))) {
+            pos++;
+        }
+        if (pos + 1 < source.length() && source.charAt(pos) == '.' && Character.isDigit(source.charAt(pos + 1))) {
+            pos++;
+            while (pos < source.length() && Character.isDigit(source.charAt(pos))) {
+                pos++;
+            }
+            return new Literal(Double.valueOf(source.substring(start, pos)));
+        }
+        try {
+            final long value = Long.parseLong(source.substring(start, pos));
+            return new Literal(value == (int) value ? (Number) Integer.valueOf((int) value) : (Number) Long.valueOf(value));
+        } catch (final NumberFormatException e) {
+            throw error("Invalid number '" + source.substring(start, pos) + "'");
+        }
+    }
+
+    private LambdaExpression parseOr() {
+        LambdaExpression left = parseAnd();
+        while (match("||")) {
+            final LambdaExpression x = left;
+            final LambdaExpression y = parseAnd();
+            left = fold(ctx -> toBoolean("||", x.evaluate(ctx)) || toBoolean("||", y.evaluate(ctx)), x, y);
+        }
+        return left;
+    }
+
+    private LambdaExpression parsePrimary() {
+        skipWhitespace();
+        if (pos >= source.length()) {
+            throw error("Unexpected end");
+        }
+        final char c = source.charAt(pos);
+        if (c == '(') {
+            pos++;
+            final LambdaExpression expression = parseOr();
+            expect(")");
+            return expression;
+        }
+        if (Character.isDigit(c)) {
+            return parseNumber();
+        }
+        if (c == '\'' || c == '"') {
+            return new Literal(parseString());
+        }
+        final String name = parseIdentifier();
+        switch (name) {
+            case "true":
+                return new Literal(Boolean.TRUE);
+            case "false":
+                return new Literal(Boolean.FALSE);
+            case "null":
+                return new Literal(null);
+            case "In":
+                if (match("(")) {
+                    skipWhitespace();
+                    final String stateId = parseString();
+                    expect(")");
+                    return inPredicate(stateId);
+                }
+                break;
+            default:
+                break;
+        }
+        LambdaExpression expression = variable(name);
+        while (match(".")) {
+            skipWhitespace();
+            expression = new Property(expression, parseIdentifier());
+        }
+        return expression;
+    }
+
+    private LambdaExpression parseRelational() {
+        LambdaExpression left = parseAdditive();
+        while (true) {
+            final String operator;
+            if (match("<=")) {
+                operator = "<=";
+            } else if (match(">=")) {
+                operator = ">=";
+            } else if (match("<")) {
+                operator = "<";
+            } else if (match(">")) {
+                operator = ">";
+            } else {
+                return left;
+            }
+            final LambdaExpression right = parseAdditive();
+            left = fold(compareWith(operator, left, right), left, right);
+        }
+    }
+
+    private String parseString() {
+        final char quote = pos < source.length() ? source.charAt(pos) : 0;
+        if (quote != '\'' && quote != '"') {
+            throw error("Expected a string");
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (pos++; pos < source.length(); pos++) {
+            char c = source.charAt(pos);
+            if (c == quote) {
+                pos++;
+                return sb.toString();
+            }
+            if (c == '\\' && pos + 1 < source.length()) {
+                c = source.charAt(++pos);
+                switch (c) {
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    default:
+                        break;
+                }
+            }
+            sb.append(c);
+        }
+        throw error("Unterminated string");
+    }
+
+    private LambdaExpression parseUnary() {
+        if (match("!")) {
+            final LambdaExpression operand = parseUnary();
+            return fold(ctx -> !toBoolean("!", operand.evaluate(ctx)), operand);
+        }
+        if (match("-")) {
+            final LambdaExpression operand = parseUnary();
+            return fold(ctx -> arithmetic('-', 0, operand.evaluate(ctx)), operand);
+        }
+        return parsePrimary();
+    }
+
+    private void skipWhitespace() {
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private LambdaExpression variable(final String name) {
+        return ctx -> {
+            final Object value = ctx.get(name);
+            if (value == null && !ctx.has(name)) {
+                throw new IllegalArgumentException("Undefined variable '" + name + "'");
+            }
+            return value;
+        };
+    }
+}
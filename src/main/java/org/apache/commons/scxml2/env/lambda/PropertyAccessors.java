@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env.lambda;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the properties of Java beans to {@link MethodHandle}s, for reading them through their public getter or
+ * field and writing them through their public setter or field.
+ * <p>
+ * The methods declared by {@link Object}, like {@link Object#getClass()}, are not properties, so that expressions
+ * cannot reach the classes and class loaders of the beans.
+ * </p>
+ * <p>
+ * The resolved method handles are cached per class and property name.
+ * </p>
+ */
+final class PropertyAccessors {
+
+    private static final class Handles extends ClassValue<Map<String, MethodHandle>> {
+
+        @Override
+        protected Map<String, MethodHandle> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    }
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final Handles GETTERS = new Handles();
+
+    private static final Handles SETTERS = new Handles();
+
+    private static String capitalize(final String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static MethodHandle findGetter(final Class<?> type, final String name) {
+        final String capitalized = capitalize(name);
+        MethodHandle handle = findMethod(type, "get" + capitalized, 0, null);
+        if (handle == null) {
+            handle = findMethod(type, "is" + capitalized, 0, boolean.class);
+        }
+        if (handle == null) {
+            final Field field = findField(type, name);
+            if (field != null) {
+                try {
+                    handle = MethodHandles.publicLookup().unreflectGetter(field);
+                } catch (final IllegalAccessException e) {
+                    handle = null;
+                }
+            }
+        }
+        return handle != null ? handle.asType(GETTER_TYPE) : null;
+    }
+
+    private static Field findField(final Class<?> type, final String name) {
+        try {
+            final Field field = type.getField(name);
+            return Modifier.isStatic(field.getModifiers()) ? null : field;
+        } catch (final NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds a public instance method, declared by a public class or interface so that it can be invoked even if the
+     * class of the bean itself isn't public, and not declared by {@link Object}.
+     */
+    private static MethodHandle findMethod(final Class<?> type, final String name, final int arity,
+                                           final Class<?> returnType) {
+        final Deque<Class<?>> types = new ArrayDeque<>(Collections.singleton(type));
+        final Set<Class<?>> visited = new HashSet<>();
+        while (!types.isEmpty()) {
+            final Class<?> candidate = types.poll();
+            if (candidate == Object.class || !visited.add(candidate)) {
+                continue;
+            }
+            if (Modifier.isPublic(candidate.getModifiers())) {
+                for (final Method method : candidate.getDeclaredMethods()) {
+                    if (method.getName().equals(name) && method.getParameterCount() == arity
+                            && Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers())
+                            && !method.isBridge() && (returnType == null || method.getReturnType() == returnType)) {
+                        try {
+                            return MethodHandles.publicLookup().unreflect(method);
+                        } catch (final IllegalAccessException e) {
+                            // not accessible, e.g. not exported by its module: try the super types
+                        }
+                    }
+                }
+            }
+            if (candidate.getSuperclass() != null) {
+                types.add(candidate.getSuperclass());
+            }
+            Collections.addAll(types, candidate.getInterfaces());
+        }
+        return null;
+    }
+
+    private static MethodHandle findSetter(final Class<?> type, final String name) {
+        MethodHandle handle = findMethod(type, "set" + capitalize(name), 1, null);
+        if (handle == null) {
+            final Field field = findField(type, name);
+            if (field != null && !Modifier.isFinal(field.getModifiers())) {
+                try {
+                    handle = MethodHandles.publicLookup().unreflectSetter(field);
+                } catch (final IllegalAccessException e) {
+                    handle = null;
+                }
+            }
+        }
+        return handle != null ? handle.asType(SETTER_TYPE) : null;
+    }
+
+    /**
+     * Returns the getter of a property, with the type {@code (Object)Object}.
+     *
+     * @param type the class of the bean
+     * @param name the name of the property
+     * @return the getter of the property
+     * @throws IllegalArgumentException if the class has no readable property with the name
+     */
+    static MethodHandle getter(final Class<?> type, final String name) {
+        final Map<String, MethodHandle> getters = GETTERS.get(type);
+        MethodHandle getter = getters.get(name);
+        if (getter == null) {
+            getter = findGetter(type, name);
+            if (getter == null) {
+                throw new IllegalArgumentException("No readable property '" + name + "' in " + type.getName());
+            }
+            getters.put(name, getter);
+        }
+        return getter;
+    }
+
+    /**
+     * Invokes the getter of a property.
+     *
+     * @param getter the getter, see {@link #getter(Class, String)}
+     * @param bean the bean
+     * @return the value of the property
+     * @throws Exception if the getter fails
+     */
+    static Object invokeGetter(final MethodHandle getter, final Object bean) throws Exception {
+        try {
+            return (Object) getter.invokeExact(bean);
+        } catch (final Exception | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    /**
+     * Writes a property of a bean, or puts the value in the map if the bean is a {@link Map}.
+     *
+     * @param bean the bean
+     * @param name the name of the property
+     * @param value the value
+     * @throws Exception if the bean has no writable property with the name, or its setter fails
+     */
+    @SuppressWarnings("unchecked")
+    static void setProperty(final Object bean, final String name, final Object value) throws Exception {
+        if (bean instanceof Map) {
+            ((Map<Object, Object>) bean).put(name, value);
+            return;
+        }
+        if (bean == null) {
+            throw new IllegalArgumentException("Cannot write property '" + name + "' of null");
+        }
+        final Map<String, MethodHandle> setters = SETTERS.get(bean.getClass());
+        MethodHandle setter = setters.get(name);
+        if (setter == null) {
+            setter = findSetter(bean.getClass(), name);
+            if (setter == null) {
+                throw new IllegalArgumentException("No writable property '" + name + "' in " + bean.getClass().getName());
+            }
+            setters.put(name, setter);
+        }
+        try {
+            setter.invokeExact(bean, value);
+        } catch (final Exception | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    /**
+     * Discourage instantiation since this is a utility class.
+     */
+    private PropertyAccessors() {
+    }
+}
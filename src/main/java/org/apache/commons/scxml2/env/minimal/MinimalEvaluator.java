@@ -17,19 +17,29 @@
 package org.apache.commons.scxml2.env.minimal;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.scxml2.Builtin;
 import org.apache.commons.scxml2.Context;
 import org.apache.commons.scxml2.Evaluator;
 import org.apache.commons.scxml2.EvaluatorProvider;
 import org.apache.commons.scxml2.SCXMLExpressionException;
+import org.apache.commons.scxml2.model.EnterableState;
+import org.apache.commons.scxml2.model.ModelExpressions;
 import org.apache.commons.scxml2.model.SCXML;
+import org.apache.commons.scxml2.model.TransitionTarget;
 
 /**
  * Minimal Evaluator implementing and providing support for the SCXML Null Data Model.
  * <p>
  * The SCXML Null Data Model only supports the SCXML "In(stateId)" builtin function.
  * </p>
+ * <p>
+ * When created for a SCXML document, the state IDs of the conditions of the document are resolved up front to their
+ * states, so that evaluating these conditions doesn't need to lookup the state by its ID.
+ * </p>
  */
 public class MinimalEvaluator implements Evaluator, Serializable {
 
@@ -42,7 +52,7 @@ public class MinimalEvaluator implements Evaluator, Serializable {
 
         @Override
         public Evaluator getEvaluator(final SCXML document) {
-            return new MinimalEvaluator();
+            return new MinimalEvaluator(document);
         }
 
         @Override
@@ -56,6 +66,33 @@ public class MinimalEvaluator implements Evaluator, Serializable {
 
     public static final String SUPPORTED_DATA_MODEL = Evaluator.NULL_DATA_MODEL;
 
+    /** The states of the In() predicates of a SCXML document, keyed on the condition expression. */
+    private final Map<String, EnterableState> predicateStates;
+
+    /** Constructs a new instance. */
+    public MinimalEvaluator() {
+        this.predicateStates = Collections.emptyMap();
+    }
+
+    /**
+     * Constructs a new instance, resolving the states of the In() predicates of a SCXML document.
+     *
+     * @param document the SCXML document
+     */
+    public MinimalEvaluator(final SCXML document) {
+        final Map<String, EnterableState> states = new HashMap<>();
+        ModelExpressions.visit(document, (kind, source, element) -> {
+            if (kind == ModelExpressions.Kind.CONDITION) {
+                final String stateId = toStateId(source);
+                final TransitionTarget target = stateId != null ? document.getTargets().get(stateId) : null;
+                if (target instanceof EnterableState) {
+                    states.put(source, (EnterableState) target);
+                }
+            }
+        });
+        this.predicateStates = states;
+    }
+
     @Override
     public Object cloneData(final Object data) {
         return data;
@@ -74,12 +111,12 @@ public class MinimalEvaluator implements Evaluator, Serializable {
     @Override
     public Boolean evalCond(final Context ctx, final String expr) throws SCXMLExpressionException {
         // only support the "In(stateId)" predicate
-        final String predicate = expr != null ? expr.trim() : "";
-        if (predicate.startsWith("In(") && predicate.endsWith(")")) {
-            final String stateId = predicate.substring(3, predicate.length()-1);
-            return Builtin.isMember(ctx, stateId);
+        final EnterableState state = predicateStates.get(expr);
+        if (state != null) {
+            return Builtin.isMember(ctx, state);
         }
-        return false;
+        final String stateId = toStateId(expr);
+        return stateId != null && Builtin.isMember(ctx, stateId);
     }
 
     @Override
@@ -101,4 +138,16 @@ public class MinimalEvaluator implements Evaluator, Serializable {
     public boolean requiresGlobalContext() {
         return true;
     }
+
+    /**
+     * @param expr the condition expression
+     * @return the state id of the "In(stateId)" predicate, or null if the expression isn't an In() predicate
+     */
+    private static String toStateId(final String expr) {
+        final String predicate = expr != null ? expr.trim() : "";
+        if (predicate.startsWith("In(") && predicate.endsWith(")")) {
+            return predicate.substring(3, predicate.length()-1);
+        }
+        return null;
+    }
 }
@@ -18,7 +18,6 @@ package org.apache.commons.scxml2.invoke;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.io.StringReader;
 import java.net.URL;
 import java.util.Map;
 
@@ -29,13 +28,17 @@ import org.apache.commons.scxml2.SCXMLExecutor;
 import org.apache.commons.scxml2.SCXMLIOProcessor;
 import org.apache.commons.scxml2.TriggerEvent;
 import org.apache.commons.scxml2.env.SimpleSCXMLListener;
-import org.apache.commons.scxml2.io.SCXMLReader;
+import org.apache.commons.scxml2.io.SCXMLModelCache;
 import org.apache.commons.scxml2.model.ModelException;
 import org.apache.commons.scxml2.model.SCXML;
 
 /**
  * A simple {@link Invoker} for SCXML documents. Invoked SCXML document
  * may not contain external namespace elements, further invokes etc.
+ * <p>
+ * Invoked documents are read once and then shared through the
+ * {@link #getModelCache() model cache}.
+ * </p>
  */
 public class SimpleSCXMLInvoker implements Invoker, Serializable {
 
@@ -97,6 +100,14 @@ public class SimpleSCXMLInvoker implements Invoker, Serializable {
         return invokeId;
     }
 
+    /**
+     * @return the cache of the invoked documents, the {@link SCXMLModelCache#getDefault() process-wide cache} by
+     *         default
+     */
+    protected SCXMLModelCache getModelCache() {
+        return SCXMLModelCache.getDefault();
+    }
+
     /**
      * {@inheritDoc}.
      */
@@ -105,7 +116,7 @@ public class SimpleSCXMLInvoker implements Invoker, Serializable {
     throws InvokerException {
         SCXML scxml;
         try {
-            scxml = SCXMLReader.read(new URL(url));
+            scxml = getModelCache().read(new URL(url));
         } catch (ModelException | IOException | XMLStreamException me) {
             throw new InvokerException(me.getMessage(), me.getCause());
         }
@@ -120,7 +131,7 @@ public class SimpleSCXMLInvoker implements Invoker, Serializable {
             throws InvokerException {
         SCXML scxml;
         try {
-            scxml = SCXMLReader.read(new StringReader(content));
+            scxml = getModelCache().read(content);
         } catch (ModelException | IOException | XMLStreamException me) {
             throw new InvokerException(me.getMessage(), me.getCause());
         }
@@ -23,6 +23,7 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Properties;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
@@ -33,6 +34,7 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.scxml2.env.LazyJson;
 import org.apache.commons.scxml2.model.JsonValue;
 import org.apache.commons.scxml2.model.NodeValue;
 import org.apache.commons.scxml2.model.ParsedValue;
@@ -51,6 +53,43 @@ public class ContentParser {
 
     public static final ContentParser DEFAULT_PARSER = new ContentParser();
 
+    /**
+     * The DOM parsers, confined to the thread using them since these are not thread-safe.
+     */
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = new ThreadLocal<>();
+
+    /**
+     * The transformers of {@link #toXml(Node)}, confined to the thread using them since these are not thread-safe.
+     */
+    private static final ThreadLocal<Transformer> TRANSFORMERS = new ThreadLocal<>();
+
+    /**
+     * Removes the DOM parser and XML transformer cached for the current thread, so that a pooled thread shared with
+     * other applications doesn't keep the class loader of this library alive.
+     */
+    public static void clearThreadCaches() {
+        DOCUMENT_BUILDERS.remove();
+        TRANSFORMERS.remove();
+    }
+
+    /**
+     * Gets the DOM parser of the current thread, which is only created once per thread: the instantiation of its
+     * factory involves a service lookup, see {@link #clearThreadCaches()}.
+     *
+     * @return the DOM parser of the current thread, reset to its initial configuration
+     * @throws ParserConfigurationException if the DOM parser cannot be created
+     */
+    static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilder builder = DOCUMENT_BUILDERS.get();
+        if (builder == null) {
+            builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            DOCUMENT_BUILDERS.set(builder);
+        } else {
+            builder.reset();
+        }
+        return builder;
+    }
+
     /**
      * Check if content starts with JSON object '{' or array '[' marker
      *
@@ -200,6 +239,18 @@ public class ContentParser {
         return jsonObjectMapper.readValue(jsonString, Object.class);
     }
 
+    /**
+     * Parse a JSON string into lazily materialized 'raw' Java Objects, see {@link LazyJson}: the JSON text is
+     * retained and its nested objects and arrays are only mapped when accessed.
+     *
+     * @param jsonString JSON string to parse
+     * @return lazily mapped Java Object for JSON string
+     * @throws IOException In case of parsing exceptions
+     */
+    public Object parseJsonLazily(final String jsonString) throws IOException {
+        return LazyJson.parse(jsonString.getBytes(StandardCharsets.UTF_8), jsonObjectMapper.getFactory());
+    }
+
     /**
      * Load a resource (URL) as an UTF-8 encoded content string to be parsed into a ParsedValue content object through {@link #parseContent(String)}
      *
@@ -224,7 +275,7 @@ public class ContentParser {
     public Node parseXml(final String xmlString) throws IOException {
         Document doc;
         try {
-            doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(xmlString);
+            doc = getDocumentBuilder().parse(xmlString);
         } catch (SAXException | ParserConfigurationException e) {
             throw new IOException(e);
         }
@@ -239,6 +290,10 @@ public class ContentParser {
      * @throws IOException if IO error occurs while serializing it to JSON
      */
     public String toJson(final Object jsonObject) throws IOException {
+        final String source = LazyJson.getSource(jsonObject);
+        if (source != null) {
+            return source;
+        }
         return jsonObjectMapper.writeValueAsString(jsonObject);
     }
 
@@ -252,15 +307,21 @@ public class ContentParser {
     public String toXml(final Node node) throws IOException {
         try {
             final StringWriter writer = new StringWriter();
-            final Transformer transformer = TransformerFactory.newInstance().newTransformer();
-            final Properties outputProps = new Properties();
-            outputProps.put(OutputKeys.OMIT_XML_DECLARATION, "no");
-            outputProps.put(OutputKeys.STANDALONE, "no");
-            outputProps.put(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperties(outputProps);
+            Transformer transformer = TRANSFORMERS.get();
+            if (transformer == null) {
+                transformer = TransformerFactory.newInstance().newTransformer();
+                final Properties outputProps = new Properties();
+                outputProps.put(OutputKeys.OMIT_XML_DECLARATION, "no");
+                outputProps.put(OutputKeys.STANDALONE, "no");
+                outputProps.put(OutputKeys.INDENT, "yes");
+                transformer.setOutputProperties(outputProps);
+                TRANSFORMERS.set(transformer);
+            }
             transformer.transform(new DOMSource(node), new StreamResult(writer));
             return writer.toString();
         } catch (final TransformerException e) {
+            // not reused, as its state is unknown
+            TRANSFORMERS.remove();
             throw new IOException(e);
         }
     }
@@ -144,6 +144,9 @@ final class ModelUpdater {
     /**
      * Initialize all {@link org.apache.commons.scxml2.model.DocumentOrder} instances (EnterableState or Transition)
      * by iterating them in document order setting their document order value.
+     * <p>
+     * For each TransitionalState also the highest document order of its descendants is set.
+     * </p>
      *
      * @param states The list of children states of a parent TransitionalState or the SCXML document itself
      * @param nextOrder The next to be used order value
@@ -158,11 +161,41 @@ final class ModelUpdater {
                     t.setOrder(nextOrder++);
                 }
                 nextOrder = initDocumentOrder(ts.getChildren(), nextOrder);
+                ts.setLastDescendantOrder(nextOrder-1);
             }
         }
         return nextOrder;
     }
 
+    /**
+     * Initialize the transition domain of all transitions, including those of Initial and History elements, which
+     * requires all transition targets to be resolved first.
+     *
+     * @param states The list of children states of a parent TransitionalState or the SCXML document itself
+     */
+    private static void initTransitionDomains(final List<EnterableState> states) {
+        for (final EnterableState es : states) {
+            if (es instanceof TransitionalState) {
+                final TransitionalState ts = (TransitionalState)es;
+                if (ts instanceof State) {
+                    final State s = (State)ts;
+                    if (s.getInitial() != null && s.getInitial().getTransition() != null) {
+                        s.getInitial().getTransition().getTransitionDomain();
+                    }
+                }
+                for (final Transition t : ts.getTransitionsList()) {
+                    t.getTransitionDomain();
+                }
+                for (final History h : ts.getHistory()) {
+                    if (h.getTransition() != null) {
+                        h.getTransition().getTransitionDomain();
+                    }
+                }
+                initTransitionDomains(ts.getChildren());
+            }
+        }
+    }
+
     /**
      * Initialize all {@link org.apache.commons.scxml2.model.Observable} instances in the SCXML document
      * by iterating them in document order and seeding them with a unique obeservable id.
@@ -286,6 +319,8 @@ final class ModelUpdater {
         for (final Transition transition : parallel.getTransitionsList()) {
             updateTransition(transition, targets);
         }
+        // eagerly create the transition index used for selecting the transitions by event
+        parallel.getTransitionIndex();
         final List<History> histories = parallel.getHistory();
         for (final History history : histories) {
             updateHistory(history, targets, parallel);
@@ -331,6 +366,9 @@ final class ModelUpdater {
         final Map<String, TransitionTarget> targets = scxml.getTargets();
         updateEnterableStates(scxml.getChildren(), targets);
 
+        scxml.getInitialTransition().getTransitionDomain();
+        initTransitionDomains(scxml.getChildren());
+
         scxml.getInitialTransition().setObservableId(1);
         initObservables(scxml.getChildren(), 2);
     }
@@ -385,6 +423,8 @@ final class ModelUpdater {
         for (final Transition transition : state.getTransitionsList()) {
             updateTransition(transition, targets);
         }
+        // eagerly create the transition index used for selecting the transitions by event
+        state.getTransitionIndex();
 
         for (final Invoke inv : state.getInvokes()) {
             if (inv.getSrc() != null && inv.getSrcexpr() != null) {
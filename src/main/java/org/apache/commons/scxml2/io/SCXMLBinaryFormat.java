@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.io;
+
+/**
+ * The constants of the binary format of compiled SCXML documents, as written by {@link SCXMLBinaryWriter} and read by
+ * {@link SCXMLBinaryReader}.
+ * <p>
+ * A compiled document starts with the {@link #MAGIC magic number} and {@link #VERSION format version}, followed by
+ * the document itself in a single pass: all the elements are written in document order, and references to transition
+ * targets are written as their index in document order, so that no back-patching or random access is needed. The
+ * document ends with the detached transition targets: the targets registered with the document which are not part of
+ * its state tree, like the states of external documents included through a "src" attribute.
+ * Integers are written as unsigned LEB128 variable length integers, strings as references to a table of strings which
+ * is built while reading: each distinct string is written once as its UTF-8 bytes.
+ * </p>
+ */
+final class SCXMLBinaryFormat {
+
+    /** The magic number of the format: "SCXB". */
+    static final int MAGIC = 0x53435842;
+
+    /** The version of the format, incremented on each incompatible change. */
+    static final int VERSION = 2;
+
+    /** String reference for null. */
+    static final int STRING_NULL = 0;
+
+    /** String reference for a new string, followed by its length and UTF-8 bytes. */
+    static final int STRING_NEW = 1;
+
+    /** The offset of the index in the string table of string references to a previous string. */
+    static final int STRING_TABLE_OFFSET = 2;
+
+    /** Tri-state Boolean values. */
+    static final int BOOLEAN_NULL = 0;
+    static final int BOOLEAN_FALSE = 1;
+    static final int BOOLEAN_TRUE = 2;
+
+    /** Transition target kinds, of which a history is only written as a detached target. */
+    static final int STATE = 1;
+    static final int PARALLEL = 2;
+    static final int FINAL = 3;
+    static final int HISTORY = 4;
+
+    /** Transition types. */
+    static final int TYPE_NULL = 0;
+    static final int TYPE_INTERNAL = 1;
+    static final int TYPE_EXTERNAL = 2;
+
+    /** Action kinds. */
+    static final int ACTION_ASSIGN = 1;
+    static final int ACTION_CANCEL = 2;
+    static final int ACTION_ELSE = 3;
+    static final int ACTION_ELSEIF = 4;
+    static final int ACTION_FOREACH = 5;
+    static final int ACTION_IF = 6;
+    static final int ACTION_LOG = 7;
+    static final int ACTION_RAISE = 8;
+    static final int ACTION_SCRIPT = 9;
+    static final int ACTION_SEND = 10;
+    static final int ACTION_CUSTOM = 11;
+
+    /** Parsed value kinds, 0 for none. */
+    static final int VALUE_NONE = 0;
+    static final int VALUE_TEXT = 1;
+    static final int VALUE_JSON = 2;
+    static final int VALUE_NODE = 3;
+    static final int VALUE_NODE_LIST = 4;
+    static final int VALUE_NODE_TEXT = 5;
+
+    /** JSON value kinds. */
+    static final int JSON_NULL = 0;
+    static final int JSON_FALSE = 1;
+    static final int JSON_TRUE = 2;
+    static final int JSON_INT = 3;
+    static final int JSON_LONG = 4;
+    static final int JSON_DOUBLE = 5;
+    static final int JSON_STRING = 6;
+    static final int JSON_LIST = 7;
+    static final int JSON_MAP = 8;
+    static final int JSON_BIG_INTEGER = 9;
+    static final int JSON_BIG_DECIMAL = 10;
+
+    /** DOM node kinds. */
+    static final int NODE_ELEMENT = 1;
+    static final int NODE_TEXT = 2;
+    static final int NODE_CDATA = 3;
+    static final int NODE_COMMENT = 4;
+    static final int NODE_PROCESSING_INSTRUCTION = 5;
+
+    /**
+     * Discourage instantiation since this is a utility class.
+     */
+    private SCXMLBinaryFormat() {
+    }
+}
@@ -0,0 +1,872 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.scxml2.PathResolver;
+import org.apache.commons.scxml2.model.Action;
+import org.apache.commons.scxml2.model.ActionsContainer;
+import org.apache.commons.scxml2.model.Assign;
+import org.apache.commons.scxml2.model.Cancel;
+import org.apache.commons.scxml2.model.Content;
+import org.apache.commons.scxml2.model.CustomAction;
+import org.apache.commons.scxml2.model.CustomActionWrapper;
+import org.apache.commons.scxml2.model.Data;
+import org.apache.commons.scxml2.model.Datamodel;
+import org.apache.commons.scxml2.model.DoneData;
+import org.apache.commons.scxml2.model.Else;
+import org.apache.commons.scxml2.model.ElseIf;
+import org.apache.commons.scxml2.model.EnterableState;
+import org.apache.commons.scxml2.model.Executable;
+import org.apache.commons.scxml2.model.Final;
+import org.apache.commons.scxml2.model.Finalize;
+import org.apache.commons.scxml2.model.Foreach;
+import org.apache.commons.scxml2.model.History;
+import org.apache.commons.scxml2.model.If;
+import org.apache.commons.scxml2.model.Initial;
+import org.apache.commons.scxml2.model.Invoke;
+import org.apache.commons.scxml2.model.JsonValue;
+import org.apache.commons.scxml2.model.Log;
+import org.apache.commons.scxml2.model.NodeListValue;
+import org.apache.commons.scxml2.model.NodeTextValue;
+import org.apache.commons.scxml2.model.NodeValue;
+import org.apache.commons.scxml2.model.OnEntry;
+import org.apache.commons.scxml2.model.OnExit;
+import org.apache.commons.scxml2.model.Parallel;
+import org.apache.commons.scxml2.model.Param;
+import org.apache.commons.scxml2.model.ParsedValue;
+import org.apache.commons.scxml2.model.ParsedValueContainer;
+import org.apache.commons.scxml2.model.Raise;
+import org.apache.commons.scxml2.model.SCXML;
+import org.apache.commons.scxml2.model.Script;
+import org.apache.commons.scxml2.model.Send;
+import org.apache.commons.scxml2.model.SimpleTransition;
+import org.apache.commons.scxml2.model.State;
+import org.apache.commons.scxml2.model.TextValue;
+import org.apache.commons.scxml2.model.Transition;
+import org.apache.commons.scxml2.model.TransitionTarget;
+import org.apache.commons.scxml2.model.TransitionType;
+import org.apache.commons.scxml2.model.TransitionalState;
+import org.apache.commons.scxml2.model.Var;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Loads a Commons SCXML object model written by {@link SCXMLBinaryWriter}, without parsing the SCXML document and
+ * resolving its object model again.
+ * <p>
+ * The loaded object model is identical to the written one: all the transition targets are resolved, and the document
+ * order and observable ids are restored rather than recomputed. Files are memory-mapped, see {@link #read(Path)}.
+ * </p>
+ * <p>
+ * The only difference are the detached transition targets, the targets registered with the document but not part of
+ * its state tree, like the states of an external document included through a "src" attribute which are not pulled
+ * into the state tree: these are registered with the same ids in {@link SCXML#getTargets()}, but without their
+ * content, as they can never become active.
+ * </p>
+ * <p>
+ * Like when reading the SCXML document, only the custom actions registered with the
+ * {@link SCXMLReader.Configuration} are created, and a compiled document using any other custom action is rejected.
+ * </p>
+ *
+ * @see SCXMLBinaryFormat
+ */
+public final class SCXMLBinaryReader {
+
+    /**
+     * Loads a compiled SCXML document from a buffer, starting at its position. The position of the buffer itself is
+     * not changed.
+     *
+     * @param buffer The buffer holding the compiled SCXML document.
+     * @return The Commons SCXML object model.
+     * @throws IOException The buffer doesn't hold a valid compiled SCXML document.
+     */
+    public static SCXML read(final ByteBuffer buffer) throws IOException {
+        return read(buffer, (PathResolver) null);
+    }
+
+    /**
+     * Loads a compiled SCXML document from a buffer, starting at its position. The position of the buffer itself is
+     * not changed.
+     *
+     * @param buffer The buffer holding the compiled SCXML document.
+     * @param pathResolver The optional {@link PathResolver} of the SCXML document, to resolve the relative src
+     *                     attributes of its elements.
+     * @return The Commons SCXML object model.
+     * @throws IOException The buffer doesn't hold a valid compiled SCXML document.
+     */
+    public static SCXML read(final ByteBuffer buffer, final PathResolver pathResolver) throws IOException {
+        return read(buffer, new SCXMLReader.Configuration(null, pathResolver));
+    }
+
+    /**
+     * Loads a compiled SCXML document from a buffer, starting at its position. The position of the buffer itself is
+     * not changed.
+     *
+     * @param buffer The buffer holding the compiled SCXML document.
+     * @param configuration The {@link SCXMLReader.Configuration} the SCXML document was read with, providing its
+     *                      {@link PathResolver} and custom actions.
+     * @return The Commons SCXML object model.
+     * @throws IOException The buffer doesn't hold a valid compiled SCXML document, or uses an unknown custom action.
+     */
+    public static SCXML read(final ByteBuffer buffer, final SCXMLReader.Configuration configuration)
+            throws IOException {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Cannot read null buffer");
+        }
+        if (configuration == null) {
+            throw new IllegalArgumentException("Cannot read with null configuration");
+        }
+        try {
+            return new SCXMLBinaryReader(buffer.duplicate(), configuration).readDocument();
+        } catch (final BufferUnderflowException | IndexOutOfBoundsException | ClassCastException
+                | IllegalArgumentException | IllegalStateException | DOMException e) {
+            throw new IOException("Malformed compiled SCXML document", e);
+        }
+    }
+
+    /**
+     * Loads a compiled SCXML document from a stream.
+     *
+     * @param in The stream to read the compiled SCXML document from, which is not closed.
+     * @return The Commons SCXML object model.
+     * @throws IOException An IO error, or the stream doesn't provide a valid compiled SCXML document.
+     */
+    public static SCXML read(final InputStream in) throws IOException {
+        return read(in, (PathResolver) null);
+    }
+
+    /**
+     * Loads a compiled SCXML document from a stream.
+     *
+     * @param in The stream to read the compiled SCXML document from, which is not closed.
+     * @param pathResolver The optional {@link PathResolver} of the SCXML document, to resolve the relative src
+     *                     attributes of its elements.
+     * @return The Commons SCXML object model.
+     * @throws IOException An IO error, or the stream doesn't provide a valid compiled SCXML document.
+     */
+    public static SCXML read(final InputStream in, final PathResolver pathResolver) throws IOException {
+        return read(in, new SCXMLReader.Configuration(null, pathResolver));
+    }
+
+    /**
+     * Loads a compiled SCXML document from a stream.
+     *
+     * @param in The stream to read the compiled SCXML document from, which is not closed.
+     * @param configuration The {@link SCXMLReader.Configuration} the SCXML document was read with, providing its
+     *                      {@link PathResolver} and custom actions.
+     * @return The Commons SCXML object model.
+     * @throws IOException An IO error, or the stream doesn't provide a valid compiled SCXML document, or uses an
+     *                     unknown custom action.
+     */
+    public static SCXML read(final InputStream in, final SCXMLReader.Configuration configuration)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[8192];
+        int length;
+        while ((length = in.read(chunk)) != -1) {
+            bytes.write(chunk, 0, length);
+        }
+        return read(ByteBuffer.wrap(bytes.toByteArray()), configuration);
+    }
+
+    /**
+     * Loads a compiled SCXML document from a file, which is memory-mapped rather than read.
+     *
+     * @param file The file holding the compiled SCXML document.
+     * @return The Commons SCXML object model.
+     * @throws IOException An IO error, or the file doesn't hold a valid compiled SCXML document.
+     */
+    public static SCXML read(final Path file) throws IOException {
+        return read(file, (PathResolver) null);
+    }
+
+    /**
+     * Loads a compiled SCXML document from a file, which is memory-mapped rather than read.
+     *
+     * @param file The file holding the compiled SCXML document.
+     * @param pathResolver The optional {@link PathResolver} of the SCXML document, to resolve the relative src
+     *                     attributes of its elements.
+     * @return The Commons SCXML object model.
+     * @throws IOException An IO error, or the file doesn't hold a valid compiled SCXML document.
+     */
+    public static SCXML read(final Path file, final PathResolver pathResolver) throws IOException {
+        return read(file, new SCXMLReader.Configuration(null, pathResolver));
+    }
+
+    /**
+     * Loads a compiled SCXML document from a file, which is memory-mapped rather than read.
+     *
+     * @param file The file holding the compiled SCXML document.
+     * @param configuration The {@link SCXMLReader.Configuration} the SCXML document was read with, providing its
+     *                      {@link PathResolver} and custom actions.
+     * @return The Commons SCXML object model.
+     * @throws IOException An IO error, or the file doesn't hold a valid compiled SCXML document, or uses an unknown
+     *                     custom action.
+     */
+    public static SCXML read(final Path file, final SCXMLReader.Configuration configuration) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), configuration);
+        }
+    }
+
+    /** The input. */
+    private final ByteBuffer in;
+
+    /** The configuration, providing the PathResolver and the custom actions. */
+    private final SCXMLReader.Configuration configuration;
+
+    /** The strings read so far, in the order of their first occurrence. */
+    private final List<String> strings = new ArrayList<>();
+
+    /** The transition targets, in document order. */
+    private final List<TransitionTarget> targets = new ArrayList<>();
+
+    /** The transitions, and the indices of their targets which are resolved once all the targets are read. */
+    private final List<SimpleTransition> transitions = new ArrayList<>();
+    private final List<int[]> transitionTargets = new ArrayList<>();
+
+    /** The transitional states, to create their transition index once all the transitions are read. */
+    private final List<TransitionalState> transitionalStates = new ArrayList<>();
+
+    /** The document owning the DOM nodes of parsed values, created when needed. */
+    private Document document;
+
+    private SCXMLBinaryReader(final ByteBuffer in, final SCXMLReader.Configuration configuration) {
+        this.in = in;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Finds the registered custom action, or the built-in &lt;var&gt; custom action, with a local name and class.
+     */
+    private CustomAction findCustomAction(final String localName, final String className) {
+        if (isCustomAction(Var.CUSTOM_ACTION, localName, className)) {
+            return Var.CUSTOM_ACTION;
+        }
+        for (final CustomAction customAction : configuration.customActions) {
+            if (isCustomAction(customAction, localName, className)) {
+                return customAction;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isCustomAction(final CustomAction customAction, final String localName,
+                                          final String className) {
+        return customAction.getLocalName().equals(localName)
+                && customAction.getActionClass().getName().equals(className);
+    }
+
+    private Action newCustomAction(final String localName, final String className,
+                                   final Map<String, String> attributes) throws IOException {
+        if (findCustomAction(localName, className) == null) {
+            throw new IOException("Unknown custom action: " + localName + " (" + className + ")");
+        }
+        ClassLoader classLoader = configuration.customActionClassLoader;
+        if (configuration.useContextClassLoaderForCustomActions) {
+            classLoader = Thread.currentThread().getContextClassLoader();
+        }
+        if (classLoader == null) {
+            classLoader = SCXMLBinaryReader.class.getClassLoader();
+        }
+        final Action action;
+        try {
+            action = classLoader.loadClass(className).asSubclass(Action.class).getConstructor().newInstance();
+        } catch (final ReflectiveOperationException | ClassCastException e) {
+            throw new IOException("Cannot create custom action: " + className, e);
+        }
+        if (attributes != null) {
+            for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+                final String qname = attribute.getKey();
+                final String name = qname.substring(qname.indexOf(':') + 1);
+                final String setter = "set" + name.substring(0, 1).toUpperCase() + name.substring(1);
+                final Method method;
+                try {
+                    method = action.getClass().getMethod(setter, String.class);
+                } catch (final NoSuchMethodException e) {
+                    // ignored, as when the SCXML document was read
+                    continue;
+                }
+                try {
+                    method.invoke(action, attribute.getValue());
+                } catch (final IllegalAccessException | InvocationTargetException e) {
+                    throw new IOException("Exception calling method: " + setter + "(String) in custom action class: "
+                            + className, e);
+                }
+            }
+        }
+        return action;
+    }
+
+    private Action readAction(final Executable executable) throws IOException {
+        final int kind = readInt();
+        switch (kind) {
+            case SCXMLBinaryFormat.ACTION_ASSIGN:
+                final Assign assign = new Assign();
+                assign.setLocation(readString());
+                assign.setSrc(readString());
+                assign.setExpr(readString());
+                assign.setParsedValue(readParsedValue());
+                return assign;
+            case SCXMLBinaryFormat.ACTION_CANCEL:
+                final Cancel cancel = new Cancel();
+                cancel.setSendid(readString());
+                cancel.setSendidexpr(readString());
+                return cancel;
+            case SCXMLBinaryFormat.ACTION_ELSE:
+                return new Else();
+            case SCXMLBinaryFormat.ACTION_ELSEIF:
+                final ElseIf elseIf = new ElseIf();
+                elseIf.setCond(readString());
+                return elseIf;
+            case SCXMLBinaryFormat.ACTION_FOREACH:
+                final Foreach foreach = new Foreach();
+                foreach.setArray(readString());
+                foreach.setItem(readString());
+                foreach.setIndex(readString());
+                readActions(executable, foreach);
+                return foreach;
+            case SCXMLBinaryFormat.ACTION_IF:
+                final If iff = new If();
+                iff.setCond(readString());
+                readActions(executable, iff);
+                return iff;
+            case SCXMLBinaryFormat.ACTION_LOG:
+                final Log log = new Log();
+                log.setExpr(readString());
+                log.setLabel(readString());
+                return log;
+            case SCXMLBinaryFormat.ACTION_RAISE:
+                final Raise raise = new Raise();
+                raise.setEvent(readString());
+                return raise;
+            case SCXMLBinaryFormat.ACTION_SCRIPT:
+                return readScript();
+            case SCXMLBinaryFormat.ACTION_SEND:
+                final Send send = new Send();
+                send.setId(readString());
+                send.setIdlocation(readString());
+                send.setTarget(readString());
+                send.setTargetexpr(readString());
+                send.setType(readString());
+                send.setTypeexpr(readString());
+                send.setDelay(readString());
+                send.setDelayexpr(readString());
+                send.setHints(readString());
+                send.setEvent(readString());
+                send.setEventexpr(readString());
+                send.setNamelist(readString());
+                send.setContent(readContent());
+                readParams(send.getParams());
+                return send;
+            case SCXMLBinaryFormat.ACTION_CUSTOM:
+                final CustomActionWrapper wrapper = new CustomActionWrapper();
+                wrapper.setPrefix(readString());
+                wrapper.setLocalName(readString());
+                final Map<String, String> namespaces = readStringMap();
+                if (namespaces != null) {
+                    wrapper.getNamespaces().putAll(namespaces);
+                }
+                final Map<String, String> attributes = readStringMap();
+                wrapper.setAttributes(attributes);
+                final Action action = newCustomAction(wrapper.getLocalName(), readString(), attributes);
+                wrapper.setAction(action);
+                if (action instanceof ParsedValueContainer) {
+                    ((ParsedValueContainer) action).setParsedValue(readParsedValue());
+                }
+                return wrapper;
+            default:
+                throw new IOException("Unknown action kind: " + kind);
+        }
+    }
+
+    private void readActions(final Executable executable, final ActionsContainer container) throws IOException {
+        for (int i = readInt(); i > 0; i--) {
+            final Action action = readAction(executable);
+            action.setParent(executable);
+            if (container != null) {
+                container.addAction(action);
+            } else {
+                executable.addAction(action);
+            }
+        }
+    }
+
+    private Boolean readBoolean() {
+        switch (readInt()) {
+            case SCXMLBinaryFormat.BOOLEAN_FALSE:
+                return Boolean.FALSE;
+            case SCXMLBinaryFormat.BOOLEAN_TRUE:
+                return Boolean.TRUE;
+            default:
+                return null;
+        }
+    }
+
+    private Content readContent() throws IOException {
+        if (readInt() == 0) {
+            return null;
+        }
+        final Content content = new Content();
+        content.setExpr(readString());
+        content.setParsedValue(readParsedValue());
+        return content;
+    }
+
+    private Datamodel readDatamodel() throws IOException {
+        if (readInt() == 0) {
+            return null;
+        }
+        final Datamodel datamodel = new Datamodel();
+        for (int i = readInt(); i > 0; i--) {
+            final Data data = new Data();
+            data.setId(readString());
+            data.setSrc(readString());
+            data.setExpr(readString());
+            data.setParsedValue(readParsedValue());
+            datamodel.addData(data);
+        }
+        return datamodel;
+    }
+
+    private void readDetachedTarget(final SCXML scxml) throws IOException {
+        final int kind = readInt();
+        final TransitionTarget target;
+        switch (kind) {
+            case SCXMLBinaryFormat.STATE:
+                target = new State();
+                break;
+            case SCXMLBinaryFormat.PARALLEL:
+                target = new Parallel();
+                break;
+            case SCXMLBinaryFormat.FINAL:
+                target = new Final();
+                break;
+            case SCXMLBinaryFormat.HISTORY:
+                target = new History();
+                break;
+            default:
+                throw new IOException("Unknown transition target kind: " + kind);
+        }
+        target.setId(readString());
+        target.setObservableId(readObservableId());
+        scxml.addTarget(target);
+    }
+
+    private SCXML readDocument() throws IOException {
+        if (in.remaining() < 4 || in.getInt() != SCXMLBinaryFormat.MAGIC) {
+            throw new IOException("Not a compiled SCXML document");
+        }
+        final int version = readInt();
+        if (version != SCXMLBinaryFormat.VERSION) {
+            throw new IOException("Unsupported compiled SCXML document version: " + version);
+        }
+        final SCXML scxml = new SCXML();
+        scxml.setVersion(readString());
+        scxml.setInitial(readString());
+        scxml.setName(readString());
+        scxml.setProfile(readString());
+        scxml.setExmode(readString());
+        scxml.setLateBinding(readBoolean());
+        scxml.setDatamodelName(readString());
+        scxml.setNamespaces(readStringMap());
+        for (long i = readLong(); i > 0; i--) {
+            scxml.generateTransitionTargetId();
+        }
+        scxml.setDatamodel(readDatamodel());
+        if (readInt() != 0) {
+            scxml.setGlobalScript(readScript());
+        }
+        if (readInt() != 0) {
+            final SimpleTransition initialTransition = new SimpleTransition();
+            readSimpleTransition(initialTransition);
+            scxml.setInitialTransition(initialTransition);
+        }
+        for (int i = readInt(); i > 0; i--) {
+            readEnterableState(scxml, null);
+        }
+        for (int i = readInt(); i > 0; i--) {
+            readDetachedTarget(scxml);
+        }
+        scxml.setPathResolver(configuration.pathResolver);
+
+        for (int i = 0; i < transitions.size(); i++) {
+            final SimpleTransition transition = transitions.get(i);
+            for (final int target : transitionTargets.get(i)) {
+                transition.getTargets().add(targets.get(target));
+            }
+        }
+        // eagerly initialize what the SCXMLReader initializes as well
+        for (final TransitionalState state : transitionalStates) {
+            state.getTransitionIndex();
+        }
+        for (final SimpleTransition transition : transitions) {
+            transition.getTransitionDomain();
+        }
+        return scxml;
+    }
+
+    private void readEnterableState(final SCXML scxml, final TransitionalState parent) throws IOException {
+        final int kind = readInt();
+        final EnterableState state;
+        switch (kind) {
+            case SCXMLBinaryFormat.STATE:
+                state = new State();
+                break;
+            case SCXMLBinaryFormat.PARALLEL:
+                state = new Parallel();
+                break;
+            case SCXMLBinaryFormat.FINAL:
+                state = new Final();
+                break;
+            default:
+                throw new IOException("Unknown state kind: " + kind);
+        }
+        state.setId(readString());
+        state.setObservableId(readObservableId());
+        state.setOrder(readInt());
+        // attach to the parent before reading the children, so that their ancestors are only computed once
+        if (parent instanceof Parallel) {
+            ((Parallel) parent).addChild((TransitionalState) state);
+        } else if (parent != null) {
+            ((State) parent).addChild(state);
+        } else {
+            scxml.addChild(state);
+        }
+        targets.add(state);
+        scxml.addTarget(state);
+
+        for (int i = readInt(); i > 0; i--) {
+            final OnEntry onEntry = new OnEntry();
+            onEntry.setRaiseEvent(readBoolean());
+            state.addOnEntry(onEntry);
+            readActions(onEntry, null);
+        }
+        for (int i = readInt(); i > 0; i--) {
+            final OnExit onExit = new OnExit();
+            state.addOnExit(onExit);
+            readActions(onExit, null);
+        }
+        if (state instanceof TransitionalState) {
+            final TransitionalState ts = (TransitionalState) state;
+            transitionalStates.add(ts);
+            ts.setLastDescendantOrder(readInt());
+            ts.setDatamodel(readDatamodel());
+            for (int i = readInt(); i > 0; i--) {
+                final History history = new History();
+                history.setId(readString());
+                history.setObservableId(readObservableId());
+                ts.addHistory(history);
+                targets.add(history);
+                scxml.addTarget(history);
+                if (readInt() != 0) {
+                    history.setType("deep");
+                }
+                if (readInt() != 0) {
+                    final SimpleTransition transition = new SimpleTransition();
+                    history.setTransition(transition);
+                    readSimpleTransition(transition);
+                }
+            }
+            for (int i = readInt(); i > 0; i--) {
+                final Transition transition = new Transition();
+                ts.addTransition(transition);
+                readSimpleTransition(transition);
+                transition.setOrder(readInt());
+                transition.setEvent(readString());
+                transition.setCond(readString());
+            }
+            for (int i = readInt(); i > 0; i--) {
+                ts.addInvoke(readInvoke(ts));
+            }
+            for (int i = readInt(); i > 0; i--) {
+                readEnterableState(scxml, ts);
+            }
+            if (state instanceof State) {
+                final State s = (State) state;
+                final int initialKind = readInt();
+                if (initialKind != 0) {
+                    final String first = readString();
+                    if (initialKind == 2) {
+                        s.setFirst(first);
+                    } else {
+                        final Initial initial = new Initial();
+                        initial.setTransition(new SimpleTransition());
+                        s.setInitial(initial);
+                    }
+                    readSimpleTransition(s.getInitial().getTransition());
+                }
+            }
+        } else if (readInt() != 0) {
+            final DoneData doneData = new DoneData();
+            doneData.setContent(readContent());
+            readParams(doneData.getParams());
+            ((Final) state).setDoneData(doneData);
+        }
+    }
+
+    private int readInt() {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed variable length integer");
+    }
+
+    private Invoke readInvoke(final TransitionalState state) throws IOException {
+        final Invoke invoke = new Invoke();
+        invoke.setId(readString());
+        invoke.setIdlocation(readString());
+        invoke.setType(readString());
+        invoke.setTypeexpr(readString());
+        invoke.setSrc(readString());
+        invoke.setSrcexpr(readString());
+        invoke.setAutoForward(readBoolean());
+        invoke.setNamelist(readString());
+        invoke.setContent(readContent());
+        readParams(invoke.getParams());
+        if (readInt() != 0) {
+            final Finalize finalize = new Finalize();
+            finalize.setParent(state);
+            readActions(finalize, null);
+            invoke.setFinalize(finalize);
+        }
+        return invoke;
+    }
+
+    private Object readJson() throws IOException {
+        final int kind = readInt();
+        switch (kind) {
+            case SCXMLBinaryFormat.JSON_NULL:
+                return null;
+            case SCXMLBinaryFormat.JSON_FALSE:
+                return Boolean.FALSE;
+            case SCXMLBinaryFormat.JSON_TRUE:
+                return Boolean.TRUE;
+            case SCXMLBinaryFormat.JSON_INT:
+                final int i = readInt();
+                return i >>> 1 ^ -(i & 1);
+            case SCXMLBinaryFormat.JSON_LONG:
+                final long l = readLong();
+                return l >>> 1 ^ -(l & 1);
+            case SCXMLBinaryFormat.JSON_DOUBLE:
+                return in.getDouble();
+            case SCXMLBinaryFormat.JSON_STRING:
+                return readString();
+            case SCXMLBinaryFormat.JSON_BIG_INTEGER:
+                return new BigInteger(readString());
+            case SCXMLBinaryFormat.JSON_BIG_DECIMAL:
+                return new BigDecimal(readString());
+            case SCXMLBinaryFormat.JSON_LIST:
+                final int size = readInt();
+                final List<Object> list = new ArrayList<>(size);
+                for (int j = 0; j < size; j++) {
+                    list.add(readJson());
+                }
+                return list;
+            case SCXMLBinaryFormat.JSON_MAP:
+                final Map<String, Object> map = new LinkedHashMap<>();
+                for (int j = readInt(); j > 0; j--) {
+                    final String key = readString();
+                    map.put(key, readJson());
+                }
+                return map;
+            default:
+                throw new IOException("Unknown JSON value kind: " + kind);
+        }
+    }
+
+    private long readLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed variable length integer");
+    }
+
+    private Node readNode() throws IOException {
+        if (document == null) {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            try {
+                document = factory.newDocumentBuilder().newDocument();
+            } catch (final ParserConfigurationException e) {
+                throw new IOException(e);
+            }
+        }
+        final int kind = readInt();
+        switch (kind) {
+            case SCXMLBinaryFormat.NODE_ELEMENT:
+                final String namespaceURI = readString();
+                final Element element = document.createElementNS(namespaceURI, readString());
+                for (int i = readInt(); i > 0; i--) {
+                    final String attributeNamespaceURI = readString();
+                    final String attributeName = readString();
+                    element.setAttributeNS(attributeNamespaceURI, attributeName, readString());
+                }
+                for (int i = readInt(); i > 0; i--) {
+                    element.appendChild(readNode());
+                }
+                return element;
+            case SCXMLBinaryFormat.NODE_TEXT:
+                return document.createTextNode(readString());
+            case SCXMLBinaryFormat.NODE_CDATA:
+                return document.createCDATASection(readString());
+            case SCXMLBinaryFormat.NODE_COMMENT:
+                return document.createComment(readString());
+            case SCXMLBinaryFormat.NODE_PROCESSING_INSTRUCTION:
+                final String target = readString();
+                return document.createProcessingInstruction(target, readString());
+            default:
+                throw new IOException("Unknown DOM node kind: " + kind);
+        }
+    }
+
+    private Integer readObservableId() {
+        final int observableId = readInt();
+        return observableId != 0 ? Integer.valueOf(observableId - 1) : null;
+    }
+
+    private void readParams(final List<Param> params) {
+        for (int i = readInt(); i > 0; i--) {
+            final Param param = new Param();
+            param.setName(readString());
+            param.setLocation(readString());
+            param.setExpr(readString());
+            params.add(param);
+        }
+    }
+
+    private ParsedValue readParsedValue() throws IOException {
+        final int kind = readInt();
+        switch (kind) {
+            case SCXMLBinaryFormat.VALUE_NONE:
+                return null;
+            case SCXMLBinaryFormat.VALUE_TEXT:
+                final boolean textCdata = readInt() != 0;
+                return new TextValue(readString(), textCdata);
+            case SCXMLBinaryFormat.VALUE_JSON:
+                final boolean jsonCdata = readInt() != 0;
+                return new JsonValue(readJson(), jsonCdata);
+            case SCXMLBinaryFormat.VALUE_NODE:
+                return new NodeValue(readNode());
+            case SCXMLBinaryFormat.VALUE_NODE_LIST:
+                final int size = readInt();
+                final List<Node> nodes = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    nodes.add(readNode());
+                }
+                return new NodeListValue(nodes);
+            case SCXMLBinaryFormat.VALUE_NODE_TEXT:
+                return new NodeTextValue(readString());
+            default:
+                throw new IOException("Unknown parsed value kind: " + kind);
+        }
+    }
+
+    private Script readScript() {
+        final Script script = new Script();
+        script.setGlobalScript(readInt() != 0);
+        script.setScript(readString());
+        script.setSrc(readString());
+        return script;
+    }
+
+    private void readSimpleTransition(final SimpleTransition transition) throws IOException {
+        transition.setObservableId(readObservableId());
+        final int type = readInt();
+        if (type == SCXMLBinaryFormat.TYPE_INTERNAL) {
+            transition.setType(TransitionType.internal);
+        } else if (type == SCXMLBinaryFormat.TYPE_EXTERNAL) {
+            transition.setType(TransitionType.external);
+        }
+        transition.setNext(readString());
+        final int[] indices = new int[readInt()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = readInt();
+        }
+        transitions.add(transition);
+        transitionTargets.add(indices);
+        readActions(transition, null);
+    }
+
+    private String readString() {
+        final int reference = readInt();
+        if (reference == SCXMLBinaryFormat.STRING_NULL) {
+            return null;
+        }
+        if (reference != SCXMLBinaryFormat.STRING_NEW) {
+            return strings.get(reference - SCXMLBinaryFormat.STRING_TABLE_OFFSET);
+        }
+        final int length = readInt();
+        final String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            final byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        strings.add(value);
+        return value;
+    }
+
+    private Map<String, String> readStringMap() {
+        final int size = readInt();
+        if (size == 0) {
+            return null;
+        }
+        final Map<String, String> map = new LinkedHashMap<>();
+        for (int i = size - 1; i > 0; i--) {
+            final String key = readString();
+            map.put(key, readString());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,635 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.scxml2.model.Action;
+import org.apache.commons.scxml2.model.Assign;
+import org.apache.commons.scxml2.model.Cancel;
+import org.apache.commons.scxml2.model.Content;
+import org.apache.commons.scxml2.model.CustomActionWrapper;
+import org.apache.commons.scxml2.model.Data;
+import org.apache.commons.scxml2.model.Datamodel;
+import org.apache.commons.scxml2.model.DoneData;
+import org.apache.commons.scxml2.model.Else;
+import org.apache.commons.scxml2.model.ElseIf;
+import org.apache.commons.scxml2.model.EnterableState;
+import org.apache.commons.scxml2.model.Final;
+import org.apache.commons.scxml2.model.Foreach;
+import org.apache.commons.scxml2.model.History;
+import org.apache.commons.scxml2.model.If;
+import org.apache.commons.scxml2.model.Initial;
+import org.apache.commons.scxml2.model.Invoke;
+import org.apache.commons.scxml2.model.JsonValue;
+import org.apache.commons.scxml2.model.Log;
+import org.apache.commons.scxml2.model.OnEntry;
+import org.apache.commons.scxml2.model.OnExit;
+import org.apache.commons.scxml2.model.Parallel;
+import org.apache.commons.scxml2.model.Param;
+import org.apache.commons.scxml2.model.ParsedValue;
+import org.apache.commons.scxml2.model.ParsedValueContainer;
+import org.apache.commons.scxml2.model.Raise;
+import org.apache.commons.scxml2.model.SCXML;
+import org.apache.commons.scxml2.model.Script;
+import org.apache.commons.scxml2.model.Send;
+import org.apache.commons.scxml2.model.SimpleTransition;
+import org.apache.commons.scxml2.model.State;
+import org.apache.commons.scxml2.model.TextValue;
+import org.apache.commons.scxml2.model.Transition;
+import org.apache.commons.scxml2.model.TransitionTarget;
+import org.apache.commons.scxml2.model.TransitionType;
+import org.apache.commons.scxml2.model.TransitionalState;
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Writes a fully resolved Commons SCXML object model, as read by {@link SCXMLReader}, in a compact binary format
+ * which can be loaded by {@link SCXMLBinaryReader} without parsing and resolving the SCXML document again.
+ * <p>
+ * The compiled document keeps the state tree, the resolved transition targets, the document order and observable ids
+ * and the pre-parsed values of the &lt;data&gt;, &lt;assign&gt; and &lt;content&gt; elements. Custom actions are
+ * written as their class name and attributes, and are recreated through their setters when loaded, like
+ * {@link SCXMLReader} does. The {@link org.apache.commons.scxml2.PathResolver} of the document isn't written: it is
+ * provided when loading the document.
+ * </p>
+ * <p>
+ * The transition targets registered with the document but not part of its state tree, like the states of an external
+ * document included through a "src" attribute which are not pulled into the state tree, are written as detached
+ * targets: only their kind, id and observable id, without their content, as these can never become active.
+ * </p>
+ * <p>
+ * The format is versioned, but not meant for long term storage: a compiled document should be regenerated from its
+ * SCXML source when upgrading Commons SCXML.
+ * </p>
+ *
+ * @see SCXMLBinaryFormat
+ */
+public final class SCXMLBinaryWriter {
+
+    /**
+     * Writes a SCXML object model in the binary format to a file.
+     *
+     * @param scxml The object model to write.
+     * @param file The file to write to.
+     * @throws IOException An IO error, or the object model contains elements not supported by the binary format.
+     */
+    public static void write(final SCXML scxml, final Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(scxml, out);
+        }
+    }
+
+    /**
+     * Writes a SCXML object model in the binary format to a stream.
+     *
+     * @param scxml The object model to write.
+     * @param out The stream to write to, which is flushed but not closed.
+     * @throws IOException An IO error, or the object model contains elements not supported by the binary format.
+     */
+    public static void write(final SCXML scxml, final OutputStream out) throws IOException {
+        if (scxml == null) {
+            throw new IllegalArgumentException("Cannot write null SCXML document");
+        }
+        final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        new SCXMLBinaryWriter(dataOut).writeDocument(scxml);
+        dataOut.flush();
+    }
+
+    /** The output. */
+    private final DataOutputStream out;
+
+    /** The indices of the strings written so far. */
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    /** The indices of the transition targets, in document order. */
+    private final Map<TransitionTarget, Integer> targets = new IdentityHashMap<>();
+
+    private SCXMLBinaryWriter(final DataOutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * @return the next generated transition target id of the document, derived from its generated ids
+     */
+    private static long getNextGeneratedId(final SCXML scxml) {
+        long next = 0;
+        for (final String id : scxml.getTargets().keySet()) {
+            if (id != null && id.startsWith(SCXML.GENERATED_TT_ID_PREFIX)) {
+                try {
+                    next = Math.max(next, Long.parseLong(id.substring(SCXML.GENERATED_TT_ID_PREFIX.length())) + 1);
+                } catch (final NumberFormatException e) {
+                    // not a generated id
+                }
+            }
+        }
+        return next;
+    }
+
+    private void indexTargets(final List<EnterableState> states) {
+        for (final EnterableState state : states) {
+            targets.put(state, targets.size());
+            if (state instanceof TransitionalState) {
+                final TransitionalState ts = (TransitionalState) state;
+                for (final History history : ts.getHistory()) {
+                    targets.put(history, targets.size());
+                }
+                indexTargets(ts.getChildren());
+            }
+        }
+    }
+
+    private void writeAction(final Action action) throws IOException {
+        final Class<?> type = action.getClass();
+        if (type == Assign.class) {
+            final Assign assign = (Assign) action;
+            writeInt(SCXMLBinaryFormat.ACTION_ASSIGN);
+            writeString(assign.getLocation());
+            writeString(assign.getSrc());
+            writeString(assign.getExpr());
+            writeParsedValue(assign.getParsedValue());
+        } else if (type == Cancel.class) {
+            final Cancel cancel = (Cancel) action;
+            writeInt(SCXMLBinaryFormat.ACTION_CANCEL);
+            writeString(cancel.getSendid());
+            writeString(cancel.getSendidexpr());
+        } else if (type == Else.class) {
+            writeInt(SCXMLBinaryFormat.ACTION_ELSE);
+        } else if (type == ElseIf.class) {
+            writeInt(SCXMLBinaryFormat.ACTION_ELSEIF);
+            writeString(((ElseIf) action).getCond());
+        } else if (type == Foreach.class) {
+            final Foreach foreach = (Foreach) action;
+            writeInt(SCXMLBinaryFormat.ACTION_FOREACH);
+            writeString(foreach.getArray());
+            writeString(foreach.getItem());
+            writeString(foreach.getIndex());
+            writeActions(foreach.getActions());
+        } else if (type == If.class) {
+            final If iff = (If) action;
+            writeInt(SCXMLBinaryFormat.ACTION_IF);
+            writeString(iff.getCond());
+            writeActions(iff.getActions());
+        } else if (type == Log.class) {
+            final Log log = (Log) action;
+            writeInt(SCXMLBinaryFormat.ACTION_LOG);
+            writeString(log.getExpr());
+            writeString(log.getLabel());
+        } else if (type == Raise.class) {
+            writeInt(SCXMLBinaryFormat.ACTION_RAISE);
+            writeString(((Raise) action).getEvent());
+        } else if (type == Script.class) {
+            writeInt(SCXMLBinaryFormat.ACTION_SCRIPT);
+            writeScript((Script) action);
+        } else if (type == Send.class) {
+            final Send send = (Send) action;
+            writeInt(SCXMLBinaryFormat.ACTION_SEND);
+            writeString(send.getId());
+            writeString(send.getIdlocation());
+            writeString(send.getTarget());
+            writeString(send.getTargetexpr());
+            writeString(send.getType());
+            writeString(send.getTypeexpr());
+            writeString(send.getDelay());
+            writeString(send.getDelayexpr());
+            writeString(send.getHints());
+            writeString(send.getEvent());
+            writeString(send.getEventexpr());
+            writeString(send.getNamelist());
+            writeContent(send.getContent());
+            writeParams(send.getParams());
+        } else if (type == CustomActionWrapper.class) {
+            final CustomActionWrapper wrapper = (CustomActionWrapper) action;
+            writeInt(SCXMLBinaryFormat.ACTION_CUSTOM);
+            writeString(wrapper.getPrefix());
+            writeString(wrapper.getLocalName());
+            writeStringMap(wrapper.getNamespaces());
+            writeStringMap(wrapper.getAttributes());
+            writeString(wrapper.getAction().getClass().getName());
+            if (wrapper.getAction() instanceof ParsedValueContainer) {
+                writeParsedValue(((ParsedValueContainer) wrapper.getAction()).getParsedValue());
+            }
+        } else {
+            throw new IOException("Unsupported action type: " + type.getName());
+        }
+    }
+
+    private void writeActions(final List<Action> actions) throws IOException {
+        writeInt(actions.size());
+        for (final Action action : actions) {
+            writeAction(action);
+        }
+    }
+
+    private void writeBoolean(final Boolean value) throws IOException {
+        if (value == null) {
+            writeInt(SCXMLBinaryFormat.BOOLEAN_NULL);
+        } else {
+            writeInt(value ? SCXMLBinaryFormat.BOOLEAN_TRUE : SCXMLBinaryFormat.BOOLEAN_FALSE);
+        }
+    }
+
+    private void writeContent(final Content content) throws IOException {
+        writeInt(content != null ? 1 : 0);
+        if (content != null) {
+            writeString(content.getExpr());
+            writeParsedValue(content.getParsedValue());
+        }
+    }
+
+    private void writeDatamodel(final Datamodel datamodel) throws IOException {
+        writeInt(datamodel != null ? 1 : 0);
+        if (datamodel != null) {
+            writeInt(datamodel.getData().size());
+            for (final Data data : datamodel.getData()) {
+                writeString(data.getId());
+                writeString(data.getSrc());
+                writeString(data.getExpr());
+                writeParsedValue(data.getParsedValue());
+            }
+        }
+    }
+
+    private void writeDetachedTargets(final SCXML scxml) throws IOException {
+        final Map<String, TransitionTarget> detached = new LinkedHashMap<>();
+        for (final Map.Entry<String, TransitionTarget> entry : scxml.getTargets().entrySet()) {
+            if (!targets.containsKey(entry.getValue())) {
+                detached.put(entry.getKey(), entry.getValue());
+            }
+        }
+        writeInt(detached.size());
+        for (final Map.Entry<String, TransitionTarget> entry : detached.entrySet()) {
+            final TransitionTarget target = entry.getValue();
+            if (target instanceof State) {
+                writeInt(SCXMLBinaryFormat.STATE);
+            } else if (target instanceof Parallel) {
+                writeInt(SCXMLBinaryFormat.PARALLEL);
+            } else if (target instanceof Final) {
+                writeInt(SCXMLBinaryFormat.FINAL);
+            } else if (target instanceof History) {
+                writeInt(SCXMLBinaryFormat.HISTORY);
+            } else {
+                throw new IOException("Unsupported transition target type: " + target.getClass().getName());
+            }
+            writeString(entry.getKey());
+            writeObservableId(target.getObservableId());
+        }
+    }
+
+    private void writeDocument(final SCXML scxml) throws IOException {
+        indexTargets(scxml.getChildren());
+        out.writeInt(SCXMLBinaryFormat.MAGIC);
+        writeInt(SCXMLBinaryFormat.VERSION);
+        writeString(scxml.getVersion());
+        writeString(scxml.getInitial());
+        writeString(scxml.getName());
+        writeString(scxml.getProfile());
+        writeString(scxml.getExmode());
+        writeBoolean(scxml.isLateBinding());
+        writeString(scxml.getDatamodelName());
+        writeStringMap(scxml.getNamespaces());
+        writeLong(getNextGeneratedId(scxml));
+        writeDatamodel(scxml.getDatamodel());
+        writeInt(scxml.getGlobalScript() != null ? 1 : 0);
+        if (scxml.getGlobalScript() != null) {
+            writeScript(scxml.getGlobalScript());
+        }
+        writeInt(scxml.getInitialTransition() != null ? 1 : 0);
+        if (scxml.getInitialTransition() != null) {
+            writeSimpleTransition(scxml.getInitialTransition());
+        }
+        writeStates(scxml.getChildren());
+        writeDetachedTargets(scxml);
+    }
+
+    private void writeEnterableState(final EnterableState state) throws IOException {
+        if (state instanceof State) {
+            writeInt(SCXMLBinaryFormat.STATE);
+        } else if (state instanceof Parallel) {
+            writeInt(SCXMLBinaryFormat.PARALLEL);
+        } else if (state instanceof Final) {
+            writeInt(SCXMLBinaryFormat.FINAL);
+        } else {
+            throw new IOException("Unsupported state type: " + state.getClass().getName());
+        }
+        writeString(state.getId());
+        writeObservableId(state.getObservableId());
+        writeInt(state.getOrder());
+        writeInt(state.getOnEntries().size());
+        for (final OnEntry onEntry : state.getOnEntries()) {
+            writeBoolean(onEntry.getRaiseEvent());
+            writeActions(onEntry.getActions());
+        }
+        writeInt(state.getOnExits().size());
+        for (final OnExit onExit : state.getOnExits()) {
+            writeActions(onExit.getActions());
+        }
+        if (state instanceof TransitionalState) {
+            final TransitionalState ts = (TransitionalState) state;
+            writeInt(ts.getLastDescendantOrder());
+            writeDatamodel(ts.getDatamodel());
+            writeInt(ts.getHistory().size());
+            for (final History history : ts.getHistory()) {
+                writeString(history.getId());
+                writeObservableId(history.getObservableId());
+                writeInt(history.isDeep() ? 1 : 0);
+                writeInt(history.getTransition() != null ? 1 : 0);
+                if (history.getTransition() != null) {
+                    writeSimpleTransition(history.getTransition());
+                }
+            }
+            writeInt(ts.getTransitionsList().size());
+            for (final Transition transition : ts.getTransitionsList()) {
+                writeSimpleTransition(transition);
+                writeInt(transition.getOrder());
+                writeString(transition.getEvent());
+                writeString(transition.getCond());
+            }
+            writeInt(ts.getInvokes().size());
+            for (final Invoke invoke : ts.getInvokes()) {
+                writeInvoke(invoke);
+            }
+            writeStates(ts.getChildren());
+            if (state instanceof State) {
+                final Initial initial = ((State) state).getInitial();
+                writeInt(initial == null ? 0 : initial.isGenerated() ? 2 : 1);
+                if (initial != null) {
+                    writeString(((State) state).getFirst());
+                    writeSimpleTransition(initial.getTransition());
+                }
+            }
+        } else {
+            final DoneData doneData = ((Final) state).getDoneData();
+            writeInt(doneData != null ? 1 : 0);
+            if (doneData != null) {
+                writeContent(doneData.getContent());
+                writeParams(doneData.getParams());
+            }
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private void writeInvoke(final Invoke invoke) throws IOException {
+        writeString(invoke.getId());
+        writeString(invoke.getIdlocation());
+        writeString(invoke.getType());
+        writeString(invoke.getTypeexpr());
+        writeString(invoke.getSrc());
+        writeString(invoke.getSrcexpr());
+        writeBoolean(invoke.getAutoForward());
+        writeString(invoke.getNamelist());
+        writeContent(invoke.getContent());
+        writeParams(invoke.getParams());
+        writeInt(invoke.getFinalize() != null ? 1 : 0);
+        if (invoke.getFinalize() != null) {
+            writeActions(invoke.getFinalize().getActions());
+        }
+    }
+
+    private void writeJson(final Object value) throws IOException {
+        if (value == null) {
+            writeInt(SCXMLBinaryFormat.JSON_NULL);
+        } else if (value instanceof Boolean) {
+            writeInt((Boolean) value ? SCXMLBinaryFormat.JSON_TRUE : SCXMLBinaryFormat.JSON_FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            final int i = ((Number) value).intValue();
+            writeInt(SCXMLBinaryFormat.JSON_INT);
+            writeInt(i << 1 ^ i >> 31);
+        } else if (value instanceof Long) {
+            final long l = (Long) value;
+            writeInt(SCXMLBinaryFormat.JSON_LONG);
+            writeLong(l << 1 ^ l >> 63);
+        } else if (value instanceof Double || value instanceof Float) {
+            writeInt(SCXMLBinaryFormat.JSON_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof String) {
+            writeInt(SCXMLBinaryFormat.JSON_STRING);
+            writeString((String) value);
+        } else if (value instanceof BigInteger) {
+            writeInt(SCXMLBinaryFormat.JSON_BIG_INTEGER);
+            writeString(value.toString());
+        } else if (value instanceof BigDecimal) {
+            writeInt(SCXMLBinaryFormat.JSON_BIG_DECIMAL);
+            writeString(value.toString());
+        } else if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            writeInt(SCXMLBinaryFormat.JSON_LIST);
+            writeInt(list.size());
+            for (final Object item : list) {
+                writeJson(item);
+            }
+        } else if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            writeInt(SCXMLBinaryFormat.JSON_MAP);
+            writeInt(map.size());
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String)) {
+                    throw new IOException("Unsupported JSON object key: " + entry.getKey());
+                }
+                writeString((String) entry.getKey());
+                writeJson(entry.getValue());
+            }
+        } else {
+            throw new IOException("Unsupported JSON value type: " + value.getClass().getName());
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private void writeNode(final Node node) throws IOException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                writeInt(SCXMLBinaryFormat.NODE_ELEMENT);
+                writeString(node.getNamespaceURI());
+                writeString(node.getNodeName());
+                final NamedNodeMap attributes = node.getAttributes();
+                writeInt(attributes.getLength());
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    final Attr attr = (Attr) attributes.item(i);
+                    writeString(attr.getNamespaceURI());
+                    writeString(attr.getName());
+                    writeString(attr.getValue());
+                }
+                final NodeList children = node.getChildNodes();
+                writeInt(children.getLength());
+                for (int i = 0; i < children.getLength(); i++) {
+                    writeNode(children.item(i));
+                }
+                break;
+            case Node.TEXT_NODE:
+                writeInt(SCXMLBinaryFormat.NODE_TEXT);
+                writeString(node.getNodeValue());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                writeInt(SCXMLBinaryFormat.NODE_CDATA);
+                writeString(node.getNodeValue());
+                break;
+            case Node.COMMENT_NODE:
+                writeInt(SCXMLBinaryFormat.NODE_COMMENT);
+                writeString(node.getNodeValue());
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                writeInt(SCXMLBinaryFormat.NODE_PROCESSING_INSTRUCTION);
+                writeString(node.getNodeName());
+                writeString(node.getNodeValue());
+                break;
+            default:
+                throw new IOException("Unsupported DOM node type: " + node.getNodeType());
+        }
+    }
+
+    private void writeObservableId(final Integer observableId) throws IOException {
+        writeInt(observableId != null ? observableId + 1 : 0);
+    }
+
+    private void writeParams(final List<Param> params) throws IOException {
+        writeInt(params.size());
+        for (final Param param : params) {
+            writeString(param.getName());
+            writeString(param.getLocation());
+            writeString(param.getExpr());
+        }
+    }
+
+    private void writeParsedValue(final ParsedValue value) throws IOException {
+        if (value == null) {
+            writeInt(SCXMLBinaryFormat.VALUE_NONE);
+            return;
+        }
+        switch (value.getType()) {
+            case TEXT:
+                writeInt(SCXMLBinaryFormat.VALUE_TEXT);
+                writeInt(((TextValue) value).isCDATA() ? 1 : 0);
+                writeString(((TextValue) value).getValue());
+                break;
+            case JSON:
+                writeInt(SCXMLBinaryFormat.VALUE_JSON);
+                writeInt(((JsonValue) value).isCDATA() ? 1 : 0);
+                writeJson(value.getValue());
+                break;
+            case NODE:
+                writeInt(SCXMLBinaryFormat.VALUE_NODE);
+                writeNode((Node) value.getValue());
+                break;
+            case NODE_LIST:
+                final List<?> nodes = (List<?>) value.getValue();
+                writeInt(SCXMLBinaryFormat.VALUE_NODE_LIST);
+                writeInt(nodes.size());
+                for (final Object node : nodes) {
+                    writeNode((Node) node);
+                }
+                break;
+            case NODE_TEXT:
+                writeInt(SCXMLBinaryFormat.VALUE_NODE_TEXT);
+                writeString((String) value.getValue());
+                break;
+            default:
+                throw new IOException("Unsupported parsed value type: " + value.getType());
+        }
+    }
+
+    private void writeScript(final Script script) throws IOException {
+        writeInt(script.isGlobalScript() ? 1 : 0);
+        writeString(script.getScript());
+        writeString(script.getSrc());
+    }
+
+    private void writeSimpleTransition(final SimpleTransition transition) throws IOException {
+        writeObservableId(transition.getObservableId());
+        final TransitionType type = transition.getType();
+        if (type == null) {
+            writeInt(SCXMLBinaryFormat.TYPE_NULL);
+        } else if (type == TransitionType.internal) {
+            writeInt(SCXMLBinaryFormat.TYPE_INTERNAL);
+        } else {
+            writeInt(SCXMLBinaryFormat.TYPE_EXTERNAL);
+        }
+        writeString(transition.getNext());
+        final List<TransitionTarget> transitionTargets = transition.getTargetList();
+        writeInt(transitionTargets.size());
+        for (final TransitionTarget target : transitionTargets) {
+            final Integer index = targets.get(target);
+            if (index == null) {
+                throw new IOException("Transition target '" + target.getId() + "' is not part of the document");
+            }
+            writeInt(index);
+        }
+        writeActions(transition.getActions());
+    }
+
+    private void writeStates(final List<EnterableState> states) throws IOException {
+        writeInt(states.size());
+        for (final EnterableState state : states) {
+            writeEnterableState(state);
+        }
+    }
+
+    private void writeString(final String value) throws IOException {
+        if (value == null) {
+            writeInt(SCXMLBinaryFormat.STRING_NULL);
+            return;
+        }
+        final Integer index = strings.get(value);
+        if (index != null) {
+            writeInt(SCXMLBinaryFormat.STRING_TABLE_OFFSET + index);
+            return;
+        }
+        strings.put(value, strings.size());
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(SCXMLBinaryFormat.STRING_NEW);
+        writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeStringMap(final Map<String, String> map) throws IOException {
+        writeInt(map != null ? map.size() + 1 : 0);
+        if (map != null) {
+            for (final Map.Entry<String, String> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+    }
+}
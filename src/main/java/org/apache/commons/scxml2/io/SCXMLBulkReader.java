@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.scxml2.io.SCXMLReader.Configuration;
+import org.apache.commons.scxml2.model.ModelException;
+import org.apache.commons.scxml2.model.SCXML;
+
+/**
+ * Reads many SCXML documents in parallel, on a {@link ForkJoinPool}, reporting the failures per document.
+ * <p>
+ * The documents included by the &lt;state&gt; "src" attributes of the documents are only loaded once per bulk read,
+ * however many documents include them. As the included elements become part of the object model of the including
+ * document, each inclusion still parses its own copy of the included document, from memory.
+ * </p>
+ * <p>
+ * The {@link Configuration} of each document is created by the configuration supplier, as configurations are
+ * modified while reading and therefore can't be shared.
+ * </p>
+ */
+public final class SCXMLBulkReader {
+
+    /**
+     * The outcome of reading a document: its object model, or the reason it couldn't be read.
+     */
+    public static final class Result {
+
+        private final URL url;
+        private final SCXML scxml;
+        private final ModelException exception;
+
+        Result(final URL url, final SCXML scxml, final ModelException exception) {
+            this.url = url;
+            this.scxml = scxml;
+            this.exception = exception;
+        }
+
+        /**
+         * @return the exception reading the document, wrapping the IO and XML exceptions, null if read
+         */
+        public ModelException getException() {
+            return exception;
+        }
+
+        /**
+         * @return the object model of the document, null if it couldn't be read
+         */
+        public SCXML getSCXML() {
+            return scxml;
+        }
+
+        /**
+         * @return the URL of the document
+         */
+        public URL getURL() {
+            return url;
+        }
+    }
+
+    /**
+     * Loads the content of the documents included through "src" attributes once, however many times they are
+     * included.
+     */
+    static final class SrcCache {
+
+        /**
+         * Waits for a content loaded by another thread, letting the ForkJoinPool compensate for the blocked worker.
+         */
+        private static final class ContentBlocker implements ForkJoinPool.ManagedBlocker {
+
+            private final FutureTask<byte[]> content;
+
+            ContentBlocker(final FutureTask<byte[]> content) {
+                this.content = content;
+            }
+
+            @Override
+            public boolean block() throws InterruptedException {
+                try {
+                    content.get();
+                } catch (final ExecutionException e) {
+                    // reported by the caller
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return content.isDone();
+            }
+        }
+
+        private final ConcurrentHashMap<String, FutureTask<byte[]>> contents = new ConcurrentHashMap<>();
+
+        byte[] load(final URL url) throws IOException {
+            final String key = url.toExternalForm();
+            FutureTask<byte[]> content = contents.get(key);
+            if (content == null) {
+                final FutureTask<byte[]> newContent = new FutureTask<>(() -> {
+                    final URLConnection conn = url.openConnection();
+                    conn.setUseCaches(false);
+                    try (InputStream in = conn.getInputStream()) {
+                        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        final byte[] chunk = new byte[8192];
+                        int length;
+                        while ((length = in.read(chunk)) != -1) {
+                            bytes.write(chunk, 0, length);
+                        }
+                        return bytes.toByteArray();
+                    }
+                });
+                content = contents.putIfAbsent(key, newContent);
+                if (content == null) {
+                    content = newContent;
+                    content.run();
+                }
+            }
+            try {
+                if (!content.isDone()) {
+                    ForkJoinPool.managedBlock(new ContentBlocker(content));
+                }
+                return content.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * The default file name pattern of the documents read from a directory.
+     */
+    public static final String DEFAULT_GLOB = "*.scxml";
+
+    private final ForkJoinPool pool;
+
+    private final Supplier<Configuration> configurations;
+
+    /**
+     * Constructs a new bulk reader, reading with the default {@link Configuration} on the common pool.
+     */
+    public SCXMLBulkReader() {
+        this(ForkJoinPool.commonPool(), Configuration::new);
+    }
+
+    /**
+     * Constructs a new bulk reader.
+     *
+     * @param pool the pool reading the documents
+     * @param configurations the supplier of a new {@link Configuration} for each document, for instance to configure
+     *                       custom actions
+     */
+    public SCXMLBulkReader(final ForkJoinPool pool, final Supplier<Configuration> configurations) {
+        if (pool == null || configurations == null) {
+            throw new IllegalArgumentException("Pool and configurations must not be null");
+        }
+        this.pool = pool;
+        this.configurations = configurations;
+    }
+
+    /**
+     * Reads the documents of a directory and its subdirectories, with the {@link #DEFAULT_GLOB default} file name
+     * pattern.
+     *
+     * @param directory the directory
+     * @return the results, in the order of the paths of the documents
+     * @throws IOException if the directory cannot be listed
+     */
+    public List<Result> read(final Path directory) throws IOException {
+        return read(directory, DEFAULT_GLOB);
+    }
+
+    /**
+     * Reads the documents of a directory and its subdirectories.
+     *
+     * @param directory the directory
+     * @param glob the glob pattern of the file names of the documents, see
+     *             {@link java.nio.file.FileSystem#getPathMatcher(String)}
+     * @return the results, in the order of the paths of the documents
+     * @throws IOException if the directory cannot be listed
+     */
+    public List<Result> read(final Path directory, final String glob) throws IOException {
+        final PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        final List<URL> urls = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : paths.filter(p -> Files.isRegularFile(p) && matcher.matches(p.getFileName()))
+                    .sorted().collect(Collectors.toList())) {
+                urls.add(path.toUri().toURL());
+            }
+        }
+        return read(urls);
+    }
+
+    /**
+     * Reads documents.
+     *
+     * @param urls the URLs of the documents
+     * @return the results, in the order of the URLs
+     */
+    public List<Result> read(final List<URL> urls) {
+        final SrcCache srcCache = new SrcCache();
+        final List<ForkJoinTask<Result>> tasks = new ArrayList<>(urls.size());
+        for (final URL url : urls) {
+            tasks.add(pool.submit(() -> read(url, srcCache)));
+        }
+        final List<Result> results = new ArrayList<>(tasks.size());
+        for (final ForkJoinTask<Result> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    private Result read(final URL url, final SrcCache srcCache) {
+        try {
+            final Configuration configuration = configurations.get();
+            configuration.srcCache = srcCache;
+            return new Result(url, SCXMLReader.read(url, configuration), null);
+        } catch (final ModelException e) {
+            return new Result(url, null, e);
+        } catch (final Exception e) {
+            return new Result(url, null, new ModelException(e.getMessage(), e));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.io;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.scxml2.env.CompiledExpressionCache;
+import org.apache.commons.scxml2.model.ModelException;
+import org.apache.commons.scxml2.model.SCXML;
+
+/**
+ * A bounded, thread-safe cache of SCXML documents read by the {@link SCXMLReader} with its default configuration,
+ * keyed by their URL or by a digest of their content, so that documents which are executed over and over again, like
+ * invoked child documents, are only read once.
+ * <p>
+ * The cached {@link SCXML} instances are shared by all the executors using them, and therefore must not be modified.
+ * The object model is not modified by its execution (the documents loaded through the "src" of its &lt;data&gt;
+ * elements are only stored in the context of the executor), and the lazily initialized parts of a model read by the
+ * {@link SCXMLReader} are initialized while reading, so executors can share a model from multiple threads.
+ * </p>
+ * <p>
+ * When {@link #isCheckModified() checking for modifications}, the default, documents read from {@code file} URLs are
+ * read again once their file is modified. Other URLs are assumed not to change. Outdated documents are eventually
+ * evicted, as the least recently used ones when the cache grows beyond its maximum size.
+ * </p>
+ *
+ * @see org.apache.commons.scxml2.invoke.SimpleSCXMLInvoker
+ */
+public final class SCXMLModelCache {
+
+    /**
+     * The default maximum number of cached documents.
+     */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    /**
+     * The process-wide cache.
+     */
+    private static final SCXMLModelCache DEFAULT = new SCXMLModelCache();
+
+    /**
+     * @return the process-wide cache, with the {@link #DEFAULT_MAX_SIZE default maximum size}
+     */
+    public static SCXMLModelCache getDefault() {
+        return DEFAULT;
+    }
+
+    private final CompiledExpressionCache<SCXML> models;
+
+    private volatile boolean checkModified = true;
+
+    /**
+     * Constructs a new cache with the {@link #DEFAULT_MAX_SIZE default maximum size}.
+     */
+    public SCXMLModelCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxSize the maximum number of cached documents, 0 to disable caching
+     */
+    public SCXMLModelCache(final int maxSize) {
+        models = new CompiledExpressionCache<>(maxSize);
+    }
+
+    /**
+     * Removes all cached documents, without resetting the statistics.
+     */
+    public void clear() {
+        models.clear();
+    }
+
+    private static String digest(final String content) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            // SHA-256 is required of every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the number of lookups which found the document cached
+     */
+    public long getHitCount() {
+        return models.getHitCount();
+    }
+
+    /**
+     * @return the maximum number of cached documents
+     */
+    public int getMaxSize() {
+        return models.getMaxSize();
+    }
+
+    /**
+     * @return the number of lookups which required reading the document
+     */
+    public long getMissCount() {
+        return models.getMissCount();
+    }
+
+    /**
+     * @return true if documents read from {@code file} URLs are read again once their file is modified
+     */
+    public boolean isCheckModified() {
+        return checkModified;
+    }
+
+    private static long lastModified(final URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return 0L;
+        }
+        try {
+            return Files.getLastModifiedTime(Paths.get(url.toURI())).toMillis();
+        } catch (final IOException | URISyntaxException | IllegalArgumentException e) {
+            // left to the SCXMLReader to report
+            return 0L;
+        }
+    }
+
+    private SCXML read(final String key, final CompiledExpressionCache.Compiler<SCXML> reader)
+            throws IOException, ModelException, XMLStreamException {
+        try {
+            return models.get(key, reader);
+        } catch (final IOException | ModelException | XMLStreamException | RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Gets the SCXML document with the given content, reading and caching it if not yet cached.
+     *
+     * @param content the SCXML document
+     * @return the shared object model of the document, which must not be modified
+     * @throws IOException An IO error during parsing.
+     * @throws ModelException The SCXML document is not valid.
+     * @throws XMLStreamException An exception processing the underlying {@link javax.xml.stream.XMLStreamReader}.
+     */
+    public SCXML read(final String content) throws IOException, ModelException, XMLStreamException {
+        if (content == null) {
+            throw new IllegalArgumentException("Cannot read null content");
+        }
+        return read("content:" + digest(content), key -> SCXMLReader.read(new StringReader(content)));
+    }
+
+    /**
+     * Gets the SCXML document at the given URL, reading and caching it if not yet cached, or outdated.
+     *
+     * @param url the URL of the SCXML document
+     * @return the shared object model of the document, which must not be modified
+     * @throws IOException An IO error during parsing.
+     * @throws ModelException The SCXML document is not valid.
+     * @throws XMLStreamException An exception processing the underlying {@link javax.xml.stream.XMLStreamReader}.
+     */
+    public SCXML read(final URL url) throws IOException, ModelException, XMLStreamException {
+        if (url == null) {
+            throw new IllegalArgumentException("Cannot read null URL");
+        }
+        String key = "url:" + url.toExternalForm();
+        if (checkModified) {
+            key += '@' + Long.toString(lastModified(url));
+        }
+        return read(key, k -> SCXMLReader.read(url));
+    }
+
+    /**
+     * Documents read while checking and while not checking for modifications are cached separately.
+     *
+     * @param checkModified true to read documents from {@code file} URLs again once their file is modified
+     *                      (default = true)
+     */
+    public void setCheckModified(final boolean checkModified) {
+        this.checkModified = checkModified;
+    }
+
+    /**
+     * @return the number of cached documents
+     */
+    public int size() {
+        return models.size();
+    }
+}
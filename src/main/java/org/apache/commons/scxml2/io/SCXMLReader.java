@@ -16,6 +16,7 @@
  */
 package org.apache.commons.scxml2.io;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -31,7 +32,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.Location;
 import javax.xml.stream.XMLInputFactory;
@@ -51,6 +51,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.LogFactory;
 import org.apache.commons.scxml2.PathResolver;
 import org.apache.commons.scxml2.SCXMLConstants;
+import org.apache.commons.scxml2.env.LazyJson;
 import org.apache.commons.scxml2.env.SimpleErrorHandler;
 import org.apache.commons.scxml2.env.URLResolver;
 import org.apache.commons.scxml2.model.Action;
@@ -220,8 +221,18 @@ public final class SCXMLReader {
          */
         boolean strict;
 
+        /**
+         * Whether to parse the JSON &lt;content&gt; into lazily materialized values, see {@link LazyJson}.
+         */
+        boolean lazyJson;
+
         final ContentParser contentParser;
 
+        /**
+         * The optional cache of the documents included through "src" attributes, shared by a bulk read.
+         */
+        SCXMLBulkReader.SrcCache srcCache;
+
         /*
          * Public constructors
          */
@@ -243,6 +254,8 @@ public final class SCXMLReader {
                     source.reporter, source.encoding, source.systemId, source.validate, source.pathResolver,
                     source.parent, source.customActions, source.customActionClassLoader,
                     source.useContextClassLoaderForCustomActions, source.silent, source.strict);
+            this.srcCache = source.srcCache;
+            this.lazyJson = source.lazyJson;
         }
 
         /**
@@ -402,6 +415,16 @@ public final class SCXMLReader {
          * Package access convenience methods
          */
 
+        /**
+         * Returns true if it is set to parse the JSON &lt;content&gt; into lazily materialized values.
+         *
+         * @return true if it is set to parse the JSON &lt;content&gt; into lazily materialized values
+         * @see #lazyJson
+         */
+        public boolean isLazyJson() {
+            return lazyJson;
+        }
+
         /**
          * Returns true if it is set to read models silently without any model error warning logs.
          *
@@ -422,6 +445,17 @@ public final class SCXMLReader {
             return strict;
         }
 
+        /**
+         * Turn on/off lazy JSON mode (whether to parse the JSON &lt;content&gt; into lazily materialized values,
+         * only decoding the nested JSON objects and arrays when accessed)
+         *
+         * @param lazyJson lazy JSON mode (whether to parse the JSON &lt;content&gt; into lazily materialized values)
+         * @see #lazyJson
+         */
+        public void setLazyJson(final boolean lazyJson) {
+            this.lazyJson = lazyJson;
+        }
+
         /**
          * Turn on/off silent mode (whether to read models silently without any model error warning logs)
          *
@@ -450,6 +484,13 @@ public final class SCXMLReader {
      * This can be turned on (as needed by SCXMLReader) by setting this property TRUE
      */
     public final static String XMLInputFactory_JDK_PROP_REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    /**
+     * The {@link XMLInputFactory} for the default factory configuration, confined to the thread using it since
+     * factories are not guaranteed to be thread-safe.
+     */
+    private static final ThreadLocal<XMLInputFactory> DEFAULT_INPUT_FACTORY =
+            ThreadLocal.withInitial(() -> newInputFactory(new Configuration()));
     /**
      * The version attribute value the SCXML element <em>must</em> have as stated by the spec: 3.2.1
      */
@@ -569,6 +610,24 @@ public final class SCXMLReader {
         return (prefix != null && !prefix.isEmpty() ? prefix + ":" : "") + localName;
     }
 
+    /**
+     * Gets the {@link XMLInputFactory} for a {@link Configuration}. The factory of the default factory configuration
+     * is only created once per thread, as the instantiation of a factory involves a service lookup, see
+     * {@link #clearThreadCaches()}. The factories of other configurations are created for each document, as a
+     * configuration may be used by multiple threads.
+     *
+     * @param configuration The {@link Configuration} to be used.
+     * @return The configured {@link XMLInputFactory}.
+     */
+    private static XMLInputFactory getInputFactory(final Configuration configuration) {
+        if ((configuration.factoryId == null || configuration.factoryClassLoader == null)
+                && configuration.allocator == null && configuration.properties.isEmpty()
+                && configuration.reporter == null && configuration.resolver == null) {
+            return DEFAULT_INPUT_FACTORY.get();
+        }
+        return newInputFactory(configuration);
+    }
+
     /**
      * Use the supplied {@link Configuration} to create an appropriate {@link XMLStreamReader} for this
      * {@link SCXMLReader}. Exactly one of the url, path, stream, reader or source parameters must be provided.
@@ -588,22 +647,7 @@ public final class SCXMLReader {
                                              final InputStream stream, final Reader reader, final Source source)
             throws IOException, XMLStreamException {
 
-        // Instantiate the XMLInputFactory
-        XMLInputFactory factory = XMLInputFactory.newInstance();
-        if (configuration.factoryId != null && configuration.factoryClassLoader != null) {
-            factory = XMLInputFactory.newFactory(configuration.factoryId, configuration.factoryClassLoader);
-        }
-        factory.setEventAllocator(configuration.allocator);
-        if (factory.isPropertySupported(XMLInputFactory_JDK_PROP_REPORT_CDATA)) {
-            factory.setProperty(XMLInputFactory_JDK_PROP_REPORT_CDATA, Boolean.TRUE);
-        }
-        for (final Map.Entry<String, Object> property : configuration.properties.entrySet()) {
-            if (factory.isPropertySupported(property.getKey())) {
-                factory.setProperty(property.getKey(), property.getValue());
-            }
-        }
-        factory.setXMLReporter(configuration.reporter);
-        factory.setXMLResolver(configuration.resolver);
+        final XMLInputFactory factory = getInputFactory(configuration);
 
         // Consolidate InputStream options
         InputStream urlStream = null;
@@ -680,6 +724,31 @@ public final class SCXMLReader {
         return xsr;
     }
 
+    /**
+     * Creates and configures a new {@link XMLInputFactory}.
+     *
+     * @param configuration The {@link Configuration} to be used.
+     * @return The configured {@link XMLInputFactory}.
+     */
+    private static XMLInputFactory newInputFactory(final Configuration configuration) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        if (configuration.factoryId != null && configuration.factoryClassLoader != null) {
+            factory = XMLInputFactory.newFactory(configuration.factoryId, configuration.factoryClassLoader);
+        }
+        factory.setEventAllocator(configuration.allocator);
+        if (factory.isPropertySupported(XMLInputFactory_JDK_PROP_REPORT_CDATA)) {
+            factory.setProperty(XMLInputFactory_JDK_PROP_REPORT_CDATA, Boolean.TRUE);
+        }
+        for (final Map.Entry<String, Object> property : configuration.properties.entrySet()) {
+            if (factory.isPropertySupported(property.getKey())) {
+                factory.setProperty(property.getKey(), property.getValue());
+            }
+        }
+        factory.setXMLReporter(configuration.reporter);
+        factory.setXMLResolver(configuration.resolver);
+        return factory;
+    }
+
     /**
      * @param input input string to check if null or empty after trim
      * @return null if input is null or empty after trim()
@@ -688,6 +757,18 @@ public final class SCXMLReader {
         return input == null || input.trim().length()==0 ? null : input.trim();
     }
 
+    /**
+     * Removes the {@link XMLInputFactory}, DOM parser and XML transformer cached for the current thread by the
+     * SCXMLReader and the {@link ContentParser}, so that a pooled thread shared with other applications, like the
+     * request threads of a servlet container, doesn't keep the class loader of this library alive.
+     *
+     * @see ContentParser#clearThreadCaches()
+     */
+    public static void clearThreadCaches() {
+        DEFAULT_INPUT_FACTORY.remove();
+        ContentParser.clearThreadCaches();
+    }
+
     /**
      * Parse the SCXML document supplied by the given {@link InputStream}.
      *
@@ -1341,7 +1422,7 @@ public final class SCXMLReader {
         // Create a document in which to build the DOM node
         Document document;
         try {
-            document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            document = ContentParser.getDocumentBuilder().newDocument();
         } catch (final ParserConfigurationException pce) {
             throw new XMLStreamException(ERR_PARSER_CFG);
         }
@@ -2164,7 +2245,9 @@ public final class SCXMLReader {
                 final String text = ContentParser.trimContent(child.getNodeValue());
                 if (ContentParser.hasJsonSignature(text)) {
                     try {
-                        valueContainer.setParsedValue(new JsonValue(configuration.contentParser.parseJson(text), cdata));
+                        final Object json = configuration.lazyJson ? configuration.contentParser.parseJsonLazily(text)
+                                : configuration.contentParser.parseJson(text);
+                        valueContainer.setParsedValue(new JsonValue(json, cdata));
                     } catch (final IOException e) {
                         throw new ModelException(e);
                     }
@@ -2674,7 +2757,16 @@ public final class SCXMLReader {
         // Parse external document
         SCXML externalSCXML;
         try {
-            externalSCXML = SCXMLReader.readInternal(configuration, new URL(location), null, null, null, null);
+            final URL url = new URL(location);
+            if (configuration.srcCache != null) {
+                if (configuration.pathResolver == null) {
+                    configuration.pathResolver = new URLResolver(url);
+                }
+                externalSCXML = SCXMLReader.readInternal(configuration, null, null,
+                        new ByteArrayInputStream(configuration.srcCache.load(url)), null, null);
+            } else {
+                externalSCXML = SCXMLReader.readInternal(configuration, url, null, null, null, null);
+            }
         } catch (final Exception e) {
             final MessageFormat msgFormat = new MessageFormat(ERR_STATE_SRC);
             final String errMsg = msgFormat.format(new Object[] {src});
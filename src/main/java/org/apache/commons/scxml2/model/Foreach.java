@@ -18,8 +18,16 @@ package org.apache.commons.scxml2.model;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.IntFunction;
 
 import org.apache.commons.scxml2.ActionExecutionContext;
 import org.apache.commons.scxml2.Context;
@@ -38,6 +46,18 @@ public class Foreach extends Action implements ActionsContainer {
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The classes of the immutable JDK collections, see {@link #isSnapshotIterable(Iterable)}.
+     */
+    private static final Set<Class<?>> IMMUTABLE_COLLECTION_CLASSES = new HashSet<>(Arrays.asList(
+            Collections.emptyList().getClass(), Collections.emptySet().getClass(),
+            Collections.singletonList(null).getClass(), Collections.singleton(null).getClass()));
+
+    /**
+     * The class name prefix of the immutable collections of the JDK 9+ {@code List.of()} and {@code Set.of()} methods.
+     */
+    private static final String IMMUTABLE_COLLECTIONS_PREFIX = "java.util.ImmutableCollections$";
+
     private String array;
     private String item;
     private String index;
@@ -59,6 +79,63 @@ public class Foreach extends Action implements ActionsContainer {
         }
     }
 
+    /**
+     * @param array the array
+     * @return the accessor of the items of the array by their index, without reflection for Object and primitive arrays
+     */
+    private static IntFunction<Object> arrayItems(final Object array) {
+        if (array instanceof Object[]) {
+            final Object[] values = (Object[]) array;
+            return i -> values[i];
+        }
+        if (array instanceof int[]) {
+            final int[] values = (int[]) array;
+            return i -> values[i];
+        }
+        if (array instanceof long[]) {
+            final long[] values = (long[]) array;
+            return i -> values[i];
+        }
+        if (array instanceof double[]) {
+            final double[] values = (double[]) array;
+            return i -> values[i];
+        }
+        if (array instanceof boolean[]) {
+            final boolean[] values = (boolean[]) array;
+            return i -> values[i];
+        }
+        if (array instanceof char[]) {
+            final char[] values = (char[]) array;
+            return i -> values[i];
+        }
+        if (array instanceof byte[]) {
+            final byte[] values = (byte[]) array;
+            return i -> values[i];
+        }
+        if (array instanceof short[]) {
+            final short[] values = (short[]) array;
+            return i -> values[i];
+        }
+        if (array instanceof float[]) {
+            final float[] values = (float[]) array;
+            return i -> values[i];
+        }
+        return i -> Array.get(array, i);
+    }
+
+    /**
+     * Checks if iterating a collection is unaffected by modifications during the iteration, because the collection is
+     * immutable or its iterator iterates a snapshot, so that it doesn't need to be copied before the iteration.
+     *
+     * @param iterable the collection
+     * @return true if the iteration isn't affected by modifications of the collection
+     */
+    private static boolean isSnapshotIterable(final Iterable<?> iterable) {
+        return iterable instanceof CopyOnWriteArrayList || iterable instanceof CopyOnWriteArraySet
+                || IMMUTABLE_COLLECTION_CLASSES.contains(iterable.getClass())
+                || iterable.getClass().getName().startsWith(IMMUTABLE_COLLECTIONS_PREFIX);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -71,45 +148,75 @@ public class Foreach extends Action implements ActionsContainer {
             throw new ActionExecutionError("<foreach> in state " + getParentEnterableState().getId()+": invalid array value '"+array+"'");
         }
         if (arrayObject.getClass().isArray()) {
-            for (int currentIndex = 0, size = Array.getLength(arrayObject); currentIndex < size; currentIndex++) {
-                eval.evalAssign(ctx, item, Array.get(arrayObject, currentIndex));
-                if (index != null) {
-                    ctx.setLocal(index, currentIndex);
-                }
-                // The "foreach" statement is a "container"
-                for (final Action aa : actions) {
-                    aa.execute(exctx);
-                }
+            final int size = Array.getLength(arrayObject);
+            // the item location is compiled once for all the iterations, only if there are any
+            final Evaluator.Assigner assigner = size > 0 ? eval.compileAssign(item) : null;
+            final IntFunction<Object> items = arrayItems(arrayObject);
+            for (int currentIndex = 0; currentIndex < size; currentIndex++) {
+                executeItem(exctx, ctx, assigner, items.apply(currentIndex), currentIndex);
             }
         }
         else {
             // In case of Javascript based arrays, the (Nashorn) engine returns a ScriptObjectMirror
             // which (also) implements Map<String, Object), so then we can/must use the map values as Iterable
-            final Iterable iterable = arrayObject instanceof Iterable ? (Iterable)arrayObject : ((Map)arrayObject).values();
-
+            final Iterable<?> iterable = arrayObject instanceof Iterable ? (Iterable<?>)arrayObject : ((Map<?, ?>)arrayObject).values();
+
+            if (isSnapshotIterable(iterable)) {
+                Evaluator.Assigner assigner = null;
+                int currentIndex = 0;
+                for (final Object value : iterable) {
+                    if (assigner == null) {
+                        assigner = eval.compileAssign(item);
+                    }
+                    executeItem(exctx, ctx, assigner, value, currentIndex++);
+                }
+                return;
+            }
             // Spec requires to iterate over a shallow copy of underlying array in a way that modifications to
             // the collection during the execution of <foreach> must not affect the iteration behavior.
-            // For array objects (see above) this isn't needed, but for Iterables we don't have that guarantee
-            // so we make a copy first
-            final ArrayList<Object> arrayList = new ArrayList<>();
-            for (final Object value: iterable) {
-                arrayList.add(value);
+            // For array objects (see above) and immutable collections this isn't needed, but for other Iterables we
+            // don't have that guarantee so we make a copy first
+            final Object[] values;
+            if (iterable instanceof Collection) {
+                values = ((Collection<?>) iterable).toArray();
             }
-            int currentIndex = 0;
-            for (final Object value : arrayList) {
-                eval.evalAssign(ctx, item, value);
-                if (index != null) {
-                    ctx.setLocal(index, currentIndex);
-                }
-                // The "foreach" statement is a "container"
-                for (final Action aa : actions) {
-                    aa.execute(exctx);
+            else {
+                final ArrayList<Object> arrayList = new ArrayList<>();
+                for (final Object value: iterable) {
+                    arrayList.add(value);
                 }
-                currentIndex++;
+                values = arrayList.toArray();
+            }
+            final Evaluator.Assigner assigner = values.length > 0 ? eval.compileAssign(item) : null;
+            for (int currentIndex = 0; currentIndex < values.length; currentIndex++) {
+                executeItem(exctx, ctx, assigner, values[currentIndex], currentIndex);
             }
         }
     }
 
+    /**
+     * Executes the actions for an item of the collection.
+     *
+     * @param exctx The ActionExecutionContext for this execution instance
+     * @param ctx The context of the parent state
+     * @param assigner The assigner of the item location
+     * @param value The item
+     * @param currentIndex The index of the item
+     * @throws ModelException If the execution causes the model to enter a non-deterministic state.
+     * @throws SCXMLExpressionException If the execution involves trying to evaluate an expression which is malformed.
+     */
+    private void executeItem(final ActionExecutionContext exctx, final Context ctx, final Evaluator.Assigner assigner,
+                             final Object value, final int currentIndex) throws ModelException, SCXMLExpressionException {
+        assigner.assign(ctx, value);
+        if (index != null) {
+            ctx.setLocal(index, currentIndex);
+        }
+        // The "foreach" statement is a "container"
+        for (int i = 0; i < actions.size(); i++) {
+            actions.get(i).execute(exctx);
+        }
+    }
+
     @Override
     public final List<Action> getActions() {
         return actions;
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.model;
+
+import java.util.List;
+
+/**
+ * Utility for visiting all the expressions, conditions, locations and scripts within a SCXML document which are
+ * evaluated by its {@link org.apache.commons.scxml2.Evaluator}, for example to compile them before the document is
+ * executed.
+ */
+public final class ModelExpressions {
+
+    /**
+     * The kind of an expression, determining how it is evaluated.
+     */
+    public enum Kind {
+
+        /** A boolean condition, evaluated through {@link org.apache.commons.scxml2.Evaluator#evalCond}. */
+        CONDITION,
+
+        /** A value expression, evaluated through {@link org.apache.commons.scxml2.Evaluator#eval}. */
+        EXPRESSION,
+
+        /** A location expression, assigned through {@link org.apache.commons.scxml2.Evaluator#evalAssign}. */
+        LOCATION,
+
+        /** A script, evaluated through {@link org.apache.commons.scxml2.Evaluator#evalScript}. */
+        SCRIPT
+    }
+
+    /**
+     * Callback receiving the visited expressions.
+     */
+    public interface Visitor {
+
+        /**
+         * Visits an expression.
+         *
+         * @param kind the kind of the expression
+         * @param source the source text of the expression, never null
+         * @param element the model element defining the expression
+         */
+        void visit(Kind kind, String source, Object element);
+    }
+
+    /**
+     * Visits all the expressions within a SCXML document, in document order.
+     *
+     * @param scxml the SCXML document
+     * @param visitor the visitor to call for each expression
+     */
+    public static void visit(final SCXML scxml, final Visitor visitor) {
+        if (scxml.getGlobalScript() != null) {
+            visitAction(scxml.getGlobalScript(), visitor);
+        }
+        visitDatamodel(scxml.getDatamodel(), visitor);
+        for (final EnterableState es : scxml.getChildren()) {
+            visitEnterableState(es, visitor);
+        }
+    }
+
+    private static void visit(final Kind kind, final String source, final Object element, final Visitor visitor) {
+        if (source != null) {
+            visitor.visit(kind, source, element);
+        }
+    }
+
+    private static void visitAction(final Action action, final Visitor visitor) {
+        if (action instanceof Assign) {
+            final Assign assign = (Assign) action;
+            visit(Kind.LOCATION, assign.getLocation(), assign, visitor);
+            visit(Kind.EXPRESSION, assign.getExpr(), assign, visitor);
+        } else if (action instanceof Cancel) {
+            visit(Kind.EXPRESSION, ((Cancel) action).getSendidexpr(), action, visitor);
+        } else if (action instanceof ElseIf) {
+            visit(Kind.CONDITION, ((ElseIf) action).getCond(), action, visitor);
+        } else if (action instanceof Foreach) {
+            final Foreach foreach = (Foreach) action;
+            visit(Kind.EXPRESSION, foreach.getArray(), foreach, visitor);
+            visitActions(foreach.getActions(), visitor);
+        } else if (action instanceof If) {
+            final If iff = (If) action;
+            visit(Kind.CONDITION, iff.getCond(), iff, visitor);
+            visitActions(iff.getActions(), visitor);
+        } else if (action instanceof Log) {
+            visit(Kind.EXPRESSION, ((Log) action).getExpr(), action, visitor);
+        } else if (action instanceof Script) {
+            visit(Kind.SCRIPT, ((Script) action).getScript(), action, visitor);
+        } else if (action instanceof Send) {
+            final Send send = (Send) action;
+            visit(Kind.EXPRESSION, send.getHints(), send, visitor);
+            visit(Kind.LOCATION, send.getIdlocation(), send, visitor);
+            visit(Kind.EXPRESSION, send.getTargetexpr(), send, visitor);
+            visit(Kind.EXPRESSION, send.getTypeexpr(), send, visitor);
+            visit(Kind.EXPRESSION, send.getDelayexpr(), send, visitor);
+            visit(Kind.EXPRESSION, send.getEventexpr(), send, visitor);
+            visitParams(send.getParams(), visitor);
+            visitContent(send.getContent(), visitor);
+        } else if (action instanceof Var) {
+            visit(Kind.EXPRESSION, ((Var) action).getExpr(), action, visitor);
+        }
+    }
+
+    private static void visitActions(final List<Action> actions, final Visitor visitor) {
+        for (final Action action : actions) {
+            visitAction(action, visitor);
+        }
+    }
+
+    private static void visitContent(final Content content, final Visitor visitor) {
+        if (content != null) {
+            visit(Kind.EXPRESSION, content.getExpr(), content, visitor);
+        }
+    }
+
+    private static void visitDatamodel(final Datamodel datamodel, final Visitor visitor) {
+        if (datamodel != null) {
+            for (final Data data : datamodel.getData()) {
+                visit(Kind.EXPRESSION, data.getExpr(), data, visitor);
+            }
+        }
+    }
+
+    private static void visitEnterableState(final EnterableState state, final Visitor visitor) {
+        if (state instanceof TransitionalState) {
+            visitDatamodel(((TransitionalState) state).getDatamodel(), visitor);
+        }
+        for (final OnEntry onEntry : state.getOnEntries()) {
+            visitActions(onEntry.getActions(), visitor);
+        }
+        if (state instanceof State && ((State) state).getInitial() != null) {
+            visitTransition(((State) state).getInitial().getTransition(), visitor);
+        }
+        if (state instanceof TransitionalState) {
+            final TransitionalState ts = (TransitionalState) state;
+            for (final History history : ts.getHistory()) {
+                visitTransition(history.getTransition(), visitor);
+            }
+            for (final Transition transition : ts.getTransitionsList()) {
+                visit(Kind.CONDITION, transition.getCond(), transition, visitor);
+                visitTransition(transition, visitor);
+            }
+            for (final Invoke invoke : ts.getInvokes()) {
+                visitInvoke(invoke, visitor);
+            }
+            for (final EnterableState child : ts.getChildren()) {
+                visitEnterableState(child, visitor);
+            }
+        } else if (state instanceof Final && ((Final) state).getDoneData() != null) {
+            final DoneData doneData = ((Final) state).getDoneData();
+            visitParams(doneData.getParams(), visitor);
+            visitContent(doneData.getContent(), visitor);
+        }
+        for (final OnExit onExit : state.getOnExits()) {
+            visitActions(onExit.getActions(), visitor);
+        }
+    }
+
+    private static void visitInvoke(final Invoke invoke, final Visitor visitor) {
+        visit(Kind.EXPRESSION, invoke.getTypeexpr(), invoke, visitor);
+        visit(Kind.EXPRESSION, invoke.getSrcexpr(), invoke, visitor);
+        visit(Kind.LOCATION, invoke.getIdlocation(), invoke, visitor);
+        visitParams(invoke.getParams(), visitor);
+        visitContent(invoke.getContent(), visitor);
+        if (invoke.getFinalize() != null) {
+            visitActions(invoke.getFinalize().getActions(), visitor);
+        }
+    }
+
+    private static void visitParams(final List<Param> params, final Visitor visitor) {
+        for (final Param param : params) {
+            visit(Kind.EXPRESSION, param.getExpr(), param, visitor);
+            visit(Kind.EXPRESSION, param.getLocation(), param, visitor);
+        }
+    }
+
+    private static void visitTransition(final SimpleTransition transition, final Visitor visitor) {
+        if (transition != null) {
+            visitActions(transition.getActions(), visitor);
+        }
+    }
+
+    /**
+     * Discourage instantiation since this is a utility class.
+     */
+    private ModelExpressions() {
+    }
+}
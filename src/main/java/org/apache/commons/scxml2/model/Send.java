@@ -29,6 +29,7 @@ import org.apache.commons.scxml2.SCXMLExpressionException;
 import org.apache.commons.scxml2.SCXMLIOProcessor;
 import org.apache.commons.scxml2.SCXMLSystemContext;
 import org.apache.commons.scxml2.TriggerEvent;
+import org.apache.commons.scxml2.env.LazyJson;
 import org.apache.commons.scxml2.semantics.ErrorConstants;
 
 /**
@@ -258,6 +259,11 @@ public class Send extends Action implements ContentContainer, ParamsContainer {
                 payload = eval.cloneData(evalResult);
             } else if (content.getParsedValue() != null) {
                 payload = content.getParsedValue().getValue();
+                // a lazy JSON payload is sent as a new lazy value over the same JSON text, not decoded yet
+                final Object lazyCopy = LazyJson.copy(payload);
+                if (lazyCopy != null) {
+                    payload = lazyCopy;
+                }
             }
         }
         long wait = 0L;
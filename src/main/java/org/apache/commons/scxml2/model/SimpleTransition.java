@@ -16,7 +16,10 @@
  */
 package org.apache.commons.scxml2.model;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -70,6 +73,13 @@ public class SimpleTransition extends Executable implements Observable {
      */
     private final Set<TransitionTarget> targets;
 
+    /**
+     * The cached transition targets list.
+     *
+     * @see #getTargetList()
+     */
+    private transient volatile List<TransitionTarget> targetList;
+
     /**
      * The transition target ID
      */
@@ -111,6 +121,25 @@ public class SimpleTransition extends Executable implements Observable {
         return (TransitionalState)super.getParent();
     }
 
+    /**
+     * Gets the transition targets as an unmodifiable list, in the iteration order of {@link #getTargets()}.
+     * <p>
+     * Unlike the set of transition targets, this list can be iterated by index without allocating an iterator.
+     * Like the {@link #getTransitionDomain() transition domain}, the list is derived only once and then cached, and
+     * therefore only should be used after the transition targets have been fully defined.
+     * </p>
+     *
+     * @return the (cached) list of transition targets
+     */
+    public final List<TransitionTarget> getTargetList() {
+        List<TransitionTarget> list = targetList;
+        if (list == null) {
+            list = targets.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(targets));
+            targetList = list;
+        }
+        return list;
+    }
+
     /**
      * Gets the set of transition targets (may be an empty list).
      *
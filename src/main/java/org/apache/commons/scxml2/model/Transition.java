@@ -158,6 +158,9 @@ public class Transition extends SimpleTransition implements DocumentOrder {
         }
         noEvents = events.isEmpty();
         allEvents = !noEvents && events.get(0).equals("*");
+        if (getParent() != null) {
+            getParent().resetTransitionIndex();
+        }
     }
 
     /**
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of the outgoing transitions of a {@link TransitionalState}, keyed by their event descriptors.
+ * <p>
+ * The event descriptors are stored in a trie of their dot separated tokens, so that the candidate transitions for an
+ * event name are found by walking the tokens of that event name only once, instead of matching every descriptor of
+ * every transition against it. Transitions matching all events (*) and event-less transitions are kept in their own
+ * buckets.
+ * </p>
+ * <p>
+ * The candidate transitions are always returned in the document order of the indexed transitions.
+ * </p>
+ * <p>
+ * Note: the index only pre-selects transitions by their events, their (optional) guard condition still needs to be
+ * evaluated.
+ * </p>
+ *
+ * @see TransitionalState#getTransitionIndex()
+ */
+public final class TransitionIndex {
+
+    /**
+     * A node in the event descriptor token trie
+     */
+    private static final class Node {
+
+        /**
+         * The child nodes keyed by their event descriptor token, null if none
+         */
+        private Map<String, Node> children;
+
+        /**
+         * The positions of the transitions having an event descriptor ending at this node
+         */
+        private final BitSet positions = new BitSet();
+
+        /**
+         * The transitions having an event descriptor ending at this node, in document order
+         */
+        private List<Transition> transitions = Collections.emptyList();
+
+        private Node getOrCreateChild(final String token) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(token, k -> new Node());
+        }
+
+        private Node getChild(final String token) {
+            return children != null ? children.get(token) : null;
+        }
+    }
+
+    /**
+     * The indexed transitions, by document order
+     */
+    private final Transition[] transitions;
+
+    /**
+     * The root node of the event descriptor token trie
+     */
+    private final Node root = new Node();
+
+    /**
+     * The event-less transitions
+     */
+    private final List<Transition> noEventsTransitions;
+
+    /**
+     * The transitions matching all events (*)
+     */
+    private final Node allEventsNode = new Node();
+
+    /**
+     * Creates the index for a list of transitions.
+     *
+     * @param transitions the transitions to index, by document order
+     */
+    public TransitionIndex(final List<Transition> transitions) {
+        this.transitions = transitions.toArray(new Transition[0]);
+        final List<Transition> noEvents = new ArrayList<>();
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < this.transitions.length; i++) {
+            final Transition t = this.transitions[i];
+            if (t.isNoEventsTransition()) {
+                noEvents.add(t);
+            }
+            else if (t.isAllEventsTransition()) {
+                allEventsNode.positions.set(i);
+            }
+            else {
+                for (final String descriptor : t.getEvents()) {
+                    Node node = root;
+                    int start = 0;
+                    int end;
+                    do {
+                        end = descriptor.indexOf('.', start);
+                        node = node.getOrCreateChild(end < 0 ? descriptor.substring(start) : descriptor.substring(start, end));
+                        start = end + 1;
+                    } while (end > -1);
+                    if (node.positions.isEmpty()) {
+                        nodes.add(node);
+                    }
+                    node.positions.set(i);
+                }
+            }
+        }
+        noEventsTransitions = Collections.unmodifiableList(noEvents);
+        allEventsNode.transitions = toList(allEventsNode.positions);
+        for (final Node node : nodes) {
+            node.transitions = toList(node.positions);
+        }
+    }
+
+    /**
+     * @return the event-less transitions in document order
+     */
+    public List<Transition> getNoEventsTransitions() {
+        return noEventsTransitions;
+    }
+
+    /**
+     * Gets the candidate transitions for an event name.
+     * <p>
+     * A transition is a candidate if one of its event descriptors matches the event name, or a prefix of dot separated
+     * tokens of the event name, or if it matches all events (*).
+     * </p>
+     *
+     * @param eventName the event name, or null to get the event-less transitions
+     * @return the candidate transitions in document order (never null and not modifiable)
+     */
+    public List<Transition> getTransitions(final String eventName) {
+        if (eventName == null) {
+            return noEventsTransitions;
+        }
+        Node single = allEventsNode.transitions.isEmpty() ? null : allEventsNode;
+        BitSet merged = null;
+        Node node = root;
+        int start = 0;
+        int end;
+        do {
+            end = eventName.indexOf('.', start);
+            node = node.getChild(end < 0 ? eventName.substring(start) : eventName.substring(start, end));
+            if (node == null) {
+                break;
+            }
+            if (!node.transitions.isEmpty()) {
+                if (single == null) {
+                    single = node;
+                }
+                else {
+                    if (merged == null) {
+                        merged = (BitSet)single.positions.clone();
+                    }
+                    merged.or(node.positions);
+                }
+            }
+            start = end + 1;
+        } while (end > -1 && node.children != null);
+
+        if (merged != null) {
+            return toList(merged);
+        }
+        return single != null ? single.transitions : Collections.emptyList();
+    }
+
+    private List<Transition> toList(final BitSet positions) {
+        final ArrayList<Transition> list = new ArrayList<>(positions.cardinality());
+        for (int i = positions.nextSetBit(0); i > -1; i = positions.nextSetBit(i+1)) {
+            list.add(transitions[i]);
+        }
+        return Collections.unmodifiableList(list);
+    }
+}
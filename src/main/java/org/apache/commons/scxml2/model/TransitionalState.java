@@ -16,19 +16,68 @@
  */
 package org.apache.commons.scxml2.model;
 
+import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * An abstract base class for state elements in SCXML that can be transitioned out from, such as State or Parallel.
  */
 public abstract class TransitionalState extends EnterableState {
 
+    /**
+     * The view of the outgoing transitions returned by {@link #getTransitionsList()}, which discards the transition
+     * index when modified.
+     */
+    private final class TransitionsList extends AbstractList<Transition> implements RandomAccess, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void add(final int index, final Transition transition) {
+            transitions.add(index, transition);
+            modCount++;
+            resetTransitionIndex();
+        }
+
+        @Override
+        public Transition get(final int index) {
+            return transitions.get(index);
+        }
+
+        @Override
+        public Transition remove(final int index) {
+            final Transition transition = transitions.remove(index);
+            modCount++;
+            resetTransitionIndex();
+            return transition;
+        }
+
+        @Override
+        public Transition set(final int index, final Transition transition) {
+            final Transition previous = transitions.set(index, transition);
+            resetTransitionIndex();
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return transitions.size();
+        }
+    }
+
     /**
      * A list of outgoing Transitions from this state, by document order.
      */
     private final List<Transition> transitions;
 
+    /**
+     * The view of the outgoing transitions, see {@link TransitionsList}.
+     */
+    private final List<Transition> transitionsList;
+
     /**
      * Optional property holding the data model for this state.
      */
@@ -54,8 +103,19 @@ public abstract class TransitionalState extends EnterableState {
      */
     private final List<EnterableState> children;
 
+    /**
+     * The highest document order of the descendants of this state.
+     */
+    private int lastDescendantOrder;
+
+    /**
+     * The lazily created index of the outgoing transitions by their events.
+     */
+    private transient volatile TransitionIndex transitionIndex;
+
     public TransitionalState() {
         transitions = new ArrayList<>();
+        transitionsList = new TransitionsList();
         history = new ArrayList<>();
         children = new ArrayList<>();
         invokes = new ArrayList<>();
@@ -102,6 +162,7 @@ public abstract class TransitionalState extends EnterableState {
     public final void addTransition(final Transition transition) {
         transitions.add(transition);
         transition.setParent(this);
+        resetTransitionIndex();
     }
 
     /**
@@ -134,6 +195,20 @@ public abstract class TransitionalState extends EnterableState {
         return datamodel;
     }
 
+    /**
+     * Gets the highest document order of the descendants of this state.
+     * <p>
+     * The descendants of this state (and its transitions) have a contiguous document order range, from the document
+     * order of this state (exclusive) up to this value (inclusive).
+     * </p>
+     *
+     * @return the highest document order of the descendants, or 0 if the document order hasn't been initialized
+     * @see DocumentOrder
+     */
+    public final int getLastDescendantOrder() {
+        return lastDescendantOrder;
+    }
+
     /**
      * Gets the list of history pseudo states for this state.
      *
@@ -167,11 +242,31 @@ public abstract class TransitionalState extends EnterableState {
 
     /**
      * Gets the outgoing transitions for this state as a java.util.List.
+     * <p>
+     * Modifying the returned list discards the transition index, like {@link #addTransition(Transition)}.
+     * </p>
      *
      * @return List Returns the transitions list.
      */
     public final List<Transition> getTransitionsList() {
-        return transitions;
+        return transitionsList;
+    }
+
+    /**
+     * Gets the index of the outgoing transitions for this state by their events.
+     * <p>
+     * The index is created on first access (or eagerly after reading the SCXML document), and recreated after a
+     * transition is added or an event of a transition is changed.
+     * </p>
+     *
+     * @return the transition index
+     */
+    public final TransitionIndex getTransitionIndex() {
+        TransitionIndex index = transitionIndex;
+        if (index == null) {
+            transitionIndex = index = new TransitionIndex(transitions);
+        }
+        return index;
     }
 
     /**
@@ -207,6 +302,13 @@ public abstract class TransitionalState extends EnterableState {
         return !history.isEmpty();
     }
 
+    /**
+     * Discards the current transition index, if any, to be recreated on next access.
+     */
+    final void resetTransitionIndex() {
+        transitionIndex = null;
+    }
+
     /**
      * Sets the data model for this transition target.
      *
@@ -216,6 +318,16 @@ public abstract class TransitionalState extends EnterableState {
         this.datamodel = datamodel;
     }
 
+    /**
+     * Sets the highest document order of the descendants of this state.
+     *
+     * @param lastDescendantOrder the highest document order of the descendants
+     * @see #getLastDescendantOrder()
+     */
+    public final void setLastDescendantOrder(final int lastDescendantOrder) {
+        this.lastDescendantOrder = lastDescendantOrder;
+    }
+
     /**
      * Sets the TransitionalState parent
      *
@@ -16,17 +16,19 @@
  */
 package org.apache.commons.scxml2.semantics;
 
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.scxml2.ActionExecutionContext;
 import org.apache.commons.scxml2.Context;
+import org.apache.commons.scxml2.EnterableStateSet;
 import org.apache.commons.scxml2.ErrorReporter;
+import org.apache.commons.scxml2.Evaluator;
 import org.apache.commons.scxml2.EventBuilder;
 import org.apache.commons.scxml2.ParentSCXMLIOProcessor;
 import org.apache.commons.scxml2.SCInstance;
@@ -70,6 +72,42 @@ import org.apache.commons.scxml2.system.EventVariable;
  */
 public class SCXMLSemanticsImpl implements SCXMLSemantics {
 
+    /**
+     * Handles the guard conditions of the {@link Step#getGuardedTransitions()} treated as false, kept with the step so
+     * that it is created only once for all its transition selections.
+     */
+    private static final class GuardCondHandler implements Evaluator.CondHandler {
+
+        private final SCXMLExecutionContext exctx;
+        private final Step step;
+
+        GuardCondHandler(final SCXMLExecutionContext exctx, final Step step) {
+            this.exctx = exctx;
+            this.step = step;
+        }
+
+        @Override
+        public void onError(final SCXMLExpressionException e, final int index) {
+            exctx.getInternalIOProcessor().addEvent(new EventBuilder(TriggerEvent.ERROR_EXECUTION, TriggerEvent.ERROR_EVENT).build());
+            exctx.getErrorReporter().onError(ErrorConstants.EXPRESSION_ERROR, "Treating as false due to error: "
+                    + e.getMessage(), step.getGuardedTransitions().get(index));
+        }
+
+        @Override
+        public void onNull(final int index) {
+            if (exctx.getAppLog().isDebugEnabled()) {
+                exctx.getAppLog().debug("Treating as false because the cond expression was evaluated as null: '"
+                        + step.getGuardedTransitions().get(index).getCond() + "'");
+            }
+        }
+    }
+
+    /**
+     * Whether {@link #matchTransition(SCXMLExecutionContext, Transition, String)} is overridden by a subclass, in which
+     * case it is used to select the transitions instead of the batched evaluation of their guards.
+     */
+    private final boolean matchTransitionOverridden = isMatchTransitionOverridden(getClass());
+
     /**
      * This method corresponds to the Algorithm for SCXML processing addAncestorStatesToEnter() procedure.
      *
@@ -142,11 +180,12 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
             }
             else if (es instanceof State && ((State) es).isComposite()) {
                 step.getDefaultEntrySet().add(es);
-                for (final TransitionTarget dtt : ((State)es).getInitial().getTransition().getTargets()) {
-                    addDescendantStatesToEnter(exctx, step, dtt);
+                final List<TransitionTarget> targets = ((State)es).getInitial().getTransition().getTargetList();
+                for (int i = 0; i < targets.size(); i++) {
+                    addDescendantStatesToEnter(exctx, step, targets.get(i));
                 }
-                for (final TransitionTarget dtt : ((State)es).getInitial().getTransition().getTargets()) {
-                    addAncestorStatesToEnter(exctx, step, dtt, tt);
+                for (int i = 0; i < targets.size(); i++) {
+                    addAncestorStatesToEnter(exctx, step, targets.get(i), tt);
                 }
             }
         }
@@ -169,17 +208,21 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
         // compute entrySet
         computeEntrySet(exctx, step);
 
-        // default result states to entrySet
-        Set<EnterableState> states = step.getEntrySet();
-        if (!step.getExitSet().isEmpty()) {
-            // calculate result states by taking current states, subtracting exitSet and adding entrySet
-            states = new HashSet<>(exctx.getScInstance().getStateConfiguration().getStates());
-            states.removeAll(step.getExitSet());
-            states.addAll(step.getEntrySet());
-        }
-        // validate the result states represent a legal configuration
-        if (exctx.isCheckLegalConfiguration() && !isLegalConfiguration(states, exctx.getErrorReporter())) {
-            throw new ModelException("Illegal state machine configuration.");
+        if (exctx.isCheckLegalConfiguration()) {
+            // default result states to entrySet
+            Set<EnterableState> states = step.getEntrySet();
+            if (!step.getExitSet().isEmpty()) {
+                // calculate result states by taking current states, subtracting exitSet and adding entrySet
+                states = step.getResultStates();
+                states.clear();
+                states.addAll(exctx.getScInstance().getStateConfiguration().getStates());
+                states.removeAll(step.getExitSet());
+                states.addAll(step.getEntrySet());
+            }
+            // validate the result states represent a legal configuration
+            if (!isLegalConfiguration(states, exctx.getErrorReporter())) {
+                throw new ModelException("Illegal state machine configuration.");
+            }
         }
     }
 
@@ -193,10 +236,15 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      * @param step The step containing the list of transitions to be taken
      */
     public void computeEntrySet(final SCXMLExecutionContext exctx, final Step step) {
-        final Set<History> historyTargets = new HashSet<>();
-        final Set<EnterableState> entrySet = new HashSet<>();
-        for (final SimpleTransition st : step.getTransitList()) {
-            for (final TransitionTarget tt : st.getTargets()) {
+        final Set<History> historyTargets = step.getHistoryTargets();
+        final EnterableStateSet entrySet = step.getTargetStates();
+        historyTargets.clear();
+        entrySet.clear();
+        final List<SimpleTransition> transitList = step.getTransitList();
+        for (int t = 0; t < transitList.size(); t++) {
+            final List<TransitionTarget> targets = transitList.get(t).getTargetList();
+            for (int i = 0; i < targets.size(); i++) {
+                final TransitionTarget tt = targets.get(i);
                 if (tt instanceof EnterableState) {
                     entrySet.add((EnterableState) tt);
                 }
@@ -206,16 +254,20 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
                 }
             }
         }
-        for (final EnterableState es : entrySet) {
-            addDescendantStatesToEnter(exctx, step, es);
+        for (int i = entrySet.firstIndex(); i > -1; i = entrySet.nextIndex(i)) {
+            addDescendantStatesToEnter(exctx, step, entrySet.get(i));
         }
-        for (final History h : historyTargets) {
-            addDescendantStatesToEnter(exctx, step, h);
+        if (!historyTargets.isEmpty()) {
+            for (final History h : historyTargets) {
+                addDescendantStatesToEnter(exctx, step, h);
+            }
         }
-        for (final SimpleTransition st : step.getTransitList()) {
+        for (int t = 0; t < transitList.size(); t++) {
+            final SimpleTransition st = transitList.get(t);
             final TransitionalState ancestor = st.getTransitionDomain();
-            for (final TransitionTarget tt : st.getTargets()) {
-                addAncestorStatesToEnter(exctx, step, tt, ancestor);
+            final List<TransitionTarget> targets = st.getTargetList();
+            for (int i = 0; i < targets.size(); i++) {
+                addAncestorStatesToEnter(exctx, step, targets.get(i), ancestor);
             }
         }
     }
@@ -225,6 +277,11 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      * <p>
      * This method corresponds to the Algorithm for SCXML processing computeExitSet() procedure.
      * </p>
+     * <p>
+     * The states to exit are the active descendants of the (cached) transition domain. If the document order of the
+     * model has been initialized, these are selected through a single scan over the document order range of the
+     * descendants of the transition domain in the active states.
+     * </p>
      *
      * @param transition The transition to compute the states to exit from
      * @param exitSet The set for adding the states to exit to
@@ -237,6 +294,11 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
                 // root transition: every active state will be exited
                 exitSet.addAll(activeStates);
             }
+            else if (activeStates instanceof EnterableStateSet && ((EnterableStateSet)activeStates).isDocumentOrdered()
+                    && transitionDomain.getLastDescendantOrder() > transitionDomain.getOrder()) {
+                ((EnterableStateSet)activeStates).addRangeTo(transitionDomain.getOrder()+1,
+                        transitionDomain.getLastDescendantOrder(), exitSet);
+            }
             else {
                 for (final EnterableState state : activeStates) {
                     if (state.isDescendantOf(transitionDomain)) {
@@ -258,8 +320,9 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      */
     public void computeExitSet(final Step step, final StateConfiguration stateConfiguration) {
         if (!stateConfiguration.getActiveStates().isEmpty()) {
-            for (final SimpleTransition st : step.getTransitList()) {
-                computeExitSet(st, step.getExitSet(), stateConfiguration.getActiveStates());
+            final List<SimpleTransition> transitList = step.getTransitList();
+            for (int i = 0; i < transitList.size(); i++) {
+                computeExitSet(transitList.get(i), step.getExitSet(), stateConfiguration.getActiveStates());
             }
             recordHistory(step, stateConfiguration.getStates(), stateConfiguration.getActiveStates());
         }
@@ -295,9 +358,10 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
         if (step.getEntrySet().isEmpty()) {
             return;
         }
-        final ArrayList<EnterableState> entryList = new ArrayList<>(step.getEntrySet());
-        entryList.sort(DocumentOrder.documentOrderComparator);
-        for (final EnterableState es : entryList) {
+        // the entrySet iterates in document order
+        final EnterableStateSet entrySet = step.getEntryStateSet();
+        for (int i = entrySet.firstIndex(); i > -1; i = entrySet.nextIndex(i)) {
+            final EnterableState es = entrySet.get(i);
             exctx.getScInstance().getStateConfiguration().enterState(es);
             // ensure state context creation and datamodel cloned
             exctx.getScInstance().getContext(es);
@@ -306,7 +370,8 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
             }
 
             boolean onentryEventRaised = false;
-            for (final OnEntry onentry : es.getOnEntries()) {
+            for (int j = 0; j < es.getOnEntries().size(); j++) {
+                final OnEntry onentry = es.getOnEntries().get(j);
                 executeContent(exctx, onentry);
                 if (!onentryEventRaised && onentry.isRaiseEvent()) {
                     onentryEventRaised = true;
@@ -352,8 +417,9 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      */
     public void executeContent(final SCXMLExecutionContext exctx, final Executable exec) throws ModelException {
         try {
-            for (final Action action : exec.getActions()) {
-                action.execute(exctx.getActionExecutionContext());
+            final List<Action> actions = exec.getActions();
+            for (int i = 0; i < actions.size(); i++) {
+                actions.get(i).execute(exctx.getActionExecutionContext());
             }
         } catch (final SCXMLExpressionException e) {
             exctx.getInternalIOProcessor().addEvent(new EventBuilder(TriggerEvent.ERROR_EXECUTION, TriggerEvent.ERROR_EVENT).build());
@@ -372,8 +438,9 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
                 notifyOnTransition(exctx, t, t.getParent());
             }
             else {
-                for (final TransitionTarget tt : t.getTargets()) {
-                    notifyOnTransition(exctx, t, tt);
+                final List<TransitionTarget> targets = t.getTargetList();
+                for (int i = 0; i < targets.size(); i++) {
+                    notifyOnTransition(exctx, t, targets.get(i));
                 }
             }
         }
@@ -405,8 +472,9 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      * @throws ModelException if a SCXML model error occurred during the execution.
      */
     public void executeTransitionContent(final SCXMLExecutionContext exctx, final Step step) throws ModelException {
-        for (final SimpleTransition transition : step.getTransitList()) {
-            executeContent(exctx, transition);
+        final List<SimpleTransition> transitList = step.getTransitList();
+        for (int i = 0; i < transitList.size(); i++) {
+            executeContent(exctx, transitList.get(i));
         }
     }
 
@@ -426,10 +494,10 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
         if (step.getExitSet().isEmpty()) {
             return;
         }
-        final ArrayList<EnterableState> exitList = new ArrayList<>(step.getExitSet());
-        exitList.sort(DocumentOrder.reverseDocumentOrderComparator);
-
-        for (final EnterableState es : exitList) {
+        // exit the states in reverse document order
+        final EnterableStateSet exitSet = step.getExitStateSet();
+        for (int i = exitSet.lastIndex(); i > -1; i = exitSet.previousIndex(i)) {
+            final EnterableState es = exitSet.get(i);
 
             if (es instanceof TransitionalState && ((TransitionalState)es).hasHistory()) {
                 // persist the new history configurations for this state to exit
@@ -439,7 +507,8 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
             }
 
             boolean onexitEventRaised = false;
-            for (final OnExit onexit : es.getOnExits()) {
+            for (int j = 0; j < es.getOnExits().size(); j++) {
+                final OnExit onexit = es.getOnExits().get(j);
                 executeContent(exctx, onexit);
                 if (!onexitEventRaised && onexit.isRaiseEvent()) {
                     onexitEventRaised = true;
@@ -451,8 +520,9 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
 
             if (es instanceof TransitionalState && !statesToInvoke.remove(es)) {
                 // check if invokers are active in this state
-                for (final Invoke inv : ((TransitionalState)es).getInvokes()) {
-                    exctx.cancelInvoker(inv);
+                final List<Invoke> invokes = ((TransitionalState)es).getInvokes();
+                for (int j = 0; j < invokes.size(); j++) {
+                    exctx.cancelInvoker(invokes.get(j));
                 }
             }
             exctx.getScInstance().getStateConfiguration().exitState(es);
@@ -481,9 +551,9 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
         if (exctx.isRunning()) {
             return;
         }
-        final ArrayList<EnterableState> configuration = new ArrayList<>(exctx.getScInstance().getStateConfiguration().getActiveStates());
-        configuration.sort(DocumentOrder.reverseDocumentOrderComparator);
-        for (final EnterableState es : configuration) {
+        final EnterableStateSet configuration = new EnterableStateSet(exctx.getScInstance().getStateConfiguration().getActiveStates());
+        for (final Iterator<EnterableState> exitIterator = configuration.descendingIterator(); exitIterator.hasNext(); ) {
+            final EnterableState es = exitIterator.next();
             for (final OnExit onexit : es.getOnExits()) {
                 executeContent(exctx, onexit);
             }
@@ -543,14 +613,19 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
         // execute global script if defined
         executeGlobalScript(exctx);
         // enter initial states
-        final HashSet<TransitionalState> statesToInvoke = new HashSet<>();
-        final Step step = new Step(null);
-        step.getTransitList().add(exctx.getStateMachine().getInitialTransition());
-        microStep(exctx, step, statesToInvoke);
-        // Execute Immediate Transitions
+        final Step step = exctx.acquireStep(null);
+        try {
+            final Set<TransitionalState> statesToInvoke = step.getStatesToInvoke();
+            step.getTransitList().add(exctx.getStateMachine().getInitialTransition());
+            microStep(exctx, step, statesToInvoke);
+            // Execute Immediate Transitions
 
-        if (exctx.isRunning()) {
-            macroStep(exctx, statesToInvoke);
+            if (exctx.isRunning()) {
+                macroStep(exctx, step, statesToInvoke);
+            }
+        }
+        finally {
+            exctx.releaseStep(step);
         }
 
         if (!exctx.isRunning()) {
@@ -558,6 +633,26 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
         }
     }
 
+    /**
+     * Gets the (lazily computed) exit set of an enabled transition, using the scratch exit sets of the step.
+     *
+     * @param step The step
+     * @param index The index of the enabled transition
+     * @param transition The enabled transition
+     * @param configuration The current active states of the state machine
+     * @return the exit set of the transition
+     */
+    private EnterableStateSet getTransitionExitSet(final Step step, final int index, final Transition transition,
+                                                   final Set<EnterableState> configuration) {
+        final EnterableStateSet exitSet = step.getTransitionExitSet(index);
+        if (!step.getComputedExitSets().get(index)) {
+            exitSet.clear();
+            computeExitSet(transition, exitSet, configuration);
+            step.getComputedExitSets().set(index);
+        }
+        return exitSet;
+    }
+
     @Override
     public void initialize(final SCXMLExecutionContext exctx, final Map<String, Object> data) throws ModelException {
         // (re)initialize the execution context and state machine instance
@@ -682,6 +777,19 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
         return legalConfig;
     }
 
+    /**
+     * @param type the class of the semantics
+     * @return true if the class overrides {@link #matchTransition(SCXMLExecutionContext, Transition, String)}
+     */
+    private static boolean isMatchTransitionOverridden(final Class<?> type) {
+        try {
+            return type.getMethod("matchTransition", SCXMLExecutionContext.class, Transition.class, String.class)
+                    .getDeclaringClass() != SCXMLSemanticsImpl.class;
+        } catch (final NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     /**
      * Perform a macro step in the execution of a state machine.
      * <p>
@@ -697,10 +805,25 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      */
     public void macroStep(final SCXMLExecutionContext exctx, final Set<TransitionalState> statesToInvoke)
             throws ModelException {
+        macroStep(exctx, new Step(null), statesToInvoke);
+    }
+
+    /**
+     * Perform a macro step in the execution of a state machine, (re)using the provided step for each of its micro steps.
+     *
+     * @param exctx The execution context for this step
+     * @param step The step to (re)use for the micro steps, which event will be replaced
+     * @param statesToInvoke the set of activated states which invokes need to be invoked at the end of the current
+     *                       macro step
+     * @throws ModelException if a SCXML model error occurred during the execution.
+     * @see #macroStep(SCXMLExecutionContext, Set)
+     */
+    public void macroStep(final SCXMLExecutionContext exctx, final Step step,
+                          final Set<TransitionalState> statesToInvoke) throws ModelException {
         do {
             boolean macroStepDone = false;
             do {
-                Step step = new Step(null);
+                step.setEvent(null);
                 selectTransitions(exctx, step);
                 if (step.getTransitList().isEmpty()) {
                     final TriggerEvent event = exctx.nextInternalEvent();
@@ -710,7 +833,7 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
                         }
                         else {
                             setSystemEventVariable(exctx.getScInstance(), event, true);
-                            step = new Step(event);
+                            step.setEvent(event);
                             selectTransitions(exctx, step);
                         }
                     } else {
@@ -730,31 +853,44 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
     }
 
     /**
-     * @param exctx The execution context for this step
      * @param transition The transition
      * @param eventName The (optional) event name to match against
      * @return true if the transition matches against the provided eventName, or is event-less when no eventName
-     *         is provided, <em>AND</em> its (optional) condition guard evaluates to true.
+     *         is provided
      */
-    public boolean matchTransition(final SCXMLExecutionContext exctx, final Transition transition, final String eventName) {
+    private static boolean matchEvent(final Transition transition, final String eventName) {
         if (eventName != null) {
             if (!(transition.isNoEventsTransition() || transition.isAllEventsTransition())) {
-                boolean eventMatch = false;
-                for (final String event : transition.getEvents()) {
+                final List<String> events = transition.getEvents();
+                for (int i = 0; i < events.size(); i++) {
+                    final String event = events.get(i);
                     if (eventName.startsWith(event) && (eventName.length() == event.length() || eventName.charAt(event.length())=='.')) {
-                        eventMatch = true;
-                        break;
+                        return true;
                     }
                 }
-                if (!eventMatch) {
-                    return false;
-                }
-            }
-            else if (!transition.isAllEventsTransition()) {
                 return false;
             }
+            return transition.isAllEventsTransition();
         }
-        else if (!transition.isNoEventsTransition()) {
+        return transition.isNoEventsTransition();
+    }
+
+    /**
+     * Matches a transition against an event, and evaluates its (optional) condition guard.
+     * <p>
+     * When overridden, to customize the matching of events or the evaluation of guards, this method is used by
+     * {@link #selectTransition(SCXMLExecutionContext, Step, TransitionalState, List, String)} to match each candidate
+     * transition, instead of evaluating the guards of the candidates as one batch.
+     * </p>
+     *
+     * @param exctx The execution context for this step
+     * @param transition The transition
+     * @param eventName The (optional) event name to match against
+     * @return true if the transition matches against the provided eventName, or is event-less when no eventName
+     *         is provided, <em>AND</em> its (optional) condition guard evaluates to true.
+     */
+    public boolean matchTransition(final SCXMLExecutionContext exctx, final Transition transition, final String eventName) {
+        if (!matchEvent(transition, eventName)) {
             return false;
         }
         if (transition.getCond() != null) {
@@ -839,15 +975,20 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
         else {
             setSystemEventVariable(exctx.getScInstance(), event, false);
             processInvokes(exctx, event);
-            final Step step = new Step(event);
-            selectTransitions(exctx, step);
-            if (!step.getTransitList().isEmpty()) {
-                final HashSet<TransitionalState> statesToInvoke = new HashSet<>();
-                microStep(exctx, step, statesToInvoke);
-                if (exctx.isRunning()) {
-                    macroStep(exctx, statesToInvoke);
+            final Step step = exctx.acquireStep(event);
+            try {
+                selectTransitions(exctx, step);
+                if (!step.getTransitList().isEmpty()) {
+                    final Set<TransitionalState> statesToInvoke = step.getStatesToInvoke();
+                    microStep(exctx, step, statesToInvoke);
+                    if (exctx.isRunning()) {
+                        macroStep(exctx, step, statesToInvoke);
+                    }
                 }
             }
+            finally {
+                exctx.releaseStep(step);
+            }
         }
         if (!exctx.isRunning()) {
             finalStep(exctx);
@@ -891,6 +1032,9 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      * @throws ModelException in case there is a fatal SCXML object model problem.
      */
     public void processInvokes(final SCXMLExecutionContext exctx, final TriggerEvent event) throws ModelException {
+        if (exctx.getInvokeIds().isEmpty()) {
+            return;
+        }
         for (final Map.Entry<Invoke, String> entry : exctx.getInvokeIds().entrySet()) {
             if (entry.getValue().equals(event.getInvokeId())) {
                 final Invoke invoke = entry.getKey();
@@ -943,7 +1087,9 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      * @param activeStates The current set of all active states in the state machine
      */
     public void recordHistory(final Step step, final Set<EnterableState> atomicStates, final Set<EnterableState> activeStates) {
-        for (final EnterableState es : step.getExitSet()) {
+        final EnterableStateSet exitSet = step.getExitStateSet();
+        for (int i = exitSet.firstIndex(); i > -1; i = exitSet.nextIndex(i)) {
+            final EnterableState es = exitSet.get(i);
             if (es instanceof TransitionalState && ((TransitionalState)es).hasHistory()) {
                 final TransitionalState ts = (TransitionalState)es;
                 Set<EnterableState> shallow = null;
@@ -952,7 +1098,7 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
                     if (h.isDeep()) {
                         if (deep == null) {
                             //calculate deep history for a given state once
-                            deep = new HashSet<>();
+                            deep = new EnterableStateSet();
                             for (final EnterableState ott : atomicStates) {
                                 if (ott.isDescendantOf(es)) {
                                     deep.add(ott);
@@ -963,8 +1109,12 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
                     } else {
                         if (shallow == null) {
                             //calculate shallow history for a given state once
-                            shallow = new HashSet<>(ts.getChildren());
-                            shallow.retainAll(activeStates);
+                            shallow = new EnterableStateSet();
+                            for (final EnterableState child : ts.getChildren()) {
+                                if (activeStates.contains(child)) {
+                                    shallow.add(child);
+                                }
+                            }
                         }
                         step.getNewHistoryConfigurations().put(h, shallow);
                     }
@@ -982,62 +1132,109 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      */
     public void removeConflictingTransitions(final SCXMLExecutionContext exctx, final Step step,
                                              final List<Transition> enabledTransitions) {
-        final LinkedHashSet<Transition> filteredTransitions = new LinkedHashSet<>();
-        final LinkedHashSet<Transition> preemptedTransitions = new LinkedHashSet<>();
-        final Map<Transition, Set<EnterableState>> exitSets = new HashMap<>();
+        // the filtered, preempted transitions and computed exit sets are tracked by the index of the enabled transitions
+        final BitSet filteredTransitions = step.getFilteredTransitions();
+        final BitSet preemptedTransitions = step.getPreemptedTransitions();
+        final BitSet computedExitSets = step.getComputedExitSets();
+        filteredTransitions.clear();
+        preemptedTransitions.clear();
+        computedExitSets.clear();
 
         final Set<EnterableState> configuration = exctx.getScInstance().getStateConfiguration().getActiveStates();
-        enabledTransitions.sort(DocumentOrder.documentOrderComparator);
+        if (enabledTransitions.size() > 1) {
+            enabledTransitions.sort(DocumentOrder.documentOrderComparator);
+        }
 
-        for (final Transition t1 : enabledTransitions) {
+        for (int i = 0; i < enabledTransitions.size(); i++) {
+            final Transition t1 = enabledTransitions.get(i);
             boolean t1Preempted = false;
-            Set<EnterableState> t1ExitSet = exitSets.get(t1);
-            for (final Transition t2 : filteredTransitions) {
-                if (t1ExitSet == null) {
-                    t1ExitSet = new HashSet<>();
-                    computeExitSet(t1, t1ExitSet, configuration);
-                    exitSets.put(t1, t1ExitSet);
-                }
-                Set<EnterableState> t2ExitSet = exitSets.get(t2);
-                if (t2ExitSet == null) {
-                    t2ExitSet = new HashSet<>();
-                    computeExitSet(t2, t2ExitSet, configuration);
-                    exitSets.put(t2, t2ExitSet);
-                }
-                final Set<EnterableState> smaller = t1ExitSet.size() < t2ExitSet.size() ? t1ExitSet : t2ExitSet;
-                final Set<EnterableState> larger = smaller == t1ExitSet ? t2ExitSet : t1ExitSet;
-                boolean hasIntersection = false;
-                for (final EnterableState s1 : smaller) {
-                    hasIntersection = larger.contains(s1);
-                    if (hasIntersection) {
-                        break;
-                    }
-                }
-                if (hasIntersection) {
+            for (int j = filteredTransitions.nextSetBit(0); j > -1; j = filteredTransitions.nextSetBit(j+1)) {
+                final Transition t2 = enabledTransitions.get(j);
+                if (getTransitionExitSet(step, i, t1, configuration).intersects(getTransitionExitSet(step, j, t2, configuration))) {
                     if (!t1.getParent().isDescendantOf(t2.getParent())) {
                         t1Preempted = true;
                         break;
                     }
-                    preemptedTransitions.add(t2);
+                    preemptedTransitions.set(j);
                 }
             }
-            if (t1Preempted) {
-                exitSets.remove(t1);
+            if (!t1Preempted) {
+                filteredTransitions.andNot(preemptedTransitions);
+                filteredTransitions.set(i);
             }
-            else {
-                for (final Transition preempted : preemptedTransitions) {
-                    filteredTransitions.remove(preempted);
-                    exitSets.remove(preempted);
+        }
+        for (int i = filteredTransitions.nextSetBit(0); i > -1; i = filteredTransitions.nextSetBit(i+1)) {
+            step.getTransitList().add(enabledTransitions.get(i));
+        }
+    }
+
+    /**
+     * Selects the first of the candidate transitions of a state which matches the event (or is event-less when no
+     * event is provided) <em>AND</em> which (optional) condition guard evaluates to true, in document order.
+     * <p>
+     * The condition guards of the matching candidates are evaluated as one batch against the context of the state,
+     * see {@link org.apache.commons.scxml2.Evaluator#evalFirstCond}, so that the context is looked up and prepared
+     * only once. A guard which cannot be evaluated is treated as false, and raises an error.execution event.
+     * </p>
+     * <p>
+     * If {@link #matchTransition(SCXMLExecutionContext, Transition, String)} is overridden by a subclass, the
+     * candidates are matched one by one through it instead, and {@link #selectTransitions(SCXMLExecutionContext, Step)}
+     * then provides all the transitions of the state as candidates.
+     * </p>
+     *
+     * @param exctx The execution context for this step
+     * @param step The step
+     * @param state The state
+     * @param candidates The candidate transitions of the state, in document order
+     * @param eventName The (optional) event name to match against
+     * @return the selected transition, or null if none
+     */
+    public Transition selectTransition(final SCXMLExecutionContext exctx, final Step step, final TransitionalState state,
+                                       final List<Transition> candidates, final String eventName) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (matchTransitionOverridden) {
+            for (int i = 0; i < candidates.size(); i++) {
+                if (matchTransition(exctx, candidates.get(i), eventName)) {
+                    return candidates.get(i);
+                }
+            }
+            return null;
+        }
+        final List<Transition> guarded = step.getGuardedTransitions();
+        guarded.clear();
+        for (int i = 0; i < candidates.size(); i++) {
+            final Transition transition = candidates.get(i);
+            if (matchEvent(transition, eventName)) {
+                guarded.add(transition);
+                if (transition.getCond() == null) {
+                    // the guards of the following candidates never need to be evaluated
+                    break;
                 }
-                filteredTransitions.add(t1);
             }
         }
-        step.getTransitList().addAll(filteredTransitions);
+        if (guarded.isEmpty() || guarded.get(0).getCond() == null) {
+            return guarded.isEmpty() ? null : guarded.get(0);
+        }
+        Evaluator.CondHandler condHandler = step.getGuardCondHandler();
+        if (!(condHandler instanceof GuardCondHandler) || ((GuardCondHandler) condHandler).exctx != exctx) {
+            condHandler = new GuardCondHandler(exctx, step);
+            step.setGuardCondHandler(condHandler);
+        }
+        final Context context = exctx.getScInstance().getContext(state);
+        final int index = exctx.getEvaluator().evalFirstCond(context, step.getGuardConditions(), condHandler);
+        return index > -1 ? guarded.get(index) : null;
     }
 
     /**
      * This method corresponds to the Algorithm for SCXML processing selectTransitions() as well as the
      * selectEventlessTransitions() procedure, depending on the event (or null) in the provided step
+     * <p>
+     * Only the candidate transitions for the event (or the event-less transitions) as provided by the
+     * {@link TransitionalState#getTransitionIndex()} are matched against, in document order, unless
+     * {@link #matchTransition(SCXMLExecutionContext, Transition, String)} is overridden.
+     * </p>
      *
      * @param exctx The execution context for this step
      * @param step The step
@@ -1045,15 +1242,18 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
      */
     public void selectTransitions(final SCXMLExecutionContext exctx, final Step step) throws ModelException {
         step.getTransitList().clear();
-        final ArrayList<Transition> enabledTransitions = new ArrayList<>();
+        final List<Transition> enabledTransitions = step.getEnabledTransitions();
+        enabledTransitions.clear();
 
-        final ArrayList<EnterableState> configuration = new ArrayList<>(exctx.getScInstance().getStateConfiguration().getActiveStates());
-        configuration.sort(DocumentOrder.documentOrderComparator);
+        // the active states configuration iterates in document order
+        final EnterableStateSet configuration = exctx.getScInstance().getStateConfiguration().getActiveStateSet();
 
-        final HashSet<EnterableState> visited = new HashSet<>();
+        final Set<EnterableState> visited = step.getVisitedStates();
+        visited.clear();
 
         final String eventName = step.getEvent() != null ? step.getEvent().getName() : null;
-        for (EnterableState es : configuration) {
+        for (int index = configuration.firstIndex(); index > -1; index = configuration.nextIndex(index)) {
+            EnterableState es = configuration.get(index);
             if (es.isAtomicState()) {
                 if (es instanceof Final) {
                     // Final states don't have transitions, skip to parent
@@ -1069,11 +1269,12 @@ public class SCXMLSemanticsImpl implements SCXMLSemantics {
                 int ancestorIndex = state.getNumberOfAncestors()-1;
                 boolean transitionMatched = false;
                 do {
-                    for (final Transition transition : current.getTransitionsList()) {
-                        if (transitionMatched = matchTransition(exctx, transition, eventName)) {
-                            enabledTransitions.add(transition);
-                            break;
-                        }
+                    // an overridden matchTransition may match other events than the indexed ones
+                    final Transition transition = selectTransition(exctx, step, current, matchTransitionOverridden
+                            ? current.getTransitionsList() : current.getTransitionIndex().getTransitions(eventName),
+                            eventName);
+                    if (transitionMatched = transition != null) {
+                        enabledTransitions.add(transition);
                     }
                     current = !transitionMatched && ancestorIndex > -1 ? state.getAncestor(ancestorIndex--) : null;
                 } while (!transitionMatched && current != null && visited.add(current));
@@ -16,43 +16,54 @@
  */
 package org.apache.commons.scxml2.semantics;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.scxml2.EnterableStateSet;
+import org.apache.commons.scxml2.Evaluator;
 import org.apache.commons.scxml2.TriggerEvent;
 import org.apache.commons.scxml2.model.EnterableState;
 import org.apache.commons.scxml2.model.History;
 import org.apache.commons.scxml2.model.SimpleTransition;
+import org.apache.commons.scxml2.model.Transition;
 import org.apache.commons.scxml2.model.TransitionalState;
 
 /**
  * A logical unit of progression in the execution of a SCXML model.
+ * <p>
+ * Besides the result of the step, a Step also holds the (lazily created) scratch structures used by the
+ * {@link SCXMLSemanticsImpl} while computing the step. When a Step is {@link #reset(TriggerEvent) reset} and reused
+ * for subsequent steps, as done when {@link org.apache.commons.scxml2.SCXMLExecutionContext#isReuseSteps()} is set,
+ * these scratch structures are cleared and reused instead of reallocated.
+ * </p>
  */
 public class Step {
 
     /**
      * The event in this step.
      */
-    private final TriggerEvent event;
+    private TriggerEvent event;
 
     /**
      * The set of states that were exited during this step.
      */
-    private final Set<EnterableState> exitSet;
+    private final EnterableStateSet exitSet;
 
     /**
      * The set of states that were entered during this step.
      */
-    private final Set<EnterableState> entrySet;
+    private final EnterableStateSet entrySet;
 
     /**
      * The set of states that were entered during this step by default
      */
-    private final Set<EnterableState> defaultEntrySet;
+    private final EnterableStateSet defaultEntrySet;
 
     /**
      * The map of default History transitions to be executed as result of entering states in this step.
@@ -69,14 +80,70 @@ public class Step {
      */
     private final List<SimpleTransition> transitList;
 
+    /**
+     * The set of activated states which invokes need to be invoked at the end of the current macro step.
+     */
+    private Set<TransitionalState> statesToInvoke;
+
+    /**
+     * Scratch list of the enabled transitions during transition selection.
+     */
+    private List<Transition> enabledTransitions;
+
+    /**
+     * Scratch list of the candidate transitions of a state matching the event, and the view of their guard conditions,
+     * during transition selection.
+     */
+    private List<Transition> guardedTransitions;
+    private List<String> guardConditions;
+
+    /**
+     * The handler of the guard conditions of the {@link #getGuardedTransitions()} treated as false, reused for all the
+     * transition selections.
+     */
+    private Evaluator.CondHandler guardCondHandler;
+
+    /**
+     * Scratch set of the states already visited during transition selection.
+     */
+    private EnterableStateSet visitedStates;
+
+    /**
+     * Scratch list of the exit sets of the enabled transitions, by their index, while removing conflicting transitions.
+     */
+    private List<EnterableStateSet> transitionExitSets;
+
+    /**
+     * Scratch BitSets of respectively the computed exit sets, the filtered and the preempted transitions, by their
+     * index, while removing conflicting transitions.
+     */
+    private BitSet computedExitSets;
+    private BitSet filteredTransitions;
+    private BitSet preemptedTransitions;
+
+    /**
+     * Scratch set of the target states while computing the entry set.
+     */
+    private EnterableStateSet targetStates;
+
+    /**
+     * Scratch set of the History target states while computing the entry set.
+     */
+    private Set<History> historyTargets;
+
+    /**
+     * Scratch set for the resulting states while building the step.
+     */
+    private EnterableStateSet resultStates;
+
     /**
      * @param event The event received in this unit of progression
      */
     public Step(final TriggerEvent event) {
         this.event = event;
-        this.exitSet = new HashSet<>();
-        this.entrySet = new HashSet<>();
-        this.defaultEntrySet = new HashSet<>();
+        this.exitSet = new EnterableStateSet();
+        this.entrySet = new EnterableStateSet();
+        this.defaultEntrySet = new EnterableStateSet();
         this.defaultHistoryTransitions = new HashMap<>();
         this.newHistoryConfigurations = new HashMap<>();
         this.transitList = new ArrayList<>();
@@ -93,8 +160,15 @@ public class Step {
         newHistoryConfigurations.clear();
     }
 
+    BitSet getComputedExitSets() {
+        if (computedExitSets == null) {
+            computedExitSets = new BitSet();
+        }
+        return computedExitSets;
+    }
+
     /**
-     * @return the defaultEntrySet.
+     * @return the defaultEntrySet, iterated in document order.
      */
     public Set<EnterableState> getDefaultEntrySet() {
         return defaultEntrySet;
@@ -107,13 +181,27 @@ public class Step {
         return defaultHistoryTransitions;
     }
 
+    List<Transition> getEnabledTransitions() {
+        if (enabledTransitions == null) {
+            enabledTransitions = new ArrayList<>();
+        }
+        return enabledTransitions;
+    }
+
     /**
-     * @return the entrySet.
+     * @return the entrySet, iterated in document order.
      */
     public Set<EnterableState> getEntrySet() {
         return entrySet;
     }
 
+    /**
+     * @return the entrySet, for iterating it by index in document order.
+     */
+    EnterableStateSet getEntryStateSet() {
+        return entrySet;
+    }
+
     /**
      * @return the current event.
      */
@@ -122,12 +210,33 @@ public class Step {
     }
 
     /**
-     * @return the exitSet.
+     * @return the exitSet, iterated in document order.
      */
     public Set<EnterableState> getExitSet() {
         return exitSet;
     }
 
+    /**
+     * @return the exitSet, for iterating it by index in document order.
+     */
+    EnterableStateSet getExitStateSet() {
+        return exitSet;
+    }
+
+    BitSet getFilteredTransitions() {
+        if (filteredTransitions == null) {
+            filteredTransitions = new BitSet();
+        }
+        return filteredTransitions;
+    }
+
+    Set<History> getHistoryTargets() {
+        if (historyTargets == null) {
+            historyTargets = new HashSet<>();
+        }
+        return historyTargets;
+    }
+
     /**
      * @return the map of new History configurations created as result of exiting states in this step
      */
@@ -135,11 +244,124 @@ public class Step {
         return newHistoryConfigurations;
     }
 
+    BitSet getPreemptedTransitions() {
+        if (preemptedTransitions == null) {
+            preemptedTransitions = new BitSet();
+        }
+        return preemptedTransitions;
+    }
+
+    EnterableStateSet getResultStates() {
+        if (resultStates == null) {
+            resultStates = new EnterableStateSet();
+        }
+        return resultStates;
+    }
+
+    /**
+     * @return the set of activated states which invokes need to be invoked at the end of the current macro step
+     */
+    public Set<TransitionalState> getStatesToInvoke() {
+        if (statesToInvoke == null) {
+            statesToInvoke = new HashSet<>();
+        }
+        return statesToInvoke;
+    }
+
+    EnterableStateSet getTargetStates() {
+        if (targetStates == null) {
+            targetStates = new EnterableStateSet();
+        }
+        return targetStates;
+    }
+
     /**
      * @return the transitList.
      */
     public List<SimpleTransition> getTransitList() {
         return transitList;
     }
+
+    /**
+     * @return the (read only) view of the guard conditions of the {@link #getGuardedTransitions()}
+     */
+    List<String> getGuardConditions() {
+        if (guardConditions == null) {
+            final List<Transition> transitions = getGuardedTransitions();
+            guardConditions = new AbstractList<String>() {
+                @Override
+                public String get(final int index) {
+                    return transitions.get(index).getCond();
+                }
+
+                @Override
+                public int size() {
+                    return transitions.size();
+                }
+            };
+        }
+        return guardConditions;
+    }
+
+    Evaluator.CondHandler getGuardCondHandler() {
+        return guardCondHandler;
+    }
+
+    List<Transition> getGuardedTransitions() {
+        if (guardedTransitions == null) {
+            guardedTransitions = new ArrayList<>();
+        }
+        return guardedTransitions;
+    }
+
+    /**
+     * Gets the scratch exit set for the enabled transition at a specific index.
+     *
+     * @param index the index of the enabled transition
+     * @return the scratch exit set, which needs to be cleared before (re)computing it
+     */
+    EnterableStateSet getTransitionExitSet(final int index) {
+        if (transitionExitSets == null) {
+            transitionExitSets = new ArrayList<>();
+        }
+        while (transitionExitSets.size() <= index) {
+            transitionExitSets.add(new EnterableStateSet());
+        }
+        return transitionExitSets.get(index);
+    }
+
+    EnterableStateSet getVisitedStates() {
+        if (visitedStates == null) {
+            visitedStates = new EnterableStateSet();
+        }
+        return visitedStates;
+    }
+
+    /**
+     * Resets this step for reuse with another event, clearing all its state, including the states to invoke.
+     *
+     * @param event The event received in the next unit of progression
+     */
+    public void reset(final TriggerEvent event) {
+        this.event = event;
+        transitList.clear();
+        clearIntermediateState();
+        if (statesToInvoke != null) {
+            statesToInvoke.clear();
+        }
+    }
+
+    /**
+     * Sets the event for the next micro step of the current macro step, retaining the states to invoke.
+     *
+     * @param event The event received in the next micro step
+     */
+    void setEvent(final TriggerEvent event) {
+        this.event = event;
+    }
+
+    void setGuardCondHandler(final Evaluator.CondHandler guardCondHandler) {
+        this.guardCondHandler = guardCondHandler;
+    }
 }
 
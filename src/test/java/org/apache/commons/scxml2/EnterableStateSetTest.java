@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.scxml2.model.EnterableState;
+import org.apache.commons.scxml2.model.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EnterableStateSetTest {
+
+    private State s1;
+    private State s2;
+    private State s3;
+
+    private static State newState(final String id, final int order) {
+        final State state = new State();
+        state.setId(id);
+        state.setOrder(order);
+        return state;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        s1 = newState("s1", 1);
+        s2 = newState("s2", 5);
+        s3 = newState("s3", 70);
+    }
+
+    @Test
+    void testAddRemoveContains() {
+        final EnterableStateSet set = new EnterableStateSet();
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(s2));
+        assertFalse(set.add(s2));
+        assertTrue(set.add(s3));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(s2));
+        assertFalse(set.contains(s1));
+        assertTrue(set.remove(s2));
+        assertFalse(set.remove(s2));
+        assertFalse(set.contains(s2));
+        assertEquals(1, set.size());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(s3));
+    }
+
+    @Test
+    void testDocumentOrderIteration() {
+        final EnterableStateSet set = new EnterableStateSet(Arrays.asList(s3, s1, s2));
+        assertEquals(Arrays.asList(s1, s2, s3), new ArrayList<>(set));
+
+        final List<EnterableState> reversed = new ArrayList<>();
+        for (final Iterator<EnterableState> it = set.descendingIterator(); it.hasNext(); ) {
+            reversed.add(it.next());
+        }
+        assertEquals(Arrays.asList(s3, s2, s1), reversed);
+    }
+
+    @Test
+    void testIndexNavigation() {
+        final State u1 = new State();
+        final State u2 = new State();
+        final EnterableStateSet set = new EnterableStateSet(Arrays.asList(s3, s1, u1, s2, u2));
+        final List<EnterableState> ascending = new ArrayList<>();
+        for (int i = set.firstIndex(); i > -1; i = set.nextIndex(i)) {
+            ascending.add(set.get(i));
+        }
+        // u1 takes document order 0, u2 has no unique document order and comes last
+        assertEquals(Arrays.asList(u1, s1, s2, s3, u2), ascending);
+        assertEquals(new ArrayList<>(set), ascending);
+
+        final List<EnterableState> descending = new ArrayList<>();
+        for (int i = set.lastIndex(); i > -1; i = set.previousIndex(i)) {
+            descending.add(set.get(i));
+        }
+        Collections.reverse(descending);
+        assertEquals(ascending, descending);
+
+        final EnterableStateSet empty = new EnterableStateSet();
+        assertEquals(-1, empty.firstIndex());
+        assertEquals(-1, empty.lastIndex());
+    }
+
+    @Test
+    void testIntersects() {
+        final EnterableStateSet set1 = new EnterableStateSet(Arrays.asList(s1, s2));
+        final EnterableStateSet set2 = new EnterableStateSet(Arrays.asList(s3));
+        assertFalse(set1.intersects(set2));
+        set2.add(s2);
+        assertTrue(set1.intersects(set2));
+        assertTrue(set2.intersects(set1));
+        assertFalse(set1.containsAll(set2));
+        set1.add(s3);
+        assertTrue(set1.containsAll(set2));
+    }
+
+    @Test
+    void testIteratorRemove() {
+        final EnterableStateSet set = new EnterableStateSet(Arrays.asList(s1, s2, s3));
+        for (final Iterator<EnterableState> it = set.iterator(); it.hasNext(); ) {
+            if (it.next() == s2) {
+                it.remove();
+            }
+        }
+        assertEquals(Arrays.asList(s1, s3), new ArrayList<>(set));
+    }
+
+    @Test
+    void testUnorderedStates() {
+        final State u1 = new State();
+        final State u2 = new State();
+        final EnterableStateSet set = new EnterableStateSet();
+        assertTrue(set.add(u1));
+        assertTrue(set.add(u2));
+        assertTrue(set.add(s1));
+        assertFalse(set.add(u2));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(u1));
+        assertTrue(set.contains(u2));
+        assertTrue(set.remove(u2));
+        assertFalse(set.contains(u2));
+        assertEquals(Arrays.asList(u1, s1), new ArrayList<>(set));
+
+        final State u3 = new State();
+        assertTrue(set.add(u2));
+        assertTrue(set.add(u3));
+        final List<EnterableState> iterated = new ArrayList<>();
+        for (final Iterator<EnterableState> it = set.iterator(); it.hasNext(); ) {
+            final EnterableState es = it.next();
+            iterated.add(es);
+            if (es == u2) {
+                it.remove();
+            }
+        }
+        assertEquals(Arrays.asList(u1, s1, u2, u3), iterated);
+        assertEquals(Arrays.asList(u1, s1, u3), new ArrayList<>(set));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.scxml2.env.groovy.GroovyEvaluator;
+import org.apache.commons.scxml2.env.jexl.JexlEvaluator;
+import org.apache.commons.scxml2.model.Log;
+import org.apache.commons.scxml2.model.SCXML;
+import org.apache.commons.scxml2.semantics.ErrorConstants;
+import org.junit.jupiter.api.Test;
+
+class ExpressionPrecompilerTest {
+
+    private static SCXML parse(final String datamodel, final String log) throws Exception {
+        return SCXMLTestHelper.parse(new StringReader(
+                "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"" + datamodel + "\">\n"
+                + "  <datamodel><data id=\"x\" expr=\"1\"/></datamodel>\n"
+                + "  <state id=\"s1\">\n"
+                + "    <onentry><if cond=\"x &gt; 0\"><log expr=\"" + log + "\"/></if><assign location=\"x\" expr=\"2\"/></onentry>\n"
+                + "    <transition cond=\"x &gt; 0\" target=\"s2\"/>\n"
+                + "  </state>\n"
+                + "  <final id=\"s2\"/>\n"
+                + "</scxml>"), null);
+    }
+
+    @Test
+    void testPrecompileGroovy() throws Exception {
+        final SCXML scxml = parse("groovy", "x + 1");
+        final GroovyEvaluator evaluator = new GroovyEvaluator();
+        final List<String> errors = new ArrayList<>();
+        assertEquals(0, ExpressionPrecompiler.precompile(scxml, evaluator, (code, detail, ctx) -> errors.add(detail)));
+        assertTrue(errors.isEmpty());
+        // "1", "x > 0", "x + 1" and "2"
+        assertEquals(4, evaluator.getScriptCache().size());
+    }
+
+    @Test
+    void testPrecompileJexl() throws Exception {
+        final SCXML scxml = parse("jexl", "x +");
+        final JexlEvaluator evaluator = new JexlEvaluator();
+        final List<Object> errors = new ArrayList<>();
+        final int failed = ExpressionPrecompiler.precompile(scxml, evaluator, (code, detail, ctx) -> {
+            assertEquals(ErrorConstants.EXPRESSION_ERROR, code);
+            errors.add(ctx);
+        });
+        assertEquals(1, failed);
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof Log);
+        // "1", "x > 0" (shared by the if and the transition) and "2"
+        assertEquals(3, evaluator.getExpressionCache().size());
+        assertEquals(1, evaluator.getAssignCache().size());
+    }
+}
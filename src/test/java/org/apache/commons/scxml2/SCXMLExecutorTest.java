@@ -17,16 +17,21 @@
 package org.apache.commons.scxml2;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.StringReader;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.scxml2.env.jexl.JexlContext;
 import org.apache.commons.scxml2.model.EnterableState;
+import org.apache.commons.scxml2.model.SCXML;
 import org.apache.commons.scxml2.model.TransitionTarget;
 import org.junit.jupiter.api.Test;
 
@@ -35,12 +40,49 @@ import org.junit.jupiter.api.Test;
  */
 class SCXMLExecutorTest {
 
+    private static final String COUNTER_SCXML =
+            "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\" initial=\"counting\">\n"
+            + "  <datamodel><data id=\"count\" expr=\"0\"/></datamodel>\n"
+            + "  <state id=\"counting\">\n"
+            + "    <transition event=\"inc\"><assign location=\"count\" expr=\"count + 1\"/></transition>\n"
+            + "    <transition event=\"done\" target=\"done\"/>\n"
+            + "  </state>\n"
+            + "  <final id=\"done\"/>\n"
+            + "</scxml>";
+
+    private static void awaitWaiting(final Thread thread) throws InterruptedException {
+        for (int i = 0; i < 500 && thread.getState() != Thread.State.WAITING; i++) {
+            Thread.sleep(10L);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState(), "idle event loop should block");
+    }
+
     private void checkMicrowave01Sample(final SCXMLExecutor exec) throws Exception {
         final Set<EnterableState> currentStates = SCXMLTestHelper.fireEvent(exec, "turn_on");
         assertEquals(1, currentStates.size());
         assertEquals("cooking", currentStates.iterator().next().getId());
     }
 
+    private void checkRun(final boolean virtualThreads) throws Exception {
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(SCXMLTestHelper.parse(new StringReader(COUNTER_SCXML), null));
+        exec.setVirtualThreads(virtualThreads);
+        final Thread thread = exec.run();
+        assertThrows(IllegalStateException.class, exec::run);
+        awaitWaiting(thread);
+        for (int i = 0; i < 3; i++) {
+            exec.addEvent(new EventBuilder("inc", TriggerEvent.SIGNAL_EVENT).build());
+        }
+        for (int i = 0; i < 500 && !Integer.valueOf(3).equals(exec.getGlobalContext().get("count")); i++) {
+            Thread.sleep(10L);
+        }
+        assertEquals(3, exec.getGlobalContext().get("count"));
+        awaitWaiting(thread);
+        exec.addEvent(new EventBuilder("done", TriggerEvent.SIGNAL_EVENT).build());
+        thread.join(5000L);
+        assertFalse(thread.isAlive());
+        assertFalse(exec.isRunning());
+    }
+
     private void checkMicrowave02Sample(final SCXMLExecutor exec) throws Exception {
         final Set<EnterableState> currentStates = SCXMLTestHelper.fireEvent(exec, "turn_on");
         assertEquals(2, currentStates.size());
@@ -141,6 +183,21 @@ class SCXMLExecutorTest {
         assertEquals("twenty", currentStates.iterator().next().getId());
     }
 
+    @Test
+    void testSCXMLExecutorRun() throws Exception {
+        checkRun(false);
+    }
+
+    @Test
+    void testSCXMLExecutorRunVirtualThreads() throws Exception {
+        // falls back to a platform thread when virtual threads are not supported
+        checkRun(true);
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(COUNTER_SCXML), null);
+        final SCXMLExecutor parent = SCXMLTestHelper.getExecutor(scxml);
+        parent.setVirtualThreads(true);
+        assertTrue(new SCXMLExecutor(parent, "child", scxml).isVirtualThreads(), "invoked executor should inherit the setting");
+    }
+
     @Test
     void testSCXMLExecutorSetConfiguration() throws Exception {
         final SCXMLExecutor exec = SCXMLTestHelper.getExecutor("org/apache/commons/scxml2/transitions-01.xml");
@@ -160,6 +217,31 @@ class SCXMLExecutorTest {
         assertEquals("twenty_two", currentStates.iterator().next().getId());
     }
 
+    @Test
+    void testSCXMLExecutorSetRootContextAfterGo() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(
+                "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\">\n"
+                + "  <state id=\"s\">\n"
+                + "    <transition event=\"check\" cond=\"flag == 1\"/>\n"
+                + "    <transition event=\"go\" cond=\"flag == 2\" target=\"t\"/>\n"
+                + "    <transition event=\"go\" target=\"u\"/>\n"
+                + "  </state>\n"
+                + "  <final id=\"t\"/>\n"
+                + "  <final id=\"u\"/>\n"
+                + "</scxml>"), null);
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+        final Context first = new JexlContext();
+        first.set("flag", 1);
+        exec.setRootContext(first);
+        exec.go();
+        SCXMLTestHelper.assertPostTriggerState(exec, "check", "s");
+        // the effective contexts used by the guards must resolve through the new root context
+        final Context second = new JexlContext();
+        second.set("flag", 2);
+        exec.setRootContext(second);
+        SCXMLTestHelper.assertPostTriggerState(exec, "go", "t");
+    }
+
     @Test
     void testSCXMLExecutorSystemEventVariable() throws Exception {
         final SCXMLExecutor exec = SCXMLTestHelper.getExecutor("org/apache/commons/scxml2/transitions-event-variable.xml");
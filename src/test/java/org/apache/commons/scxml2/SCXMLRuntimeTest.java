@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.scxml2.model.SCXML;
+import org.junit.jupiter.api.Test;
+
+class SCXMLRuntimeTest {
+
+    private static final String COUNTER_SCXML =
+            "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\" initial=\"counting\">\n"
+            + "  <datamodel><data id=\"count\" expr=\"0\"/></datamodel>\n"
+            + "  <state id=\"counting\">\n"
+            + "    <transition event=\"inc\"><assign location=\"count\" expr=\"count + 1\"/></transition>\n"
+            + "    <transition event=\"done\" target=\"done\"/>\n"
+            + "  </state>\n"
+            + "  <final id=\"done\"/>\n"
+            + "</scxml>";
+
+    private static void awaitSessions(final SCXMLRuntime runtime, final int count) throws InterruptedException {
+        for (int i = 0; i < 1000 && runtime.getSessionCount() != count; i++) {
+            Thread.sleep(10L);
+        }
+        assertEquals(count, runtime.getSessionCount());
+    }
+
+    @Test
+    void testMultiplexedSessions() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(COUNTER_SCXML), null);
+        final SCXMLRuntime runtime = new SCXMLRuntime(4);
+        try {
+            final List<SCXMLExecutor> executors = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+                assertTrue(runtime.start(exec));
+                executors.add(exec);
+            }
+            assertEquals(50, runtime.getSessionCount());
+            // add the events from multiple threads, concurrently with their processing
+            final List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final Thread producer = new Thread(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        for (final SCXMLExecutor exec : executors) {
+                            exec.addEvent(new EventBuilder("inc", TriggerEvent.SIGNAL_EVENT).build());
+                        }
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            for (final Thread producer : producers) {
+                producer.join();
+            }
+            for (final SCXMLExecutor exec : executors) {
+                exec.addEvent(new EventBuilder("done", TriggerEvent.SIGNAL_EVENT).build());
+            }
+            // reaching the final state unregisters the sessions
+            awaitSessions(runtime, 0);
+            for (final SCXMLExecutor exec : executors) {
+                assertFalse(exec.isRunning());
+                assertEquals(400, exec.getGlobalContext().get("count"));
+            }
+        } finally {
+            runtime.shutdown();
+        }
+    }
+
+    @Test
+    void testRegister() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(COUNTER_SCXML), null);
+        final SCXMLRuntime runtime = new SCXMLRuntime(1);
+        try {
+            final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+            assertFalse(runtime.register(exec), "not yet started state machine should not be registered");
+            exec.go();
+            exec.addEvent(new EventBuilder("inc", TriggerEvent.SIGNAL_EVENT).build());
+            assertTrue(runtime.register(exec));
+            assertThrows(IllegalStateException.class, () -> runtime.register(exec));
+            exec.addEvent(new EventBuilder("inc", TriggerEvent.SIGNAL_EVENT).build());
+            for (int i = 0; i < 1000 && !Integer.valueOf(2).equals(exec.getGlobalContext().get("count")); i++) {
+                Thread.sleep(10L);
+            }
+            assertEquals(2, exec.getGlobalContext().get("count"));
+            assertTrue(runtime.unregister(exec));
+            assertFalse(runtime.unregister(exec));
+            assertEquals(0, runtime.getSessionCount());
+
+            // no longer processed
+            exec.addEvent(new EventBuilder("done", TriggerEvent.SIGNAL_EVENT).build());
+            Thread.sleep(100L);
+            assertTrue(exec.hasPendingEvents());
+            assertTrue(exec.isRunning());
+        } finally {
+            runtime.shutdown();
+        }
+    }
+}
@@ -103,4 +103,18 @@ class StatusTest {
         assertTrue(status.isInState("1"));
         assertFalse(status.isInState("2"));
     }
+
+    @Test
+    void testIsInStateAfterExit() {
+        final State state = new State();
+        state.setId("1");
+        stateConfiguration.enterState(state);
+        assertTrue(status.isInState(state));
+        stateConfiguration.exitState(state);
+        assertFalse(status.isInState("1"));
+        assertFalse(status.isInState(state));
+        stateConfiguration.enterState(state);
+        stateConfiguration.clear();
+        assertFalse(status.isInState("1"));
+    }
 }
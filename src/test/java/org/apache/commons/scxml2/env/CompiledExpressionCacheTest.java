@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionCacheTest {
+
+    private static final CompiledExpressionCache.Compiler<StringBuilder> COMPILER = StringBuilder::new;
+
+    @Test
+    void testDisabled() throws Exception {
+        final CompiledExpressionCache<StringBuilder> cache = new CompiledExpressionCache<>(0);
+        assertNotSame(cache.get("a", COMPILER), cache.get("a", COMPILER));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testEviction() throws Exception {
+        final CompiledExpressionCache<StringBuilder> cache = new CompiledExpressionCache<>(2);
+        final StringBuilder a = cache.get("a", COMPILER);
+        cache.get("b", COMPILER);
+        // "a" becomes more recently used than "b"
+        cache.get("a", COMPILER);
+        cache.get("c", COMPILER);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(a, cache.get("a", COMPILER));
+        assertEquals(2, cache.getHitCount());
+        cache.get("b", COMPILER);
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    void testFailedCompilation() {
+        final CompiledExpressionCache<StringBuilder> cache = new CompiledExpressionCache<>();
+        assertThrows(IllegalStateException.class, () -> cache.get("a", source -> {
+            throw new IllegalStateException(source);
+        }));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testHitsAndMisses() throws Exception {
+        final CompiledExpressionCache<StringBuilder> cache = new CompiledExpressionCache<>();
+        assertEquals(CompiledExpressionCache.DEFAULT_MAX_SIZE, cache.getMaxSize());
+        final StringBuilder a = cache.get("a", COMPILER);
+        assertSame(a, cache.get("a", COMPILER));
+        assertSame(a, cache.get("a", COMPILER));
+        cache.get("b", COMPILER);
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNotSame(a, cache.get("a", COMPILER));
+    }
+}
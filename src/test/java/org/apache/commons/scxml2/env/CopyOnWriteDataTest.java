@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.model.SCXML;
+import org.junit.jupiter.api.Test;
+
+class CopyOnWriteDataTest {
+
+    private static Map<String, Object> newData() {
+        final Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("b", 1);
+        final Map<String, Object> data = new LinkedHashMap<>();
+        data.put("a", nested);
+        data.put("list", new ArrayList<>(Arrays.asList(1, 2, new ArrayList<>(Arrays.asList(3)))));
+        data.put("s", "x");
+        return data;
+    }
+
+    @Test
+    void testExecutorDatamodel() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(
+                "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\">\n"
+                + "  <datamodel><data id=\"json\">{ \"a\": { \"b\": 1 }, \"c\": [1, 2] }</data></datamodel>\n"
+                + "  <state id=\"s1\">\n"
+                + "    <onentry><assign location=\"json.a.b\" expr=\"2\"/></onentry>\n"
+                + "  </state>\n"
+                + "</scxml>"), null);
+        final SCXMLExecutor first = SCXMLTestHelper.getExecutor(scxml);
+        first.setCopyOnWriteDatamodel(true);
+        first.go();
+        final SCXMLExecutor second = SCXMLTestHelper.getExecutor(scxml);
+        second.setCopyOnWriteDatamodel(true);
+        second.go();
+        assertEquals(2, ((Number) first.getEvaluator().eval(first.getGlobalContext(), "json.a.b")).intValue());
+        assertEquals(2, ((Number) second.getEvaluator().eval(second.getGlobalContext(), "json.a.b")).intValue());
+        final Map<?, ?> parsed = (Map<?, ?>) scxml.getDatamodel().getData().get(0).getParsedValue().getValue();
+        assertEquals(1, ((Number) ((Map<?, ?>) parsed.get("a")).get("b")).intValue());
+    }
+
+    @Test
+    void testMap() {
+        final Map<String, Object> data = newData();
+        @SuppressWarnings("unchecked")
+        final Map<Object, Object> view = (Map<Object, Object>) CopyOnWriteData.view(data);
+        assertEquals(data, view);
+        assertEquals("x", view.get("s"));
+        @SuppressWarnings("unchecked")
+        final Map<Object, Object> a = (Map<Object, Object>) view.get("a");
+        a.put("b", 2);
+        view.put("s", "y");
+        @SuppressWarnings("unchecked")
+        final List<Object> list = (List<Object>) view.get("list");
+        @SuppressWarnings("unchecked")
+        final List<Object> nested = (List<Object>) list.get(2);
+        nested.add(4);
+        list.remove(0);
+
+        assertEquals(newData(), data);
+        assertEquals(2, ((Map<?, ?>) view.get("a")).get("b"));
+        assertEquals("y", view.get("s"));
+        assertEquals(Arrays.asList(2, Arrays.asList(3, 4)), view.get("list"));
+        assertEquals(Arrays.asList("a", "list", "s"), new ArrayList<>(view.keySet()));
+    }
+
+    @Test
+    void testUnsupported() {
+        final Object data = new Object();
+        assertSame(data, CopyOnWriteData.view(data));
+        assertTrue(CopyOnWriteData.isSupported(new ArrayList<>()));
+    }
+}
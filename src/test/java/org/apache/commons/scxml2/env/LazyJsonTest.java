@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.env.jexl.JexlEvaluator;
+import org.apache.commons.scxml2.io.ContentParser;
+import org.apache.commons.scxml2.io.SCXMLReader;
+import org.apache.commons.scxml2.model.SCXML;
+import org.junit.jupiter.api.Test;
+
+class LazyJsonTest {
+
+    private static final String JSON = "{ \"a\": { \"b\": [1, 2.5, \"x\", true, null] }, \"c\": [{ \"d\": \"e\" }], "
+            + "\"f\": \"g\" /* comment */ }";
+
+    private static Object parse(final String json) throws IOException {
+        return LazyJson.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testAccess() throws Exception {
+        final Map<?, ?> root = (Map<?, ?>) parse(JSON);
+        assertEquals(Arrays.asList("a", "c", "f"), Arrays.asList(root.keySet().toArray()));
+        assertEquals("g", root.get("f"));
+        final Map<?, ?> a = (Map<?, ?>) root.get("a");
+        assertTrue(LazyJson.isLazy(a));
+        assertEquals(Arrays.asList(1, 2.5, "x", true, null), a.get("b"));
+        assertEquals("e", ((Map<?, ?>) ((List<?>) root.get("c")).get(0)).get("d"));
+        assertEquals(new ContentParser().parseJson(JSON), root);
+        assertEquals(Arrays.asList(1, "é"), parse("[1, \"é\"]"));
+        assertEquals("x", parse("\"x\""));
+        assertFalse(LazyJson.isLazy(parse("1")));
+    }
+
+    @Test
+    void testCloneData() throws Exception {
+        final Map<?, ?> root = (Map<?, ?>) parse(JSON);
+        final Object clone = new JexlEvaluator().cloneData(root);
+        assertTrue(LazyJson.isLazy(clone));
+        assertNotSame(root, clone);
+        assertEquals(root, clone);
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> cloneMap = (Map<String, Object>) clone;
+        cloneMap.put("f", "h");
+        assertEquals("g", root.get("f"));
+        // modified values are deep-copied
+        final Object copy = new JexlEvaluator().cloneData(clone);
+        assertFalse(LazyJson.isLazy(copy));
+        assertEquals(clone, copy);
+    }
+
+    @Test
+    void testEntrySet() throws Exception {
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> root = (Map<String, Object>) parse(JSON);
+        root.entrySet().iterator().next().setValue(1);
+        assertEquals(1, root.get("a"));
+        assertNull(LazyJson.getSource(root));
+
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> keys = (Map<String, Object>) parse(JSON);
+        assertTrue(keys.keySet().remove("a"));
+        assertEquals(Arrays.asList("c", "f"), new ArrayList<>(keys.keySet()));
+        assertNull(LazyJson.getSource(keys));
+
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> values = (Map<String, Object>) parse(JSON);
+        assertTrue(values.values().remove("g"));
+        assertFalse(values.containsKey("f"));
+        assertNull(LazyJson.getSource(values));
+
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> replaced = (Map<String, Object>) parse(JSON);
+        replaced.replaceAll((k, v) -> k);
+        assertEquals("a", replaced.get("a"));
+        assertNull(LazyJson.getSource(replaced));
+    }
+
+    @Test
+    void testInvalid() {
+        assertThrows(IOException.class, () -> parse("{ \"a\": { \"b\": [1, 2 } }"));
+        assertThrows(IOException.class, () -> parse("[1, { \"a\" }]"));
+        assertThrows(IOException.class, () -> parse(""));
+    }
+
+    @Test
+    void testModified() throws Exception {
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> root = (Map<String, Object>) parse(JSON);
+        @SuppressWarnings("unchecked")
+        final List<Object> b = (List<Object>) ((Map<?, ?>) root.get("a")).get("b");
+        assertEquals(JSON, LazyJson.getSource(root));
+        assertEquals("[1, 2.5, \"x\", true, null]", LazyJson.getSource(b));
+        b.set(0, 3);
+        assertNull(LazyJson.getSource(b));
+        assertNull(LazyJson.getSource(root));
+        assertNull(LazyJson.copy(root));
+        assertEquals("{\"a\":{\"b\":[3,2.5,\"x\",true,null]},\"c\":[{\"d\":\"e\"}],\"f\":\"g\"}",
+                new ContentParser().toJson(root));
+    }
+
+    @Test
+    void testReader() throws Exception {
+        final SCXMLReader.Configuration configuration = new SCXMLReader.Configuration();
+        configuration.setLazyJson(true);
+        assertTrue(configuration.isLazyJson());
+        final SCXML scxml = SCXMLReader.read(new StringReader(
+                "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\">\n"
+                + "  <datamodel><data id=\"json\">" + JSON + "</data><data id=\"x\"/></datamodel>\n"
+                + "  <state id=\"s1\">\n"
+                + "    <onentry><assign location=\"x\" expr=\"json.c[0].d\"/></onentry>\n"
+                + "    <transition cond=\"x eq 'e'\" target=\"s2\"/>\n"
+                + "  </state>\n"
+                + "  <final id=\"s2\"/>\n"
+                + "</scxml>"), configuration);
+        final Object json = scxml.getDatamodel().getData().get(0).getParsedValue().getValue();
+        assertTrue(LazyJson.isLazy(json));
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+        exec.go();
+        assertTrue(exec.getStatus().isFinal());
+    }
+
+    @Test
+    void testSendContent() throws Exception {
+        final SCXMLReader.Configuration configuration = new SCXMLReader.Configuration();
+        configuration.setLazyJson(true);
+        final SCXML scxml = SCXMLReader.read(new StringReader(
+                "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\">\n"
+                + "  <state id=\"s1\">\n"
+                + "    <onentry>\n"
+                + "      <send event=\"e\" target=\"#_internal\"><content>" + JSON + "</content></send>\n"
+                + "    </onentry>\n"
+                + "    <transition event=\"e\" cond=\"_event.data.c[0].d eq 'e'\" target=\"s2\"/>\n"
+                + "  </state>\n"
+                + "  <final id=\"s2\"/>\n"
+                + "</scxml>"), configuration);
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+        exec.go();
+        assertTrue(exec.getStatus().isFinal());
+    }
+
+    @Test
+    void testSerialization() throws Exception {
+        final Map<?, ?> root = (Map<?, ?>) parse(JSON);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(root);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            final Object copy = in.readObject();
+            assertTrue(LazyJson.isLazy(copy));
+            assertEquals(root, copy);
+        }
+    }
+
+    @Test
+    void testWriteSource() throws Exception {
+        final List<?> c = (List<?>) ((Map<?, ?>) parse(JSON)).get("c");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(LazyJson.writeSource(c, out));
+        assertArrayEquals("[{ \"d\": \"e\" }]".getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        assertFalse(LazyJson.writeSource(Arrays.asList(1), out));
+    }
+}
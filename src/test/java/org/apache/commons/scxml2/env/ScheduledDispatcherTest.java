@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLIOProcessor;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.TriggerEvent;
+import org.apache.commons.scxml2.model.SCXML;
+import org.junit.jupiter.api.Test;
+
+class ScheduledDispatcherTest {
+
+    private final BlockingQueue<TriggerEvent> events = new LinkedBlockingQueue<>();
+
+    private Map<String, SCXMLIOProcessor> ioProcessors() {
+        final Map<String, SCXMLIOProcessor> ioProcessors = new HashMap<>();
+        ioProcessors.put(SCXMLIOProcessor.SCXML_EVENT_PROCESSOR, events::add);
+        ioProcessors.put(SCXMLIOProcessor.INTERNAL_EVENT_PROCESSOR, events::add);
+        return ioProcessors;
+    }
+
+    @Test
+    void testCancel() throws Exception {
+        final ScheduledDispatcher dispatcher = new ScheduledDispatcher();
+        dispatcher.send(ioProcessors(), "send1", null, null, "event.foo", null, null, 200L);
+        assertEquals(1, dispatcher.getPendingCount());
+        dispatcher.cancel("send1");
+        // cancelling an unknown or already cancelled send id is ignored
+        dispatcher.cancel("send1");
+        dispatcher.cancel("unknown");
+        assertEquals(0, dispatcher.getPendingCount());
+        assertEquals(1, dispatcher.getCancelledCount());
+        assertNull(events.poll(500L, TimeUnit.MILLISECONDS));
+        assertEquals(0, dispatcher.getFiredCount());
+    }
+
+    @Test
+    void testCancelBySendId() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse("org/apache/commons/scxml2/model/cancel-test-01.xml");
+        final ScheduledDispatcher dispatcher = new ScheduledDispatcher();
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml, null, dispatcher);
+        exec.go();
+        SCXMLTestHelper.fireEvent(exec, "event.foo");
+        assertEquals(0, dispatcher.getPendingCount());
+        assertEquals(1, dispatcher.getCancelledCount());
+        SCXMLTestHelper.assertState(exec, "twenty");
+    }
+
+    @Test
+    void testNewInstanceSharesCounters() throws Exception {
+        final ScheduledDispatcher dispatcher = new ScheduledDispatcher();
+        final ScheduledDispatcher child = dispatcher.newInstance();
+        child.send(ioProcessors(), "send1", null, null, "event.foo", null, null, 10L);
+        dispatcher.send(ioProcessors(), "send1", null, null, "event.bar", null, null, 60000L);
+        // send ids are tracked per instance
+        dispatcher.cancel("send1");
+        assertNotNull(events.poll(5L, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.getFiredCount());
+        assertEquals(1, child.getCancelledCount());
+        assertEquals(0, child.getPendingCount());
+    }
+
+    @Test
+    void testSend() throws Exception {
+        final ScheduledDispatcher dispatcher = new ScheduledDispatcher();
+        dispatcher.send(ioProcessors(), "send1", null, null, "event.foo", null, null, 50L);
+        dispatcher.send(ioProcessors(), "send2", null, null, "event.bar", null, null, 10L);
+        final TriggerEvent first = events.poll(5L, TimeUnit.SECONDS);
+        final TriggerEvent second = events.poll(5L, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals("event.bar", first.getName());
+        assertEquals("send2", first.getSendId());
+        assertEquals("event.foo", second.getName());
+        assertEquals(2, dispatcher.getFiredCount());
+        assertEquals(0, dispatcher.getPendingCount());
+        assertEquals(0, dispatcher.getCancelledCount());
+    }
+}
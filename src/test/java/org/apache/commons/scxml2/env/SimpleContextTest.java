@@ -53,6 +53,35 @@ class SimpleContextTest {
         }
     }
 
+    @Test
+    void testEffectiveContextMapShadowing() {
+        final SimpleContext rootContext = new SimpleContext();
+        rootContext.setLocal("key", "root");
+        rootContext.setLocal("other", "root");
+        final SimpleContext parentContext = new SimpleContext(rootContext);
+        final SimpleContext leafContext = new SimpleContext(parentContext);
+        final EffectiveContextMap effectiveVars = new EffectiveContextMap(leafContext);
+        final SimpleContext effectiveContext = new SimpleContext(leafContext, effectiveVars);
+        assertEquals("root", effectiveContext.get("key"));
+        assertTrue(effectiveVars.containsKey("other"));
+        assertFalse(effectiveVars.containsKey("missing"));
+
+        // the same effective context must reflect later changes within the chain of contexts
+        parentContext.setLocal("key", null);
+        assertTrue(effectiveVars.containsKey("key"));
+        assertNull(effectiveVars.get("key"), "a null variable must shadow the same named parent variable");
+        parentContext.getVars().remove("key");
+        assertEquals("root", effectiveVars.get("key"));
+
+        // assigning an existing variable updates the context defining it, a new variable is created in the leaf
+        effectiveContext.set("other", "changed");
+        assertEquals("changed", rootContext.get("other"));
+        assertFalse(leafContext.hasLocal("other"));
+        effectiveContext.set("new", "leaf");
+        assertTrue(leafContext.hasLocal("new"));
+        assertEquals("leaf", effectiveVars.get("new"));
+    }
+
     @Test
     void testGetNull() {
         final Object value = context.get("key");
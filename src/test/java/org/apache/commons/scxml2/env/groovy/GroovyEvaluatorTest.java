@@ -18,19 +18,30 @@ package org.apache.commons.scxml2.env.groovy;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
 import org.apache.commons.scxml2.Context;
 import org.apache.commons.scxml2.Evaluator;
 import org.apache.commons.scxml2.SCXMLExpressionException;
 import org.apache.commons.scxml2.SCXMLSystemContext;
 import org.apache.commons.scxml2.StateConfiguration;
 import org.apache.commons.scxml2.Status;
+import org.apache.commons.scxml2.model.ModelExpressions;
 import org.apache.commons.scxml2.model.State;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import groovy.lang.Script;
+
 class GroovyEvaluatorTest {
 
     private static final String BAD_EXPRESSION = ">";
@@ -54,6 +65,22 @@ class GroovyEvaluatorTest {
         assertTrue(eval.evalCond(ctx, "In('state1')"));
     }
 
+    @Test
+    void testCompileAssign() throws SCXMLExpressionException {
+        final Evaluator eval = new GroovyEvaluator();
+        ctx.set("m", new HashMap<String, Object>());
+        eval.compileAssign("x").assign(ctx, 1);
+        assertEquals(1, ctx.get("x"));
+        eval.compileAssign("m.y").assign(ctx, 2);
+        assertEquals(2, eval.eval(ctx, "m.y"));
+        eval.compileAssign("m['z']").assign(ctx, 3);
+        assertEquals(3, eval.eval(ctx, "m.z"));
+        eval.evalAssign(ctx, "x", 4);
+        assertEquals(4, ctx.get("x"));
+        assertEquals(2, ctx.getVars().size());
+        assertThrows(SCXMLExpressionException.class, () -> eval.evalAssign(ctx, "n.y", 5));
+    }
+
     @Test
     void testErrorMessage() {
         final Evaluator eval = new GroovyEvaluator();
@@ -72,6 +99,27 @@ class GroovyEvaluatorTest {
         assertEquals(2, eval.eval(ctx, "1 + 1"));
     }
 
+    @Test
+    void testEvalFirstCond() {
+        final Evaluator eval = new GroovyEvaluator();
+        ctx.set("x", 2);
+        final List<Integer> errors = new ArrayList<>();
+        assertEquals(2, eval.evalFirstCond(ctx, Arrays.asList("x == 1", BAD_EXPRESSION, "x == 2"),
+                (e, i) -> errors.add(i)));
+        assertEquals(Collections.singletonList(1), errors);
+        assertEquals(-1, eval.evalFirstCond(ctx, Arrays.asList("x eq 1", "x gt 2"), (e, i) -> errors.add(i)));
+    }
+
+    @Test
+    void testPrecompile() throws SCXMLExpressionException {
+        final GroovyEvaluator evaluator = new GroovyEvaluator();
+        evaluator.precompile(ModelExpressions.Kind.EXPRESSION, "1 + 1");
+        assertEquals(1, evaluator.getScriptCache().getMissCount());
+        assertEquals(2, evaluator.eval(ctx, "1 + 1"));
+        assertEquals(1, evaluator.getScriptCache().getMissCount());
+        assertEquals(1, evaluator.getScriptCache().getHitCount());
+    }
+
     @Test
     void testPreprocessScript() {
         final GroovyEvaluator evaluator = new GroovyEvaluator();
@@ -87,6 +135,28 @@ class GroovyEvaluatorTest {
         assertTrue(eval.evalCond(ctx, "1 + 1 == 2"));
     }
 
+    @Test
+    void testReusedScript() {
+        final GroovyEvaluator eval = new GroovyEvaluator();
+        final GroovyContext groovyCtx = (GroovyContext) ctx;
+        final GroovyContext effective = eval.getEffectiveContext(groovyCtx);
+        final Script script = eval.getScript(effective, null, "x + 1");
+        assertSame(script, eval.getScript(effective, null, "x + 1"));
+        assertNotSame(script, eval.getScript(effective, null, "x + 2"));
+        final GroovyContext other = eval.getEffectiveContext(new GroovyContext(ctx, eval));
+        assertNotSame(script, eval.getScript(other, null, "x + 1"));
+        assertSame(script.getClass(), eval.getScript(other, null, "x + 1").getClass());
+    }
+
+    @Test
+    void testReusedScriptEval() throws SCXMLExpressionException {
+        final Evaluator eval = new GroovyEvaluator();
+        for (int i = 0; i < 3; i++) {
+            ctx.set("x", i);
+            assertEquals(i + 1, eval.eval(ctx, "x + 1"));
+        }
+    }
+
     @Test
     void testScript() throws SCXMLExpressionException {
         final Evaluator eval = new GroovyEvaluator();
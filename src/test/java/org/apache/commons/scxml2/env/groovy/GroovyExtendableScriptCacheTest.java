@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env.groovy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.junit.jupiter.api.Test;
+
+import groovy.lang.Script;
+
+class GroovyExtendableScriptCacheTest {
+
+    @Test
+    void testBaseClass() {
+        final GroovyExtendableScriptCache cache = new GroovyExtendableScriptCache();
+        final Class<? extends Script> scriptClass = cache.getScriptClass(null, "1 + 1");
+        final Class<? extends Script> baseScriptClass = cache.getScriptClass(GroovySCXMLScript.class.getName(), "1 + 1");
+        assertNotSame(scriptClass, baseScriptClass);
+        assertTrue(GroovySCXMLScript.class.isAssignableFrom(baseScriptClass));
+        assertSame(baseScriptClass, cache.getScriptClass(GroovySCXMLScript.class.getName(), "1 + 1"));
+        // a script class can be used as base class
+        final Class<? extends Script> derivedScriptClass = cache.getScriptClass(baseScriptClass.getName(), "2 + 2");
+        assertSame(baseScriptClass, derivedScriptClass.getSuperclass());
+    }
+
+    @Test
+    void testCompileFailure() {
+        final GroovyExtendableScriptCache cache = new GroovyExtendableScriptCache();
+        assertThrows(CompilationFailedException.class, () -> cache.getScriptClass(null, ">"));
+        assertTrue(cache.isEmpty());
+        assertThrows(CompilationFailedException.class, () -> cache.getScriptClass(null, ">"));
+    }
+
+    @Test
+    void testConcurrentCompilation() throws Exception {
+        final GroovyExtendableScriptCache cache = new GroovyExtendableScriptCache();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Class<? extends Script>>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                final String source = "x + " + i % 4;
+                final String baseClass = i % 8 < 4 ? null : GroovySCXMLScript.class.getName();
+                final Callable<Class<? extends Script>> task = () -> cache.getScriptClass(baseClass, source);
+                futures.add(executor.submit(task));
+            }
+            for (int i = 0; i < 64; i++) {
+                // same source and base class: same compiled class
+                assertSame(futures.get(i % 8).get(), futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testEviction() throws Exception {
+        final GroovyExtendableScriptCache cache = new GroovyExtendableScriptCache();
+        cache.setMaxSize(8);
+        final WeakReference<Class<? extends Script>> evicted = new WeakReference<>(cache.getScriptClass(null, "0"));
+        for (int i = 1; i < 20; i++) {
+            cache.getScriptClass(null, Integer.toString(i));
+            assertTrue(cache.size() <= 8);
+        }
+        assertEquals(20, cache.getMissCount());
+        assertEquals(12, cache.getEvictionCount());
+        assertTrue(cache.getCompileTimeNanos() > 0);
+        // recently used scripts remain cached
+        cache.getScriptClass(null, "19");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(20, cache.getMissCount());
+        // an evicted script is compiled again
+        cache.getScriptClass(null, "0");
+        assertEquals(21, cache.getMissCount());
+        // and the class of the evicted script can be unloaded
+        for (int i = 0; i < 10 && evicted.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(evicted.get());
+    }
+
+    @Test
+    void testEvictionKeepsBaseClass() {
+        final GroovyExtendableScriptCache cache = new GroovyExtendableScriptCache();
+        cache.setMaxSize(4);
+        final Class<? extends Script> baseScriptClass = cache.getScriptClass(null, "def base() { 42 }");
+        for (int i = 0; i < 20; i++) {
+            assertEquals(42 + i, cache.getScript(baseScriptClass.getName(), "base() + " + i).run());
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+        assertSame(baseScriptClass, cache.getScriptClass(null, "def base() { 42 }"));
+    }
+
+    @Test
+    void testGetScript() {
+        final GroovyExtendableScriptCache cache = new GroovyExtendableScriptCache();
+        final Script script = cache.getScript("6 * 7");
+        assertNotSame(script, cache.getScript("6 * 7"));
+        assertSame(script.getClass(), cache.getScript("6 * 7").getClass());
+        assertEquals(42, script.run());
+        cache.clearCache();
+        assertTrue(cache.isEmpty());
+        assertNotSame(script.getClass(), cache.getScript("6 * 7").getClass());
+    }
+}
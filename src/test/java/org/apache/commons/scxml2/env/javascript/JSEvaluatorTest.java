@@ -28,10 +28,12 @@ import java.util.Map;
 
 import org.apache.commons.scxml2.Context;
 import org.apache.commons.scxml2.Evaluator;
+import org.apache.commons.scxml2.EvaluatorFactory;
 import org.apache.commons.scxml2.SCXMLExecutor;
 import org.apache.commons.scxml2.SCXMLExpressionException;
 import org.apache.commons.scxml2.SCXMLTestHelper;
 import org.apache.commons.scxml2.io.SCXMLReader;
+import org.apache.commons.scxml2.model.SCXML;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -140,6 +142,85 @@ class JSEvaluatorTest {
         assertTrue((Boolean) evaluator.eval(context, "1+1 == 2"));
     }
 
+    /**
+     * Tests assigning through a compiled location.
+     */
+    @Test
+    void testCompileAssign() throws Exception {
+        final JSEvaluator evaluator = (JSEvaluator) this.evaluator;
+        evaluator.getScriptCache().clear();
+        context.set("x", -1);
+        final int vars = context.getVars().size();
+        final Evaluator.Assigner assigner = evaluator.compileAssign("x");
+        for (int i = 0; i < 3; i++) {
+            assigner.assign(context, i);
+            assertEquals(i, ((Number) context.get("x")).intValue());
+        }
+        assertEquals(1, evaluator.getScriptCache().size());
+        assertTrue(evaluator.getScriptCache().getHitCount() >= 2);
+        assertEquals(vars, context.getVars().size());
+    }
+
+    /**
+     * Tests caching of the compiled conditions and expressions.
+     */
+    @Test
+    void testCompiledScriptCache() throws Exception {
+        final JSEvaluator evaluator = (JSEvaluator) this.evaluator;
+        evaluator.getConditionCache().clear();
+        evaluator.getScriptCache().clear();
+        for (int i = 0; i < 3; i++) {
+            context.set("x", i);
+            assertEquals(i + 1, ((Number) evaluator.eval(context, "x + 1")).intValue());
+            assertEquals(i == 1, evaluator.evalCond(context, "x == 1"));
+        }
+        assertEquals(1, evaluator.getScriptCache().size());
+        assertEquals(1, evaluator.getConditionCache().size());
+        assertTrue(evaluator.getScriptCache().getHitCount() >= 2);
+        assertTrue(evaluator.getConditionCache().getHitCount() >= 2);
+    }
+
+    /**
+     * Tests the uncached evaluation of conditions and expressions.
+     */
+    @Test
+    void testDisabledCache() throws Exception {
+        final JSEvaluator evaluator = new JSEvaluator(0);
+        final SCXMLExecutor fsm = SCXMLTestHelper.getExecutor(SCXMLReader.read(new StringReader(SCRIPT)), evaluator);
+        fsm.go();
+        assertEquals("leaf", evaluator.eval(fsm.getGlobalContext(), "forest.tree.branch.twig"));
+        assertTrue(evaluator.evalCond(fsm.getGlobalContext(), "forest.tree.branch.twig == 'leaf'"));
+        assertEquals(0, evaluator.getScriptCache().size());
+        assertEquals(0, evaluator.getConditionCache().size());
+    }
+
+    /**
+     * Tests precompiling the conditions and expressions of a SCXML document.
+     */
+    @Test
+    void testPrecompile() throws Exception {
+        final SCXML scxml = SCXMLReader.read(new StringReader(
+                "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"ecmascript\">\n"
+                + "  <datamodel><data id=\"x\" expr=\"1\"/></datamodel>\n"
+                + "  <state id=\"s1\">\n"
+                + "    <onentry><log expr=\"x + 1\"/><script>x = 2;</script></onentry>\n"
+                + "    <transition cond=\"x == 2\" target=\"s2\"/>\n"
+                + "  </state>\n"
+                + "  <final id=\"s2\"/>\n"
+                + "</scxml>"));
+        final JSEvaluator evaluator = (JSEvaluator) EvaluatorFactory.getEvaluator(scxml);
+        // the provider compiles lazily, not for every new session
+        assertEquals(0, evaluator.getScriptCache().size());
+        evaluator.precompile(scxml);
+        assertEquals(3, evaluator.getScriptCache().size());
+        assertEquals(1, evaluator.getConditionCache().size());
+        final SCXMLExecutor fsm = SCXMLTestHelper.getExecutor(scxml, evaluator);
+        fsm.go();
+        assertTrue(fsm.getStatus().isFinal());
+        assertEquals(3, evaluator.getScriptCache().getMissCount());
+        assertEquals(1, evaluator.getConditionCache().getMissCount());
+    }
+
     /**
      * Tests evaluation with SCXML data model expressions.
      */
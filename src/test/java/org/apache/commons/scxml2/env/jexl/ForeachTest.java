@@ -16,8 +16,17 @@
  */
 package org.apache.commons.scxml2.env.jexl;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.apache.commons.scxml2.SCXMLExecutor;
 import org.apache.commons.scxml2.SCXMLTestHelper;
 import org.junit.jupiter.api.Test;
@@ -27,10 +36,74 @@ import org.junit.jupiter.api.Test;
  */
 class ForeachTest {
 
+    private static final String SUM =
+            "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\">" +
+            "  <datamodel><data id=\"sum\" expr=\"0\"/><data id=\"last\" expr=\"-1\"/></datamodel>" +
+            "  <state id=\"s\">" +
+            "    <transition event=\"sum\">" +
+            "      <assign location=\"sum\" expr=\"0\"/>" +
+            "      <foreach array=\"_event.data\" item=\"item\" index=\"index\">" +
+            "        <assign location=\"sum\" expr=\"sum + item\"/>" +
+            "        <assign location=\"last\" expr=\"index\"/>" +
+            "      </foreach>" +
+            "    </transition>" +
+            "    <transition event=\"grow\">" +
+            "      <foreach array=\"_event.data\" item=\"item\">" +
+            "        <script>_event.data.add(item)</script>" +
+            "      </foreach>" +
+            "    </transition>" +
+            "  </state>" +
+            "</scxml>";
+
+    private static void assertSum(final SCXMLExecutor exec, final Object array, final int sum, final int last)
+            throws Exception {
+        SCXMLTestHelper.fireEvent(exec, "sum", array);
+        assertEquals(sum, ((Number) exec.getGlobalContext().get("sum")).intValue());
+        assertEquals(last, ((Number) exec.getGlobalContext().get("last")).intValue());
+    }
+
     @Test
     void testForeach() throws Exception {
         final SCXMLExecutor exec = SCXMLTestHelper.getExecutor("org/apache/commons/scxml2/env/jexl/foreach.xml");
         exec.go();
         assertTrue(exec.getStatus().isFinal());
     }
+
+    @Test
+    void testForeachArrays() throws Exception {
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(SCXMLTestHelper.parse(new StringReader(SUM), null));
+        exec.go();
+        assertSum(exec, new int[] {1, 2, 3}, 6, 2);
+        assertSum(exec, new long[] {1L, 2L}, 3, 1);
+        assertSum(exec, new short[] {4}, 4, 0);
+        assertSum(exec, new byte[] {1, 1, 1, 1}, 4, 3);
+        assertSum(exec, new double[] {1.0, 2.0}, 3, 1);
+        assertSum(exec, new float[] {1.0f, 2.0f, 3.0f}, 6, 2);
+        assertSum(exec, new Integer[] {5, 5}, 10, 1);
+        assertSum(exec, new int[0], 0, 1);
+    }
+
+    @Test
+    void testForeachCollections() throws Exception {
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(SCXMLTestHelper.parse(new StringReader(SUM), null));
+        exec.go();
+        assertSum(exec, new ArrayList<>(Arrays.asList(1, 2, 3)), 6, 2);
+        assertSum(exec, new LinkedHashSet<>(Arrays.asList(1, 2)), 3, 1);
+        assertSum(exec, new CopyOnWriteArrayList<>(Arrays.asList(4, 5)), 9, 1);
+        assertSum(exec, Collections.singletonList(7), 7, 0);
+        assertSum(exec, Collections.emptyList(), 0, 0);
+        assertSum(exec, (Iterable<Integer>) Arrays.asList(2, 2)::iterator, 4, 1);
+    }
+
+    @Test
+    void testForeachIteratesSnapshot() throws Exception {
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(SCXMLTestHelper.parse(new StringReader(SUM), null));
+        exec.go();
+        final List<Integer> list = new ArrayList<>(Arrays.asList(1, 2, 3));
+        SCXMLTestHelper.fireEvent(exec, "grow", list);
+        assertEquals(Arrays.asList(1, 2, 3, 1, 2, 3), list);
+        final List<Integer> cowList = new CopyOnWriteArrayList<>(Arrays.asList(1, 2));
+        SCXMLTestHelper.fireEvent(exec, "grow", cowList);
+        assertEquals(Arrays.asList(1, 2, 1, 2), cowList);
+    }
 }
@@ -21,9 +21,18 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.commons.scxml2.Context;
 import org.apache.commons.scxml2.Evaluator;
+import org.apache.commons.scxml2.EvaluatorFactory;
 import org.apache.commons.scxml2.SCXMLExpressionException;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.model.SCXML;
 import org.junit.jupiter.api.Test;
 
 class JexlEvaluatorTest {
@@ -43,6 +52,96 @@ class JexlEvaluatorTest {
                 "JexlEvaluator: Incorrect error message");
     }
 
+    @Test
+    void testCompileAssign() throws Exception {
+        final JexlEvaluator eval = new JexlEvaluator();
+        final Evaluator.Assigner assigner = eval.compileAssign("x");
+        for (int i = 0; i < 3; i++) {
+            assigner.assign(ctx, i);
+            assertEquals(i, ctx.get("x"));
+            eval.evalAssign(ctx, "x", i + 1);
+            assertEquals(i + 1, ctx.get("x"));
+        }
+        assertEquals(1, eval.getAssignCache().getMissCount());
+        assertEquals(3, eval.getAssignCache().getHitCount());
+        assertEquals(1, ctx.getVars().size());
+        final SCXMLExpressionException e = assertThrows(SCXMLExpressionException.class,
+                () -> eval.compileAssign(BAD_EXPRESSION));
+        assertTrue(e.getMessage().startsWith("Error evaluating assign to location=\"" + BAD_EXPRESSION + "\":"));
+    }
+
+    @Test
+    void testEffectiveContext() throws SCXMLExpressionException {
+        final JexlEvaluator eval = new JexlEvaluator();
+        final JexlContext root = new JexlContext();
+        root.setLocal("x", 1);
+        final JexlContext leaf = new JexlContext(new JexlContext(root));
+        assertEquals(2, eval.eval(leaf, "x + 1"));
+        eval.evalScript(leaf, "x = 5; y = x;");
+        assertEquals(5, root.get("x"));
+        assertTrue(leaf.hasLocal("y"));
+        leaf.setLocal("x", 10);
+        assertEquals(11, eval.eval(leaf, "x + 1"));
+        assertEquals(6, eval.eval(leaf.getParent(), "x + 1"));
+    }
+
+    @Test
+    void testEvalFirstCond() {
+        final JexlEvaluator eval = new JexlEvaluator();
+        ctx.set("x", 2);
+        final List<Integer> errors = new ArrayList<>();
+        assertEquals(2, eval.evalFirstCond(ctx, Arrays.asList("x == 1", BAD_EXPRESSION, "x == 2", "true"),
+                (e, i) -> errors.add(i)));
+        assertEquals(Collections.singletonList(1), errors);
+        assertEquals(1, eval.evalFirstCond(ctx, Arrays.asList("x == 1", null), (e, i) -> errors.add(i)));
+        assertEquals(-1, eval.evalFirstCond(ctx, Arrays.asList("x == 1", "x == 3"), (e, i) -> errors.add(i)));
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    void testExpressionCache() throws Exception {
+        final JexlEvaluator eval = new JexlEvaluator();
+        ctx.set("x", 3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(eval.evalCond(ctx, "x > 2"));
+            assertEquals(6, eval.eval(ctx, "x * 2"));
+            eval.evalScript(ctx, "y = x;");
+        }
+        assertEquals(2, eval.getExpressionCache().size());
+        assertEquals(2, eval.getExpressionCache().getMissCount());
+        assertEquals(4, eval.getExpressionCache().getHitCount());
+        assertEquals(1, eval.getScriptCache().getMissCount());
+        assertEquals(2, eval.getScriptCache().getHitCount());
+
+        final JexlEvaluator uncached = new JexlEvaluator(0);
+        assertEquals(6, uncached.eval(ctx, "x * 2"));
+        assertEquals(0, uncached.getExpressionCache().size());
+    }
+
+    @Test
+    void testPrecompile() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(
+                "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\">\n"
+                + "  <datamodel><data id=\"x\" expr=\"1\"/></datamodel>\n"
+                + "  <state id=\"s1\">\n"
+                + "    <onentry><if cond=\"x > 0\"><log expr=\"x\"/><else/><script>x = 2;</script></if></onentry>\n"
+                + "    <transition cond=\"x eq 1\" target=\"s2\"/>\n"
+                + "  </state>\n"
+                + "  <final id=\"s2\"/>\n"
+                + "</scxml>"), null);
+        final JexlEvaluator eval = (JexlEvaluator) EvaluatorFactory.getEvaluator(scxml);
+        // the provider compiles lazily, not for every new session
+        assertEquals(0, eval.getExpressionCache().size());
+        eval.precompile(scxml);
+        // including the implicit "true" condition of the <else/>
+        assertEquals(5, eval.getExpressionCache().size());
+        assertEquals(1, eval.getScriptCache().size());
+        assertEquals(0, eval.getExpressionCache().getHitCount());
+        ctx.set("x", 1);
+        assertTrue(eval.evalCond(ctx, "x eq 1"));
+        assertEquals(1, eval.getExpressionCache().getHitCount());
+    }
+
     @Test
     void testPristine() throws SCXMLExpressionException {
         final Evaluator eval = new JexlEvaluator();
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.scxml2.Context;
+import org.apache.commons.scxml2.EvaluatorFactory;
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLExpressionException;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.env.SimpleContext;
+import org.apache.commons.scxml2.model.SCXML;
+import org.junit.jupiter.api.Test;
+
+class LambdaEvaluatorTest {
+
+    public static class Counter {
+
+        private int count;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(final int count) {
+            this.count = count;
+        }
+    }
+
+    private static final String SCXML =
+            "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"lambda\">\n"
+            + "  <datamodel><data id=\"x\" expr=\"0\"/><data id=\"limit\" expr=\"2 * 3 - 3\"/></datamodel>\n"
+            + "  <parallel id=\"p\">\n"
+            + "    <state id=\"a\">\n"
+            + "      <transition event=\"inc\" cond=\"x &lt; limit &amp;&amp; In('b')\">\n"
+            + "        <assign location=\"x\" expr=\"x + _event.data.count\"/>\n"
+            + "      </transition>\n"
+            + "      <transition event=\"inc\" target=\"done\"/>\n"
+            + "    </state>\n"
+            + "    <state id=\"b\"/>\n"
+            + "  </parallel>\n"
+            + "  <final id=\"done\"/>\n"
+            + "</scxml>";
+
+    private final LambdaEvaluator eval = new LambdaEvaluator();
+    private final Context ctx = new SimpleContext();
+
+    @Test
+    void testArithmetic() throws SCXMLExpressionException {
+        ctx.set("i", 7);
+        ctx.set("l", 7L);
+        ctx.set("d", 0.5);
+        assertEquals(10, eval.eval(ctx, "i + 3"));
+        assertEquals(8L, eval.eval(ctx, "l + 1"));
+        assertEquals(7.5, eval.eval(ctx, "i + d"));
+        assertEquals(3, eval.eval(ctx, "i / 2"));
+        assertEquals(1, eval.eval(ctx, "i % 2"));
+        assertEquals(-14, eval.eval(ctx, "-i * 2"));
+        assertEquals(20, eval.eval(ctx, "(i + 3) * 2"));
+        assertEquals("i=7", eval.eval(ctx, "'i=' + i"));
+        assertEquals(4294967296L, eval.eval(ctx, "65536 * 65536"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "i / 0"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "i + true"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "9223372036854775807 + i"));
+    }
+
+    @Test
+    void testAssign() throws SCXMLExpressionException {
+        final Map<String, Object> map = new HashMap<>();
+        final Counter counter = new Counter();
+        ctx.set("x", 0);
+        ctx.set("map", map);
+        ctx.set("counter", counter);
+        eval.evalAssign(ctx, "x", 1);
+        eval.evalAssign(ctx, "map.y", 2);
+        eval.evalAssign(ctx, "counter.count", 3);
+        assertEquals(1, ctx.get("x"));
+        assertEquals(2, map.get("y"));
+        assertEquals(3, counter.getCount());
+        assertThrows(SCXMLExpressionException.class, () -> eval.evalAssign(ctx, "undefined", 1));
+        assertThrows(SCXMLExpressionException.class, () -> eval.evalAssign(ctx, "counter.unknown", 1));
+        assertThrows(SCXMLExpressionException.class, () -> eval.evalAssign(ctx, "x + 1", 1));
+    }
+
+    @Test
+    void testConditions() throws SCXMLExpressionException {
+        ctx.set("x", 3);
+        ctx.set("s", "abc");
+        ctx.set("n", null);
+        assertTrue(eval.evalCond(ctx, "x == 3"));
+        assertTrue(eval.evalCond(ctx, "x == 3.0"));
+        assertTrue(eval.evalCond(ctx, "x != 4 && x >= 3 && x <= 3 && x > 2 && x < 4"));
+        assertTrue(eval.evalCond(ctx, "x == 4 || !(x == 4)"));
+        assertTrue(eval.evalCond(ctx, "s == 'abc' && s < \"abd\""));
+        assertTrue(eval.evalCond(ctx, "n == null"));
+        assertFalse(eval.evalCond(ctx, "n"));
+        // evaluated lazily
+        assertFalse(eval.evalCond(ctx, "x == 4 && undefined"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.evalCond(ctx, "undefined == 1"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.evalCond(ctx, "x"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.evalCond(ctx, "x && true"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.evalCond(ctx, "s < 1"));
+    }
+
+    @Test
+    void testPrecompile() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(SCXML), null);
+        final LambdaEvaluator evaluator = (LambdaEvaluator) new LambdaEvaluator.LambdaEvaluatorProvider()
+                .getEvaluator(scxml);
+        // the provider compiles lazily, not for every new session
+        assertEquals(0, evaluator.getExpressionCache().size());
+        evaluator.precompile(scxml);
+        assertEquals(4, evaluator.getExpressionCache().size());
+    }
+
+    @Test
+    void testProperties() throws SCXMLExpressionException {
+        final Counter counter = new Counter();
+        counter.setCount(5);
+        final Map<String, Object> map = new HashMap<>();
+        map.put("counter", counter);
+        ctx.set("map", map);
+        assertEquals(5, eval.eval(ctx, "map.counter.count"));
+        assertNull(eval.eval(ctx, "map.missing"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "map.counter.class"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "map.counter.class.classLoader"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "map.counter.unknown"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "map.missing.count"));
+    }
+
+    @Test
+    void testSyntaxErrors() {
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "1 +"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "(1"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "1 = 1"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "'abc"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.eval(ctx, "f(1)"));
+        assertThrows(SCXMLExpressionException.class, () -> eval.evalScript(ctx, "x = 1"));
+        assertEquals(0, eval.getExpressionCache().size());
+    }
+
+    @Test
+    void testStateMachine() throws Exception {
+        EvaluatorFactory.registerEvaluatorProvider(new LambdaEvaluator.LambdaEvaluatorProvider());
+        try {
+            final SCXML scxml = SCXMLTestHelper.parse(new StringReader(SCXML), null);
+            final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+            exec.go();
+            final LambdaEvaluator evaluator = (LambdaEvaluator) exec.getEvaluator();
+            // compiled lazily: only the <data> expressions are evaluated yet
+            assertEquals(2, evaluator.getExpressionCache().size());
+            final Counter counter = new Counter();
+            counter.setCount(2);
+            SCXMLTestHelper.fireEvent(exec, "inc", counter);
+            assertEquals(2, exec.getGlobalContext().get("x"));
+            SCXMLTestHelper.fireEvent(exec, "inc", counter);
+            assertEquals(4, exec.getGlobalContext().get("x"));
+            SCXMLTestHelper.fireEvent(exec, "inc", counter);
+            assertTrue(exec.getStatus().isFinal());
+            assertEquals(4, evaluator.getExpressionCache().size());
+        } finally {
+            EvaluatorFactory.unregisterEvaluatorProvider(LambdaEvaluator.SUPPORTED_DATA_MODEL);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.env.minimal;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.model.SCXML;
+import org.junit.jupiter.api.Test;
+
+class MinimalEvaluatorTest {
+
+    private static final String SCXML =
+            "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"null\">\n"
+            + "  <parallel id=\"p\">\n"
+            + "    <state id=\"a\"><transition event=\"e\" cond=\"In(b)\" target=\"a1\"/></state>\n"
+            + "    <state id=\"b\"/>\n"
+            + "  </parallel>\n"
+            + "  <state id=\"a1\"/>\n"
+            + "</scxml>";
+
+    @Test
+    void testInPredicate() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(SCXML), null);
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+        exec.go();
+        final MinimalEvaluator eval = (MinimalEvaluator) exec.getEvaluator();
+        assertTrue(eval.evalCond(exec.getGlobalContext(), "In(b)"));
+        assertTrue(eval.evalCond(exec.getGlobalContext(), " In(p) "));
+        assertFalse(eval.evalCond(exec.getGlobalContext(), "In(a1)"));
+        assertFalse(eval.evalCond(exec.getGlobalContext(), "In(x)"));
+        SCXMLTestHelper.fireEvent(exec, "e");
+        assertTrue(eval.evalCond(exec.getGlobalContext(), "In(a1)"));
+        assertFalse(eval.evalCond(exec.getGlobalContext(), "In(b)"));
+    }
+}
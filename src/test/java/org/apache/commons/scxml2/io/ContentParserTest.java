@@ -18,11 +18,15 @@ package org.apache.commons.scxml2.io;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 
 import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -65,6 +69,28 @@ class ContentParserTest {
         assertEquals("a b c", ContentParser.spaceNormalizeContent("  a\tb \n \r c  "));
     }
 
+    @Test
+    void testToXml() throws Exception {
+        final Document document = ContentParser.getDocumentBuilder().newDocument();
+        final Element root = document.createElement("root");
+        root.appendChild(document.createElement("child")).setTextContent("text");
+        final String xml = ContentParser.DEFAULT_PARSER.toXml(root);
+        assertTrue(xml.contains("<child>text</child>"));
+        // reuses the transformer of the current thread
+        assertEquals(xml, ContentParser.DEFAULT_PARSER.toXml(root));
+        final String[] otherThreadXml = new String[1];
+        final Thread thread = new Thread(() -> {
+            try {
+                otherThreadXml[0] = ContentParser.DEFAULT_PARSER.toXml(root);
+            } catch (final IOException e) {
+                otherThreadXml[0] = e.toString();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(xml, otherThreadXml[0]);
+    }
+
     @Test
     void testTrimContent() {
         assertNull(ContentParser.trimContent(null));
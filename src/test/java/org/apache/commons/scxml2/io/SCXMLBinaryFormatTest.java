@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.model.CustomAction;
+import org.apache.commons.scxml2.model.EnterableState;
+import org.apache.commons.scxml2.model.Hello;
+import org.apache.commons.scxml2.model.SCXML;
+import org.apache.commons.scxml2.model.SimpleTransition;
+import org.apache.commons.scxml2.model.State;
+import org.apache.commons.scxml2.model.TransitionTarget;
+import org.apache.commons.scxml2.model.TransitionalState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests {@link SCXMLBinaryWriter} and {@link SCXMLBinaryReader}.
+ */
+class SCXMLBinaryFormatTest {
+
+    private static final String[] DOCUMENTS = {
+        "org/apache/commons/scxml2/final-donedata.xml",
+        "org/apache/commons/scxml2/history-deep-01.xml",
+        "org/apache/commons/scxml2/history-parallel-01.xml",
+        "org/apache/commons/scxml2/send-01.xml",
+        "org/apache/commons/scxml2/transitions-05.xml",
+        "org/apache/commons/scxml2/env/jexl/foreach.xml",
+        "org/apache/commons/scxml2/env/jexl/microwave-03.xml",
+        "org/apache/commons/scxml2/env/jexl/wizard-02.xml",
+        "org/apache/commons/scxml2/issues/issue62-02.xml",
+        "org/apache/commons/scxml2/issues/issue62-03.xml",
+        "org/apache/commons/scxml2/model/actions-initial-test.xml",
+        "org/apache/commons/scxml2/model/assign-test-01.xml",
+        "org/apache/commons/scxml2/model/cancel-test-01.xml",
+        "org/apache/commons/scxml2/model/parallel-03.xml"
+    };
+
+    private static void addTreeTargets(final List<EnterableState> states, final Set<TransitionTarget> treeTargets) {
+        for (final EnterableState state : states) {
+            treeTargets.add(state);
+            if (state instanceof TransitionalState) {
+                treeTargets.addAll(((TransitionalState) state).getHistory());
+                addTreeTargets(((TransitionalState) state).getChildren(), treeTargets);
+            }
+        }
+    }
+
+    private static void assertSameModel(final SCXML expected, final SCXML actual) throws Exception {
+        assertEquals(SCXMLWriter.write(expected), SCXMLWriter.write(actual));
+        assertEquals(expected.getTargets().keySet(), actual.getTargets().keySet());
+        final Set<TransitionTarget> treeTargets = Collections.newSetFromMap(new IdentityHashMap<>());
+        addTreeTargets(expected.getChildren(), treeTargets);
+        for (final Map.Entry<String, TransitionTarget> entry : expected.getTargets().entrySet()) {
+            final TransitionTarget target = actual.getTargets().get(entry.getKey());
+            assertEquals(entry.getValue().getClass(), target.getClass());
+            assertEquals(entry.getValue().getObservableId(), target.getObservableId());
+            if (!treeTargets.contains(entry.getValue())) {
+                // detached targets are loaded without their content
+                assertNull(target.getParent());
+                continue;
+            }
+            assertEquals(entry.getValue().getNumberOfAncestors(), target.getNumberOfAncestors());
+            if (target instanceof EnterableState) {
+                assertEquals(((EnterableState) entry.getValue()).getOrder(), ((EnterableState) target).getOrder());
+            }
+            if (target instanceof TransitionalState) {
+                final TransitionalState expectedState = (TransitionalState) entry.getValue();
+                final TransitionalState actualState = (TransitionalState) target;
+                assertEquals(expectedState.getTransitionsList().size(), actualState.getTransitionsList().size());
+                for (int i = 0; i < actualState.getTransitionsList().size(); i++) {
+                    final SimpleTransition transition = actualState.getTransitionsList().get(i);
+                    assertEquals(expectedState.getTransitionsList().get(i).getObservableId(),
+                            transition.getObservableId());
+                    for (final TransitionTarget transitionTarget : transition.getTargets()) {
+                        assertSame(actual.getTargets().get(transitionTarget.getId()), transitionTarget);
+                    }
+                }
+            }
+        }
+    }
+
+    private static SCXML roundTrip(final SCXML scxml) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SCXMLBinaryWriter.write(scxml, out);
+        final SCXML loaded = SCXMLBinaryReader.read(ByteBuffer.wrap(out.toByteArray()));
+        assertSameModel(scxml, loaded);
+        return loaded;
+    }
+
+    private static SCXML roundTrip(final SCXML scxml, final SCXMLReader.Configuration configuration)
+            throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SCXMLBinaryWriter.write(scxml, out);
+        final SCXML loaded = SCXMLBinaryReader.read(ByteBuffer.wrap(out.toByteArray()), configuration);
+        assertSameModel(scxml, loaded);
+        return loaded;
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCustomAction() throws Exception {
+        final List<CustomAction> customActions = new ArrayList<>();
+        customActions.add(new CustomAction("http://my.custom-actions.domain/CUSTOM", "hello", Hello.class));
+        final SCXML parsed = SCXMLTestHelper.parse("org/apache/commons/scxml2/custom-hello-world-04-jexl.xml",
+                customActions);
+        final SCXML scxml = roundTrip(parsed, new SCXMLReader.Configuration(null, null, customActions));
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+        exec.go();
+        SCXMLTestHelper.assertState(exec, "custom1");
+        assertEquals("custom04a", exec.getGlobalContext().get("helloName1"));
+        SCXMLTestHelper.fireEvent(exec, "custom.next");
+        assertEquals("custom04b", exec.getGlobalContext().get("helloName1"));
+        SCXMLTestHelper.assertState(exec, "end");
+        // custom actions which aren't registered are rejected
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SCXMLBinaryWriter.write(parsed, out);
+        assertThrows(IOException.class, () -> SCXMLBinaryReader.read(ByteBuffer.wrap(out.toByteArray())));
+    }
+
+    @Test
+    void testDetachedTargets() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse("org/apache/commons/scxml2/issues/issue62-01.xml");
+        // the state of the external document, of which only the content is pulled into s1.1 and s1.2
+        assertNotNull(scxml.getTargets().get("ext"));
+        final SCXML loaded = roundTrip(scxml);
+        final State ext = (State) loaded.getTargets().get("ext");
+        assertEquals("ext", ext.getId());
+        assertTrue(ext.getTransitionsList().isEmpty());
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(loaded);
+        exec.go();
+        SCXMLTestHelper.assertState(exec, "s1.1");
+        SCXMLTestHelper.assertPostTriggerState(exec, "foo", "s1.1");
+    }
+
+    @Test
+    void testExecuteLoadedModel() throws Exception {
+        final SCXML scxml = roundTrip(SCXMLTestHelper.parse("org/apache/commons/scxml2/env/jexl/microwave-03.xml"));
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+        exec.go();
+        SCXMLTestHelper.assertState(exec, "off");
+        SCXMLTestHelper.fireEvent(exec, "turn_on");
+        SCXMLTestHelper.assertState(exec, "cooking");
+    }
+
+    @Test
+    void testInvalidDocument() {
+        assertThrows(IOException.class, () -> SCXMLBinaryReader.read(ByteBuffer.wrap(new byte[] {1, 2, 3})));
+        assertThrows(IOException.class, () -> SCXMLBinaryReader.read(ByteBuffer.wrap(new byte[] {
+            0x53, 0x43, 0x58, 0x42, 1, 1
+        })));
+    }
+
+    @Test
+    void testLargeChart() throws Exception {
+        final int groups = 50;
+        final int size = 100;
+        final StringBuilder sb = new StringBuilder("<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\">");
+        for (int i = 0; i < groups; i++) {
+            sb.append("<state id=\"g").append(i).append("\">");
+            for (int j = 0; j < size; j++) {
+                final int next = (i * size + j + 1) % (groups * size);
+                sb.append("<state id=\"s").append(i * size + j).append("\"><transition event=\"e\" target=\"s")
+                        .append(next).append("\"/></state>");
+            }
+            sb.append("</state>");
+        }
+        sb.append("</scxml>");
+        final SCXML scxml = roundTrip(SCXMLReader.read(new StringReader(sb.toString())));
+        final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+        exec.go();
+        SCXMLTestHelper.assertState(exec, "s0");
+        for (int i = 1; i <= size; i++) {
+            SCXMLTestHelper.fireEvent(exec, "e");
+        }
+        SCXMLTestHelper.assertState(exec, "s" + size);
+    }
+
+    @Test
+    void testMappedFile() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse("org/apache/commons/scxml2/env/jexl/wizard-02.xml");
+        final Path file = tempDir.resolve("wizard-02.bin");
+        SCXMLBinaryWriter.write(scxml, file);
+        final SCXML loaded = SCXMLBinaryReader.read(file);
+        assertNotNull(loaded);
+        assertSameModel(scxml, loaded);
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        for (final String document : DOCUMENTS) {
+            roundTrip(SCXMLTestHelper.parse(document));
+        }
+    }
+}
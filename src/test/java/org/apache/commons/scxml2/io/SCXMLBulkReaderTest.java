@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.io.SCXMLReader.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests {@link SCXMLBulkReader}.
+ */
+class SCXMLBulkReaderTest {
+
+    private static void write(final Path file, final String content) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadDirectory() throws Exception {
+        final Path dir = tempDir;
+        Files.createDirectories(dir.resolve("sub"));
+        write(dir.resolve("shared.xml"), "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\">"
+                + "<state id=\"fragment\"><transition event=\"done\" target=\"end\"/></state></scxml>");
+        for (int i = 0; i < 20; i++) {
+            final Path file = dir.resolve((i % 2 == 0 ? "" : "sub/") + "chart" + i + ".scxml");
+            final String src = i % 2 == 0 ? "shared.xml#fragment" : "../shared.xml#fragment";
+            write(file, "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" initial=\"start\">"
+                    + "<state id=\"start\" src=\"" + src + "\"/><final id=\"end\"/></scxml>");
+        }
+        write(dir.resolve("invalid.scxml"), "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\">"
+                + "<state id=\"s\"><transition target=\"unknown\"/></state></scxml>");
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final List<SCXMLBulkReader.Result> results;
+        try {
+            results = new SCXMLBulkReader(pool, Configuration::new).read(dir);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(21, results.size());
+        int failures = 0;
+        for (final SCXMLBulkReader.Result result : results) {
+            if (result.getURL().getPath().endsWith("invalid.scxml")) {
+                assertNull(result.getSCXML());
+                assertNotNull(result.getException());
+                failures++;
+            } else {
+                assertNull(result.getException());
+                final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(result.getSCXML());
+                exec.go();
+                SCXMLTestHelper.assertState(exec, "start");
+                SCXMLTestHelper.fireEvent(exec, "done");
+                SCXMLTestHelper.assertState(exec, "end");
+            }
+        }
+        assertEquals(1, failures);
+    }
+
+    @Test
+    void testReadURLs() {
+        final List<URL> urls = new ArrayList<>();
+        urls.add(SCXMLTestHelper.getResource("org/apache/commons/scxml2/io/src-test-1.xml"));
+        urls.add(SCXMLTestHelper.getResource("org/apache/commons/scxml2/io/src-test-4.xml"));
+        urls.add(SCXMLTestHelper.getResource("org/apache/commons/scxml2/io/scxml-initial-attr.xml"));
+        final List<SCXMLBulkReader.Result> results = new SCXMLBulkReader().read(urls);
+        assertEquals(3, results.size());
+        for (int i = 0; i < urls.size(); i++) {
+            assertSame(urls.get(i), results.get(i).getURL());
+        }
+        assertNotNull(results.get(0).getSCXML());
+        assertTrue(results.get(1).getException().getMessage().contains("Source attribute in <state src="));
+        assertNotNull(results.get(2).getSCXML());
+    }
+
+    @Test
+    void testSrcLoadedOnce() throws Exception {
+        final SCXMLBulkReader.SrcCache srcCache = new SCXMLBulkReader.SrcCache();
+        final URL url = SCXMLTestHelper.getResource("org/apache/commons/scxml2/io/src-test-2.xml");
+        final byte[] content = srcCache.load(url);
+        assertTrue(content.length > 0);
+        assertSame(content, srcCache.load(url));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.model.ModelException;
+import org.apache.commons.scxml2.model.SCXML;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests {@link SCXMLModelCache}.
+ */
+class SCXMLModelCacheTest {
+
+    private static final String DOCUMENT = "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\">"
+            + "<state id=\"%s\"/></scxml>";
+
+    @Test
+    void testCheckModified() throws Exception {
+        final Path dir = Paths.get("target/model-cache");
+        Files.createDirectories(dir);
+        final Path file = dir.resolve("modified.xml");
+        Files.write(file, String.format(DOCUMENT, "a").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1000000000000L));
+        final URL url = file.toUri().toURL();
+        final SCXMLModelCache cache = new SCXMLModelCache();
+        final SCXMLModelCache unchecked = new SCXMLModelCache();
+        unchecked.setCheckModified(false);
+        final SCXML scxml = cache.read(url);
+        assertSame(scxml, cache.read(url));
+        assertEquals("a", unchecked.read(url).getChildren().get(0).getId());
+
+        Files.write(file, String.format(DOCUMENT, "b").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1000000001000L));
+        assertEquals("a", unchecked.read(url).getChildren().get(0).getId());
+        final SCXML modified = cache.read(url);
+        assertNotSame(scxml, modified);
+        assertEquals("b", modified.getChildren().get(0).getId());
+        assertSame(modified, cache.read(url));
+    }
+
+    @Test
+    void testDataSrcNotStoredInSharedModel() throws Exception {
+        final Path dir = Paths.get("target/model-cache");
+        Files.createDirectories(dir);
+        final Path data = dir.resolve("data.json");
+        Files.write(data, "{ \"x\": 1 }".getBytes(StandardCharsets.UTF_8));
+        final Path file = dir.resolve("data-src.xml");
+        Files.write(file, ("<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\">"
+                + "<datamodel><data id=\"d\" src=\"data.json\"/></datamodel><state id=\"s\"/></scxml>")
+                .getBytes(StandardCharsets.UTF_8));
+        final SCXML scxml = new SCXMLModelCache().read(file.toUri().toURL());
+        for (int i = 0; i < 2; i++) {
+            final SCXMLExecutor exec = SCXMLTestHelper.getExecutor(scxml);
+            exec.go();
+            assertEquals(1, ((Map<?, ?>) exec.getGlobalContext().get("d")).get("x"));
+        }
+        // the loaded value is not written back into the shared object model
+        assertNull(scxml.getDatamodel().getData().get(0).getParsedValue());
+    }
+
+    @Test
+    void testEviction() throws Exception {
+        final SCXMLModelCache cache = new SCXMLModelCache(1);
+        final SCXML a = cache.read(String.format(DOCUMENT, "a"));
+        cache.read(String.format(DOCUMENT, "b"));
+        assertEquals(1, cache.size());
+        assertNotSame(a, cache.read(String.format(DOCUMENT, "a")));
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    void testInvalidDocumentNotCached() {
+        final SCXMLModelCache cache = new SCXMLModelCache();
+        final String content = "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" initial=\"x\"/>";
+        assertThrows(ModelException.class, () -> cache.read(content));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testReadContent() throws Exception {
+        final SCXMLModelCache cache = new SCXMLModelCache();
+        final SCXML scxml = cache.read(String.format(DOCUMENT, "a"));
+        assertSame(scxml, cache.read(String.format(DOCUMENT, "a")));
+        assertNotSame(scxml, cache.read(String.format(DOCUMENT, "b")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testReadURL() throws Exception {
+        final SCXMLModelCache cache = new SCXMLModelCache();
+        final URL url = SCXMLTestHelper.getResource("org/apache/commons/scxml2/invoke/invoked-01.xml");
+        final SCXML scxml = cache.read(url);
+        assertSame(scxml, cache.read(url));
+        assertEquals(1, cache.size());
+    }
+}
@@ -37,6 +37,7 @@ import org.apache.commons.logging.impl.LogFactoryImpl;
 import org.apache.commons.logging.impl.SimpleLog;
 import org.apache.commons.scxml2.ActionExecutionContext;
 import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.env.SimpleXMLReporter;
 import org.apache.commons.scxml2.io.SCXMLReader.Configuration;
 import org.apache.commons.scxml2.model.Action;
 import org.apache.commons.scxml2.model.CustomAction;
@@ -187,6 +188,16 @@ class SCXMLReaderTest {
         return scxmlAsString;
     }
 
+    @Test
+    void testClearThreadCaches() throws Exception {
+        final String scxml = "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\">"
+                + "<datamodel><data id=\"d\"><x/></data></datamodel><final id=\"f\"/></scxml>";
+        assertNotNull(SCXMLReader.read(new StringReader(scxml)));
+        SCXMLReader.clearThreadCaches();
+        assertNotNull(SCXMLReader.read(new StringReader(scxml)));
+        assertNotNull(SCXMLReader.read(new StringReader(scxml), new Configuration(new SimpleXMLReporter(), null)));
+    }
+
     @Test
     void testDataWithSrcAndExprIsRejectedInStrictConfiguration() {
         final Configuration configuration = new Configuration();
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TransitionIndexTest {
+
+    private State state;
+    private Transition foo;
+    private Transition fooBar;
+    private Transition all;
+    private Transition eventless;
+    private Transition fooOrBaz;
+
+    private Transition addTransition(final String event) {
+        final Transition t = new Transition();
+        t.setEvent(event);
+        state.addTransition(t);
+        return t;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        state = new State();
+        fooBar = addTransition("foo.bar.*");
+        foo = addTransition("foo");
+        all = addTransition("*");
+        eventless = addTransition(null);
+        fooOrBaz = addTransition("baz foo.bar");
+    }
+
+    @Test
+    void testAddTransitionResetsIndex() {
+        final TransitionIndex index = state.getTransitionIndex();
+        final Transition qux = addTransition("qux");
+        assertTrue(index != state.getTransitionIndex());
+        assertEquals(Arrays.asList(all, qux), state.getTransitionIndex().getTransitions("qux"));
+    }
+
+    @Test
+    void testDocumentOrder() {
+        assertEquals(Arrays.asList(fooBar, foo, all, fooOrBaz), state.getTransitionIndex().getTransitions("foo.bar"));
+        assertEquals(Arrays.asList(fooBar, foo, all, fooOrBaz), state.getTransitionIndex().getTransitions("foo.bar.baz"));
+    }
+
+    @Test
+    void testEventless() {
+        assertEquals(Collections.singletonList(eventless), state.getTransitionIndex().getTransitions(null));
+    }
+
+    @Test
+    void testModifyTransitionsListResetsIndex() {
+        state.getTransitionIndex();
+        state.getTransitionsList().remove(foo);
+        assertEquals(Collections.singletonList(all), state.getTransitionIndex().getTransitions("foo"));
+        final Transition qux = new Transition();
+        qux.setEvent("qux");
+        state.getTransitionsList().add(qux);
+        assertEquals(Arrays.asList(all, qux), state.getTransitionIndex().getTransitions("qux"));
+        state.getTransitionsList().removeIf(t -> t == all);
+        assertEquals(Collections.singletonList(qux), state.getTransitionIndex().getTransitions("qux"));
+    }
+
+    @Test
+    void testNoMatch() {
+        final State empty = new State();
+        assertTrue(empty.getTransitionIndex().getTransitions("foo").isEmpty());
+        assertEquals(Collections.singletonList(all), state.getTransitionIndex().getTransitions("food"));
+        assertEquals(Collections.singletonList(all), state.getTransitionIndex().getTransitions("bar"));
+    }
+
+    @Test
+    void testPrefixMatch() {
+        assertEquals(Arrays.asList(foo, all), state.getTransitionIndex().getTransitions("foo"));
+        assertEquals(Arrays.asList(foo, all), state.getTransitionIndex().getTransitions("foo.baz"));
+        assertEquals(Arrays.asList(all, fooOrBaz), state.getTransitionIndex().getTransitions("baz.foo"));
+    }
+
+    @Test
+    void testSetEventResetsIndex() {
+        foo.setEvent("qux");
+        assertEquals(Collections.singletonList(all), state.getTransitionIndex().getTransitions("foo"));
+        assertEquals(Arrays.asList(foo, all), state.getTransitionIndex().getTransitions("qux"));
+    }
+}
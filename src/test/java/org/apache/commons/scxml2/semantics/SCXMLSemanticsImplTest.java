@@ -20,18 +20,100 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.StringReader;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.apache.commons.scxml2.EnterableStateSet;
+import org.apache.commons.scxml2.SCXMLExecutionContext;
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLTestHelper;
 import org.apache.commons.scxml2.env.MockErrorReporter;
+import org.apache.commons.scxml2.env.SimpleDispatcher;
 import org.apache.commons.scxml2.env.SimpleErrorReporter;
 import org.apache.commons.scxml2.model.EnterableState;
 import org.apache.commons.scxml2.model.Parallel;
+import org.apache.commons.scxml2.model.SCXML;
 import org.apache.commons.scxml2.model.State;
+import org.apache.commons.scxml2.model.Transition;
 import org.junit.jupiter.api.Test;
 
 class SCXMLSemanticsImplTest {
 
+    private static final String SCXML_WITH_PARALLEL =
+            "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" initial=\"p\">\n"
+            + "  <parallel id=\"p\">\n"
+            + "    <state id=\"a\">\n"
+            + "      <state id=\"a1\"><transition event=\"e\" target=\"a2\"/></state>\n"
+            + "      <state id=\"a2\"/>\n"
+            + "    </state>\n"
+            + "    <state id=\"b\">\n"
+            + "      <state id=\"b1\"><transition event=\"e\" target=\"out\"/></state>\n"
+            + "    </state>\n"
+            + "  </parallel>\n"
+            + "  <state id=\"out\"/>\n"
+            + "</scxml>";
+
+    @Test
+    void testComputeExitSet() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(SCXML_WITH_PARALLEL), null);
+        final EnterableStateSet activeStates = new EnterableStateSet();
+        for (final String id : new String[] {"p", "a", "a1", "b", "b1", "out"}) {
+            activeStates.add((EnterableState) scxml.getTargets().get(id));
+        }
+        final State a = (State) scxml.getTargets().get("a");
+        final State b1 = (State) scxml.getTargets().get("b1");
+        assertEquals(((EnterableState) scxml.getTargets().get("a2")).getOrder(), a.getLastDescendantOrder());
+
+        final Transition a1ToA2 = ((State) scxml.getTargets().get("a1")).getTransitionsList().get(0);
+        final EnterableStateSet exitSet1 = new EnterableStateSet();
+        new SCXMLSemanticsImpl().computeExitSet(a1ToA2, exitSet1, activeStates);
+        assertEquals(1, exitSet1.size());
+        assertTrue(exitSet1.contains(scxml.getTargets().get("a1")));
+
+        final Transition b1ToOut = b1.getTransitionsList().get(0);
+        final EnterableStateSet exitSet2 = new EnterableStateSet();
+        new SCXMLSemanticsImpl().computeExitSet(b1ToOut, exitSet2, activeStates);
+        assertEquals(6, exitSet2.size());
+        assertTrue(exitSet1.intersects(exitSet2));
+    }
+
+    @Test
+    void testMatchTransitionOverride() throws Exception {
+        final SCXML scxml = SCXMLTestHelper.parse(new StringReader(
+                "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" datamodel=\"jexl\">\n"
+                + "  <state id=\"s\">\n"
+                + "    <transition event=\"e\" cond=\"false\" target=\"guarded\"/>\n"
+                + "    <transition event=\"other\" target=\"other\"/>\n"
+                + "  </state>\n"
+                + "  <final id=\"guarded\"/>\n"
+                + "  <final id=\"other\"/>\n"
+                + "</scxml>"), null);
+        final Set<String> matched = new HashSet<>();
+        // treats the event "alias" as "other", and ignores the guards
+        final SCXMLSemanticsImpl semantics = new SCXMLSemanticsImpl() {
+            @Override
+            public boolean matchTransition(final SCXMLExecutionContext exctx, final Transition transition,
+                                           final String eventName) {
+                if (eventName != null) {
+                    matched.add(transition.getEvent());
+                }
+                return "alias".equals(eventName) ? "other".equals(transition.getEvent())
+                        : eventName != null && eventName.equals(transition.getEvent());
+            }
+        };
+        final SCXMLExecutor exec = new SCXMLExecutor(null, new SimpleDispatcher(), new SimpleErrorReporter(),
+                semantics);
+        exec.setStateMachine(scxml);
+        exec.go();
+        SCXMLTestHelper.assertPostTriggerState(exec, "alias", "other");
+        assertEquals(new HashSet<>(Arrays.asList("e", "other")), matched);
+
+        exec.reset();
+        SCXMLTestHelper.assertPostTriggerState(exec, "e", "guarded");
+    }
+
     @Test
     void testIsLegalConfigInvalidParallel() {
         final Set<EnterableState> states = new HashSet<>();
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.scxml2.semantics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.commons.scxml2.EventBuilder;
+import org.apache.commons.scxml2.SCXMLExecutor;
+import org.apache.commons.scxml2.SCXMLTestHelper;
+import org.apache.commons.scxml2.TriggerEvent;
+import org.apache.commons.scxml2.env.SimpleDispatcher;
+import org.apache.commons.scxml2.env.SimpleErrorReporter;
+import org.junit.jupiter.api.Test;
+
+class StepReuseTest {
+
+    private static final String TOGGLE_SCXML =
+            "<scxml xmlns=\"http://www.w3.org/2005/07/scxml\" version=\"1.0\" initial=\"p\">\n"
+            + "  <parallel id=\"p\">\n"
+            + "    <state id=\"a\" initial=\"a1\">\n"
+            + "      <state id=\"a1\"><transition event=\"toggle\" target=\"a2\"/></state>\n"
+            + "      <state id=\"a2\"><transition event=\"toggle\" target=\"a1\"/></state>\n"
+            + "    </state>\n"
+            + "    <state id=\"b\" initial=\"b1\">\n"
+            + "      <state id=\"b1\"><transition event=\"toggle\" target=\"b2\"/></state>\n"
+            + "      <state id=\"b2\"><transition target=\"b1\"/></state>\n"
+            + "    </state>\n"
+            + "  </parallel>\n"
+            + "</scxml>";
+
+    /**
+     * @return the minimum number of bytes allocated per event over a number of rounds, to exclude the allocations
+     *         during warming up (class loading, JIT compilation)
+     */
+    private static long allocatedBytesPerEvent(final SCXMLExecutor exec, final TriggerEvent event) throws Exception {
+        final com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final int count = 10000;
+        long minimum = Long.MAX_VALUE;
+        for (int round = 0; round < 12; round++) {
+            final long start = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < count; i++) {
+                exec.triggerEvent(event);
+            }
+            minimum = Math.min(minimum, (threadMXBean.getThreadAllocatedBytes(threadId) - start) / count);
+        }
+        return minimum;
+    }
+
+    private static SCXMLExecutor newExecutor(final boolean reuseSteps) throws Exception {
+        final SCXMLExecutor exec = new SCXMLExecutor(null, new SimpleDispatcher(), new SimpleErrorReporter());
+        exec.setStateMachine(SCXMLTestHelper.parse(new StringReader(TOGGLE_SCXML), null));
+        exec.setReuseSteps(reuseSteps);
+        exec.go();
+        return exec;
+    }
+
+    @Test
+    void testReuseStepsAllocation() throws Exception {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported());
+        ((com.sun.management.ThreadMXBean) threadMXBean).setThreadAllocatedMemoryEnabled(true);
+
+        final TriggerEvent toggle = new EventBuilder("toggle", TriggerEvent.SIGNAL_EVENT).build();
+        final SCXMLExecutor exec = newExecutor(true);
+        // the legal configuration check is a debugging aid which allocates its own bookkeeping for each micro step
+        exec.setCheckLegalConfiguration(false);
+        final long reusedBytesPerEvent = allocatedBytesPerEvent(exec, toggle);
+
+        final SCXMLExecutor plainExec = newExecutor(false);
+        plainExec.setCheckLegalConfiguration(false);
+        final long plainBytesPerEvent = allocatedBytesPerEvent(plainExec, toggle);
+
+        // only the queued event node and the _event system variable should remain (next to some JIT noise)
+        assertTrue(reusedBytesPerEvent < 256, "Allocated " + reusedBytesPerEvent + " bytes per event");
+        assertTrue(reusedBytesPerEvent < plainBytesPerEvent,
+                "Allocated " + reusedBytesPerEvent + " bytes per event, versus " + plainBytesPerEvent + " without reuse");
+    }
+
+    @Test
+    void testReuseStepsConfiguration() throws Exception {
+        final SCXMLExecutor exec = newExecutor(true);
+        assertTrue(exec.isReuseSteps());
+        SCXMLTestHelper.assertPostTriggerStates(exec, "toggle", new String[] {"a2", "b1"});
+        SCXMLTestHelper.assertPostTriggerStates(exec, "toggle", new String[] {"a1", "b1"});
+        exec.setReuseSteps(false);
+        assertFalse(exec.isReuseSteps());
+        SCXMLTestHelper.assertPostTriggerStates(exec, "toggle", new String[] {"a2", "b1"});
+        assertEquals(2, exec.getStatus().getStates().size());
+    }
+}